@@ -13,7 +13,10 @@ public class BurpExtender implements BurpExtension {
             mainUI.initializeUI();
 
             burpApi.extension().setName(mainUI.getExtensionName());
-            burpApi.extension().registerUnloadingHandler(() -> mainUI.getScannerOptions().saveToPersistentStorage());
+            burpApi.extension().registerUnloadingHandler(() -> {
+                mainUI.getScannerOptions().saveToPersistentStorage();
+                mainUI.shutdown();
+            });
 
             Thread.setDefaultUncaughtExceptionHandler((thread, throwable) -> {
                 burpApi.logging().logToError(throwable);
@@ -8,6 +8,7 @@ import burp.api.montoya.http.handler.RequestToBeSentAction;
 import burp.api.montoya.http.handler.ResponseReceivedAction;
 import com.tzm.supafinder.model.RegexEntity;
 import com.tzm.supafinder.model.RegexScannerOptions;
+import com.tzm.supafinder.scanner.RealtimeAnalysisScheduler;
 import com.tzm.supafinder.ui.tab.AboutTab;
 import com.tzm.supafinder.ui.tab.ApplicationTab;
 import com.tzm.supafinder.ui.tab.LoggerTab;
@@ -35,6 +36,7 @@ public class MainUI {
     private LoggerTab loggerTab;
     private burp.api.montoya.core.Registration httpHandlerRegistration;
     private YamlFileWatcher yamlFileWatcher;
+    private volatile RealtimeAnalysisScheduler realtimeScheduler;
 
     public MainUI(MontoyaApi burpApi) throws Exception {
         this.interfaceInitialized = false;
@@ -88,6 +90,13 @@ public class MainUI {
         if (enabled) {
             // Register HTTP handler for real-time analysis
             if (httpHandlerRegistration == null && loggerTab != null) {
+                RealtimeAnalysisScheduler scheduler = new RealtimeAnalysisScheduler(
+                        Math.max(1, scannerOptions.getConfigRealtimeWorkers()),
+                        Math.max(1, scannerOptions.getConfigRealtimeQueueCapacity()),
+                        RealtimeAnalysisScheduler.OverflowPolicy.fromString(scannerOptions.getConfigRealtimeOverflowPolicy()),
+                        scannerOptions.isConfigRealtimeVirtualThreads());
+                realtimeScheduler = scheduler;
+
                 // Create a simple HTTP handler that uses the scanner
                 HttpHandler httpHandler = new HttpHandler() {
                     @Override
@@ -125,28 +134,20 @@ public class MainUI {
                     }
 
                     private void analyzeRequestAsync(HttpRequestToBeSent request) {
-                        new Thread(() -> {
-                            try {
-                                burp.api.montoya.http.message.HttpRequestResponse requestResponse =
-                                    burp.api.montoya.http.message.HttpRequestResponse.httpRequestResponse(request, null);
-                                loggerTab.getRegexScanner().analyzeSingleMessageRealtime(requestResponse);
-                            } catch (Exception e) {
-                                System.err.println("Error analyzing request in real-time: " + e.getMessage());
-                            }
-                        }, "RealTime-Request-Analyzer").start();
+                        scheduler.submit(() -> {
+                            burp.api.montoya.http.message.HttpRequestResponse requestResponse =
+                                burp.api.montoya.http.message.HttpRequestResponse.httpRequestResponse(request, null);
+                            loggerTab.getRegexScanner().analyzeSingleMessageRealtime(requestResponse, request.toolSource().toolType().name());
+                        });
                     }
 
                     private void analyzeResponseAsync(HttpResponseReceived response) {
-                        new Thread(() -> {
-                            try {
-                                burp.api.montoya.http.message.HttpRequestResponse requestResponse =
-                                    burp.api.montoya.http.message.HttpRequestResponse.httpRequestResponse(
-                                        response.initiatingRequest(), response);
-                                loggerTab.getRegexScanner().analyzeSingleMessageRealtime(requestResponse);
-                            } catch (Exception e) {
-                                System.err.println("Error analyzing response in real-time: " + e.getMessage());
-                            }
-                        }, "RealTime-Response-Analyzer").start();
+                        scheduler.submit(() -> {
+                            burp.api.montoya.http.message.HttpRequestResponse requestResponse =
+                                burp.api.montoya.http.message.HttpRequestResponse.httpRequestResponse(
+                                    response.initiatingRequest(), response);
+                            loggerTab.getRegexScanner().analyzeSingleMessageRealtime(requestResponse, response.toolSource().toolType().name());
+                        });
                     }
                 };
 
@@ -160,9 +161,29 @@ public class MainUI {
                 httpHandlerRegistration = null;
                 System.out.println("Real-time analysis disabled");
             }
+            if (realtimeScheduler != null) {
+                realtimeScheduler.shutdown();
+                realtimeScheduler = null;
+            }
         }
     }
 
+    /**
+     * Returns the scheduler of the real-time analysis, or null if the analysis is disabled
+     */
+    public RealtimeAnalysisScheduler getRealtimeScheduler() {
+        return realtimeScheduler;
+    }
+
+    /**
+     * Release the resources held by the extension, when it's unloaded
+     */
+    public void shutdown() {
+        toggleRealtimeAnalysis(false);
+        if (loggerTab != null) loggerTab.shutdown();
+        if (yamlFileWatcher != null) yamlFileWatcher.stop();
+    }
+
     /**
      * Initialize YAML file watcher
      */
@@ -5,25 +5,49 @@ import burp.api.montoya.core.ByteArray;
 import burp.api.montoya.http.message.MimeType;
 import burp.api.montoya.http.message.requests.HttpRequest;
 import burp.api.montoya.http.message.responses.HttpResponse;
+import burp.api.montoya.persistence.PersistedObject;
 import burp.api.montoya.proxy.ProxyHttpRequestResponse;
+import com.tzm.supafinder.model.Evidence;
+import com.tzm.supafinder.model.EvidenceStore;
 import com.tzm.supafinder.model.HttpRecord;
 import com.tzm.supafinder.model.HttpSection;
-import com.tzm.supafinder.model.LogEntriesManager;
 import com.tzm.supafinder.model.LogEntity;
+import com.tzm.supafinder.model.MatchPosition;
 import com.tzm.supafinder.model.RegexEntity;
 import com.tzm.supafinder.model.RegexScannerOptions;
+import com.tzm.supafinder.scanner.ChunkMatchCache;
+import com.tzm.supafinder.scanner.ContentChunker;
+import com.tzm.supafinder.scanner.LiteralSet;
+import com.tzm.supafinder.scanner.MatchResultCache;
+import com.tzm.supafinder.scanner.NearDuplicateDetector;
+import com.tzm.supafinder.scanner.ParallelMatcher;
+import com.tzm.supafinder.scanner.RuleCoverage;
+import com.tzm.supafinder.scanner.ScanReport;
+import com.tzm.supafinder.scanner.ScanWatermark;
+import com.tzm.supafinder.scanner.ScanWorkerPool;
 import com.tzm.supafinder.utils.BurpUtils;
 import com.tzm.supafinder.utils.ScannerUtils;
 
 import javax.swing.JProgressBar;
 import javax.swing.SwingUtilities;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -53,28 +77,64 @@ public class RegexScanner {
             MimeType.SOUND,
             MimeType.VIDEO
     );
+    /**
+     * Characters of the section kept before and after each match, shown with the finding
+     */
+    public static final int MATCH_CONTEXT_CHARS = 32;
     private final MontoyaApi burpApi;
     private final RegexScannerOptions scannerOptions;
     private final List<RegexEntity> generalRegexList;
     private final List<RegexEntity> extensionsRegexList;
-    private final Object analyzeLock = new Object();
+    /**
+     * Workers shared by all the history scans of this scanner
+     */
+    private final ScanWorkerPool workerPool;
+    /**
+     * Fork/join pool used to split the analysis of large messages
+     */
+    private final ParallelMatcher parallelMatcher;
+    /**
+     * Messages with findings, referenced by the findings instead of the request and response objects
+     */
+    private final EvidenceStore evidenceStore;
+    /**
+     * Matches of the bodies already analyzed, reused when the same body is found in other messages
+     */
+    private final MatchResultCache matchResultCache;
+    /**
+     * Matches of the chunks of large bodies already searched, reused when the same chunks are found in other bodies
+     */
+    private final ChunkMatchCache chunkMatchCache;
+    /**
+     * Responses of the real-time analysis already analyzed, to analyze only the changed region of their
+     * near-duplicates. Replaced when the maximum distance changes, null when disabled.
+     */
+    private volatile NearDuplicateDetector nearDuplicateDetector;
     /**
      * Flag that indicates if the scan must be interrupted.
      * Used to interrupt scan before completion.
      */
     private volatile boolean interruptScan;
+    /**
+     * Items of the running scan, used to cancel it
+     */
+    private volatile ScanWorkerPool.Batch currentBatch;
     /**
      * Counter of analyzed items. Used mainly for the progress bar
      */
-    private int analyzedItems;
+    private final AtomicInteger analyzedItems = new AtomicInteger();
+    /**
+     * True while an update of the progress bar is waiting to run in the EDT
+     */
+    private final AtomicBoolean progressUpdatePending = new AtomicBoolean();
     /**
      * Reference to a progress bar to update during the scan
      */
     private JProgressBar progressBar;
     /**
-     * Reference to log entries manager for real-time analysis
+     * Callback receiving the findings of the real-time analysis
      */
-    private LogEntriesManager logEntriesManager;
+    private Consumer<LogEntity> realtimeLogEntriesCallback;
 
     public RegexScanner(MontoyaApi burpApi, RegexScannerOptions scannerOptions) {
         this.burpApi = burpApi;
@@ -83,22 +143,46 @@ public class RegexScanner {
         this.extensionsRegexList = scannerOptions.getExtensionsRegexList();
         this.interruptScan = false;
         this.progressBar = null;
+        this.workerPool = new ScanWorkerPool("Scanner-Worker-");
+        this.parallelMatcher = new ParallelMatcher(scannerOptions.getConfigNumberOfThreads());
+        this.evidenceStore = new EvidenceStore();
+        this.matchResultCache = scannerOptions.isConfigMatchCachePersisted()
+                ? MatchResultCache.load(burpApi.persistence().extensionData())
+                : new MatchResultCache();
+        this.chunkMatchCache = new ChunkMatchCache();
     }
 
     private void setupAnalysis(int maxItems) {
-        this.analyzedItems = 0;
+        this.analyzedItems.set(0);
         if (Objects.nonNull(progressBar)) SwingUtilities.invokeLater(() -> {
+            progressBar.setString(null);
             progressBar.setMaximum(maxItems);
             progressBar.setValue(0);
         });
     }
 
     /**
-     * Method for analyzing the elements in Burp > Proxy > HTTP history
+     * Method for analyzing all the elements in Burp > Proxy > HTTP history
+     *
+     * @param logEntriesCallback A callback that's called for every new finding, with a LogEntity as the only argument
+     * @return the summary of the scan, available once all the items have been analyzed
+     */
+    public ScanReport analyzeProxyHistory(Consumer<LogEntity> logEntriesCallback) {
+        return analyzeProxyHistory(logEntriesCallback, true);
+    }
+
+    /**
+     * Method for analyzing the elements in Burp > Proxy > HTTP history.
+     * <br><br>
+     * The point reached by the scan is saved in the project (see {@link ScanWatermark}): unless a full rescan is
+     * requested, only the items added since the last completed scan are analyzed, as long as the rules and filters
+     * did not change in the meantime.
      *
      * @param logEntriesCallback A callback that's called for every new finding, with a LogEntity as the only argument
+     * @param fullRescan         analyze the whole history, even the items already analyzed by the last scan
+     * @return the summary of the scan, available once all the items have been analyzed
      */
-    public void analyzeProxyHistory(Consumer<LogEntity> logEntriesCallback) {
+    public ScanReport analyzeProxyHistory(Consumer<LogEntity> logEntriesCallback, boolean fullRescan) {
         // create a copy of the regex list to protect from changes while scanning
         // Filter by importance level
         List<RegexEntity> allRegexListCopy = Stream
@@ -113,63 +197,145 @@ public class RegexScanner {
         System.out.println("[DEBUG] Selected importance levels: " + scannerOptions.getSelectedImportanceLevels());
         System.out.println("[DEBUG] Filtered regexes to scan: " + allRegexListCopy.size());
 
-        ExecutorService executor = Executors.newFixedThreadPool(scannerOptions.getConfigNumberOfThreads());
+        Instant startTime = Instant.now();
 
         // removing items from the list allows the GC to clean up just after the task is executed
         // instead of waiting until the whole analysis finishes.
-        List<ProxyHttpRequestResponse> proxyEntries = this.burpApi.proxy().history();
-        System.out.println("[DEBUG] Proxy history entries: " + proxyEntries.size());
-        if (proxyEntries.isEmpty()) return;
+        List<ProxyHttpRequestResponse> history = this.burpApi.proxy().history();
+        System.out.println("[DEBUG] Proxy history entries: " + history.size());
+        PersistedObject extensionData = this.burpApi.persistence().extensionData();
+        if (history.isEmpty()) {
+            ScanWatermark.clear(extensionData);
+            RuleCoverage.clear(extensionData);
+            return ScanReport.empty(startTime);
+        }
+
+        // skip the items analyzed by the last scan, computed before the list is consumed below
+        int actualSize = history.size();
+        long filtersVersion = ScanWatermark.filtersVersion(scannerOptions);
+        boolean sameHistory = !fullRescan && ScanWatermark.load(extensionData)
+                .map(lastScan -> lastScan.isValidFor(history, filtersVersion))
+                .orElse(false);
+        RuleCoverage coverage = sameHistory ? RuleCoverage.load(extensionData) : new RuleCoverage();
+        ScanWatermark watermark = new ScanWatermark(actualSize, filtersVersion, ScanWatermark.itemHash(history.get(actualSize - 1)));
 
         // Apply history scan limit
         int limit = scannerOptions.getHistoryScanLimit();
-        int actualSize = proxyEntries.size();
+        int firstIndex = 0;
         if (limit > 0 && limit < actualSize) {
             // Keep only the last 'limit' entries (most recent)
-            proxyEntries = proxyEntries.subList(actualSize - limit, actualSize);
+            firstIndex = actualSize - limit;
         }
+        // only the rules that did not analyze an item yet are run on it, e.g. only the rules added since the last scan
+        List<RegexEntity> activeRegexes = allRegexListCopy.stream().filter(RegexEntity::isActive).toList();
+        List<RuleCoverage.Segment> segments = coverage.plan(activeRegexes, firstIndex, actualSize);
+        int totalItems = segments.stream().mapToInt(segment -> segment.end() - segment.start()).sum();
+        // nothing to do when there are no new history entries or rules since the last scan
+        if (totalItems == 0) return ScanReport.empty(startTime);
+
+        this.setupAnalysis(totalItems);
+
+        LongAdder findings = new LongAdder();
+        Consumer<LogEntity> countingCallback = logEntity -> {
+            findings.increment();
+            logEntriesCallback.accept(logEntity);
+        };
+
+        workerPool.setWorkers(Math.max(1, scannerOptions.getConfigNumberOfThreads()));
+        parallelMatcher.setParallelism(scannerOptions.getConfigNumberOfThreads());
+        ScanWorkerPool.Batch batch = workerPool.newBatch();
+        this.currentBatch = batch;
+        if (this.interruptScan) batch.cancel();
 
-        this.setupAnalysis(proxyEntries.size());
-
-        for (int entryIndex = proxyEntries.size() - 1; entryIndex >= 0; entryIndex--) {
-            ProxyHttpRequestResponse proxyEntry = proxyEntries.remove(entryIndex);
-            executor.execute(() -> {
-                if (interruptScan) return;
-
-                analyzeSingleMessage(allRegexListCopy, scannerOptions, proxyEntry, logEntriesCallback);
-
-                synchronized (analyzeLock) {
-                    this.analyzedItems++;
+        try {
+            // submission blocks while too many items are in flight, so only a few items are queued at any time
+            submission:
+            for (int segmentIndex = segments.size() - 1; segmentIndex >= 0; segmentIndex--) {
+                RuleCoverage.Segment segment = segments.get(segmentIndex);
+                long ruleSetVersion = MatchResultCache.ruleSetVersion(segment.rules(), scannerOptions.getConfigRefineContextSize());
+                List<ProxyHttpRequestResponse> proxyEntries = history.subList(segment.start(), segment.end());
+                for (int entryIndex = proxyEntries.size() - 1; entryIndex >= 0; entryIndex--) {
+                    ProxyHttpRequestResponse proxyEntry = proxyEntries.remove(entryIndex);
+                    int historyIndex = segment.start() + entryIndex;
+                    boolean submitted = batch.submit(() -> {
+                        analyzeSingleMessage(segment.rules(), ruleSetVersion, scannerOptions, proxyEntry, historyIndex, countingCallback);
+                        this.analyzedItems.incrementAndGet();
+                        updateProgressBar();
+                    });
+                    if (!submitted) break submission;
                 }
-                if (Objects.nonNull(progressBar))
-                    SwingUtilities.invokeLater(() -> progressBar.setValue(this.analyzedItems));
-            });
+            }
+        } catch (InterruptedException e) {
+            batch.cancel();
+            Thread.currentThread().interrupt();
         }
 
+        Instant endTime;
         try {
-            executor.shutdown();
-            while (!executor.isTerminated()) {
-                if (this.interruptScan)
-                    executor.shutdownNow();
+            endTime = batch.close().get();
+        } catch (InterruptedException | ExecutionException e) {
+            batch.cancel();
+            endTime = Instant.now();
+            Thread.currentThread().interrupt();
+        } finally {
+            this.currentBatch = null;
+        }
 
-                Thread.sleep(200);
+        ScanReport report = new ScanReport(totalItems, analyzedItems.get(), findings.sum(), startTime, endTime, batch.isCancelled());
+        // an interrupted scan must be resumed from where the previous complete scan ended
+        if (!report.cancelled()) {
+            coverage.markScanned(activeRegexes, firstIndex, actualSize);
+            // rules deleted or edited will not be scanned again
+            coverage.retainRules(Stream.concat(generalRegexList.stream(), extensionsRegexList.stream()).toList());
+            coverage.save(extensionData);
+            watermark.save(extensionData);
+        }
+        // findings are published through the EDT: wait for them, so the scan ends when all of them are visible
+        Runnable finalUpdate = () -> {
+            if (Objects.isNull(progressBar)) return;
+            progressBar.setValue(report.analyzedItems());
+            progressBar.setString(report.toString());
+        };
+        if (SwingUtilities.isEventDispatchThread()) {
+            finalUpdate.run();
+        } else {
+            try {
+                SwingUtilities.invokeAndWait(finalUpdate);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (InvocationTargetException e) {
+                System.err.println("Error updating the progress bar: " + e.getCause());
             }
-        } catch (InterruptedException e) {
-            executor.shutdownNow();
         }
+        return report;
+    }
+
+    /**
+     * Schedule an update of the progress bar, unless one is already pending
+     */
+    private void updateProgressBar() {
+        if (Objects.isNull(progressBar) || !progressUpdatePending.compareAndSet(false, true)) return;
+        SwingUtilities.invokeLater(() -> {
+            progressUpdatePending.set(false);
+            progressBar.setValue(this.analyzedItems.get());
+        });
     }
 
     /**
      * The main method that scan for regex in the single request body
      *
-     * @param regexList          list of regexes to try and match
+     * @param regexList          list of regexes to try and match, all active
+     * @param ruleSetVersion     version of the list of regexes, see {@link MatchResultCache#ruleSetVersion(List, int)}
      * @param scannerOptions     options for the scanner
      * @param proxyEntry         the item (request/response) from burp's http proxy
+     * @param historyIndex       the index of the item in the proxy history, referenced by the saved findings
      * @param logEntriesCallback A callback that's called for every new finding, with a LogEntity as the only argument.
      */
     private void analyzeSingleMessage(List<RegexEntity> regexList,
+                                      long ruleSetVersion,
                                       RegexScannerOptions scannerOptions,
                                       ProxyHttpRequestResponse proxyEntry,
+                                      int historyIndex,
                                       Consumer<LogEntity> logEntriesCallback) {
         // The initial checks must be kept ordered based on the amount of information required from Burp APIs.
         // API calls (to MontoyaAPI) for specific parts of the request/response are quite slow.
@@ -180,68 +346,144 @@ public class RegexScanner {
         if (ScannerUtils.isMimeTypeBlacklisted(scannerOptions, response)) return;
         ByteArray responseBody = response.body();
         if (ScannerUtils.isResponseSizeOverMaxSize(scannerOptions, responseBody)) return;
+        byte[] responseBodyBytes = responseBody.getBytes();
+        if (ScannerUtils.isResponseBodyBinary(scannerOptions, responseBodyBytes)) return;
+        if (ScannerUtils.isResponseBodyKnownAsset(scannerOptions, responseBodyBytes)) return;
 
         // Not using bodyToString() as it's extremely slow
         String requestUrl = request.url();
-        String requestBodyDecoded = BurpUtils.convertByteArrayToString(request.body());
+        byte[] requestBodyBytes = request.body().getBytes();
+        String requestBodyDecoded = BurpUtils.convertBytesToString(requestBodyBytes);
         String requestHeaders = BurpUtils.convertHttpHeaderListToString(request.headers());
-        String responseBodyDecoded = BurpUtils.convertByteArrayToString(responseBody);
+        String responseBodyDecoded = BurpUtils.convertBytesToString(responseBodyBytes);
         String responseHeaders = BurpUtils.convertHttpHeaderListToString(response.headers());
+        SectionBytesCache sectionBytes = new SectionBytesCache();
+        sectionBytes.put(HttpSection.REQ_BODY, requestBodyBytes);
+        sectionBytes.put(HttpSection.RES_BODY, responseBodyBytes);
 
-        for (RegexEntity regex : regexList) {
-            if (this.interruptScan) return;
-            if (!regex.isActive()) continue;
+        HttpRecord requestResponse = new HttpRecord(requestUrl, requestHeaders, requestBodyDecoded, responseHeaders, responseBodyDecoded);
+        long messageSize = (long) requestBodyBytes.length + responseBodyBytes.length;
+        List<List<HttpMatchResult>> matchesByRegex = findMatchesByRegex(regexList, ruleSetVersion, scannerOptions, requestResponse, sectionBytes, messageSize, true);
 
-            Consumer<HttpMatchResult> logMatchCallback = match -> {
+        // the message is stored once, and shared by all its findings
+        Evidence evidence = null;
+        for (int i = 0; i < regexList.size(); i++) {
+            if (this.interruptScan) return;
+            RegexEntity regex = regexList.get(i);
+            for (HttpMatchResult match : matchesByRegex.get(i)) {
                 System.out.println("[DEBUG] Match found! Regex: " + regex.getDescription() + ", Section: " + match.section + ", Match: " + match.match.substring(0, Math.min(50, match.match.length())));
-                logEntriesCallback.accept(new LogEntity(request, response, regex, match.section, match.match));
-            };
-            HttpRecord requestResponse = new HttpRecord(requestUrl, requestHeaders, requestBodyDecoded, responseHeaders, responseBodyDecoded);
-            performMatchingOnMessage(regex, scannerOptions, requestResponse, logMatchCallback);
+                if (evidence == null) evidence = evidenceStore.store(request, response, historyIndex);
+                logEntriesCallback.accept(match.toLogEntity(evidence, requestUrl, responseHeaders, regex));
+            }
         }
     }
 
-    private void performMatchingOnMessage(RegexEntity regex,
-                                          RegexScannerOptions scannerOptions,
-                                          HttpRecord requestResponse,
-                                          Consumer<HttpMatchResult> logMatchCallback) {
+    /**
+     * Apply every regex to the message. Large messages are analyzed in parallel, splitting the regexes in slices.
+     * <br><br>
+     * Bodies already analyzed by the same regexes in another message are not matched again, their cached matches
+     * are used instead (see {@link MatchResultCache}).
+     *
+     * @param ruleSetVersion version of the list of regexes, see {@link MatchResultCache#ruleSetVersion(List, int)}
+     * @param interruptible  if true, regexes are skipped once the scan is interrupted
+     * @return the matches of each regex, in the same order of the regexes
+     */
+    private List<List<HttpMatchResult>> findMatchesByRegex(List<RegexEntity> regexList,
+                                                           long ruleSetVersion,
+                                                           RegexScannerOptions scannerOptions,
+                                                           HttpRecord requestResponse,
+                                                           SectionBytesCache sectionBytes,
+                                                           long messageSize,
+                                                           boolean interruptible) {
+        EnumMap<HttpSection, List<List<MatchResultCache.CachedMatch>>> cachedSections = new EnumMap<>(HttpSection.class);
+        EnumMap<HttpSection, MatchResultCache.Key> missedSections = new EnumMap<>(HttpSection.class);
+        for (HttpSection section : MatchResultCache.CACHED_SECTIONS) {
+            if (regexList.stream().noneMatch(regex -> regex.getSections().contains(section))) continue;
+            // the matches of a part of the section are not the matches of its content
+            if (Objects.nonNull(sectionBytes.region(section))) continue;
+            byte[] content = sectionBytes.get(section, ScannerUtils.getHttpRecordSection(requestResponse, section).content());
+            if (content.length < MatchResultCache.MIN_SECTION_BYTES) continue;
+            MatchResultCache.Key key = MatchResultCache.Key.of(content, ruleSetVersion, section);
+            List<List<MatchResultCache.CachedMatch>> cached = matchResultCache.get(key);
+            if (Objects.nonNull(cached) && cached.size() == regexList.size()) cachedSections.put(section, cached);
+            else missedSections.put(section, key);
+        }
+
+        Set<HttpSection> skippedSections = cachedSections.keySet();
+        Function<RegexEntity, List<HttpMatchResult>> matchRegex = regex -> (interruptible && this.interruptScan)
+                ? List.of()
+                : findMatches(regex, scannerOptions, requestResponse, sectionBytes, skippedSections);
+        List<List<HttpMatchResult>> matchesByRegex = (messageSize < ParallelMatcher.SPLIT_RULES_THRESHOLD)
+                ? regexList.stream().map(matchRegex).toList()
+                : parallelMatcher.mapSliced(regexList, matchRegex);
+
+        // regexes skipped by an interrupted scan would cache incomplete matches
+        if (!(interruptible && this.interruptScan)) {
+            missedSections.forEach((section, key) -> matchResultCache.put(key, matchesByRegex.stream()
+                    .map(matches -> matches.stream()
+                            .filter(match -> match.section() == section)
+                            .map(HttpMatchResult::toCachedMatch)
+                            .toList())
+                    .toList()));
+        }
+        if (cachedSections.isEmpty()) return matchesByRegex;
+
+        // the cached matches become matches of this message, kept in the order of the sections
+        List<List<HttpMatchResult>> mergedByRegex = new ArrayList<>(regexList.size());
+        for (int i = 0; i < regexList.size(); i++) {
+            List<HttpMatchResult> merged = new ArrayList<>(matchesByRegex.get(i));
+            int regexIndex = i;
+            cachedSections.forEach((section, cached) -> cached.get(regexIndex)
+                    .forEach(match -> merged.add(HttpMatchResult.of(section, match))));
+            merged.sort(Comparator.comparing(HttpMatchResult::section));
+            mergedByRegex.add(merged);
+        }
+        return mergedByRegex;
+    }
+
+    /**
+     * @param skippedSections sections of the regex not to analyze, e.g. because their matches are already cached
+     */
+    private List<HttpMatchResult> findMatches(RegexEntity regex,
+                                              RegexScannerOptions scannerOptions,
+                                              HttpRecord requestResponse,
+                                              SectionBytesCache sectionBytes,
+                                              Set<HttpSection> skippedSections) {
         Pattern regexCompiled = regex.getRegexCompiled();
         Optional<Pattern> refinerRegexCompiled = regex.getRefinerRegexCompiled();
 
-        regex.getSections()
+        return regex.getSections()
                 .stream()
+                .filter(httpSection -> !skippedSections.contains(httpSection))
                 .map(httpSection -> ScannerUtils.getHttpRecordSection(requestResponse, httpSection))
                 .flatMap(sectionRecord -> {
                     String content = sectionRecord.content();
 
-                    // Precheck optimization: if precheck is needed and fails, skip regex matching
-                    if (regex.isPrecheckNeeded() && regex.getPrechecks() != null && !regex.getPrechecks().isEmpty()) {
-                        boolean precheckPassed = false;
-                        for (String precheck : regex.getPrechecks()) {
-                            if (content.contains(precheck)) {
-                                precheckPassed = true;
-                                break;
-                            }
-                        }
-                        if (!precheckPassed) {
-                            return Stream.empty(); // Skip this section
-                        }
+                    // Precheck optimization: if precheck is needed and fails, skip regex matching.
+                    // All the prechecks are searched at once on the raw bytes of the section
+                    LiteralSet prechecks = regex.getPrecheckLiterals();
+                    if (prechecks != null && !prechecks.isContainedIn(sectionBytes.get(sectionRecord.section(), content))) {
+                        return Stream.empty(); // Skip this section
                     }
 
-                    Matcher matcher = regexCompiled.matcher(content);
-                    Stream<HttpMatchResult> results = matcher.results().map(result -> {
-                        String match = result.group();
+                    Stream<HttpMatchResult> results = matchSection(regexCompiled, sectionRecord, sectionBytes).map(span -> {
+                        String match = content.substring(span.start(), span.end());
+                        MatchPosition position = MatchPosition.of(span.start(), span.end());
 
                         // Apply refiner regex if present
                         if (refinerRegexCompiled.isPresent()) {
-                            int startIndex = result.start();
+                            int startIndex = span.start();
                             Matcher preMatch = refinerRegexCompiled.get().matcher(content);
                             preMatch.region(Math.max(startIndex - scannerOptions.getConfigRefineContextSize(), 0), startIndex);
-                            if (preMatch.find())
+                            if (preMatch.find()) {
                                 match = preMatch.group() + match;
+                                position = new MatchPosition(span.start(), span.end(), preMatch.start(), preMatch.end());
+                            }
                         }
 
-                        return new HttpMatchResult(sectionRecord.section(), match);
+                        String context = content.substring(Math.max(0, span.start() - MATCH_CONTEXT_CHARS),
+                                Math.min(content.length(), span.end() + MATCH_CONTEXT_CHARS));
+                        return new HttpMatchResult(sectionRecord.section(), match, position, context);
                     });
 
                     // Apply ignore patterns filter
@@ -264,7 +506,25 @@ public class RegexScanner {
 
                     return results;
                 })
-                .forEach(logMatchCallback);
+                .toList();
+    }
+
+    /**
+     * Find the matches of a pattern in a section. Large bodies are searched chunk by chunk, reusing the matches of
+     * the chunks already seen in other bodies, while other large sections are split in chunks searched in parallel.
+     */
+    private Stream<ParallelMatcher.Span> matchSection(Pattern pattern,
+                                                      ScannerUtils.HttpSectionContentRecord sectionRecord,
+                                                      SectionBytesCache sectionBytes) {
+        NearDuplicateDetector.Region region = sectionBytes.region(sectionRecord.section());
+        if (Objects.nonNull(region)) {
+            return NearDuplicateDetector.matches(pattern, sectionRecord.content(), region).stream();
+        }
+        ContentChunker.Chunks chunks = sectionBytes.chunks(sectionRecord.section(), sectionRecord.content());
+        if (Objects.nonNull(chunks) && ChunkMatchCache.isCacheable(pattern)) {
+            return chunkMatchCache.matches(pattern, chunks).stream();
+        }
+        return parallelMatcher.matches(pattern, sectionRecord.content());
     }
 
     /**
@@ -272,8 +532,9 @@ public class RegexScanner {
      * This method filters based on importance level and adds to log manager
      *
      * @param requestResponse The HTTP request/response to analyze
+     * @param toolSource      The tool that sent the request, e.g. "PROXY"
      */
-    public void analyzeSingleMessageRealtime(burp.api.montoya.http.message.HttpRequestResponse requestResponse) {
+    public void analyzeSingleMessageRealtime(burp.api.montoya.http.message.HttpRequestResponse requestResponse, String toolSource) {
         // Create a copy of the regex list
         List<RegexEntity> allRegexListCopy = Stream
                 .concat(generalRegexList.stream(), extensionsRegexList.stream())
@@ -297,27 +558,87 @@ public class RegexScanner {
         if (ScannerUtils.isMimeTypeBlacklisted(scannerOptions, response)) return;
         ByteArray responseBody = response.body();
         if (ScannerUtils.isResponseSizeOverMaxSize(scannerOptions, responseBody)) return;
+        byte[] responseBodyBytes = responseBody.getBytes();
+        if (ScannerUtils.isResponseBodyBinary(scannerOptions, responseBodyBytes)) return;
+        if (ScannerUtils.isResponseBodyKnownAsset(scannerOptions, responseBodyBytes)) return;
 
         // Analyze full request/response
         String requestUrl = request.url();
-        String requestBodyDecoded = BurpUtils.convertByteArrayToString(request.body());
+        byte[] requestBodyBytes = request.body().getBytes();
+        String requestBodyDecoded = BurpUtils.convertBytesToString(requestBodyBytes);
         String requestHeaders = BurpUtils.convertHttpHeaderListToString(request.headers());
-        String responseBodyDecoded = BurpUtils.convertByteArrayToString(responseBody);
+        String responseBodyDecoded = BurpUtils.convertBytesToString(responseBodyBytes);
         String responseHeaders = BurpUtils.convertHttpHeaderListToString(response.headers());
+        SectionBytesCache sectionBytes = new SectionBytesCache();
+        sectionBytes.put(HttpSection.REQ_BODY, requestBodyBytes);
+
+        // near-duplicates of a response already analyzed are analyzed only where they differ from it
+        NearDuplicateDetector.Region bodyRegion = new NearDuplicateDetector.Region(0, responseBodyDecoded.length());
+        NearDuplicateDetector detector = getNearDuplicateDetector();
+        if (Objects.nonNull(detector) && isNearDuplicateSource(toolSource)) {
+            String endpoint = request.method() + " " + request.httpService().host() + request.pathWithoutQuery();
+            bodyRegion = detector.regionToAnalyze(endpoint, responseBodyDecoded);
+        }
+        sectionBytes.put(HttpSection.RES_BODY, responseBodyBytes);
+        if (bodyRegion.start() > 0 || bodyRegion.end() < responseBodyDecoded.length()) {
+            sectionBytes.limitTo(HttpSection.RES_BODY, bodyRegion);
+        }
 
-        for (RegexEntity regex : allRegexListCopy) {
-            if (!regex.isActive()) continue;
-
-            Consumer<HttpMatchResult> logMatchCallback = match -> {
-                LogEntity logEntity = new LogEntity(request, response, regex, match.section, match.match);
-                if (logEntriesManager != null) {
-                    logEntriesManager.add(logEntity);
+        HttpRecord requestResponse2 = new HttpRecord(requestUrl, requestHeaders, requestBodyDecoded, responseHeaders, responseBodyDecoded);
+        long messageSize = (long) requestBodyBytes.length + responseBodyBytes.length;
+        long ruleSetVersion = MatchResultCache.ruleSetVersion(allRegexListCopy, scannerOptions.getConfigRefineContextSize());
+        List<List<HttpMatchResult>> matchesByRegex = findMatchesByRegex(allRegexListCopy, ruleSetVersion, scannerOptions, requestResponse2, sectionBytes, messageSize, false);
+
+        Evidence evidence = null;
+        for (int i = 0; i < allRegexListCopy.size(); i++) {
+            RegexEntity regex = allRegexListCopy.get(i);
+            for (HttpMatchResult match : matchesByRegex.get(i)) {
+                if (evidence == null) evidence = evidenceStore.store(request, response);
+                LogEntity logEntity = match.toLogEntity(evidence, requestUrl, responseHeaders, regex);
+                if (realtimeLogEntriesCallback != null) {
+                    realtimeLogEntriesCallback.accept(logEntity);
                 }
-            };
+            }
+        }
+    }
 
-            HttpRecord requestResponse2 = new HttpRecord(requestUrl, requestHeaders, requestBodyDecoded, responseHeaders, responseBodyDecoded);
-            performMatchingOnMessage(regex, scannerOptions, requestResponse2, logMatchCallback);
+    /**
+     * @return the detector of near-duplicate responses for the current options, or null if disabled
+     */
+    private NearDuplicateDetector getNearDuplicateDetector() {
+        int maxDistance = scannerOptions.getConfigRealtimeNearDuplicateDistance();
+        NearDuplicateDetector detector = this.nearDuplicateDetector;
+        if (maxDistance < 0) {
+            this.nearDuplicateDetector = null;
+            return null;
+        }
+        if (Objects.isNull(detector) || detector.getMaxDistance() != maxDistance) {
+            detector = new NearDuplicateDetector(maxDistance);
+            this.nearDuplicateDetector = detector;
         }
+        return detector;
+    }
+
+    /**
+     * Near-duplicates are common in the responses of tools sending many variations of a request, like Intruder and
+     * the active scanner: only the responses of the tools in the options are checked, the others are rarely
+     * near-duplicates and would only pay for the check.
+     */
+    private boolean isNearDuplicateSource(String toolSource) {
+        String configuredTools = scannerOptions.getConfigRealtimeNearDuplicateTools();
+        if (Objects.isNull(configuredTools) || Objects.isNull(toolSource)) return false;
+        String tool = toolSource.trim().toUpperCase();
+        return Arrays.stream(configuredTools.split(","))
+                .map(configuredTool -> configuredTool.trim().toUpperCase())
+                .anyMatch(configuredTool -> configuredTool.equals("ALL") || configuredTool.equals(tool));
+    }
+
+    /**
+     * @return the counters of the near-duplicate responses of the real-time analysis, or null if disabled
+     */
+    public NearDuplicateDetector.Stats getNearDuplicateStats() {
+        NearDuplicateDetector detector = this.nearDuplicateDetector;
+        return Objects.isNull(detector) ? null : detector.getStats();
     }
 
     /**
@@ -325,8 +646,12 @@ public class RegexScanner {
      */
     private void analyzeRequestOnly(List<RegexEntity> regexList, HttpRequest request) {
         String requestUrl = request.url();
-        String requestBodyDecoded = BurpUtils.convertByteArrayToString(request.body());
+        byte[] requestBodyBytes = request.body().getBytes();
+        String requestBodyDecoded = BurpUtils.convertBytesToString(requestBodyBytes);
         String requestHeaders = BurpUtils.convertHttpHeaderListToString(request.headers());
+        SectionBytesCache sectionBytes = new SectionBytesCache();
+        sectionBytes.put(HttpSection.REQ_BODY, requestBodyBytes);
+        Evidence[] evidence = new Evidence[1];
 
         for (RegexEntity regex : regexList) {
             if (!regex.isActive()) continue;
@@ -345,13 +670,14 @@ public class RegexScanner {
 
             HttpRecord requestOnly = new HttpRecord(requestUrl, requestHeaders, requestBodyDecoded, "", "");
             Consumer<HttpMatchResult> logMatchCallback = match -> {
-                LogEntity logEntity = new LogEntity(request, null, regex, match.section, match.match);
-                if (logEntriesManager != null) {
-                    logEntriesManager.add(logEntity);
+                if (evidence[0] == null) evidence[0] = evidenceStore.store(request, null);
+                LogEntity logEntity = match.toLogEntity(evidence[0], requestUrl, null, regex);
+                if (realtimeLogEntriesCallback != null) {
+                    realtimeLogEntriesCallback.accept(logEntity);
                 }
             };
 
-            performMatchingOnMessage(regex, scannerOptions, requestOnly, logMatchCallback);
+            findMatches(regex, scannerOptions, requestOnly, sectionBytes, Set.of()).forEach(logMatchCallback);
         }
     }
 
@@ -362,6 +688,36 @@ public class RegexScanner {
      */
     public void setInterruptScan(boolean interruptScan) {
         this.interruptScan = interruptScan;
+        ScanWorkerPool.Batch batch = this.currentBatch;
+        if (interruptScan && Objects.nonNull(batch)) batch.cancel();
+    }
+
+    /**
+     * Stop the workers of the scanner. Scans can't be started anymore.
+     * The match cache is saved in the project, if enabled in the options.
+     */
+    public void shutdown() {
+        setInterruptScan(true);
+        workerPool.shutdown();
+        parallelMatcher.shutdown();
+        evidenceStore.close();
+        PersistedObject extensionData = burpApi.persistence().extensionData();
+        if (scannerOptions.isConfigMatchCachePersisted()) matchResultCache.save(extensionData);
+        else MatchResultCache.clear(extensionData);
+    }
+
+    /**
+     * @return the counters of the cache of the matches of the bodies
+     */
+    public MatchResultCache.Stats getMatchCacheStats() {
+        return matchResultCache.getStats();
+    }
+
+    /**
+     * @return the counters of the cache of the matches of the chunks of large bodies
+     */
+    public ChunkMatchCache.Stats getChunkMatchCacheStats() {
+        return chunkMatchCache.getStats();
     }
 
     public void setProgressBar(JProgressBar progressBar) {
@@ -369,12 +725,69 @@ public class RegexScanner {
     }
 
     /**
-     * Set the log entries manager for real-time analysis
+     * Set the callback receiving the findings of the real-time analysis
      */
-    public void setLogEntriesManager(LogEntriesManager logEntriesManager) {
-        this.logEntriesManager = logEntriesManager;
+    public void setRealtimeLogEntriesCallback(Consumer<LogEntity> realtimeLogEntriesCallback) {
+        this.realtimeLogEntriesCallback = realtimeLogEntriesCallback;
     }
 
-    private record HttpMatchResult(HttpSection section, String match) {
+    /**
+     * A match found in a section, with its position in the section content and the text around it
+     */
+    private record HttpMatchResult(HttpSection section, String match, MatchPosition position, String context) {
+        LogEntity toLogEntity(Evidence evidence, String requestUrl, String responseHeaders, RegexEntity regex) {
+            return new LogEntity(evidence, requestUrl, responseHeaders, regex, section, match, position, context);
+        }
+
+        MatchResultCache.CachedMatch toCachedMatch() {
+            return new MatchResultCache.CachedMatch(match, position, context);
+        }
+
+        static HttpMatchResult of(HttpSection section, MatchResultCache.CachedMatch match) {
+            return new HttpMatchResult(section, match.match(), match.position(), match.context());
+        }
+    }
+
+    /**
+     * UTF-8 bytes of the sections of a single message, shared by all the regexes scanning that message.
+     * Bodies are provided directly by Burp, while the other sections are encoded only when first needed.
+     * Large bodies are also split in chunks once, see {@link ContentChunker}.
+     */
+    private static final class SectionBytesCache {
+        private final EnumMap<HttpSection, byte[]> bytes = new EnumMap<>(HttpSection.class);
+        private final EnumMap<HttpSection, ContentChunker.Chunks> chunks = new EnumMap<>(HttpSection.class);
+        private final EnumMap<HttpSection, NearDuplicateDetector.Region> regions = new EnumMap<>(HttpSection.class);
+
+        synchronized void put(HttpSection section, byte[] sectionBytes) {
+            bytes.put(section, sectionBytes);
+        }
+
+        synchronized byte[] get(HttpSection section, String content) {
+            return bytes.computeIfAbsent(section, s -> content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Search only the matches starting in a region of the section, e.g. the changed part of a near-duplicate
+         */
+        synchronized void limitTo(HttpSection section, NearDuplicateDetector.Region region) {
+            regions.put(section, region);
+        }
+
+        /**
+         * @return the region of the section to search, or null to search the whole section
+         */
+        synchronized NearDuplicateDetector.Region region(HttpSection section) {
+            return regions.get(section);
+        }
+
+        /**
+         * @return the chunks of a large body, or null for small bodies and other sections
+         */
+        synchronized ContentChunker.Chunks chunks(HttpSection section, String content) {
+            if (!MatchResultCache.CACHED_SECTIONS.contains(section) || content.length() < ContentChunker.MIN_CONTENT_CHARS) {
+                return null;
+            }
+            return chunks.computeIfAbsent(section, s -> ContentChunker.split(content));
+        }
     }
 }
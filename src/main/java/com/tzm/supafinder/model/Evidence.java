@@ -0,0 +1,27 @@
+package com.tzm.supafinder.model;
+
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.http.message.responses.HttpResponse;
+
+/**
+ * The HTTP message where a finding was found
+ */
+public interface Evidence {
+
+    HttpRequest request();
+
+    /**
+     * @return the response, or null if the finding comes from a request without response
+     */
+    HttpResponse response();
+
+    /**
+     * Evidence keeping the request and response objects in memory
+     */
+    static Evidence of(HttpRequest request, HttpResponse response) {
+        return new Pinned(request, response);
+    }
+
+    record Pinned(HttpRequest request, HttpResponse response) implements Evidence {
+    }
+}
@@ -0,0 +1,68 @@
+package com.tzm.supafinder.model;
+
+import burp.api.montoya.core.ByteArray;
+import burp.api.montoya.http.HttpService;
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.http.message.responses.HttpResponse;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts the request and response of a finding to bytes and back, to store them outside the heap
+ */
+public interface EvidenceCodec {
+
+    byte[] encodeRequest(HttpRequest request);
+
+    HttpRequest decodeRequest(ByteBuffer bytes);
+
+    byte[] encodeResponse(HttpResponse response);
+
+    HttpResponse decodeResponse(ByteBuffer bytes);
+
+    /**
+     * Codec based on the raw bytes of the messages, rebuilding them with the Burp API
+     */
+    static EvidenceCodec montoya() {
+        return new EvidenceCodec() {
+            @Override
+            public byte[] encodeRequest(HttpRequest request) {
+                HttpService service = request.httpService();
+                byte[] host = service.host().getBytes(StandardCharsets.UTF_8);
+                byte[] raw = request.toByteArray().getBytes();
+                return ByteBuffer.allocate(Integer.BYTES * 2 + 1 + host.length + raw.length)
+                        .putInt(host.length).put(host)
+                        .putInt(service.port())
+                        .put((byte) (service.secure() ? 1 : 0))
+                        .put(raw)
+                        .array();
+            }
+
+            @Override
+            public HttpRequest decodeRequest(ByteBuffer bytes) {
+                byte[] host = new byte[bytes.getInt()];
+                bytes.get(host);
+                int port = bytes.getInt();
+                boolean secure = bytes.get() == 1;
+                byte[] raw = new byte[bytes.remaining()];
+                bytes.get(raw);
+                return HttpRequest.httpRequest(
+                        HttpService.httpService(new String(host, StandardCharsets.UTF_8), port, secure),
+                        ByteArray.byteArray(raw));
+            }
+
+            @Override
+            public byte[] encodeResponse(HttpResponse response) {
+                return response.toByteArray().getBytes();
+            }
+
+            @Override
+            public HttpResponse decodeResponse(ByteBuffer bytes) {
+                byte[] raw = new byte[bytes.remaining()];
+                bytes.get(raw);
+                return HttpResponse.httpResponse(ByteArray.byteArray(raw));
+            }
+        };
+    }
+}
@@ -0,0 +1,203 @@
+package com.tzm.supafinder.model;
+
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.http.message.responses.HttpResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Storage of the messages where findings were found, so that findings only keep a small handle to them.
+ * <br><br>
+ * The most recent messages are kept as objects. Older ones are serialized to a memory-mapped file, releasing the
+ * request and response objects (and the Burp byte arrays behind them), and are rebuilt when the user
+ * selects one of their findings. Messages are identified by a sequential id, the position of their location in the
+ * index file. Messages of the proxy history also keep the index of their history item, so that their findings can
+ * reference it when saved in the project (see {@link FindingsPersistence}).
+ * <br><br>
+ * Files are created in a temporary directory only when the first message is moved to disk, and deleted on
+ * {@link #close()}. This class is thread-safe.
+ */
+public class EvidenceStore implements AutoCloseable {
+    public static final int DEFAULT_HOT_MESSAGES = 256;
+    private static final int CACHED_MESSAGES = 8;
+
+    private final int hotMessages;
+    private final EvidenceCodec codec;
+    private final LinkedHashMap<Long, Evidence> hot;
+    private final LinkedHashMap<Long, Evidence> loaded;
+    private Path directory;
+    private MappedRecordFile records;
+    private MappedLongArray locations;
+    private int[] historyIndexes;
+    private long nextId;
+
+    public EvidenceStore() {
+        this(DEFAULT_HOT_MESSAGES, EvidenceCodec.montoya());
+    }
+
+    /**
+     * @param hotMessages number of most recent messages kept in memory
+     * @param codec       converter of requests and responses to bytes
+     */
+    public EvidenceStore(int hotMessages, EvidenceCodec codec) {
+        this.hotMessages = Math.max(1, hotMessages);
+        this.codec = codec;
+        this.hot = new LinkedHashMap<>();
+        this.loaded = new LinkedHashMap<>(CACHED_MESSAGES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Evidence> eldest) {
+                return size() > CACHED_MESSAGES;
+            }
+        };
+        this.historyIndexes = new int[1024];
+        this.nextId = 0;
+    }
+
+    /**
+     * Store a message. All the findings of the same message should share the returned handle.
+     *
+     * @param request  the request
+     * @param response the response, can be null
+     * @return the handle to load the message again
+     */
+    public Handle store(HttpRequest request, HttpResponse response) {
+        return store(request, response, -1);
+    }
+
+    /**
+     * Store a message of the proxy history. All the findings of the same message should share the returned handle.
+     *
+     * @param request      the request
+     * @param response     the response, can be null
+     * @param historyIndex the index of the item in the proxy history, or -1 if the message is not in the history
+     * @return the handle to load the message again
+     */
+    public synchronized Handle store(HttpRequest request, HttpResponse response, int historyIndex) {
+        long id = nextId++;
+        if (id >= historyIndexes.length) historyIndexes = Arrays.copyOf(historyIndexes, historyIndexes.length * 2);
+        historyIndexes[Math.toIntExact(id)] = historyIndex;
+        hot.put(id, Evidence.of(request, response));
+        if (hot.size() > hotMessages) {
+            Map.Entry<Long, Evidence> eldest = hot.entrySet().iterator().next();
+            hot.remove(eldest.getKey());
+            spill(eldest.getKey(), eldest.getValue());
+        }
+        return new Handle(this, id);
+    }
+
+    private void spill(long id, Evidence evidence) {
+        try {
+            if (records == null) {
+                directory = Files.createTempDirectory("supafinder-evidence");
+                records = new MappedRecordFile(directory.resolve("evidence.bin"));
+                locations = new MappedLongArray(directory.resolve("evidence.idx"));
+                FindingsStore.deleteOnExit(directory, "evidence.bin", "evidence.idx");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] request = codec.encodeRequest(evidence.request());
+        byte[] response = evidence.response() == null ? null : codec.encodeResponse(evidence.response());
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES * 2 + request.length + (response == null ? 0 : response.length));
+        record.putInt(request.length).put(request);
+        record.putInt(response == null ? -1 : response.length);
+        if (response != null) record.put(response);
+        locations.set(Math.toIntExact(id), records.append(record.array()));
+    }
+
+    /**
+     * @param id the id of the message
+     * @return the message, rebuilt from disk if it's not in memory anymore
+     */
+    public synchronized Evidence load(long id) {
+        if (id < 0 || id >= nextId) throw new IllegalArgumentException("Unknown message " + id);
+        Evidence evidence = hot.get(id);
+        if (evidence == null) evidence = loaded.get(id);
+        if (evidence == null) {
+            ByteBuffer record = records.read(locations.get(Math.toIntExact(id)));
+            int requestLength = record.getInt();
+            HttpRequest request = codec.decodeRequest(record.slice(record.position(), requestLength));
+            record.position(record.position() + requestLength);
+            int responseLength = record.getInt();
+            HttpResponse response = responseLength < 0 ? null : codec.decodeResponse(record.slice(record.position(), responseLength));
+            evidence = Evidence.of(request, response);
+            loaded.put(id, evidence);
+        }
+        return evidence;
+    }
+
+    /**
+     * @param id the id of the message
+     * @return the index of the message in the proxy history, or -1 if the message is not in the history
+     */
+    public synchronized int historyIndex(long id) {
+        if (id < 0 || id >= nextId) throw new IllegalArgumentException("Unknown message " + id);
+        return historyIndexes[Math.toIntExact(id)];
+    }
+
+    /**
+     * @return the counters of the messages kept in memory and on disk
+     */
+    public synchronized Stats getStats() {
+        return new Stats(hot.size(), nextId - hot.size(), records == null ? 0 : records.size());
+    }
+
+    @Override
+    public synchronized void close() {
+        hot.clear();
+        loaded.clear();
+        if (records != null) {
+            records.close();
+            locations.close();
+            records = null;
+            locations = null;
+            try {
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                System.err.println("Error deleting evidence directory " + directory + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reference to a stored message. It does not keep the message in memory.
+     *
+     * @param store the store holding the message
+     * @param id    the id of the message in the store
+     */
+    public record Handle(EvidenceStore store, long id) implements Evidence {
+        @Override
+        public HttpRequest request() {
+            return store.load(id).request();
+        }
+
+        @Override
+        public HttpResponse response() {
+            return store.load(id).response();
+        }
+
+        /**
+         * @return the index of the message in the proxy history, or -1 if the message is not in the history
+         */
+        public int historyIndex() {
+            return store.historyIndex(id);
+        }
+    }
+
+    /**
+     * Counters of the store
+     *
+     * @param hotMessages     messages kept in memory
+     * @param spilledMessages messages moved to disk
+     * @param spilledBytes    bytes written to disk for the moved messages
+     */
+    public record Stats(int hotMessages, long spilledMessages, long spilledBytes) {
+    }
+}
@@ -0,0 +1,208 @@
+package com.tzm.supafinder.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups of the findings held by a {@link LogEntriesManager} showing the same values in the Logger table,
+ * identified by their {@link LogEntity#getGroupKey() group key}.
+ * <br><br>
+ * The groups are maintained as findings are added and removed: for each row, it's known if it is the first finding
+ * of its group, which is the row shown when only unique results are requested. Findings are also grouped by rule,
+ * then by match, then by URL, with the number of findings of each group, see {@link #snapshot()}.
+ * Matches and URLs are kept as ids of the {@link StringDictionary} of the findings, and resolved only by the snapshot.
+ * <br><br>
+ * The group of every row is kept as an int, so that when the first finding of a group is removed, the next one is
+ * found without reading the findings. This class is not thread-safe: the manager updates it in the same critical
+ * section that modifies the list of findings.
+ */
+public class FindingsGroups {
+    private static final int NO_STRING = -1;
+
+    private final StringDictionary strings;
+    private final Map<LogEntity.Fingerprint, Group> groups;
+    private final BitSet firstOfGroup;
+    private final Map<RegexEntity, RuleNode> rules;
+    private int[] rowGroups;
+    private int rows;
+    private int nextGroupId;
+
+    FindingsGroups(StringDictionary strings) {
+        this.strings = strings;
+        this.groups = new HashMap<>();
+        this.firstOfGroup = new BitSet();
+        this.rules = new LinkedHashMap<>();
+        this.rowGroups = new int[1024];
+        this.rows = 0;
+        this.nextGroupId = 0;
+    }
+
+    private int idOf(String value) {
+        return value == null ? NO_STRING : strings.id(value);
+    }
+
+    private String valueOf(int id) {
+        return id == NO_STRING ? null : strings.get(id);
+    }
+
+    /**
+     * @param entry the finding appended
+     * @param row   the row of the finding, after the last one added
+     */
+    void add(LogEntity entry, int row) {
+        Group group = groups.computeIfAbsent(entry.getGroupKey(), key -> new Group(nextGroupId++));
+        if (group.size++ == 0) firstOfGroup.set(row);
+        if (row >= rowGroups.length) rowGroups = Arrays.copyOf(rowGroups, Math.max(row + 1, rowGroups.length * 2));
+        rowGroups[row] = group.id;
+        rows = row + 1;
+
+        RuleNode rule = rules.computeIfAbsent(entry.getRegexEntity(), key -> new RuleNode());
+        rule.count++;
+        MatchNode match = rule.matches.computeIfAbsent(idOf(entry.getMatch()), key -> new MatchNode());
+        match.count++;
+        match.urls.merge(idOf(entry.getRequestUrl()), 1L, Long::sum);
+    }
+
+    /**
+     * Remove findings, moving back the following rows. Must be called before their strings are released.
+     *
+     * @param removedRows the rows removed
+     * @param removed     the findings at the removed rows, in row order
+     */
+    void remove(BitSet removedRows, List<LogEntity> removed) {
+        int start = removedRows.nextSetBit(0);
+        if (start < 0 || start >= rows) return;
+
+        // groups left without their first finding
+        Set<Integer> headless = new HashSet<>();
+        int i = 0;
+        for (int row = start; row >= 0 && row < rows; row = removedRows.nextSetBit(row + 1)) {
+            LogEntity entry = removed.get(i++);
+            Group group = groups.get(entry.getGroupKey());
+            if (--group.size == 0) {
+                groups.remove(entry.getGroupKey());
+                headless.remove(group.id);
+            } else if (firstOfGroup.get(row)) {
+                headless.add(group.id);
+            }
+            decrement(entry);
+        }
+
+        // the first row kept of a headless group is the next one of the group, rows before the first removed don't move
+        BitSet first = new BitSet();
+        int kept = start;
+        for (int row = start; row < rows; row++) {
+            if (removedRows.get(row)) continue;
+            int group = rowGroups[row];
+            rowGroups[kept] = group;
+            if (firstOfGroup.get(row) || (!headless.isEmpty() && headless.remove(group))) first.set(kept);
+            kept++;
+        }
+        firstOfGroup.clear(start, rows);
+        firstOfGroup.or(first);
+        rows = kept;
+    }
+
+    private void decrement(LogEntity entry) {
+        RuleNode rule = rules.get(entry.getRegexEntity());
+        if (rule == null) return;
+        int matchId = idOf(entry.getMatch());
+        MatchNode match = rule.matches.get(matchId);
+        if (match != null) {
+            match.urls.computeIfPresent(idOf(entry.getRequestUrl()), (url, count) -> count == 1 ? null : count - 1);
+            if (--match.count == 0) rule.matches.remove(matchId);
+        }
+        if (--rule.count == 0) rules.remove(entry.getRegexEntity());
+    }
+
+    void clear() {
+        groups.clear();
+        firstOfGroup.clear();
+        rules.clear();
+        rows = 0;
+    }
+
+    boolean isFirstOfGroup(int row) {
+        return firstOfGroup.get(row);
+    }
+
+    int groupsCount() {
+        return groups.size();
+    }
+
+    /**
+     * @return a copy of the groups, rules with most findings first
+     */
+    List<RuleGroup> snapshot() {
+        List<RuleGroup> ruleGroups = new ArrayList<>(rules.size());
+        rules.forEach((regexEntity, rule) -> {
+            List<MatchGroup> matchGroups = new ArrayList<>(rule.matches.size());
+            rule.matches.forEach((match, matchNode) -> {
+                List<UrlGroup> urlGroups = new ArrayList<>(matchNode.urls.size());
+                matchNode.urls.forEach((url, count) -> urlGroups.add(new UrlGroup(valueOf(url), count)));
+                urlGroups.sort(Comparator.comparingLong(UrlGroup::count).reversed());
+                matchGroups.add(new MatchGroup(valueOf(match), matchNode.count, List.copyOf(urlGroups)));
+            });
+            matchGroups.sort(Comparator.comparingLong(MatchGroup::count).reversed());
+            ruleGroups.add(new RuleGroup(regexEntity, rule.count, List.copyOf(matchGroups)));
+        });
+        ruleGroups.sort(Comparator.comparingLong(RuleGroup::count).reversed());
+        return List.copyOf(ruleGroups);
+    }
+
+    private static class Group {
+        private final int id;
+        private int size;
+
+        Group(int id) {
+            this.id = id;
+        }
+    }
+
+    private static class RuleNode {
+        private long count;
+        private final Map<Integer, MatchNode> matches = new LinkedHashMap<>();
+    }
+
+    private static class MatchNode {
+        private long count;
+        private final Map<Integer, Long> urls = new LinkedHashMap<>();
+    }
+
+    /**
+     * Findings of a rule
+     *
+     * @param regexEntity the rule
+     * @param count       number of findings of the rule
+     * @param matches     findings of the rule grouped by match
+     */
+    public record RuleGroup(RegexEntity regexEntity, long count, List<MatchGroup> matches) {
+    }
+
+    /**
+     * Findings of a rule with the same match
+     *
+     * @param match the matched content
+     * @param count number of findings with this match
+     * @param urls  findings with this match grouped by URL
+     */
+    public record MatchGroup(String match, long count, List<UrlGroup> urls) {
+    }
+
+    /**
+     * Findings of a rule with the same match and URL
+     *
+     * @param url   the request URL
+     * @param count number of findings with this match at this URL
+     */
+    public record UrlGroup(String url, long count) {
+    }
+}
@@ -0,0 +1,339 @@
+package com.tzm.supafinder.model;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+import static com.tzm.supafinder.utils.Utils.createGsonBuilder;
+
+/**
+ * Append-only journal of the findings in JSON Lines format, for external tools that tail it.
+ * <br><br>
+ * Findings are only queued by the caller; a single writer thread appends them to the file. All the findings queued
+ * while the previous group was being written are written and synced to disk together (group commit), so a burst of
+ * findings costs a single sync. When the queue is full, findings are dropped from the journal instead of slowing
+ * down the scan (see {@link Stats#droppedRecords()}). Sequence numbers are reserved when findings are queued, so a
+ * dropped finding leaves a gap in the sequence numbers of the file, and readers know that records are missing.
+ * <br><br>
+ * Every record is a JSON object on its own line, ending with a {@value #CHECKSUM_FIELD} field: the CRC32C, as 8 hex
+ * digits, of the UTF-8 bytes of the same line without that field, i.e. with the last {@value #CHECKSUM_SUFFIX_LENGTH}
+ * characters replaced by a closing brace. A line without the final newline or with a wrong checksum was not committed.
+ * The lines after the last committed record, e.g. a record torn by a crash, are removed when the journal is opened
+ * again, and sequence numbers continue from the last committed record, in the file or in the last rotated file.
+ * <br><br>
+ * When the file exceeds the maximum size it is renamed to {@code <name>.1}, shifting the older files up to
+ * {@code <name>.}{@value #MAX_ROTATED_FILES}, and a new file is started, so {@code tail -F} follows the rotation.
+ */
+public class FindingsJournal implements AutoCloseable {
+    static final String CHECKSUM_FIELD = "crc32c";
+    /**
+     * Length of {@code ,"crc32c":"01234567"}} at the end of every record
+     */
+    static final int CHECKSUM_SUFFIX_LENGTH = 21;
+    static final int MAX_ROTATED_FILES = 5;
+    private static final int QUEUE_CAPACITY = 65536;
+    private static final int MAX_GROUP = 4096;
+
+    private final Path path;
+    private final long maxFileBytes;
+    private final BlockingQueue<Record> pending;
+    private final Gson gson;
+    private final Thread writer;
+    private final AtomicLong queuedRecords;
+    private final AtomicLong droppedRecords;
+    private final Object committedMonitor;
+    private FileChannel channel;
+    private long fileBytes;
+    private long nextSeq;
+    private volatile boolean closed;
+    /**
+     * Records taken from the queue by the writer, written or not
+     */
+    private long processedRecords;
+    private volatile long committedRecords;
+    private volatile long commits;
+    private volatile long rotations;
+
+    /**
+     * Open the journal, recovering the file left by a previous session, and start the writer thread
+     *
+     * @param path         the journal file, created if missing
+     * @param maxFileBytes size after which the file is rotated
+     * @throws IOException if the file can't be opened
+     */
+    public FindingsJournal(Path path, long maxFileBytes) throws IOException {
+        this(path, maxFileBytes, QUEUE_CAPACITY);
+    }
+
+    FindingsJournal(Path path, long maxFileBytes, int queueCapacity) throws IOException {
+        this.path = path;
+        this.maxFileBytes = Math.max(1024, maxFileBytes);
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
+        this.gson = createGsonBuilder();
+        this.queuedRecords = new AtomicLong();
+        this.droppedRecords = new AtomicLong();
+        this.committedMonitor = new Object();
+        if (Objects.nonNull(path.getParent())) Files.createDirectories(path.getParent());
+        this.nextSeq = recover() + 1;
+        openFile();
+        this.writer = new Thread(this::write, "Findings-Journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getMaxFileBytes() {
+        return maxFileBytes;
+    }
+
+    /**
+     * Queue findings to be appended to the journal. Never blocks: findings that don't fit in the queue are dropped,
+     * consuming their sequence numbers anyway. Can be called from any thread.
+     */
+    public synchronized void append(List<LogEntity> entries) {
+        if (closed) return;
+        for (LogEntity entry : entries) {
+            if (pending.offer(new Record(nextSeq++, entry))) {
+                queuedRecords.incrementAndGet();
+            } else {
+                droppedRecords.incrementAndGet();
+            }
+        }
+    }
+
+    private void write() {
+        List<Record> group = new ArrayList<>(MAX_GROUP);
+        while (!closed || !pending.isEmpty()) {
+            try {
+                Record first = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (Objects.isNull(first)) continue;
+                group.add(first);
+                pending.drainTo(group, MAX_GROUP - 1);
+                commit(group);
+                committedRecords += group.size();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error writing the findings journal: " + e.getMessage());
+            }
+            synchronized (committedMonitor) {
+                processedRecords += group.size();
+                committedMonitor.notifyAll();
+            }
+            group.clear();
+        }
+    }
+
+    /**
+     * Write a group of records and sync them to disk with a single call
+     */
+    private void commit(List<Record> group) throws IOException {
+        StringBuilder lines = new StringBuilder(group.size() * 256);
+        for (Record record : group) lines.append(toRecord(record.seq(), record.entry())).append('\n');
+        ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        fileBytes += bytes.remaining();
+        while (bytes.hasRemaining()) channel.write(bytes);
+        channel.force(false);
+        commits++;
+        if (fileBytes >= maxFileBytes) rotate();
+    }
+
+    /**
+     * @return the record of a finding, as a JSON object ending with its checksum
+     */
+    String toRecord(long seq, LogEntity entry) {
+        JsonObject record = new JsonObject();
+        record.addProperty("seq", seq);
+        record.addProperty("time", Instant.ofEpochMilli(entry.getFoundAt()).toString());
+        record.addProperty("rule", entry.getRegexEntity().getDescription());
+        record.addProperty("category", entry.getRegexEntity().getCategory());
+        record.addProperty("importance", entry.getRegexEntity().getImportance());
+        record.addProperty("section", entry.getMatchedSection().name());
+        record.addProperty("url", entry.getRequestUrl());
+        record.addProperty("match", entry.getMatch());
+        record.addProperty("context", entry.getContext());
+        record.addProperty("fingerprint", "%016x%016x".formatted(entry.getFingerprint().high(), entry.getFingerprint().low()));
+        String json = gson.toJson(record);
+        return json.substring(0, json.length() - 1) + ",\"" + CHECKSUM_FIELD + "\":\"%08x\"}".formatted(checksum(json));
+    }
+
+    /**
+     * @return true if the line is a complete record with a valid checksum
+     */
+    static boolean isValidRecord(String line) {
+        if (line.length() < CHECKSUM_SUFFIX_LENGTH + 2 || !line.endsWith("\"}")) return false;
+        int suffix = line.length() - CHECKSUM_SUFFIX_LENGTH;
+        if (!line.startsWith(",\"" + CHECKSUM_FIELD + "\":\"", suffix)) return false;
+        try {
+            long expected = Long.parseLong(line.substring(line.length() - 10, line.length() - 2), 16);
+            return checksum(line.substring(0, suffix) + "}") == expected;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static long checksum(String json) {
+        CRC32C crc = new CRC32C();
+        crc.update(json.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    private void openFile() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileBytes = channel.size();
+    }
+
+    private void rotate() throws IOException {
+        channel.close();
+        Files.deleteIfExists(rotatedPath(MAX_ROTATED_FILES));
+        for (int i = MAX_ROTATED_FILES - 1; i >= 1; i--) {
+            if (Files.exists(rotatedPath(i))) Files.move(rotatedPath(i), rotatedPath(i + 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(path, rotatedPath(1), StandardCopyOption.REPLACE_EXISTING);
+        openFile();
+        rotations++;
+    }
+
+    Path rotatedPath(int index) {
+        return path.resolveSibling(path.getFileName() + "." + index);
+    }
+
+    /**
+     * Remove the lines after the last committed record of the file. When the file has no committed records, e.g. it
+     * was just rotated, the sequence numbers continue from the last rotated file.
+     *
+     * @return the sequence number of the last committed record, or 0 if there's none
+     */
+    private long recover() throws IOException {
+        long lastSeq = lastCommittedSeq(path, true);
+        return lastSeq > 0 ? lastSeq : lastCommittedSeq(rotatedPath(1), false);
+    }
+
+    /**
+     * Read the lines of a file backwards, up to the last committed record
+     *
+     * @param truncate true to remove the lines after the last committed record. Without committed records, only the
+     *                 line without the final newline is removed, the file may not be a journal
+     * @return the sequence number of the last committed record, or 0 if there's none
+     */
+    private static long lastCommittedSeq(Path path, boolean truncate) throws IOException {
+        if (!Files.exists(path)) return 0;
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), truncate ? "rw" : "r")) {
+            long committedEnd = lastNewline(file, file.length()) + 1;
+            if (truncate && committedEnd != file.length()) file.setLength(committedEnd);
+            for (long end = committedEnd; end > 0; ) {
+                long start = lastNewline(file, end - 1) + 1;
+                byte[] line = new byte[(int) (end - 1 - start)];
+                file.seek(start);
+                file.readFully(line);
+                String record = new String(line, StandardCharsets.UTF_8);
+                if (isValidRecord(record)) {
+                    if (truncate && end != file.length()) file.setLength(end);
+                    return JsonParser.parseString(record).getAsJsonObject().get("seq").getAsLong();
+                }
+                end = start;
+            }
+            return 0;
+        } catch (RuntimeException e) {
+            System.err.println("Error reading the findings journal: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * @return the position of the last newline before the limit, or -1 if there's none
+     */
+    private static long lastNewline(RandomAccessFile file, long limit) throws IOException {
+        byte[] chunk = new byte[8192];
+        long position = limit;
+        while (position > 0) {
+            int length = (int) Math.min(chunk.length, position);
+            position -= length;
+            file.seek(position);
+            file.readFully(chunk, 0, length);
+            for (int i = length - 1; i >= 0; i--) {
+                if (chunk[i] == '\n') return position + i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Wait for the findings queued so far to be written, e.g. before reading the file
+     */
+    public void sync() {
+        synchronized (committedMonitor) {
+            long target = queuedRecords.get();
+            while (processedRecords < target && writer.isAlive()) {
+                try {
+                    committedMonitor.wait(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the findings still queued and close the file
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        sync();
+        closed = true;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Error closing the findings journal: " + e.getMessage());
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(committedRecords, commits, droppedRecords.get(), rotations);
+    }
+
+    /**
+     * A finding queued with its sequence number
+     */
+    private record Record(long seq, LogEntity entry) {
+    }
+
+    /**
+     * Counters of the journal
+     *
+     * @param committedRecords records written and synced to disk
+     * @param commits          groups of records synced to disk
+     * @param droppedRecords   findings not written since the queue was full
+     * @param rotations        files rotated
+     */
+    public record Stats(long committedRecords, long commits, long droppedRecords, long rotations) {
+    }
+}
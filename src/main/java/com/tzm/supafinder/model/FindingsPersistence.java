@@ -0,0 +1,401 @@
+package com.tzm.supafinder.model;
+
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.http.message.responses.HttpResponse;
+import burp.api.montoya.persistence.PersistedObject;
+import com.tzm.supafinder.scanner.RuleCoverage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Saves the findings in the project, so that they are restored when the project is opened again.
+ * <br><br>
+ * Findings are saved in pages of {@link #PAGE_ROWS} rows, each one in its own key of the extension data. Pages are
+ * append-only: saving again after new findings rewrites only the last page and writes the new ones, while removing
+ * findings rewrites all the pages. Every page is compressed and self-contained:
+ * <ul>
+ *     <li>rules are saved as ids in the table of their {@link RuleCoverage#ruleVersion(RegexEntity) versions},
+ *     shared by all the pages;</li>
+ *     <li>URLs, matches and contexts are saved once per page, in a dictionary referenced by the rows;</li>
+ *     <li>messages of the proxy history are saved as the index of their item, the others as their raw bytes.</li>
+ * </ul>
+ * Pages are restored one at a time, so the findings appear in the Logger while the next pages are decoded. Pages are
+ * added through a function of the caller, e.g. by the thread storing the findings of the scanners. Restored
+ * findings reference the proxy history (see {@link HistoryReference}), their messages are loaded only when selected.
+ * Findings of rules deleted or edited in the meantime are not restored.
+ * <br><br>
+ * The rows of the {@link FindingsRollup} are saved in their own key, rewritten on every save.
+ */
+public class FindingsPersistence {
+    static final int PAGE_ROWS = 4096;
+    private static final int FORMAT_VERSION = 3;
+    private static final String FORMAT_KEY = "findings-format";
+    private static final String ROWS_KEY = "findings-rows";
+    private static final String RULES_KEY = "findings-rules";
+    private static final String PAGE_KEY_PREFIX = "findings-page-";
+    private static final String ROLLUP_KEY = "findings-rollup";
+    private static final byte MESSAGE_HISTORY = 0;
+    private static final byte MESSAGE_BYTES = 1;
+
+    private final PersistedObject extensionData;
+    private final EvidenceCodec codec;
+    private final List<Long> ruleVersions;
+    private final Map<Long, Integer> ruleIds;
+    /**
+     * Rows of the findings saved in the project, or -1 if the saved pages may not match the first rows anymore
+     */
+    private int savedRows;
+    /**
+     * Removals count of the findings when they were saved, see {@link LogEntriesManager#getRemovalsCount()}
+     */
+    private long savedRemovals;
+    private volatile boolean restoring;
+
+    public FindingsPersistence(PersistedObject extensionData) {
+        this(extensionData, EvidenceCodec.montoya());
+    }
+
+    /**
+     * @param extensionData the data of the extension saved in the project
+     * @param codec         converter of the messages not in the proxy history to bytes
+     */
+    public FindingsPersistence(PersistedObject extensionData, EvidenceCodec codec) {
+        this.extensionData = extensionData;
+        this.codec = codec;
+        this.ruleVersions = new ArrayList<>();
+        this.ruleIds = new HashMap<>();
+        this.savedRows = -1;
+        this.savedRemovals = -1;
+        // the saved findings must be restored before being overwritten
+        this.restoring = hasSavedFindings();
+    }
+
+    /**
+     * @return true if the project contains the findings of a previous session, even if none was found
+     */
+    public boolean hasSavedFindings() {
+        return Objects.equals(extensionData.getInteger(FORMAT_KEY), FORMAT_VERSION);
+    }
+
+    /**
+     * Add the findings saved in the project to an empty manager, one page at a time.
+     * Saving is not possible until the findings are restored. If the thread is interrupted, the restore stops and
+     * saving stays disabled, so the findings in the project are kept.
+     *
+     * @param logEntries the findings of the Logger
+     * @param addAll     adds a page of findings to the Logger and returns the ones added, duplicates excluded
+     * @param rules      the current rules, findings of other rules are not restored
+     * @param history    the proxy history, referenced by the restored findings
+     * @param onPage     called after every page is added, e.g. to show the new rows
+     * @return the number of findings restored
+     */
+    public int restore(LogEntriesManager logEntries, Function<List<LogEntity>, List<LogEntity>> addAll,
+                       List<RegexEntity> rules, HistoryReference.Source history, Runnable onPage) {
+        restoring = true;
+        boolean interrupted = false;
+        try {
+            if (!hasSavedFindings()) return 0;
+            long removals = logEntries.getRemovalsCount();
+            boolean complete = logEntries.size() == 0;
+
+            Map<Long, RegexEntity> rulesByVersion = new HashMap<>();
+            rules.forEach(rule -> rulesByVersion.putIfAbsent(RuleCoverage.ruleVersion(rule), rule));
+            List<Long> versions = parseRuleVersions(extensionData.getString(RULES_KEY));
+            List<RegexEntity> rulesById = versions.stream().map(rulesByVersion::get).toList();
+
+            int rows = Objects.requireNonNullElse(extensionData.getInteger(ROWS_KEY), 0);
+            int restored = 0;
+            for (int page = 0; page < pageCount(rows); page++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    interrupted = true;
+                    return restored;
+                }
+                try {
+                    List<LogEntity> entries = decodePage(extensionData.getString(PAGE_KEY_PREFIX + page), rulesById, history);
+                    List<LogEntity> added = addAll.apply(entries);
+                    restored += added.size();
+                    if (added.size() != Math.min(PAGE_ROWS, rows - page * PAGE_ROWS)) complete = false;
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Ignoring invalid page " + page + " of the saved findings: " + e.getMessage());
+                    complete = false;
+                }
+                onPage.run();
+            }
+
+            try {
+                restoreRollup(logEntries.getRollup(), rulesByVersion);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring invalid rolled-up findings: " + e.getMessage());
+            }
+
+            synchronized (this) {
+                // findings added in the meantime or not restored make the pages differ from the rows
+                if (complete && logEntries.size() == rows && logEntries.getRemovalsCount() == removals) {
+                    ruleVersions.clear();
+                    ruleIds.clear();
+                    versions.forEach(this::ruleId);
+                    savedRows = rows;
+                    savedRemovals = removals;
+                } else {
+                    savedRows = -1;
+                }
+            }
+            return restored;
+        } finally {
+            restoring = interrupted;
+        }
+    }
+
+    /**
+     * Save the findings in the project. Only the pages changed since the last save are written.
+     *
+     * @param logEntries the findings of the Logger
+     */
+    public synchronized void save(LogEntriesManager logEntries) {
+        // pages not restored yet would be lost
+        if (restoring) return;
+        long removals = logEntries.getRemovalsCount();
+        int rows = logEntries.size();
+        boolean append = savedRows >= 0 && removals == savedRemovals && rows >= savedRows;
+        if (!append) {
+            ruleVersions.clear();
+            ruleIds.clear();
+        }
+        int firstPage = append ? savedRows / PAGE_ROWS : 0;
+        int previousRows = Objects.requireNonNullElse(extensionData.getInteger(ROWS_KEY), 0);
+
+        try {
+            for (int page = firstPage; page < pageCount(rows); page++) {
+                List<LogEntity> entries = logEntries.getRange(page * PAGE_ROWS, Math.min(rows, (page + 1) * PAGE_ROWS));
+                extensionData.setString(PAGE_KEY_PREFIX + page, encodePage(entries));
+            }
+            List<FindingsRollup.Row> rollupRows = logEntries.getRollup().getRows();
+            if (rollupRows.isEmpty()) extensionData.deleteString(ROLLUP_KEY);
+            else extensionData.setString(ROLLUP_KEY, encodeRollup(rollupRows));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error saving the findings: " + e.getMessage());
+            clear();
+            return;
+        }
+        for (int page = pageCount(rows); page < pageCount(previousRows); page++) {
+            extensionData.deleteString(PAGE_KEY_PREFIX + page);
+        }
+        extensionData.setString(RULES_KEY, ruleVersions.stream().map(Long::toHexString).collect(Collectors.joining(",")));
+        extensionData.setInteger(ROWS_KEY, rows);
+        extensionData.setInteger(FORMAT_KEY, FORMAT_VERSION);
+        savedRows = rows;
+        savedRemovals = removals;
+    }
+
+    /**
+     * Remove the findings from the project
+     */
+    public synchronized void clear() {
+        int previousRows = Objects.requireNonNullElse(extensionData.getInteger(ROWS_KEY), 0);
+        for (int page = 0; page < pageCount(previousRows); page++) {
+            extensionData.deleteString(PAGE_KEY_PREFIX + page);
+        }
+        extensionData.deleteString(RULES_KEY);
+        extensionData.deleteString(ROLLUP_KEY);
+        extensionData.deleteInteger(ROWS_KEY);
+        extensionData.deleteInteger(FORMAT_KEY);
+        ruleVersions.clear();
+        ruleIds.clear();
+        savedRows = -1;
+    }
+
+    private static int pageCount(int rows) {
+        return (rows + PAGE_ROWS - 1) / PAGE_ROWS;
+    }
+
+    private int ruleId(long version) {
+        return ruleIds.computeIfAbsent(version, key -> {
+            ruleVersions.add(key);
+            return ruleVersions.size() - 1;
+        });
+    }
+
+    private static List<Long> parseRuleVersions(String saved) {
+        if (Objects.isNull(saved) || saved.isEmpty()) return List.of();
+        return Arrays.stream(saved.split(",")).map(version -> Long.parseUnsignedLong(version, 16)).toList();
+    }
+
+    /**
+     * Page layout: rows count, strings dictionary, messages, then for every row: fingerprint (high, low), rule id,
+     * section, match position, the ids of URL, match, context and message, and the creation time.
+     */
+    private String encodePage(List<LogEntity> entries) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        // messages of the proxy history are keyed by their index, the others by their evidence
+        Map<Object, Integer> messages = new LinkedHashMap<>();
+        Map<RegexEntity, Integer> pageRuleIds = new IdentityHashMap<>();
+        ByteArrayOutputStream rowsBuffer = new ByteArrayOutputStream(entries.size() * 48);
+        DataOutputStream rowsOutput = new DataOutputStream(rowsBuffer);
+        for (LogEntity entry : entries) {
+            rowsOutput.writeLong(entry.getFingerprint().high());
+            rowsOutput.writeLong(entry.getFingerprint().low());
+            rowsOutput.writeInt(pageRuleIds.computeIfAbsent(entry.getRegexEntity(), rule -> ruleId(RuleCoverage.ruleVersion(rule))));
+            rowsOutput.writeByte(entry.getMatchedSection().ordinal());
+            MatchPosition position = entry.getPosition();
+            rowsOutput.writeBoolean(position != null);
+            if (position != null) {
+                rowsOutput.writeInt(position.start());
+                rowsOutput.writeInt(position.end());
+                rowsOutput.writeInt(position.refinerStart());
+                rowsOutput.writeInt(position.refinerEnd());
+            }
+            rowsOutput.writeInt(stringId(strings, entry.getRequestUrl()));
+            rowsOutput.writeInt(stringId(strings, entry.getMatch()));
+            rowsOutput.writeInt(entry.getContext() == null ? -1 : stringId(strings, entry.getContext()));
+            rowsOutput.writeInt(messages.computeIfAbsent(messageKey(entry.getEvidence()), key -> messages.size()));
+            rowsOutput.writeLong(entry.getFoundAt());
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(new GZIPOutputStream(buffer))) {
+            output.writeInt(entries.size());
+            output.writeInt(strings.size());
+            for (String value : strings.keySet()) writeBytes(output, value.getBytes(StandardCharsets.UTF_8));
+            output.writeInt(messages.size());
+            for (Object message : messages.keySet()) {
+                if (message instanceof Integer historyIndex) {
+                    output.writeByte(MESSAGE_HISTORY);
+                    output.writeInt(historyIndex);
+                } else {
+                    Evidence evidence = (Evidence) message;
+                    output.writeByte(MESSAGE_BYTES);
+                    writeBytes(output, codec.encodeRequest(evidence.request()));
+                    writeBytes(output, evidence.response() == null ? null : codec.encodeResponse(evidence.response()));
+                }
+            }
+            rowsBuffer.writeTo(output);
+        }
+        return Base64.getEncoder().encodeToString(buffer.toByteArray());
+    }
+
+    private static Object messageKey(Evidence evidence) {
+        if (evidence instanceof HistoryReference reference) return reference.index();
+        if (evidence instanceof EvidenceStore.Handle handle && handle.historyIndex() >= 0) return handle.historyIndex();
+        return evidence;
+    }
+
+    private static int stringId(Map<String, Integer> strings, String value) {
+        return strings.computeIfAbsent(value, key -> strings.size());
+    }
+
+    private List<LogEntity> decodePage(String saved, List<RegexEntity> rulesById, HistoryReference.Source history) throws IOException {
+        if (Objects.isNull(saved)) throw new IOException("missing page");
+        try (DataInputStream input = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(saved))))) {
+            int rows = input.readInt();
+            String[] strings = new String[input.readInt()];
+            for (int i = 0; i < strings.length; i++) strings[i] = new String(readBytes(input), StandardCharsets.UTF_8);
+
+            // history items are referenced with the URL of each finding, the other messages are shared
+            Integer[] historyIndexes = new Integer[input.readInt()];
+            Evidence[] messages = new Evidence[historyIndexes.length];
+            for (int i = 0; i < messages.length; i++) {
+                if (input.readByte() == MESSAGE_HISTORY) {
+                    historyIndexes[i] = input.readInt();
+                } else {
+                    HttpRequest request = codec.decodeRequest(ByteBuffer.wrap(readBytes(input)));
+                    byte[] responseBytes = readBytes(input);
+                    HttpResponse response = responseBytes == null ? null : codec.decodeResponse(ByteBuffer.wrap(responseBytes));
+                    messages[i] = Evidence.of(request, response);
+                }
+            }
+
+            List<LogEntity> entries = new ArrayList<>(rows);
+            for (int row = 0; row < rows; row++) {
+                LogEntity.Fingerprint fingerprint = new LogEntity.Fingerprint(input.readLong(), input.readLong());
+                RegexEntity rule = rulesById.get(input.readInt());
+                HttpSection section = HttpSection.values()[input.readByte()];
+                MatchPosition position = input.readBoolean()
+                        ? new MatchPosition(input.readInt(), input.readInt(), input.readInt(), input.readInt())
+                        : null;
+                String url = strings[input.readInt()];
+                String match = strings[input.readInt()];
+                int contextId = input.readInt();
+                int messageId = input.readInt();
+                long foundAt = input.readLong();
+                if (rule == null) continue;
+                Evidence evidence = historyIndexes[messageId] != null
+                        ? new HistoryReference(history, historyIndexes[messageId], url)
+                        : messages[messageId];
+                entries.add(new LogEntity(evidence, rule, section, match, position, contextId < 0 ? null : strings[contextId], url, fingerprint, foundAt));
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Rollup layout: rows count, then for every row: rule version, host, match hash (high, low), first seen, last seen,
+     * count.
+     */
+    private static String encodeRollup(List<FindingsRollup.Row> rows) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(new GZIPOutputStream(buffer))) {
+            output.writeInt(rows.size());
+            for (FindingsRollup.Row row : rows) {
+                output.writeLong(RuleCoverage.ruleVersion(row.rule()));
+                writeBytes(output, row.host().getBytes(StandardCharsets.UTF_8));
+                output.writeLong(row.matchHashHigh());
+                output.writeLong(row.matchHashLow());
+                output.writeLong(row.firstSeen());
+                output.writeLong(row.lastSeen());
+                output.writeLong(row.count());
+            }
+        }
+        return Base64.getEncoder().encodeToString(buffer.toByteArray());
+    }
+
+    private void restoreRollup(FindingsRollup rollup, Map<Long, RegexEntity> rulesByVersion) throws IOException {
+        String saved = extensionData.getString(ROLLUP_KEY);
+        if (Objects.isNull(saved)) return;
+        try (DataInputStream input = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(saved))))) {
+            int rows = input.readInt();
+            for (int i = 0; i < rows; i++) {
+                RegexEntity rule = rulesByVersion.get(input.readLong());
+                String host = new String(readBytes(input), StandardCharsets.UTF_8);
+                FindingsRollup.Row row = new FindingsRollup.Row(rule, host, input.readLong(), input.readLong(),
+                        input.readLong(), input.readLong(), input.readLong());
+                if (rule != null) rollup.merge(row);
+            }
+        }
+    }
+
+    private static void writeBytes(DataOutputStream output, byte[] value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        output.writeInt(value.length);
+        output.write(value);
+    }
+
+    private static byte[] readBytes(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) return null;
+        byte[] value = new byte[length];
+        input.readFully(value);
+        return value;
+    }
+}
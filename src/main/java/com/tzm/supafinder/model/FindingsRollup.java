@@ -0,0 +1,135 @@
+package com.tzm.supafinder.model;
+
+import com.tzm.supafinder.utils.HashUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates of the findings removed by the retention policy (see {@link RetentionPolicy}).
+ * <br><br>
+ * Findings of the same rule with the same match on the same host are counted in a single row, with the time of the
+ * first and last one. The match is identified only by its 128-bit hash, so no secret is kept on the heap.
+ * Every rule has at most {@link #MAX_ROWS_PER_RULE} rows: once a rule has reached the limit, findings of new matches
+ * or hosts are counted in its {@link Row#isOthers() others} row, so memory stays flat even for a rule matching a
+ * different value every time.
+ * This class is thread-safe.
+ */
+public class FindingsRollup {
+    static final int MAX_ROWS_PER_RULE = 1000;
+    /**
+     * Host of the row counting the findings of a rule beyond {@link #MAX_ROWS_PER_RULE}
+     */
+    public static final String OTHERS_HOST = "*";
+
+    private final Map<Key, Row> rows;
+    private final Map<RegexEntity, Integer> rowsByRule;
+    private long rolledUpFindings;
+
+    public FindingsRollup() {
+        this.rows = new HashMap<>();
+        this.rowsByRule = new HashMap<>();
+    }
+
+    /**
+     * Count a finding in its aggregate row
+     */
+    public synchronized void add(LogEntity entry) {
+        String host = hostOf(entry.getRequestUrl());
+        long[] matchHash = HashUtils.murmur3x64_128(entry.getMatch().getBytes(StandardCharsets.UTF_8), 0);
+        merge(new Row(entry.getRegexEntity(), host, matchHash[0], matchHash[1], entry.getFoundAt(), entry.getFoundAt(), 1));
+    }
+
+    /**
+     * Merge a row, e.g. restored from the project. A new row of a rule with {@link #MAX_ROWS_PER_RULE} rows already
+     * is merged in the others row of the rule.
+     */
+    public synchronized void merge(Row row) {
+        Key key = new Key(row.rule(), row.host(), row.matchHashHigh(), row.matchHashLow());
+        if (!rows.containsKey(key) && rowsByRule.getOrDefault(row.rule(), 0) >= MAX_ROWS_PER_RULE) {
+            row = new Row(row.rule(), OTHERS_HOST, 0, 0, row.firstSeen(), row.lastSeen(), row.count());
+            key = new Key(row.rule(), OTHERS_HOST, 0, 0);
+        }
+        if (!rows.containsKey(key) && !row.isOthers()) rowsByRule.merge(row.rule(), 1, Integer::sum);
+        rows.merge(key, row, Row::mergedWith);
+        rolledUpFindings += row.count();
+    }
+
+    /**
+     * @return the aggregate rows, the most frequent first
+     */
+    public synchronized List<Row> getRows() {
+        List<Row> snapshot = new ArrayList<>(rows.values());
+        snapshot.sort(Comparator.comparingLong(Row::count).reversed().thenComparing(Row::lastSeen, Comparator.reverseOrder()));
+        return snapshot;
+    }
+
+    public synchronized int size() {
+        return rows.size();
+    }
+
+    /**
+     * @return the number of findings counted in the rows
+     */
+    public synchronized long getRolledUpFindings() {
+        return rolledUpFindings;
+    }
+
+    public synchronized void clear() {
+        rows.clear();
+        rowsByRule.clear();
+        rolledUpFindings = 0;
+    }
+
+    /**
+     * @return the host of the URL, or the URL itself if it has no scheme
+     */
+    static String hostOf(String url) {
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = start;
+        while (end < url.length() && "/?#".indexOf(url.charAt(end)) < 0) end++;
+        return url.substring(start, end);
+    }
+
+    private record Key(RegexEntity rule, String host, long matchHashHigh, long matchHashLow) {
+    }
+
+    /**
+     * Findings of a rule with the same match on the same host
+     *
+     * @param rule          the rule of the findings
+     * @param host          the host of the requests, with the port if present, or {@link #OTHERS_HOST}
+     * @param matchHashHigh high 64 bits of the hash of the match
+     * @param matchHashLow  low 64 bits of the hash of the match
+     * @param firstSeen     creation time of the first finding, in milliseconds since the epoch
+     * @param lastSeen      creation time of the last finding, in milliseconds since the epoch
+     * @param count         number of findings
+     */
+    public record Row(RegexEntity rule, String host, long matchHashHigh, long matchHashLow,
+                      long firstSeen, long lastSeen, long count) {
+
+        /**
+         * @return true if the row counts the findings of the rule beyond {@link #MAX_ROWS_PER_RULE}, of any match
+         */
+        public boolean isOthers() {
+            return OTHERS_HOST.equals(host) && matchHashHigh == 0 && matchHashLow == 0;
+        }
+
+        /**
+         * @return the hash of the match as 32 hex digits, or an empty string for the others row
+         */
+        public String matchHash() {
+            return isOthers() ? "" : "%016x%016x".formatted(matchHashHigh, matchHashLow);
+        }
+
+        Row mergedWith(Row other) {
+            return new Row(rule, host, matchHashHigh, matchHashLow,
+                    Math.min(firstSeen, other.firstSeen), Math.max(lastSeen, other.lastSeen), count + other.count);
+        }
+    }
+}
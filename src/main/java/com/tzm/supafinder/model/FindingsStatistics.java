@@ -0,0 +1,80 @@
+package com.tzm.supafinder.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counters of the findings held by a {@link LogEntriesManager}, by importance, rule and section.
+ * <br><br>
+ * Counters are updated incrementally as findings are added and removed, so that reading them does not require
+ * a scan of all the findings. This class is not thread-safe: the manager updates it in the same critical section
+ * that modifies the list of findings.
+ */
+public class FindingsStatistics {
+    public static final int IMPORTANCE_LEVELS = 6;
+
+    private long total;
+    private final long[] byImportance;
+    private final long[] bySection;
+    private final Map<RegexEntity, Long> byRule;
+
+    FindingsStatistics() {
+        this.total = 0;
+        this.byImportance = new long[IMPORTANCE_LEVELS];
+        this.bySection = new long[HttpSection.values().length];
+        this.byRule = new HashMap<>();
+    }
+
+    void record(LogEntity entry, int delta) {
+        total += delta;
+        RegexEntity regexEntity = entry.getRegexEntity();
+        if (regexEntity != null) {
+            int importance = regexEntity.getImportance();
+            if (importance >= 0 && importance < IMPORTANCE_LEVELS) byImportance[importance] += delta;
+            byRule.merge(regexEntity, (long) delta, (current, change) -> current + change == 0 ? null : current + change);
+        }
+        if (entry.getMatchedSection() != null) bySection[entry.getMatchedSection().ordinal()] += delta;
+    }
+
+    void clear() {
+        total = 0;
+        Arrays.fill(byImportance, 0);
+        Arrays.fill(bySection, 0);
+        byRule.clear();
+    }
+
+    Snapshot snapshot() {
+        Map<HttpSection, Long> sections = new EnumMap<>(HttpSection.class);
+        for (HttpSection section : HttpSection.values()) {
+            sections.put(section, bySection[section.ordinal()]);
+        }
+        return new Snapshot(total, Arrays.stream(byImportance).boxed().toList(), Collections.unmodifiableMap(sections), Map.copyOf(byRule));
+    }
+
+    /**
+     * Immutable copy of the counters at a given time
+     *
+     * @param total        number of findings
+     * @param byImportance findings for each importance level, indexed by level (0=debug ... 5=critical)
+     * @param bySection    findings for each matched section
+     * @param byRule       findings for each rule with at least one finding
+     */
+    public record Snapshot(long total, List<Long> byImportance, Map<HttpSection, Long> bySection, Map<RegexEntity, Long> byRule) {
+
+        public long countByImportance(int importance) {
+            return importance >= 0 && importance < byImportance.size() ? byImportance.get(importance) : 0;
+        }
+
+        public long countBySection(HttpSection section) {
+            return bySection.getOrDefault(section, 0L);
+        }
+
+        public long countByRule(RegexEntity regexEntity) {
+            return byRule.getOrDefault(regexEntity, 0L);
+        }
+    }
+}
@@ -0,0 +1,529 @@
+package com.tzm.supafinder.model;
+
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.http.message.responses.HttpResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Ordered storage of the findings, keeping only a window of rows on the heap.
+ * <br><br>
+ * The most recent findings are kept as objects (the hot rows). When they exceed the hot window, the oldest ones are
+ * serialized to a memory-mapped file and dropped from the heap. Findings referencing a message of an
+ * {@link EvidenceStore} only store the handle of the message, the others store their request and response.
+ * Spilled rows are read back in pages, and the last pages read are cached, so that scrolling the table
+ * only decodes the rows around the visible ones.
+ * <br><br>
+ * Matches and URLs are interned in a {@link StringDictionary}: findings with the same values share the same
+ * instances, and spilled rows store only their ids. Removed findings release their values, so the dictionary only
+ * holds the values of the findings kept, spilled rows included: their values stay on the heap, once per distinct
+ * value. Rows are indexed by fingerprint in a {@link FingerprintIndex}, with the handle of their record once spilled
+ * and with a sequence number while hot, so that looking them up doesn't read the records nor scan the hot rows.
+ * <br><br>
+ * Removed spilled rows leave their record in the file. When the records of the removed rows take more space than
+ * the ones of the kept rows, the kept records are copied to a new file and the old one is deleted.
+ * <br><br>
+ * Files are created in a temporary directory only when the first rows are spilled, and unmapped and deleted on
+ * {@link #close()}.
+ * This class is not thread-safe, the {@link LogEntriesManager} serializes the access to it.
+ */
+public class FindingsStore implements AutoCloseable {
+    public static final int DEFAULT_HOT_ROWS = 50_000;
+    static final int PAGE_ROWS = 256;
+    private static final int CACHED_PAGES = 32;
+    private static final byte EVIDENCE_BYTES = 0;
+    private static final byte EVIDENCE_HANDLE = 1;
+    private static final byte EVIDENCE_HISTORY = 2;
+    /**
+     * Position of the rule id in a record, after the fingerprint
+     */
+    private static final int RULE_ID_OFFSET = 2 * Long.BYTES;
+    /**
+     * Bytes of removed records below which the file is never compacted
+     */
+    static final long MIN_COMPACTION_BYTES = 16 * 1024 * 1024;
+
+    private final int hotRows;
+    private final EvidenceCodec codec;
+    private final List<LogEntity> hot;
+    private final List<RegexEntity> rules;
+    private final Map<RegexEntity, Integer> ruleIds;
+    private final List<EvidenceStore> evidenceStores;
+    private final List<HistoryReference.Source> historySources;
+    private final LinkedHashMap<Integer, LogEntity[]> pageCache;
+    private final StringDictionary strings;
+    private final FingerprintIndex spilledIndex;
+    private final FingerprintIndex hotIndex;
+    private final long minCompactionBytes;
+    private long[] hotSequences;
+    private long nextHotSequence;
+    private Path directory;
+    private MappedRecordFile records;
+    private MappedLongArray handles;
+    private int spilledRows;
+    private long removedBytes;
+    private int compactions;
+
+    public FindingsStore() {
+        this(DEFAULT_HOT_ROWS, EvidenceCodec.montoya());
+    }
+
+    /**
+     * @param hotRows number of most recent findings kept on the heap
+     * @param codec   converter of requests and responses to bytes
+     */
+    public FindingsStore(int hotRows, EvidenceCodec codec) {
+        this(hotRows, codec, MIN_COMPACTION_BYTES);
+    }
+
+    /**
+     * @param minCompactionBytes bytes of removed records below which the file is never compacted
+     */
+    FindingsStore(int hotRows, EvidenceCodec codec, long minCompactionBytes) {
+        this.hotRows = Math.max(PAGE_ROWS, hotRows);
+        this.codec = codec;
+        this.hot = new ArrayList<>();
+        this.rules = new ArrayList<>();
+        this.ruleIds = new IdentityHashMap<>();
+        this.evidenceStores = new ArrayList<>();
+        this.historySources = new ArrayList<>();
+        this.pageCache = new LinkedHashMap<>(CACHED_PAGES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, LogEntity[]> eldest) {
+                return size() > CACHED_PAGES;
+            }
+        };
+        this.strings = new StringDictionary();
+        this.spilledIndex = new FingerprintIndex();
+        this.hotIndex = new FingerprintIndex();
+        this.minCompactionBytes = minCompactionBytes;
+        this.hotSequences = new long[this.hotRows];
+        this.nextHotSequence = 0;
+        this.spilledRows = 0;
+        this.removedBytes = 0;
+    }
+
+    public int size() {
+        return spilledRows + hot.size();
+    }
+
+    /**
+     * @return the dictionary of the matches and URLs of the findings
+     */
+    StringDictionary getStrings() {
+        return strings;
+    }
+
+    public void addAll(List<LogEntity> entries) {
+        if (hot.size() + entries.size() > hotSequences.length) {
+            hotSequences = Arrays.copyOf(hotSequences, Math.max(hotSequences.length * 2, hot.size() + entries.size()));
+        }
+        for (LogEntity entry : entries) {
+            entry.internStrings(strings);
+            hotSequences[hot.size()] = nextHotSequence;
+            hotIndex.put(entry.getFingerprint(), nextHotSequence++);
+            hot.add(entry);
+        }
+        // spill in blocks, so that the hot list is not shifted for every finding
+        if (hot.size() >= hotRows + hotRows / 4) spill(hot.size() - hotRows);
+    }
+
+    public LogEntity get(int row) {
+        Objects.checkIndex(row, size());
+        if (row >= spilledRows) return hot.get(row - spilledRows);
+
+        int page = row / PAGE_ROWS;
+        LogEntity[] entries = pageCache.get(page);
+        if (entries == null) {
+            int first = page * PAGE_ROWS;
+            entries = new LogEntity[Math.min(PAGE_ROWS, spilledRows - first)];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = decode(records.read(handles.get(first + i)));
+            }
+            pageCache.put(page, entries);
+        }
+        return entries[row % PAGE_ROWS];
+    }
+
+    /**
+     * @return the row of the first finding equal to the given one, or -1.
+     * Rows are looked up in the fingerprints indexes, and found from the handle of the record or the sequence number
+     * of the hot row, since both grow with the rows.
+     */
+    public int indexOf(LogEntity entry) {
+        if (spilledRows > 0) {
+            long handle = spilledIndex.firstHandle(entry.getFingerprint());
+            if (handle >= 0) return handles.binarySearch(spilledRows, handle);
+        }
+        long sequence = hotIndex.firstHandle(entry.getFingerprint());
+        return sequence < 0 ? -1 : spilledRows + Arrays.binarySearch(hotSequences, 0, hot.size(), sequence);
+    }
+
+    public LogEntity remove(int row) {
+        LogEntity removed = get(row);
+        if (row >= spilledRows) {
+            int hotRow = row - spilledRows;
+            hotIndex.remove(removed.getFingerprint().high(), removed.getFingerprint().low(), hotSequences[hotRow]);
+            System.arraycopy(hotSequences, hotRow + 1, hotSequences, hotRow, hot.size() - hotRow - 1);
+            hot.remove(hotRow);
+            releaseStrings(removed);
+        } else {
+            // the record stays in the file, only the handles are shifted
+            unindex(handles.get(row));
+            handles.remove(row, spilledRows);
+            spilledRows--;
+            pageCache.clear();
+            compactIfNeeded();
+        }
+        return removed;
+    }
+
+    /**
+     * Remove all the findings matching a condition, keeping the order of the others
+     *
+     * @param filter the condition of the findings to remove
+     * @return the number of findings removed
+     */
+    public int removeIf(Predicate<LogEntity> filter) {
+        return removeRows(rowsMatching(filter));
+    }
+
+    /**
+     * Remove all the findings of the rules matching a condition, keeping the order of the others
+     *
+     * @param filter the condition of the rules whose findings are removed
+     * @return the number of findings removed
+     */
+    public int removeIfRule(Predicate<RegexEntity> filter) {
+        return removeRows(rowsOfRules(filter));
+    }
+
+    /**
+     * @param filter the condition of the findings to select
+     * @return the rows of the findings matching the condition
+     */
+    public BitSet rowsMatching(Predicate<LogEntity> filter) {
+        BitSet rows = new BitSet(size());
+        for (int row = 0; row < spilledRows; row++) {
+            if (filter.test(decode(records.read(handles.get(row))))) rows.set(row);
+        }
+        for (int i = 0; i < hot.size(); i++) {
+            if (filter.test(hot.get(i))) rows.set(spilledRows + i);
+        }
+        return rows;
+    }
+
+    /**
+     * Spilled rows are filtered by the rule id of their record, without decoding them
+     *
+     * @param filter the condition of the rules to select
+     * @return the rows of the findings of the rules matching the condition
+     */
+    public BitSet rowsOfRules(Predicate<RegexEntity> filter) {
+        BitSet rows = new BitSet(size());
+        for (int row = 0; row < spilledRows; row++) {
+            if (filter.test(rules.get(records.read(handles.get(row)).getInt(RULE_ID_OFFSET)))) rows.set(row);
+        }
+        for (int i = 0; i < hot.size(); i++) {
+            if (filter.test(hot.get(i).getRegexEntity())) rows.set(spilledRows + i);
+        }
+        return rows;
+    }
+
+    /**
+     * Read the findings at the given rows, e.g. before removing them. Only the spilled rows selected are decoded.
+     *
+     * @param rows the rows to read, the ones past the end are ignored
+     * @return the findings in row order
+     */
+    public List<LogEntity> getRows(BitSet rows) {
+        List<LogEntity> entries = new ArrayList<>(rows.cardinality());
+        for (int row = rows.nextSetBit(0); row >= 0 && row < size(); row = rows.nextSetBit(row + 1)) {
+            entries.add(row < spilledRows ? decode(records.read(handles.get(row))) : hot.get(row - spilledRows));
+        }
+        return entries;
+    }
+
+    /**
+     * Remove the findings at the given rows, keeping the order of the others
+     *
+     * @param rows the rows to remove
+     * @return the number of findings removed
+     */
+    public int removeRows(BitSet rows) {
+        int kept = 0;
+        for (int row = 0; row < spilledRows; row++) {
+            // the records stay in the file, only the handles of the kept rows are compacted
+            if (!rows.get(row)) handles.set(kept++, handles.get(row));
+            else unindex(handles.get(row));
+        }
+        int removed = spilledRows - kept;
+        int firstHotRow = spilledRows;
+        spilledRows = kept;
+        pageCache.clear();
+        List<LogEntity> keptHot = new ArrayList<>(hot.size());
+        for (int i = 0; i < hot.size(); i++) {
+            LogEntity entry = hot.get(i);
+            if (!rows.get(firstHotRow + i)) {
+                hotSequences[keptHot.size()] = hotSequences[i];
+                keptHot.add(entry);
+            } else {
+                hotIndex.remove(entry.getFingerprint().high(), entry.getFingerprint().low(), hotSequences[i]);
+                releaseStrings(entry);
+            }
+        }
+        removed += hot.size() - keptHot.size();
+        hot.clear();
+        hot.addAll(keptHot);
+        if (removed > 0) compactIfNeeded();
+        return removed;
+    }
+
+    public void clear() {
+        hot.clear();
+        pageCache.clear();
+        spilledRows = 0;
+        spilledIndex.clear();
+        hotIndex.clear();
+        removedBytes = 0;
+        if (records != null) records.clear();
+        strings.clear();
+    }
+
+    /**
+     * @return the counters of the findings kept on the heap and on disk
+     */
+    public Stats getStats() {
+        return new Stats(hot.size(), spilledRows, records == null ? 0 : records.size(), strings.getStats());
+    }
+
+    private void spill(int count) {
+        try {
+            if (records == null) {
+                directory = Files.createTempDirectory("supafinder-findings");
+                records = new MappedRecordFile(directory.resolve("findings.bin"));
+                handles = new MappedLongArray(directory.resolve("findings.idx"));
+                deleteOnExit(directory, "findings.bin", "findings.idx");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // the last page read may have been partial
+        pageCache.remove(spilledRows / PAGE_ROWS);
+        List<LogEntity> spilled = hot.subList(0, count);
+        for (int i = 0; i < count; i++) {
+            LogEntity entry = spilled.get(i);
+            long handle = records.append(encode(entry));
+            handles.set(spilledRows++, handle);
+            spilledIndex.put(entry.getFingerprint(), handle);
+            hotIndex.remove(entry.getFingerprint().high(), entry.getFingerprint().low(), hotSequences[i]);
+        }
+        spilled.clear();
+        System.arraycopy(hotSequences, count, hotSequences, 0, hot.size());
+    }
+
+    /**
+     * Copy the records of the kept rows to a new file, once the records of the removed rows take more space than
+     * them. Handles keep growing with the rows, since the records are copied in row order.
+     */
+    private void compactIfNeeded() {
+        if (records == null || removedBytes < minCompactionBytes || removedBytes < records.size() - removedBytes) return;
+        MappedRecordFile compacted = new MappedRecordFile(directory.resolve("findings-" + (++compactions) + ".bin"));
+        deleteOnExit(directory, "findings-" + compactions + ".bin");
+        spilledIndex.clear();
+        for (int row = 0; row < spilledRows; row++) {
+            ByteBuffer record = records.read(handles.get(row));
+            byte[] bytes = new byte[record.remaining()];
+            record.get(bytes);
+            long handle = compacted.append(bytes);
+            handles.set(row, handle);
+            spilledIndex.put(new LogEntity.Fingerprint(record.getLong(0), record.getLong(Long.BYTES)), handle);
+        }
+        records.close();
+        records = compacted;
+        removedBytes = 0;
+    }
+
+    /**
+     * Remove a spilled record from the fingerprints index and release its strings, reading only the fields before them
+     */
+    private void unindex(long handle) {
+        ByteBuffer record = records.read(handle);
+        removedBytes += Integer.BYTES + record.remaining();
+        spilledIndex.remove(record.getLong(0), record.getLong(Long.BYTES), handle);
+        int position = RULE_ID_OFFSET + Integer.BYTES + 1;
+        position += record.get(position) == 0 ? 1 : 1 + 4 * Integer.BYTES;
+        strings.release(record.getInt(position));
+        strings.release(record.getInt(position + Integer.BYTES));
+    }
+
+    private void releaseStrings(LogEntity entry) {
+        strings.release(entry.getRequestUrl());
+        strings.release(entry.getMatch());
+    }
+
+    /**
+     * Fallback for a JVM exiting without {@link #close()}. Files are registered after their directory,
+     * since they are deleted in reverse order and a directory is deleted only when empty.
+     */
+    static void deleteOnExit(Path directory, String... files) {
+        directory.toFile().deleteOnExit();
+        for (String file : files) directory.resolve(file).toFile().deleteOnExit();
+    }
+
+    private int ruleId(RegexEntity regexEntity) {
+        return ruleIds.computeIfAbsent(regexEntity, key -> {
+            rules.add(key);
+            return rules.size() - 1;
+        });
+    }
+
+    private int evidenceStoreId(EvidenceStore store) {
+        for (int i = 0; i < evidenceStores.size(); i++) {
+            if (evidenceStores.get(i) == store) return i;
+        }
+        evidenceStores.add(store);
+        return evidenceStores.size() - 1;
+    }
+
+    private int historySourceId(HistoryReference.Source source) {
+        for (int i = 0; i < historySources.size(); i++) {
+            if (historySources.get(i) == source) return i;
+        }
+        historySources.add(source);
+        return historySources.size() - 1;
+    }
+
+    /**
+     * Record layout: fingerprint (high, low), rule id, section, match position, URL id, match id, context, creation
+     * time, evidence.
+     * The evidence is either the handle of a stored message (store id, message id), the reference to an item of the
+     * proxy history (source id, item index) or the request and response.
+     * The fingerprint comes first, so that it can be compared without decoding the record.
+     */
+    private byte[] encode(LogEntity entry) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(entry.getFingerprint().high());
+            out.writeLong(entry.getFingerprint().low());
+            out.writeInt(ruleId(entry.getRegexEntity()));
+            out.writeByte(entry.getMatchedSection().ordinal());
+            MatchPosition position = entry.getPosition();
+            out.writeBoolean(position != null);
+            if (position != null) {
+                out.writeInt(position.start());
+                out.writeInt(position.end());
+                out.writeInt(position.refinerStart());
+                out.writeInt(position.refinerEnd());
+            }
+            out.writeInt(strings.id(entry.getRequestUrl()));
+            out.writeInt(strings.id(entry.getMatch()));
+            writeBytes(out, entry.getContext() == null ? null : entry.getContext().getBytes(StandardCharsets.UTF_8));
+            out.writeLong(entry.getFoundAt());
+            if (entry.getEvidence() instanceof EvidenceStore.Handle handle) {
+                out.writeByte(EVIDENCE_HANDLE);
+                out.writeInt(evidenceStoreId(handle.store()));
+                out.writeLong(handle.id());
+            } else if (entry.getEvidence() instanceof HistoryReference reference) {
+                out.writeByte(EVIDENCE_HISTORY);
+                out.writeInt(historySourceId(reference.source()));
+                out.writeInt(reference.index());
+            } else {
+                out.writeByte(EVIDENCE_BYTES);
+                writeBytes(out, codec.encodeRequest(entry.getRequest()));
+                writeBytes(out, entry.getResponse() == null ? null : codec.encodeResponse(entry.getResponse()));
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private LogEntity decode(ByteBuffer record) {
+        LogEntity.Fingerprint fingerprint = new LogEntity.Fingerprint(record.getLong(), record.getLong());
+        RegexEntity regexEntity = rules.get(record.getInt());
+        HttpSection section = HttpSection.values()[record.get()];
+        MatchPosition position = record.get() == 0 ? null
+                : new MatchPosition(record.getInt(), record.getInt(), record.getInt(), record.getInt());
+        String url = strings.get(record.getInt());
+        String match = strings.get(record.getInt());
+        byte[] contextBytes = readBytes(record);
+        String context = contextBytes == null ? null : new String(contextBytes, StandardCharsets.UTF_8);
+        long foundAt = record.getLong();
+        Evidence evidence;
+        byte evidenceType = record.get();
+        if (evidenceType == EVIDENCE_HANDLE) {
+            evidence = new EvidenceStore.Handle(evidenceStores.get(record.getInt()), record.getLong());
+        } else if (evidenceType == EVIDENCE_HISTORY) {
+            evidence = new HistoryReference(historySources.get(record.getInt()), record.getInt(), url);
+        } else {
+            HttpRequest request = codec.decodeRequest(ByteBuffer.wrap(readBytes(record)));
+            byte[] responseBytes = readBytes(record);
+            HttpResponse response = responseBytes == null ? null : codec.decodeResponse(ByteBuffer.wrap(responseBytes));
+            evidence = Evidence.of(request, response);
+        }
+        return new LogEntity(evidence, regexEntity, section, match, position, context, url, fingerprint, foundAt);
+    }
+
+    private static byte[] readBytes(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) return null;
+        byte[] value = new byte[length];
+        record.get(value);
+        return value;
+    }
+
+    @Override
+    public void close() {
+        clear();
+        if (records != null) {
+            records.close();
+            handles.close();
+            records = null;
+            handles = null;
+            try {
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                System.err.println("Error deleting findings directory " + directory + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Counters of the store
+     *
+     * @param hotRows      findings kept on the heap
+     * @param spilledRows  findings moved to disk
+     * @param spilledBytes bytes of the file of the moved findings, including the records of the removed ones
+     *                     until the file is compacted
+     * @param strings      counters of the dictionary of matches and URLs
+     */
+    public record Stats(int hotRows, int spilledRows, long spilledBytes, StringDictionary.Stats strings) {
+    }
+}
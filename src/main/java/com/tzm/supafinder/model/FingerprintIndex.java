@@ -0,0 +1,109 @@
+package com.tzm.supafinder.model;
+
+import java.util.Arrays;
+
+/**
+ * Index of the findings of a {@link FindingsStore}, from their fingerprint to a handle growing with their row:
+ * the handle of their record for the findings moved to disk, a sequence number for the ones on the heap.
+ * <br><br>
+ * Entries are kept in open-addressing arrays of longs, so that the index costs a few bytes per finding instead of
+ * the objects of a map. Equal fingerprints are stored as separate entries, one for each finding.
+ * Fingerprints are hashes already, so their low bits are used as the position.
+ * This class is not thread-safe.
+ */
+class FingerprintIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long EMPTY = -1;
+
+    private long[] highs;
+    private long[] lows;
+    private long[] handles;
+    private int size;
+
+    FingerprintIndex() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        highs = new long[capacity];
+        lows = new long[capacity];
+        handles = new long[capacity];
+        Arrays.fill(handles, EMPTY);
+        size = 0;
+    }
+
+    private int slotOf(long low) {
+        return (int) low & (handles.length - 1);
+    }
+
+    void put(LogEntity.Fingerprint fingerprint, long handle) {
+        if ((size + 1) * 2 > handles.length) resize(handles.length * 2);
+        insert(fingerprint.high(), fingerprint.low(), handle);
+    }
+
+    private void insert(long high, long low, long handle) {
+        int slot = slotOf(low);
+        while (handles[slot] != EMPTY) slot = (slot + 1) & (handles.length - 1);
+        highs[slot] = high;
+        lows[slot] = low;
+        handles[slot] = handle;
+        size++;
+    }
+
+    /**
+     * @return the lowest handle of the findings with the fingerprint, i.e. the first one added, or -1 if there's none
+     */
+    long firstHandle(LogEntity.Fingerprint fingerprint) {
+        long first = EMPTY;
+        for (int slot = slotOf(fingerprint.low()); handles[slot] != EMPTY; slot = (slot + 1) & (handles.length - 1)) {
+            if (highs[slot] == fingerprint.high() && lows[slot] == fingerprint.low()
+                    && (first == EMPTY || handles[slot] < first)) {
+                first = handles[slot];
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Remove the entry of a finding, if present
+     */
+    void remove(long high, long low, long handle) {
+        int mask = handles.length - 1;
+        int slot = slotOf(low);
+        while (handles[slot] != EMPTY && !(handles[slot] == handle && highs[slot] == high && lows[slot] == low)) {
+            slot = (slot + 1) & mask;
+        }
+        if (handles[slot] == EMPTY) return;
+        // shift back the following entries of the cluster, so that lookups never stop at the hole
+        int hole = slot;
+        for (int next = (hole + 1) & mask; handles[next] != EMPTY; next = (next + 1) & mask) {
+            int home = slotOf(lows[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                highs[hole] = highs[next];
+                lows[hole] = lows[next];
+                handles[hole] = handles[next];
+                hole = next;
+            }
+        }
+        handles[hole] = EMPTY;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        long[] oldHighs = highs;
+        long[] oldLows = lows;
+        long[] oldHandles = handles;
+        allocate(capacity);
+        for (int i = 0; i < oldHandles.length; i++) {
+            if (oldHandles[i] != EMPTY) insert(oldHighs[i], oldLows[i], oldHandles[i]);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        allocate(INITIAL_CAPACITY);
+    }
+}
@@ -0,0 +1,63 @@
+package com.tzm.supafinder.model;
+
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.http.message.responses.HttpResponse;
+import burp.api.montoya.proxy.ProxyHttpRequestResponse;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Evidence of a finding restored from the project: the item of the proxy history where it was found.
+ * The item is looked up only when the message is needed, e.g. when the finding is selected.
+ *
+ * @param source the proxy history
+ * @param index  the index of the item in the proxy history
+ * @param url    the URL of the request of the finding, to check that the item is still the same
+ */
+public record HistoryReference(Source source, int index, String url) implements Evidence {
+
+    @Override
+    public HttpRequest request() {
+        return item().finalRequest();
+    }
+
+    @Override
+    public HttpResponse response() {
+        return item().response();
+    }
+
+    private ProxyHttpRequestResponse item() {
+        ProxyHttpRequestResponse item = source.get(index);
+        if (Objects.isNull(item) || !item.finalRequest().url().equals(url)) {
+            throw new IllegalStateException("Item " + index + " of the proxy history is not available anymore");
+        }
+        return item;
+    }
+
+    /**
+     * The proxy history, read once and read again only when an item after its end is requested.
+     * Items are only appended to the history, so the indexes of the items read stay valid until the user deletes them.
+     */
+    public static class Source {
+        private final Supplier<List<ProxyHttpRequestResponse>> history;
+        private List<ProxyHttpRequestResponse> items;
+
+        /**
+         * @param history supplier of the current proxy history, e.g. {@code burpApi.proxy()::history}
+         */
+        public Source(Supplier<List<ProxyHttpRequestResponse>> history) {
+            this.history = history;
+            this.items = List.of();
+        }
+
+        /**
+         * @return the item of the proxy history, or null if the history is shorter
+         */
+        public synchronized ProxyHttpRequestResponse get(int index) {
+            if (index >= items.size()) items = history.get();
+            return index >= 0 && index < items.size() ? items.get(index) : null;
+        }
+    }
+}
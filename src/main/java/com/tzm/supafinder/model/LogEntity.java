@@ -4,7 +4,8 @@ import burp.api.montoya.http.message.HttpHeader;
 import burp.api.montoya.http.message.requests.HttpRequest;
 import burp.api.montoya.http.message.responses.HttpResponse;
 
-import java.util.Objects;
+import com.tzm.supafinder.utils.HashUtils;
+
 import java.util.stream.Collectors;
 
 /**
@@ -17,19 +18,20 @@ import java.util.stream.Collectors;
  * <b>Dev notes</b>:<br>
  * This entity contains immutable references to:
  * <ul>
- *  <li>the request object</li>
- *  <li>the response object</li>
+ *  <li>the evidence, from which the request and response objects are obtained</li>
  *  <li>the url of the request</li>
  *  <li>the matched regex</li>
  *  <li>the section where the regex matched</li>
- *  <li>the results of the match</li>
+ *  <li>the results of the match, with its position in the section and a few characters around it</li>
  * </ul>
  * Some information, such as the URL, could be considered redundant but serves as a cache layer between the extension and the Burp APIs.
  * Calling request.url() is slow, therefore a copy is kept here as the underlying request is not going to change.
+ * <br>
+ * Findings created by the scanner reference the message through an {@link EvidenceStore.Handle}, so they don't keep
+ * the request and response in memory: the message is loaded again only when it's needed, e.g. when the finding is selected.
  */
 public class LogEntity {
-    private final HttpRequest request;
-    private final HttpResponse response;
+    private final Evidence evidence;
     private final RegexEntity regexEntity;
     /**
      * Section where the regex matched.
@@ -37,25 +39,77 @@ public class LogEntity {
     private final HttpSection matchedSection;
     /**
      * String matched with the regex on 1+ sections (specific sections not currently tracked).
+     * Replaced by the equal instance of the {@link StringDictionary} when the finding is stored.
+     */
+    private String match;
+    /**
+     * Position of the match in the section content, or null if unknown
+     */
+    private final MatchPosition position;
+    /**
+     * Text of the section around the match, or null if unknown
      */
-    private final String match;
+    private final String context;
     /**
      * Cached value from request.url()
      */
     private String requestUrl;
     /**
-     * Cached value from the response field
+     * Fingerprint of the finding, computed when first needed
+     */
+    private Fingerprint fingerprint;
+    /**
+     * Key of the group of findings with the same values shown in the Logger table, computed when first needed
+     */
+    private Fingerprint groupKey;
+    /**
+     * Time when the finding was created, in milliseconds since the epoch
      */
-    private String responseHeaders;
+    private long foundAt;
 
     public LogEntity(HttpRequest request, HttpResponse httpResponse, RegexEntity regexEntity, HttpSection matchedSection, String match) {
-        this.request = request;
-        this.response = httpResponse;
+        this(Evidence.of(request, httpResponse), regexEntity, matchedSection, match, null, null);
+    }
+
+    private LogEntity(Evidence evidence, RegexEntity regexEntity, HttpSection matchedSection, String match,
+                      MatchPosition position, String context) {
+        this.evidence = evidence;
         this.regexEntity = regexEntity;
         this.matchedSection = matchedSection;
         this.match = match;
+        this.position = position;
+        this.context = context;
         this.requestUrl = null;
-        this.responseHeaders = null;
+        this.fingerprint = null;
+        this.foundAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Create a finding from the values already extracted from the message during the scan.
+     * The fingerprint is computed immediately, so the message doesn't need to be loaded again for the de-duplication.
+     *
+     * @param evidence        the message where the regex matched
+     * @param requestUrl      the URL of the request
+     * @param responseHeaders the headers of the response separated by CRLF, or null if there's no response
+     * @param position        position of the match in the section content
+     * @param context         text of the section around the match
+     */
+    public LogEntity(Evidence evidence, String requestUrl, String responseHeaders, RegexEntity regexEntity, HttpSection matchedSection,
+                     String match, MatchPosition position, String context) {
+        this(evidence, regexEntity, matchedSection, match, position, context);
+        this.requestUrl = requestUrl;
+        this.fingerprint = computeFingerprint(responseHeaders);
+    }
+
+    /**
+     * Restore a finding previously stored, with its cached URL, fingerprint and creation time
+     */
+    LogEntity(Evidence evidence, RegexEntity regexEntity, HttpSection matchedSection, String match,
+              MatchPosition position, String context, String requestUrl, Fingerprint fingerprint, long foundAt) {
+        this(evidence, regexEntity, matchedSection, match, position, context);
+        this.requestUrl = requestUrl;
+        this.fingerprint = fingerprint;
+        this.foundAt = foundAt;
     }
 
     public RegexEntity getRegexEntity() {
@@ -70,12 +124,52 @@ public class LogEntity {
         return match;
     }
 
+    /**
+     * @return the position of the match in the section content, or null if unknown
+     */
+    public MatchPosition getPosition() {
+        return position;
+    }
+
+    /**
+     * The text matched by the regex, as it appears in the message.
+     * It differs from {@link #getMatch()} when a refiner match was prepended to it.
+     */
+    public String getMatchedText() {
+        if (position == null || !position.hasRefiner()) return match;
+        return match.substring(Math.max(0, match.length() - (position.end() - position.start())));
+    }
+
+    /**
+     * @return the text of the section around the match, or null if unknown
+     */
+    public String getContext() {
+        return context;
+    }
+
+    /**
+     * @return the time when the finding was created, in milliseconds since the epoch
+     */
+    public long getFoundAt() {
+        return foundAt;
+    }
+
+    public Evidence getEvidence() {
+        return evidence;
+    }
+
+    /**
+     * The request where the regex matched. It may be loaded again from the {@link EvidenceStore}.
+     */
     public HttpRequest getRequest() {
-        return request;
+        return evidence.request();
     }
 
+    /**
+     * The response where the regex matched, or null. It may be loaded again from the {@link EvidenceStore}.
+     */
     public HttpResponse getResponse() {
-        return response;
+        return evidence.response();
     }
 
     /**
@@ -84,34 +178,98 @@ public class LogEntity {
      */
     public String getRequestUrl() {
         if (this.requestUrl == null) {
-            this.requestUrl = this.request.url();
+            this.requestUrl = getRequest().url();
         }
         return this.requestUrl;
     }
 
+    /**
+     * Replace the match and the URL with the equal instances of the dictionary, shared by the findings with the
+     * same values
+     */
+    void internStrings(StringDictionary dictionary) {
+        this.match = dictionary.intern(match);
+        this.requestUrl = dictionary.intern(getRequestUrl());
+    }
+
     /**
      * The Headers of the response as a String with single headers separated by the usual CRLF.
-     * Cached version from response.headers()
      */
     private String getResponseHeaders() {
-        if (this.responseHeaders == null) {
-            this.responseHeaders = this.response.headers().stream().map(HttpHeader::toString).collect(Collectors.joining("\r\n"));
+        HttpResponse response = getResponse();
+        if (response == null) return null;
+        return response.headers().stream().map(HttpHeader::toString).collect(Collectors.joining("\r\n"));
+    }
+
+    /**
+     * 128-bit fingerprint identifying the finding, used for the de-duplication of results in the Logger table.
+     * The fingerprint is computed from:
+     * - the matched content;
+     * - the section of the match;
+     * - the matched regex;
+     * - the request URL;
+     * - the response headers. This should cover most of the cases as responses usually contain the Date header;
+     *
+     * @return the fingerprint of this finding
+     */
+    public Fingerprint getFingerprint() {
+        Fingerprint current = this.fingerprint;
+        if (current == null) {
+            current = computeFingerprint(getResponseHeaders());
+            this.fingerprint = current;
+        }
+        return current;
+    }
+
+    private Fingerprint computeFingerprint(String responseHeaders) {
+        byte[] fields = new HashUtils.FieldsWriter()
+                .add(regexEntity.getRegex())
+                .add(regexEntity.getRefinerRegex().orElse(null))
+                .add(regexEntity.getDescription())
+                .addInt(regexEntity.getSections().stream().mapToInt(section -> 1 << section.ordinal()).sum())
+                .addInt(matchedSection.ordinal())
+                .add(match)
+                .add(getRequestUrl())
+                .add(responseHeaders)
+                .toBytes();
+        long[] hash = HashUtils.murmur3x64_128(fields, 0);
+        return new Fingerprint(hash[0], hash[1]);
+    }
+
+    /**
+     * 128-bit key of the findings showing the same values in the Logger table, used for the "unique results" view.
+     * Unlike the {@link #getFingerprint() fingerprint}, it does not depend on the response, so findings of the same
+     * rule matching the same content at the same URL belong to the same group. The key is computed from:
+     * - the matched regex;
+     * - the section of the match;
+     * - the matched content;
+     * - the request URL;
+     *
+     * @return the group key of this finding
+     */
+    public Fingerprint getGroupKey() {
+        Fingerprint current = this.groupKey;
+        if (current == null) {
+            byte[] fields = new HashUtils.FieldsWriter()
+                    .add(regexEntity.getRegex())
+                    .add(regexEntity.getDescription())
+                    .addInt(matchedSection.ordinal())
+                    .add(match)
+                    .add(getRequestUrl())
+                    .toBytes();
+            long[] hash = HashUtils.murmur3x64_128(fields, 0);
+            current = new Fingerprint(hash[0], hash[1]);
+            this.groupKey = current;
         }
-        return this.responseHeaders;
+        return current;
     }
 
     /**
-     * The equals method is required for the de-duplication of results in the Logger table.
+     * Two LogEntity are equal when they have the same {@link #getFingerprint() fingerprint}.
      * When two LogEntity are equal, only one entry is kept in the Logger table.
-     * The current implementation consider two LogEntity equals when:
-     * - the matched content is the same;
-     * - the section of the match is the same;
-     * - the matched regex is the same;
-     * - the request URL is the same;
-     * - the response headers are the same. This should cover most of the cases as responses usually contain the Date header;
      *
      * @param o the object to check equality against this
-     * @return true if they are the same object instance or if all the conditions defined above are true;
+     * @return true if they are the same object instance or if their fingerprints are equal
      */
     @Override
     public boolean equals(Object o) {
@@ -119,24 +277,12 @@ public class LogEntity {
         if (o == null || getClass() != o.getClass()) return false;
         LogEntity logEntity = (LogEntity) o;
 
-        return Objects.equals(
-                this.getMatch(),
-                logEntity.getMatch()) &&
-                this.getMatchedSection() == logEntity.getMatchedSection() &&
-                Objects.equals(
-                        this.getRegexEntity(),
-                        logEntity.getRegexEntity()) &&
-                Objects.equals(
-                        this.getRequestUrl(),
-                        logEntity.getRequestUrl()) &&
-                Objects.equals(
-                        this.getResponseHeaders(),
-                        logEntity.getResponseHeaders());
+        return getFingerprint().equals(logEntity.getFingerprint());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getRequest(), getResponse(), getRegexEntity(), getMatchedSection(), getMatch());
+        return getFingerprint().hashCode();
     }
 
     @Override
@@ -148,4 +294,14 @@ public class LogEntity {
                 ", match='" + getMatch() + '\'' +
                 '}';
     }
+
+    /**
+     * 128-bit fingerprint of a finding
+     */
+    public record Fingerprint(long high, long low) {
+        @Override
+        public int hashCode() {
+            return (int) (low ^ (low >>> 32));
+        }
+    }
 }
@@ -3,38 +3,425 @@ package com.tzm.supafinder.model;
 import com.tzm.supafinder.event.LogEntriesListener;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
-public class LogEntriesManager {
-    private final List<LogEntity> logEntries;
+/**
+ * Holds the findings shown in the Logger table.
+ * <br><br>
+ * Besides the ordered list of entries, the manager keeps an index of the entries
+ * {@link LogEntity#getFingerprint() fingerprints}, so that checking for duplicates is O(1) instead of a scan of the
+ * whole list. The index is divided in stripes, each one with its own lock: an insert locks the stripes of its
+ * findings, in index order, and updates the index and appends the findings in the same critical section, so inserts
+ * of the same finding are always serialized. Removals lock all the stripes.
+ * Counters of the findings are maintained as well, see {@link #getStatistics()}, and so are the groups of findings
+ * showing the same values, see {@link #isFirstOfGroup(int)} and {@link #getGroups()}.
+ * <br><br>
+ * Entries are held by a {@link FindingsStore}, which keeps only the most recent ones on the heap.
+ * <br><br>
+ * With a {@link RetentionPolicy}, the oldest entries beyond its limits are removed and counted in a
+ * {@link FindingsRollup} instead, see {@link #applyRetention()}. The entries to remove can be selected in a
+ * background thread with {@link #planRetention()}, reading the rows a page at a time, and removed later with
+ * {@link #evict(Eviction)}, which only updates the counters, groups and index from the entries already read.
+ */
+public class LogEntriesManager implements AutoCloseable {
+    private static final int INDEX_STRIPES = 64;
+    /**
+     * Rows read at a time by {@link #planRetention()}, so that the entries are not locked while reading all of them
+     */
+    private static final int RETENTION_PAGE_ROWS = 256;
+
+    private final FindingsStore logEntries;
     private final List<LogEntriesListener> listeners;
+    private final IndexStripe[] index;
+    private final FindingsStatistics statistics;
+    private final FindingsGroups groups;
+    private final FindingsRollup rollup;
+    private volatile RetentionPolicy retentionPolicy;
+    private volatile long removals;
 
     public LogEntriesManager() {
-        this.logEntries = new ArrayList<>();
+        this(new FindingsStore());
+    }
+
+    public LogEntriesManager(FindingsStore store) {
+        this.logEntries = store;
         this.listeners = new ArrayList<>();
+        this.statistics = new FindingsStatistics();
+        this.groups = new FindingsGroups(store.getStrings());
+        this.rollup = new FindingsRollup();
+        this.retentionPolicy = RetentionPolicy.UNLIMITED;
+        this.index = new IndexStripe[INDEX_STRIPES];
+        for (int i = 0; i < INDEX_STRIPES; i++) {
+            this.index[i] = new IndexStripe();
+        }
+    }
+
+    private static int stripeIndex(LogEntity.Fingerprint fingerprint) {
+        return (int) (fingerprint.high() >>> 58) & (INDEX_STRIPES - 1);
+    }
+
+    private IndexStripe stripeOf(LogEntity.Fingerprint fingerprint) {
+        return index[stripeIndex(fingerprint)];
+    }
+
+    /**
+     * Lock the stripes of the given entries, in index order so that concurrent inserts can't deadlock
+     *
+     * @return the mask of the locked stripes, to pass to {@link #unlockStripes(long)}
+     */
+    private long lockStripes(List<LogEntity> entries) {
+        long stripes = 0;
+        for (LogEntity entry : entries) stripes |= 1L << stripeIndex(entry.getFingerprint());
+        for (long left = stripes; left != 0; left &= left - 1) index[Long.numberOfTrailingZeros(left)].lock.lock();
+        return stripes;
+    }
+
+    private void unlockStripes(long stripes) {
+        for (long left = stripes; left != 0; left &= left - 1) index[Long.numberOfTrailingZeros(left)].lock.unlock();
     }
 
     public void add(LogEntity entry) {
-        logEntries.add(entry);
-        listeners.forEach(listener -> listener.onSizeChange(logEntries.size()));
+        addAll(List.of(entry));
+    }
+
+    /**
+     * Add multiple entries, notifying the listeners only once
+     *
+     * @param entries the entries to add
+     */
+    public void addAll(List<LogEntity> entries) {
+        if (entries.isEmpty()) return;
+        int size;
+        long stripes = lockStripes(entries);
+        try {
+            for (LogEntity entry : entries) stripeOf(entry.getFingerprint()).increment(entry.getFingerprint());
+            size = append(entries);
+        } finally {
+            unlockStripes(stripes);
+        }
+        listeners.forEach(listener -> listener.onSizeChange(size));
+    }
+
+    /**
+     * Add the entry only if an equal entry is not already present.
+     * Checking and adding is atomic with respect to other inserts and removals of an equal entry.
+     *
+     * @param entry the entry to add
+     * @return true if the entry was added
+     */
+    public boolean addIfAbsent(LogEntity entry) {
+        return !addAllIfAbsent(List.of(entry)).isEmpty();
+    }
+
+    /**
+     * Add the entries not already present, including duplicates within the given list, notifying the listeners only once.
+     * Checking and adding is atomic with respect to other inserts and removals of equal entries.
+     *
+     * @param entries the entries to add
+     * @return the entries actually added, in the same order
+     */
+    public List<LogEntity> addAllIfAbsent(List<LogEntity> entries) {
+        if (entries.isEmpty()) return List.of();
+        List<LogEntity> added = new ArrayList<>(entries.size());
+        int size = 0;
+        long stripes = lockStripes(entries);
+        try {
+            for (LogEntity entry : entries) {
+                LogEntity.Fingerprint fingerprint = entry.getFingerprint();
+                IndexStripe stripe = stripeOf(fingerprint);
+                if (stripe.counts.containsKey(fingerprint)) continue;
+                stripe.increment(fingerprint);
+                added.add(entry);
+            }
+            if (!added.isEmpty()) size = append(added);
+        } finally {
+            unlockStripes(stripes);
+        }
+        if (!added.isEmpty()) {
+            int newSize = size;
+            listeners.forEach(listener -> listener.onSizeChange(newSize));
+        }
+        return added;
+    }
+
+    /**
+     * Append entries already counted in the index. Must be called holding the locks of their stripes,
+     * so that a removal, which holds all of them, never sees an entry indexed but not appended.
+     *
+     * @return the new number of entries
+     */
+    private int append(List<LogEntity> entries) {
+        synchronized (logEntries) {
+            int firstRow = logEntries.size();
+            logEntries.addAll(entries);
+            for (int i = 0; i < entries.size(); i++) {
+                statistics.record(entries.get(i), 1);
+                groups.add(entries.get(i), firstRow + i);
+            }
+            return logEntries.size();
+        }
     }
 
     public void remove(LogEntity entry) {
-        logEntries.remove(entry);
-        listeners.forEach(listener -> listener.onSizeChange(logEntries.size()));
+        remove(store -> {
+            BitSet rows = new BitSet();
+            int position = store.indexOf(entry);
+            if (position >= 0) rows.set(position);
+            return rows;
+        });
+    }
+
+    /**
+     * Remove all the entries matching a condition, e.g. the findings of a deleted rule
+     *
+     * @param filter the condition of the entries to remove
+     * @return the number of entries removed
+     */
+    public int removeIf(Predicate<LogEntity> filter) {
+        return remove(store -> store.rowsMatching(filter));
+    }
+
+    /**
+     * Remove all the entries of the rules matching a condition, e.g. of the deleted rules.
+     * Unlike {@link #removeIf(Predicate)}, entries moved to disk are not read back to check the condition.
+     *
+     * @param filter the condition of the rules whose entries are removed
+     * @return the number of entries removed
+     */
+    public int removeIfRule(Predicate<RegexEntity> filter) {
+        return remove(store -> store.rowsOfRules(filter));
+    }
+
+    /**
+     * Select the entries of the rules matching a condition, without removing them, see {@link #remove(Eviction)}.
+     * Only the entries are locked while selecting them, so that new entries can be added in the meantime.
+     *
+     * @param filter the condition of the rules whose entries are selected
+     * @return the entries to remove, or null if there are none
+     */
+    public Eviction planRemovalIfRule(Predicate<RegexEntity> filter) {
+        synchronized (logEntries) {
+            BitSet rows = logEntries.rowsOfRules(filter);
+            return rows.isEmpty() ? null : new Eviction(rows, logEntries.getRows(rows), removals);
+        }
+    }
+
+    private int remove(Function<FindingsStore, BitSet> selection) {
+        int removed;
+        int size;
+        for (IndexStripe stripe : index) stripe.lock.lock();
+        try {
+            synchronized (logEntries) {
+                BitSet rows = selection.apply(logEntries);
+                removed = removeRows(rows, logEntries.getRows(rows));
+                if (removed == 0) return 0;
+                size = logEntries.size();
+            }
+        } finally {
+            for (IndexStripe stripe : index) stripe.lock.unlock();
+        }
+        listeners.forEach(listener -> listener.onSizeChange(size));
+        return removed;
+    }
+
+    /**
+     * Remove entries, updating counters, groups and the fingerprints index from the removed entries only.
+     * Must be called holding the locks of all the stripes and of the entries.
+     *
+     * @param rows    the rows to remove
+     * @param removed the entries at the rows, in row order
+     * @return the number of entries removed
+     */
+    private int removeRows(BitSet rows, List<LogEntity> removed) {
+        if (removed.isEmpty()) return 0;
+        groups.remove(rows, removed);
+        for (LogEntity entry : removed) {
+            statistics.record(entry, -1);
+            stripeOf(entry.getFingerprint()).decrement(entry.getFingerprint());
+        }
+        logEntries.removeRows(rows);
+        removals++;
+        return removed.size();
+    }
+
+    public RetentionPolicy getRetentionPolicy() {
+        return retentionPolicy;
+    }
+
+    /**
+     * Set the limits of the entries kept, enforced by the next {@link #applyRetention()}
+     */
+    public void setRetentionPolicy(RetentionPolicy retentionPolicy) {
+        this.retentionPolicy = retentionPolicy;
+    }
+
+    /**
+     * @return the aggregates of the entries removed by the retention policy
+     */
+    public FindingsRollup getRollup() {
+        return rollup;
+    }
+
+    /**
+     * Check whether the entries exceed the retention policy. The check doesn't depend on the number of entries.
+     *
+     * @return true if {@link #applyRetention()} would remove entries
+     */
+    public boolean isRetentionExceeded() {
+        RetentionPolicy policy = retentionPolicy;
+        if (policy.isUnlimited()) return false;
+        synchronized (logEntries) {
+            if (RetentionPolicy.isExceeded(logEntries.size(), policy.maxFindings())) return true;
+            if (policy.maxFindingsPerRule() > 0 && statistics.snapshot().byRule().values().stream()
+                    .anyMatch(count -> RetentionPolicy.isExceeded(count, policy.maxFindingsPerRule()))) {
+                return true;
+            }
+            return policy.ttlMillis() > 0 && logEntries.size() > 0
+                    && logEntries.get(0).getFoundAt() < System.currentTimeMillis() - policy.ttlMillis();
+        }
+    }
+
+    /**
+     * Remove the oldest entries beyond the limits of the retention policy, counting them in the {@link #getRollup()
+     * rollup}, see {@link #planRetention()}.
+     *
+     * @return the number of entries removed
+     */
+    public int applyRetention() {
+        Eviction eviction = planRetention();
+        return eviction == null ? 0 : evict(eviction);
+    }
+
+    /**
+     * Select the oldest entries beyond the limits of the retention policy: the entries in excess of the maximum, the
+     * entries of every rule in excess of the per-rule maximum, and the entries older than the time-to-live. Entries
+     * are appended in order of creation, so the oldest ones are the first rows, and only the rows up to the last one
+     * selected are read, a page at a time. Nothing is removed, see {@link #evict(Eviction)}.
+     *
+     * @return the entries to remove, or null if the policy is not exceeded
+     */
+    public Eviction planRetention() {
+        RetentionPolicy policy = retentionPolicy;
+        if (!isRetentionExceeded()) return null;
+        int rows;
+        long plannedRemovals;
+        Map<RegexEntity, Long> ruleExcess = new HashMap<>();
+        synchronized (logEntries) {
+            rows = logEntries.size();
+            plannedRemovals = removals;
+            if (policy.maxFindingsPerRule() > 0) {
+                statistics.snapshot().byRule().forEach((rule, count) -> {
+                    if (count > policy.maxFindingsPerRule()) ruleExcess.put(rule, count - policy.maxFindingsPerRule());
+                });
+            }
+        }
+        // limits are restored exactly, so that the next batch is rolled up only after a tenth of new entries
+        int excess = policy.maxFindings() > 0 ? Math.max(0, rows - policy.maxFindings()) : 0;
+        long expiredBefore = policy.ttlMillis() > 0 ? System.currentTimeMillis() - policy.ttlMillis() : Long.MIN_VALUE;
+        boolean expiring = policy.ttlMillis() > 0;
+
+        BitSet evicted = new BitSet(rows);
+        List<LogEntity> entries = new ArrayList<>();
+        for (int from = 0; from < rows && (from < excess || !ruleExcess.isEmpty() || expiring); from += RETENTION_PAGE_ROWS) {
+            List<LogEntity> page;
+            synchronized (logEntries) {
+                // removed in the meantime, the rows are not valid anymore
+                if (removals != plannedRemovals) return null;
+                page = getRange(from, Math.min(rows, from + RETENTION_PAGE_ROWS));
+            }
+            for (int i = 0; i < page.size() && (from + i < excess || !ruleExcess.isEmpty() || expiring); i++) {
+                int row = from + i;
+                LogEntity entry = page.get(i);
+                boolean expired = expiring && entry.getFoundAt() < expiredBefore;
+                // stop at the first entry not expired, the next ones are more recent
+                if (!expired) expiring = false;
+                Long ruleLeft = ruleExcess.get(entry.getRegexEntity());
+                if (row < excess || expired || ruleLeft != null) {
+                    evicted.set(row);
+                    entries.add(entry);
+                    if (ruleLeft != null) {
+                        if (ruleLeft == 1) ruleExcess.remove(entry.getRegexEntity());
+                        else ruleExcess.put(entry.getRegexEntity(), ruleLeft - 1);
+                    }
+                }
+            }
+        }
+        return entries.isEmpty() ? null : new Eviction(evicted, entries, plannedRemovals);
+    }
+
+    /**
+     * Remove the entries selected by {@link #planRetention()}, counting them in the {@link #getRollup() rollup}.
+     * Entries are only appended in the meantime, so the rows stay valid unless other entries were removed:
+     * in that case nothing is removed, and the entries must be selected again.
+     *
+     * @return the number of entries removed, 0 if other entries were removed since the eviction was planned
+     */
+    public int evict(Eviction eviction) {
+        return remove(eviction, true);
+    }
+
+    /**
+     * Remove the entries selected by {@link #planRemovalIfRule(Predicate)}, without rolling them up.
+     * As with {@link #evict(Eviction)}, nothing is removed if other entries were removed since the selection.
+     *
+     * @return the number of entries removed, 0 if other entries were removed since the entries were selected
+     */
+    public int remove(Eviction eviction) {
+        return remove(eviction, false);
+    }
+
+    private int remove(Eviction eviction, boolean rollUp) {
+        int removed;
+        int size;
+        for (IndexStripe stripe : index) stripe.lock.lock();
+        try {
+            synchronized (logEntries) {
+                if (removals != eviction.removals()) return 0;
+                removed = removeRows(eviction.rows(), eviction.entries());
+                if (removed == 0) return 0;
+                if (rollUp) eviction.entries().forEach(rollup::add);
+                size = logEntries.size();
+            }
+        } finally {
+            for (IndexStripe stripe : index) stripe.lock.unlock();
+        }
+        listeners.forEach(listener -> listener.onSizeChange(size));
+        return removed;
     }
 
     public void clear() {
-        logEntries.clear();
-        listeners.forEach(listener -> listener.onSizeChange(logEntries.size()));
+        for (IndexStripe stripe : index) stripe.lock.lock();
+        try {
+            synchronized (logEntries) {
+                logEntries.clear();
+                rollup.clear();
+                statistics.clear();
+                groups.clear();
+                removals++;
+            }
+            for (IndexStripe stripe : index) stripe.counts.clear();
+        } finally {
+            for (IndexStripe stripe : index) stripe.lock.unlock();
+        }
+        listeners.forEach(listener -> listener.onSizeChange(0));
     }
 
     public int size() {
-        return logEntries.size();
+        synchronized (logEntries) {
+            return logEntries.size();
+        }
     }
 
     public LogEntity get(int index) {
-        return logEntries.get(index);
+        synchronized (logEntries) {
+            return logEntries.get(index);
+        }
     }
 
     /**
@@ -43,15 +430,121 @@ public class LogEntriesManager {
      * @return a {@code List} containing the log entries.
      */
     public List<LogEntity> getAll() {
-        return List.copyOf(logEntries);
+        synchronized (logEntries) {
+            return getRange(0, logEntries.size());
+        }
+    }
+
+    /**
+     * Returns an unmodifiable List containing the log entries in a range of rows.
+     * Prefer this to {@link #getAll()} to iterate over many entries, as entries moved to disk are read back.
+     *
+     * @param from first row, inclusive
+     * @param to   last row, exclusive. If greater than the current size, the entries up to the end are returned
+     * @return a {@code List} containing the log entries.
+     */
+    public List<LogEntity> getRange(int from, int to) {
+        synchronized (logEntries) {
+            to = Math.min(to, logEntries.size());
+            List<LogEntity> range = new ArrayList<>(Math.max(0, to - from));
+            for (int row = from; row < to; row++) range.add(logEntries.get(row));
+            return List.copyOf(range);
+        }
     }
 
+    /**
+     * @param entry the entry to look for
+     * @return true if an entry with the same fingerprint is present, in constant time
+     */
     public boolean contains(LogEntity entry) {
-        return logEntries.contains(entry);
+        LogEntity.Fingerprint fingerprint = entry.getFingerprint();
+        IndexStripe stripe = stripeOf(fingerprint);
+        stripe.lock.lock();
+        try {
+            return stripe.counts.containsKey(fingerprint);
+        } finally {
+            stripe.lock.unlock();
+        }
     }
 
     public int indexOf(LogEntity entry) {
-        return logEntries.indexOf(entry);
+        if (!contains(entry)) return -1;
+        synchronized (logEntries) {
+            return logEntries.indexOf(entry);
+        }
+    }
+
+    /**
+     * Number of times entries were removed or cleared. Entries are otherwise only appended,
+     * so row indexes built on the entries stay valid as long as this number does not change.
+     *
+     * @return the number of removals since the creation of the manager
+     */
+    public long getRemovalsCount() {
+        return removals;
+    }
+
+    /**
+     * Counters of the findings by importance, rule and section, consistent with the entries at the time of the call.
+     * The counters are kept up to date on every change, so this does not depend on the number of findings.
+     *
+     * @return a copy of the current counters
+     */
+    public FindingsStatistics.Snapshot getStatistics() {
+        synchronized (logEntries) {
+            return statistics.snapshot();
+        }
+    }
+
+    /**
+     * @param row the row of an entry
+     * @return true if the entry is the first one of its {@link LogEntity#getGroupKey() group},
+     * i.e. no previous entry shows the same values in the Logger table
+     */
+    public boolean isFirstOfGroup(int row) {
+        synchronized (logEntries) {
+            return groups.isFirstOfGroup(row);
+        }
+    }
+
+    /**
+     * @return the number of groups of entries showing the same values
+     */
+    public int getGroupsCount() {
+        synchronized (logEntries) {
+            return groups.groupsCount();
+        }
+    }
+
+    /**
+     * The entries grouped by rule, then by match, then by URL, with the number of entries of each group.
+     * Groups are kept up to date on every change, so this depends on the number of groups, not of entries.
+     *
+     * @return a copy of the current groups, largest first
+     */
+    public List<FindingsGroups.RuleGroup> getGroups() {
+        synchronized (logEntries) {
+            return groups.snapshot();
+        }
+    }
+
+    /**
+     * @return the counters of the entries kept on the heap and moved to disk
+     */
+    public FindingsStore.Stats getStoreStats() {
+        synchronized (logEntries) {
+            return logEntries.getStats();
+        }
+    }
+
+    /**
+     * Release the files used for the entries moved to disk
+     */
+    @Override
+    public void close() {
+        synchronized (logEntries) {
+            logEntries.close();
+        }
     }
 
     public void subscribeChangeListener(LogEntriesListener listener) {
@@ -61,4 +554,31 @@ public class LogEntriesManager {
     public void unsubscribeChangeListener(LogEntriesListener listener) {
         listeners.remove(listener);
     }
+
+    /**
+     * Entries selected for removal, by the retention policy or by their rule
+     *
+     * @param rows     the rows of the entries
+     * @param entries  the entries at the rows, in row order
+     * @param removals the {@link #getRemovalsCount() removals count} when the entries were selected
+     */
+    public record Eviction(BitSet rows, List<LogEntity> entries, long removals) {
+    }
+
+    /**
+     * Portion of the fingerprints index. Counts are kept instead of a plain set,
+     * since {@link #add(LogEntity)} does not prevent duplicates.
+     */
+    private static class IndexStripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<LogEntity.Fingerprint, Integer> counts = new HashMap<>();
+
+        void increment(LogEntity.Fingerprint fingerprint) {
+            counts.merge(fingerprint, 1, Integer::sum);
+        }
+
+        void decrement(LogEntity.Fingerprint fingerprint) {
+            counts.computeIfPresent(fingerprint, (key, count) -> count == 1 ? null : count - 1);
+        }
+    }
 }
@@ -0,0 +1,55 @@
+package com.tzm.supafinder.model;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.Objects;
+
+/**
+ * Releases memory-mapped regions without waiting for the garbage collector.
+ * <br><br>
+ * A mapped region stays valid until its buffer is collected, and on Windows a file can't be deleted while one of its
+ * regions is mapped. Java 17 has no public API to unmap a buffer, so the cleaner of the buffer is invoked through
+ * {@code sun.misc.Unsafe} of the {@code jdk.unsupported} module. When that is not available, regions are released
+ * by the garbage collector as usual.
+ */
+class MappedBuffers {
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("Mapped files will be released by the garbage collector: " + e);
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private MappedBuffers() {
+    }
+
+    /**
+     * Unmap a region. The buffer, and every view of it, must not be accessed anymore.
+     *
+     * @return true if the region was unmapped
+     */
+    static boolean unmap(MappedByteBuffer buffer) {
+        if (Objects.isNull(INVOKE_CLEANER)) return false;
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("Error unmapping findings file region: " + e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.tzm.supafinder.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Array of longs in a memory-mapped file, growing as needed. This class is not thread-safe.
+ */
+class MappedLongArray implements AutoCloseable {
+    private static final int REGION_LONGS = 1 << 20;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> mappedRegions;
+    private final List<LongBuffer> regions;
+
+    MappedLongArray(Path path) {
+        try {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.mappedRegions = new ArrayList<>();
+            this.regions = new ArrayList<>();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private LongBuffer region(int index) {
+        try {
+            while (regions.size() <= index) {
+                long bytes = (long) REGION_LONGS * Long.BYTES;
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, regions.size() * bytes, bytes);
+                mappedRegions.add(mapped);
+                regions.add(mapped.asLongBuffer());
+            }
+            return regions.get(index);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    long get(int index) {
+        return region(index / REGION_LONGS).get(index % REGION_LONGS);
+    }
+
+    void set(int index, long value) {
+        region(index / REGION_LONGS).put(index % REGION_LONGS, value);
+    }
+
+    /**
+     * Remove the value at the index, shifting the following ones up to size
+     */
+    void remove(int index, int size) {
+        for (int i = index; i < size - 1; i++) set(i, get(i + 1));
+    }
+
+    /**
+     * Search a value in the first values, sorted in ascending order
+     *
+     * @return the index of the value, or -1 if it is not present
+     */
+    int binarySearch(int size, long value) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long current = get(middle);
+            if (current < value) low = middle + 1;
+            else if (current > value) high = middle - 1;
+            else return middle;
+        }
+        return -1;
+    }
+
+    /**
+     * Unmap the regions and delete the file
+     */
+    @Override
+    public void close() {
+        regions.clear();
+        mappedRegions.forEach(MappedBuffers::unmap);
+        mappedRegions.clear();
+        try {
+            channel.close();
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Error deleting findings file " + path + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.tzm.supafinder.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only file of variable-length records, accessed through memory-mapped regions.
+ * <br><br>
+ * The file is mapped in fixed-size regions. A record never crosses two regions: when it does not fit in the
+ * remaining part of a region, it is written at the start of the next one. Records larger than a region are
+ * written and read through the channel instead.
+ * <br><br>
+ * The mapped regions live outside the Java heap, and the OS decides which pages are kept in memory.
+ * This class is not thread-safe.
+ */
+class MappedRecordFile implements AutoCloseable {
+    static final int REGION_SIZE = 64 * 1024 * 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> regions;
+    private final int regionSize;
+    private long position;
+
+    MappedRecordFile(Path path) {
+        this(path, REGION_SIZE);
+    }
+
+    MappedRecordFile(Path path, int regionSize) {
+        try {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.regions = new ArrayList<>();
+            this.regionSize = regionSize;
+            this.position = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private MappedByteBuffer region(int index) throws IOException {
+        while (regions.size() <= index) {
+            regions.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) regions.size() * regionSize, regionSize));
+        }
+        return regions.get(index);
+    }
+
+    /**
+     * @param record the bytes to store
+     * @return the handle to read the record back
+     */
+    long append(byte[] record) {
+        try {
+            int length = Integer.BYTES + record.length;
+            long offsetInRegion = position % regionSize;
+            if (offsetInRegion + length > regionSize) {
+                position += regionSize - offsetInRegion;
+            }
+            long handle = position;
+            if (length <= regionSize) {
+                ByteBuffer buffer = region((int) (handle / regionSize)).duplicate();
+                buffer.position((int) (handle % regionSize));
+                buffer.putInt(record.length).put(record);
+                position += length;
+            } else {
+                ByteBuffer buffer = ByteBuffer.allocate(length).putInt(record.length).put(record).flip();
+                while (buffer.hasRemaining()) channel.write(buffer, handle + buffer.position());
+                // keep the regions aligned: the next record starts in a new region
+                position = ((handle + length + regionSize - 1) / regionSize) * regionSize;
+            }
+            return handle;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param handle the handle returned by {@link #append(byte[])}
+     * @return the record, as a buffer positioned at its start
+     */
+    ByteBuffer read(long handle) {
+        try {
+            ByteBuffer region = region((int) (handle / regionSize)).duplicate();
+            int offset = (int) (handle % regionSize);
+            int length = region.getInt(offset);
+            if (Integer.BYTES + length <= regionSize) {
+                return region.position(offset + Integer.BYTES).limit(offset + Integer.BYTES + length).slice();
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, handle + Integer.BYTES + buffer.position()) < 0) throw new IOException("Truncated record");
+            }
+            return buffer.flip();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Discard all the records
+     */
+    void clear() {
+        position = 0;
+    }
+
+    /**
+     * @return the bytes used by the records
+     */
+    long size() {
+        return position;
+    }
+
+    /**
+     * Unmap the regions and delete the file. Buffers returned by {@link #read(long)} must not be accessed anymore.
+     */
+    @Override
+    public void close() {
+        regions.forEach(MappedBuffers::unmap);
+        regions.clear();
+        try {
+            channel.close();
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Error deleting findings file " + path + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.tzm.supafinder.model;
+
+/**
+ * Position of a match in the content of its section, as character offsets.
+ * <br><br>
+ * When the regex has a refiner, the refiner match is prepended to the match, but it is not necessarily adjacent to it:
+ * its own span is recorded separately.
+ *
+ * @param start        start of the regex match
+ * @param end          end of the regex match
+ * @param refinerStart start of the refiner match, or -1 if there's no refiner match
+ * @param refinerEnd   end of the refiner match, or -1 if there's no refiner match
+ */
+public record MatchPosition(int start, int end, int refinerStart, int refinerEnd) {
+
+    public static MatchPosition of(int start, int end) {
+        return new MatchPosition(start, end, -1, -1);
+    }
+
+    public boolean hasRefiner() {
+        return refinerStart >= 0;
+    }
+}
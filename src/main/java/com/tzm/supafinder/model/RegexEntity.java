@@ -1,5 +1,7 @@
 package com.tzm.supafinder.model;
 
+import com.tzm.supafinder.scanner.LiteralSet;
+
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
@@ -29,6 +31,7 @@ public class RegexEntity {
     private final int importance; // 0=debug, 1=info, 2=low, 3=medium, 4=high, 5=critical
     private final boolean precheckNeeded;
     private final List<String> prechecks;
+    private final transient LiteralSet precheckLiterals;
     private final boolean caseInsensitive;
     private final boolean stopFirstOccurrence;
     private final List<String> ignorePatterns;
@@ -107,6 +110,9 @@ public class RegexEntity {
         this.importance = importance;
         this.precheckNeeded = precheckNeeded;
         this.prechecks = prechecks;
+        this.precheckLiterals = (precheckNeeded && prechecks != null && !prechecks.isEmpty())
+                ? new LiteralSet(prechecks)
+                : null;
         this.caseInsensitive = caseInsensitive;
         this.stopFirstOccurrence = stopFirstOccurrence;
         this.ignorePatterns = ignorePatterns;
@@ -229,6 +235,13 @@ public class RegexEntity {
         return prechecks;
     }
 
+    /**
+     * @return the prechecks compiled for a single-pass search, or null if no precheck is needed
+     */
+    public LiteralSet getPrecheckLiterals() {
+        return precheckLiterals;
+    }
+
     public boolean isCaseInsensitive() {
         return caseInsensitive;
     }
@@ -2,12 +2,16 @@ package com.tzm.supafinder.model;
 
 import burp.api.montoya.persistence.Preferences;
 import com.tzm.supafinder.RegexSeeder;
+import com.tzm.supafinder.scanner.AssetAllowlist;
 import com.tzm.supafinder.utils.FileUtils;
+import com.tzm.supafinder.utils.Utils;
+import com.google.gson.JsonParseException;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 import static com.tzm.supafinder.utils.Messages.getLocaleString;
 
@@ -19,6 +23,10 @@ public class RegexScannerOptions {
     private final Preferences burpPreferences;
     private final List<RegexEntity> generalRegexList;
     private final List<RegexEntity> extensionsRegexList;
+    /**
+     * Fingerprints of the public files skipped by the scanner, shipped and added by the user
+     */
+    private final AssetAllowlist assetAllowlist;
     private final List<Runnable> importanceChangeListeners;
 
     /**
@@ -46,6 +54,50 @@ public class RegexScannerOptions {
      * The size, in bytes, of the region before the match where the refinerRegex is applied
      */
     private int configRefineContextSize;
+    /**
+     * Number of workers analyzing real-time traffic
+     */
+    private int configRealtimeWorkers;
+    /**
+     * Maximum number of real-time messages waiting to be analyzed
+     */
+    private int configRealtimeQueueCapacity;
+    /**
+     * Policy applied when the real-time queue is full (DROP_NEWEST, DROP_OLDEST, CALLER_RUNS)
+     */
+    private String configRealtimeOverflowPolicy;
+    /**
+     * Use virtual threads for the real-time workers, when supported by the JVM
+     */
+    private boolean configRealtimeVirtualThreads;
+    /**
+     * Maximum Hamming distance between the SimHashes of near-duplicate responses of the real-time analysis,
+     * or -1 to analyze every response entirely
+     */
+    private int configRealtimeNearDuplicateDistance;
+    /**
+     * Comma-separated tools whose responses are checked for near-duplicates, e.g. "INTRUDER,SCANNER", or "ALL".
+     * Responses of the other tools are always analyzed entirely.
+     */
+    private String configRealtimeNearDuplicateTools;
+    /**
+     * Save the cache of the matches of the bodies in the project, to reuse it after a restart
+     */
+    private boolean configMatchCachePersisted;
+    /**
+     * File where the findings are appended for external tools, empty to disable the journal
+     */
+    private String configJournalPath;
+    /**
+     * Size in MB after which the journal file is rotated
+     */
+    private int configJournalMaxFileSize;
+    /**
+     * Limits of the raw findings, beyond which the oldest ones are rolled up. 0 for no limit
+     */
+    private int configRetentionMaxFindings;
+    private int configRetentionMaxFindingsPerRule;
+    private int configRetentionTtlHours;
 
     // New real-time analysis options
     /**
@@ -102,6 +154,7 @@ public class RegexScannerOptions {
         loadOptionsDefaults();
         loadOptionsPersisted();
         loadRegexes(false);
+        this.assetAllowlist = loadAssetAllowlist();
     }
 
     private void loadOptionsDefaults() {
@@ -111,6 +164,18 @@ public class RegexScannerOptions {
         this.setConfigMaxResponseSize(Integer.parseInt(configProperties.getProperty("config.scanner.max_response_size")));
         this.setConfigNumberOfThreads(Integer.parseInt(configProperties.getProperty("config.scanner.number_of_threads")));
         this.setConfigRefineContextSize(Integer.parseInt(configProperties.getProperty("config.scanner.refine_context_size")));
+        this.setConfigRealtimeWorkers(Integer.parseInt(configProperties.getProperty("config.scanner.realtime.workers")));
+        this.setConfigRealtimeQueueCapacity(Integer.parseInt(configProperties.getProperty("config.scanner.realtime.queue_capacity")));
+        this.setConfigRealtimeOverflowPolicy(configProperties.getProperty("config.scanner.realtime.overflow_policy"));
+        this.setConfigRealtimeVirtualThreads(Boolean.parseBoolean(configProperties.getProperty("config.scanner.realtime.virtual_threads")));
+        this.setConfigRealtimeNearDuplicateDistance(Integer.parseInt(configProperties.getProperty("config.scanner.realtime.near_duplicate_distance")));
+        this.setConfigRealtimeNearDuplicateTools(configProperties.getProperty("config.scanner.realtime.near_duplicate_tools"));
+        this.setConfigMatchCachePersisted(Boolean.parseBoolean(configProperties.getProperty("config.scanner.match_cache.persist")));
+        this.setConfigJournalPath(configProperties.getProperty("config.scanner.journal.path"));
+        this.setConfigJournalMaxFileSize(Integer.parseInt(configProperties.getProperty("config.scanner.journal.max_file_size")));
+        this.setConfigRetentionMaxFindings(Integer.parseInt(configProperties.getProperty("config.scanner.retention.max_findings")));
+        this.setConfigRetentionMaxFindingsPerRule(Integer.parseInt(configProperties.getProperty("config.scanner.retention.max_findings_per_rule")));
+        this.setConfigRetentionTtlHours(Integer.parseInt(configProperties.getProperty("config.scanner.retention.ttl_hours")));
 
         // New options - set defaults
         this.setRealtimeAnalysisEnabled(false);
@@ -133,6 +198,18 @@ public class RegexScannerOptions {
         this.setConfigMaxResponseSize(burpPreferences.getInteger("config.scanner.max_response_size"));
         this.setConfigNumberOfThreads(burpPreferences.getInteger("config.scanner.number_of_threads"));
         this.setConfigRefineContextSize(burpPreferences.getInteger("config.scanner.refine_context_size"));
+        this.setConfigRealtimeWorkers(burpPreferences.getInteger("config.scanner.realtime.workers"));
+        this.setConfigRealtimeQueueCapacity(burpPreferences.getInteger("config.scanner.realtime.queue_capacity"));
+        this.setConfigRealtimeOverflowPolicy(burpPreferences.getString("config.scanner.realtime.overflow_policy"));
+        this.setConfigRealtimeVirtualThreads(burpPreferences.getBoolean("config.scanner.realtime.virtual_threads"));
+        this.setConfigRealtimeNearDuplicateDistance(burpPreferences.getInteger("config.scanner.realtime.near_duplicate_distance"));
+        this.setConfigRealtimeNearDuplicateTools(burpPreferences.getString("config.scanner.realtime.near_duplicate_tools"));
+        this.setConfigMatchCachePersisted(burpPreferences.getBoolean("config.scanner.match_cache.persist"));
+        this.setConfigJournalPath(burpPreferences.getString("config.scanner.journal.path"));
+        this.setConfigJournalMaxFileSize(burpPreferences.getInteger("config.scanner.journal.max_file_size"));
+        this.setConfigRetentionMaxFindings(burpPreferences.getInteger("config.scanner.retention.max_findings"));
+        this.setConfigRetentionMaxFindingsPerRule(burpPreferences.getInteger("config.scanner.retention.max_findings_per_rule"));
+        this.setConfigRetentionTtlHours(burpPreferences.getInteger("config.scanner.retention.ttl_hours"));
 
         // Load new options
         this.setRealtimeAnalysisEnabled(burpPreferences.getBoolean("config.scanner.realtime_analysis_enabled"));
@@ -173,6 +250,22 @@ public class RegexScannerOptions {
         else FileUtils.importRegexListFromJSON(json, this.extensionsRegexList, true);
     }
 
+    private AssetAllowlist loadAssetAllowlist() {
+        List<AssetAllowlist.Entry> shippedEntries = List.of();
+        List<AssetAllowlist.Entry> userEntries = List.of();
+        try {
+            shippedEntries = AssetAllowlist.parseEntries(Utils.readResourceFile(AssetAllowlist.RESOURCE));
+        } catch (JsonParseException e) {
+            System.err.println("Invalid asset allowlist shipped with the extension: " + e.getMessage());
+        }
+        try {
+            userEntries = AssetAllowlist.parseEntries(burpPreferences.getString("config.scanner.asset_allowlist"));
+        } catch (JsonParseException e) {
+            System.err.println("Invalid asset allowlist in the preferences: " + e.getMessage());
+        }
+        return new AssetAllowlist(shippedEntries, userEntries);
+    }
+
     /**
      * Save the scanner options in Burp's persistent preference store.
      */
@@ -180,6 +273,18 @@ public class RegexScannerOptions {
         burpPreferences.setInteger("config.scanner.max_response_size", this.getConfigMaxResponseSize());
         burpPreferences.setInteger("config.scanner.number_of_threads", this.getConfigNumberOfThreads());
         burpPreferences.setInteger("config.scanner.refine_context_size", this.getConfigRefineContextSize());
+        burpPreferences.setInteger("config.scanner.realtime.workers", this.getConfigRealtimeWorkers());
+        burpPreferences.setInteger("config.scanner.realtime.queue_capacity", this.getConfigRealtimeQueueCapacity());
+        burpPreferences.setString("config.scanner.realtime.overflow_policy", this.getConfigRealtimeOverflowPolicy());
+        burpPreferences.setBoolean("config.scanner.realtime.virtual_threads", this.isConfigRealtimeVirtualThreads());
+        burpPreferences.setInteger("config.scanner.realtime.near_duplicate_distance", this.getConfigRealtimeNearDuplicateDistance());
+        burpPreferences.setString("config.scanner.realtime.near_duplicate_tools", this.getConfigRealtimeNearDuplicateTools());
+        burpPreferences.setBoolean("config.scanner.match_cache.persist", this.isConfigMatchCachePersisted());
+        burpPreferences.setString("config.scanner.journal.path", this.getConfigJournalPath());
+        burpPreferences.setInteger("config.scanner.journal.max_file_size", this.getConfigJournalMaxFileSize());
+        burpPreferences.setInteger("config.scanner.retention.max_findings", this.getConfigRetentionMaxFindings());
+        burpPreferences.setInteger("config.scanner.retention.max_findings_per_rule", this.getConfigRetentionMaxFindingsPerRule());
+        burpPreferences.setInteger("config.scanner.retention.ttl_hours", this.getConfigRetentionTtlHours());
         burpPreferences.setBoolean("config.scanner.filter.in_scope", this.isFilterInScopeCheckbox());
         burpPreferences.setBoolean("config.scanner.filter.skip_max_size", this.isFilterSkipMaxSizeCheckbox());
         burpPreferences.setBoolean("config.scanner.filter.skip_media_type", this.isFilterSkipMediaTypeCheckbox());
@@ -202,6 +307,7 @@ public class RegexScannerOptions {
 
         burpPreferences.setString("config.scanner.general_regexes", FileUtils.exportRegexListToJson(this.generalRegexList, true));
         burpPreferences.setString("config.scanner.extensions_regexes", FileUtils.exportRegexListToJson(this.extensionsRegexList, true));
+        burpPreferences.setString("config.scanner.asset_allowlist", this.assetAllowlist.userEntriesToJson());
     }
 
     public void resetToDefaults(boolean resetOptions, boolean resetRegexes) {
@@ -263,6 +369,126 @@ public class RegexScannerOptions {
         this.configRefineContextSize = configRefineContextSize;
     }
 
+    public int getConfigRealtimeWorkers() {
+        return configRealtimeWorkers;
+    }
+
+    public void setConfigRealtimeWorkers(Integer configRealtimeWorkers) {
+        if (Objects.isNull(configRealtimeWorkers)) return;
+        this.configRealtimeWorkers = configRealtimeWorkers;
+    }
+
+    public int getConfigRealtimeQueueCapacity() {
+        return configRealtimeQueueCapacity;
+    }
+
+    public void setConfigRealtimeQueueCapacity(Integer configRealtimeQueueCapacity) {
+        if (Objects.isNull(configRealtimeQueueCapacity)) return;
+        this.configRealtimeQueueCapacity = configRealtimeQueueCapacity;
+    }
+
+    public String getConfigRealtimeOverflowPolicy() {
+        return configRealtimeOverflowPolicy;
+    }
+
+    public void setConfigRealtimeOverflowPolicy(String configRealtimeOverflowPolicy) {
+        if (Objects.isNull(configRealtimeOverflowPolicy)) return;
+        this.configRealtimeOverflowPolicy = configRealtimeOverflowPolicy;
+    }
+
+    public boolean isConfigRealtimeVirtualThreads() {
+        return configRealtimeVirtualThreads;
+    }
+
+    public void setConfigRealtimeVirtualThreads(Boolean configRealtimeVirtualThreads) {
+        if (Objects.isNull(configRealtimeVirtualThreads)) return;
+        this.configRealtimeVirtualThreads = configRealtimeVirtualThreads;
+    }
+
+    public int getConfigRealtimeNearDuplicateDistance() {
+        return configRealtimeNearDuplicateDistance;
+    }
+
+    public void setConfigRealtimeNearDuplicateDistance(Integer configRealtimeNearDuplicateDistance) {
+        if (Objects.isNull(configRealtimeNearDuplicateDistance)) return;
+        this.configRealtimeNearDuplicateDistance = configRealtimeNearDuplicateDistance;
+    }
+
+    public String getConfigRealtimeNearDuplicateTools() {
+        return configRealtimeNearDuplicateTools;
+    }
+
+    public void setConfigRealtimeNearDuplicateTools(String configRealtimeNearDuplicateTools) {
+        if (Objects.isNull(configRealtimeNearDuplicateTools)) return;
+        this.configRealtimeNearDuplicateTools = configRealtimeNearDuplicateTools;
+    }
+
+    public boolean isConfigMatchCachePersisted() {
+        return configMatchCachePersisted;
+    }
+
+    public void setConfigMatchCachePersisted(Boolean configMatchCachePersisted) {
+        if (Objects.isNull(configMatchCachePersisted)) return;
+        this.configMatchCachePersisted = configMatchCachePersisted;
+    }
+
+    public String getConfigJournalPath() {
+        return configJournalPath;
+    }
+
+    public void setConfigJournalPath(String configJournalPath) {
+        if (Objects.isNull(configJournalPath)) return;
+        this.configJournalPath = configJournalPath;
+    }
+
+    public int getConfigJournalMaxFileSize() {
+        return configJournalMaxFileSize;
+    }
+
+    public void setConfigJournalMaxFileSize(Integer configJournalMaxFileSize) {
+        if (Objects.isNull(configJournalMaxFileSize) || configJournalMaxFileSize < 1) return;
+        this.configJournalMaxFileSize = configJournalMaxFileSize;
+    }
+
+    public int getConfigRetentionMaxFindings() {
+        return configRetentionMaxFindings;
+    }
+
+    public void setConfigRetentionMaxFindings(Integer configRetentionMaxFindings) {
+        if (Objects.isNull(configRetentionMaxFindings) || configRetentionMaxFindings < 0) return;
+        this.configRetentionMaxFindings = configRetentionMaxFindings;
+    }
+
+    public int getConfigRetentionMaxFindingsPerRule() {
+        return configRetentionMaxFindingsPerRule;
+    }
+
+    public void setConfigRetentionMaxFindingsPerRule(Integer configRetentionMaxFindingsPerRule) {
+        if (Objects.isNull(configRetentionMaxFindingsPerRule) || configRetentionMaxFindingsPerRule < 0) return;
+        this.configRetentionMaxFindingsPerRule = configRetentionMaxFindingsPerRule;
+    }
+
+    public int getConfigRetentionTtlHours() {
+        return configRetentionTtlHours;
+    }
+
+    public void setConfigRetentionTtlHours(Integer configRetentionTtlHours) {
+        if (Objects.isNull(configRetentionTtlHours) || configRetentionTtlHours < 0) return;
+        this.configRetentionTtlHours = configRetentionTtlHours;
+    }
+
+    /**
+     * @return the retention policy of the findings configured in the options
+     */
+    public RetentionPolicy getRetentionPolicy() {
+        return new RetentionPolicy(configRetentionMaxFindings, configRetentionMaxFindingsPerRule,
+                TimeUnit.HOURS.toMillis(configRetentionTtlHours));
+    }
+
+    public AssetAllowlist getAssetAllowlist() {
+        return assetAllowlist;
+    }
+
     public List<RegexEntity> getGeneralRegexList() {
         return generalRegexList;
     }
@@ -0,0 +1,26 @@
+package com.tzm.supafinder.model;
+
+/**
+ * Limits of the raw findings kept by the {@link LogEntriesManager}. The oldest findings beyond the limits are
+ * rolled up in a {@link FindingsRollup}, see {@link LogEntriesManager#applyRetention()}.
+ * <br><br>
+ * Limits are enforced only when exceeded by a tenth, so that findings are rolled up in batches and not one at a time.
+ *
+ * @param maxFindings        maximum number of raw findings, 0 for no limit
+ * @param maxFindingsPerRule maximum number of raw findings of a single rule, 0 for no limit
+ * @param ttlMillis          age after which a raw finding is rolled up, 0 for no limit
+ */
+public record RetentionPolicy(int maxFindings, int maxFindingsPerRule, long ttlMillis) {
+    public static final RetentionPolicy UNLIMITED = new RetentionPolicy(0, 0, 0);
+
+    public boolean isUnlimited() {
+        return maxFindings <= 0 && maxFindingsPerRule <= 0 && ttlMillis <= 0;
+    }
+
+    /**
+     * @return true if the count exceeds the limit enough to roll up a batch of findings
+     */
+    static boolean isExceeded(long count, int limit) {
+        return limit > 0 && count > limit + Math.max(1, limit / 10);
+    }
+}
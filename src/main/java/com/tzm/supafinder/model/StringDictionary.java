@@ -0,0 +1,176 @@
+package com.tzm.supafinder.model;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dictionary of strings, assigning a sequential id to every distinct value.
+ * <br><br>
+ * The same secret often matches thousands of times in a history, e.g. a session cookie or an API key in every page,
+ * and all the findings of a page share its URL. Findings keep the instance of the dictionary
+ * (see {@link #intern(String)}), so equal values are stored once and compared by reference, while the findings moved
+ * to disk store only the id of their values.
+ * <br><br>
+ * Values are counted by reference: every {@link #intern(String)} retains the value until a matching
+ * {@link #release(String)}, e.g. when the finding is removed, and a value no longer retained is dropped, so the
+ * dictionary grows with the values of the findings kept, not with all the values ever seen. The ids of the dropped
+ * values are reused by the next new values.
+ * <br><br>
+ * The values are always kept on the heap, including the ones of the findings moved to disk, whose records only
+ * store the ids: the heap holds one instance per distinct value of all the findings kept, not only of the ones in
+ * memory.
+ * <br><br>
+ * Lookups of known values don't lock; only new values are added under a lock. Callers must not look up a value
+ * while it may be released by another thread. This class is thread-safe.
+ */
+public class StringDictionary {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ConcurrentHashMap<String, Integer> ids;
+    /**
+     * Values by id. Replaced by a larger copy when full, always after the new values are written.
+     */
+    private volatile String[] values;
+    /**
+     * References of the values by id, guarded by this
+     */
+    private int[] references;
+    /**
+     * Ids of the dropped values, reused before growing the arrays. Guarded by this.
+     */
+    private int[] freeIds;
+    private int freeCount;
+    private int size;
+    private final LongAdder internedDuplicates;
+    private final LongAdder savedBytes;
+
+    public StringDictionary() {
+        this.ids = new ConcurrentHashMap<>();
+        this.values = new String[INITIAL_CAPACITY];
+        this.references = new int[INITIAL_CAPACITY];
+        this.freeIds = new int[0];
+        this.internedDuplicates = new LongAdder();
+        this.savedBytes = new LongAdder();
+    }
+
+    /**
+     * @return the id of the value, added to the dictionary if missing. The value is not retained.
+     */
+    public int id(String value) {
+        Objects.requireNonNull(value);
+        Integer id = ids.get(value);
+        if (id != null) return id;
+        synchronized (this) {
+            id = ids.get(value);
+            if (id != null) return id;
+            int newId;
+            if (freeCount > 0) {
+                newId = freeIds[--freeCount];
+            } else {
+                if (size == values.length) {
+                    references = Arrays.copyOf(references, size * 2);
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                newId = size++;
+            }
+            values[newId] = value;
+            ids.put(value, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * @return the value with the given id
+     * @throws IndexOutOfBoundsException if the id was not assigned
+     */
+    public String get(int id) {
+        String[] current = values;
+        String value = id >= 0 && id < current.length ? current[id] : null;
+        if (value == null) throw new IndexOutOfBoundsException("Unknown string id " + id);
+        return value;
+    }
+
+    /**
+     * Retain the value until {@link #release(String)}
+     *
+     * @return the instance of the dictionary equal to the value, or null if the value is null
+     */
+    public String intern(String value) {
+        if (value == null) return null;
+        String canonical;
+        synchronized (this) {
+            int id = id(value);
+            if (++references[id] > 1) savedBytes.add(estimatedSize(value));
+            canonical = values[id];
+        }
+        if (canonical != value) internedDuplicates.increment();
+        return canonical;
+    }
+
+    /**
+     * Heap size of a string with compact Latin-1 characters: object header and fields, array header and bytes
+     */
+    static long estimatedSize(String value) {
+        return (24 + 16 + value.length() + 7) & ~7L;
+    }
+
+    /**
+     * Release a value retained by {@link #intern(String)}, dropping it when no longer retained
+     *
+     * @param value the value to release, ignored if null or missing
+     */
+    public synchronized void release(String value) {
+        if (value == null) return;
+        Integer id = ids.get(value);
+        if (id != null) release(id);
+    }
+
+    /**
+     * Release the value with the given id, see {@link #release(String)}
+     */
+    public synchronized void release(int id) {
+        if (id < 0 || id >= size || values[id] == null || references[id] == 0) return;
+        if (--references[id] > 0) {
+            savedBytes.add(-estimatedSize(values[id]));
+            return;
+        }
+        ids.remove(values[id]);
+        values[id] = null;
+        if (freeCount == freeIds.length) freeIds = Arrays.copyOf(freeIds, Math.max(16, freeCount * 2));
+        freeIds[freeCount++] = id;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Remove all the values, the ids assigned so far are not valid anymore
+     */
+    public synchronized void clear() {
+        ids.clear();
+        values = new String[INITIAL_CAPACITY];
+        references = new int[INITIAL_CAPACITY];
+        freeIds = new int[0];
+        freeCount = 0;
+        size = 0;
+        savedBytes.reset();
+    }
+
+    public Stats getStats() {
+        return new Stats(size(), internedDuplicates.sum(), savedBytes.sum());
+    }
+
+    /**
+     * Counters of the dictionary
+     *
+     * @param strings            distinct values in the dictionary
+     * @param internedDuplicates values replaced by the equal instance of the dictionary since the dictionary was
+     *                           created, cumulative
+     * @param savedBytes         estimated heap bytes saved by sharing the values currently retained more than once
+     */
+    public record Stats(int strings, long internedDuplicates, long savedBytes) {
+    }
+}
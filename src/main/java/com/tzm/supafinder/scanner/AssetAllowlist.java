@@ -0,0 +1,218 @@
+package com.tzm.supafinder.scanner;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.tzm.supafinder.utils.HashUtils;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.tzm.supafinder.utils.Utils.createGsonBuilder;
+
+/**
+ * Fingerprints of public files that never contain secrets, e.g. the releases of jQuery, React or Bootstrap, whose
+ * responses are skipped before being decoded.
+ * <br><br>
+ * Every file is identified by the hash of its bytes and by the hash of its bytes without whitespaces, so the same
+ * file served with other line endings or indentation is recognized too. The exact hash is computed only for bodies
+ * with the size of a known file, and the hash without whitespaces only for bodies starting like a known file: the
+ * first {@link #PREFIX_BYTES} bytes without whitespaces are hashed first, reading only the start of the body.
+ * <br><br>
+ * The fingerprints shipped with the extension are read from {@link #RESOURCE}; the ones imported or added by the
+ * user are saved in the preferences (see {@link #userEntriesToJson()}).
+ */
+public class AssetAllowlist {
+    /**
+     * Resource with the fingerprints shipped with the extension, in the same JSON format of the imported ones
+     */
+    public static final String RESOURCE = "asset_allowlist.json";
+    private static final long SEED = 0;
+    /**
+     * Bytes without whitespaces at the start of a file hashed before the whole file, e.g. its license header
+     */
+    static final int PREFIX_BYTES = 256;
+    private static final Type ENTRY_LIST_TYPE = new TypeToken<List<Entry>>() {
+    }.getType();
+
+    private final List<Entry> userEntries;
+    private final List<Entry> shippedEntries;
+    /**
+     * Immutable index of all the entries, replaced on every change: lookups from the scanner threads don't lock
+     */
+    private volatile Index index;
+    private final LongAdder skippedBodies = new LongAdder();
+
+    /**
+     * @param shippedEntries the entries shipped with the extension
+     * @param userEntries    the entries imported or added by the user
+     */
+    public AssetAllowlist(List<Entry> shippedEntries, List<Entry> userEntries) {
+        this.shippedEntries = List.copyOf(shippedEntries);
+        this.userEntries = new ArrayList<>(userEntries);
+        rebuildIndex();
+    }
+
+    /**
+     * @param json JSON array of entries, see {@link Entry}
+     * @return the valid entries, an empty list if the JSON is null or blank
+     * @throws JsonParseException if the JSON is malformed
+     */
+    public static List<Entry> parseEntries(String json) {
+        if (Objects.isNull(json) || json.isBlank()) return List.of();
+        List<Entry> entries = createGsonBuilder().fromJson(json, ENTRY_LIST_TYPE);
+        if (Objects.isNull(entries)) return List.of();
+        return entries.stream().filter(Objects::nonNull).filter(Entry::isValid).map(Entry::withLowerCaseHashes).toList();
+    }
+
+    /**
+     * Compute the fingerprint of a file
+     *
+     * @param name name of the file, e.g. "jquery-3.7.1.min.js"
+     * @param body the bytes of the file
+     */
+    public static Entry fingerprint(String name, byte[] body) {
+        return new Entry(name, body.length, toHex(HashUtils.murmur3x64_128(body, SEED)), toHex(normalizedHash(body)),
+                toHex(normalizedPrefixHash(body)));
+    }
+
+    /**
+     * @param body the bytes of a response body
+     * @return true if the body is a known public file, to be skipped
+     */
+    public boolean contains(byte[] body) {
+        Index current = this.index;
+        boolean known = (current.sizes().contains(body.length) && current.hashes().contains(toHex(HashUtils.murmur3x64_128(body, SEED))))
+                || (current.normalizedPrefixHashes().contains(toHex(normalizedPrefixHash(body)))
+                && current.normalizedHashes().contains(toHex(normalizedHash(body))));
+        if (known) skippedBodies.increment();
+        return known;
+    }
+
+    /**
+     * Add entries of the user, skipping the files already known
+     *
+     * @return the number of entries added
+     */
+    public synchronized int addAll(List<Entry> entries) {
+        int added = 0;
+        Set<String> known = new HashSet<>(index.hashes());
+        for (Entry entry : entries) {
+            if (!entry.isValid() || !known.add(entry.hash())) continue;
+            userEntries.add(entry);
+            added++;
+        }
+        if (added > 0) rebuildIndex();
+        return added;
+    }
+
+    public synchronized void clearUserEntries() {
+        userEntries.clear();
+        rebuildIndex();
+    }
+
+    /**
+     * @return the entries of the user as a JSON array, to be saved in the preferences
+     */
+    public synchronized String userEntriesToJson() {
+        return createGsonBuilder().toJson(userEntries, ENTRY_LIST_TYPE);
+    }
+
+    public int size() {
+        Index current = this.index;
+        return current.hashes().size();
+    }
+
+    /**
+     * @return the number of bodies skipped since the extension was loaded
+     */
+    public long getSkippedBodies() {
+        return skippedBodies.sum();
+    }
+
+    private synchronized void rebuildIndex() {
+        Set<Integer> sizes = new HashSet<>();
+        Set<String> hashes = new HashSet<>();
+        Set<String> normalizedHashes = new HashSet<>();
+        Set<String> normalizedPrefixHashes = new HashSet<>();
+        for (List<Entry> entries : List.of(shippedEntries, userEntries)) {
+            for (Entry entry : entries) {
+                sizes.add(entry.size());
+                hashes.add(entry.hash());
+                if (entry.hasNormalizedHashes()) {
+                    normalizedHashes.add(entry.normalizedHash());
+                    normalizedPrefixHashes.add(entry.normalizedPrefixHash());
+                }
+            }
+        }
+        this.index = new Index(Set.copyOf(sizes), Set.copyOf(hashes), Set.copyOf(normalizedHashes), Set.copyOf(normalizedPrefixHashes));
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '\f';
+    }
+
+    /**
+     * Hash of the bytes of the body, except ASCII whitespaces
+     */
+    private static long[] normalizedHash(byte[] body) {
+        byte[] normalized = new byte[body.length];
+        int length = 0;
+        for (byte b : body) {
+            if (!isWhitespace(b)) normalized[length++] = b;
+        }
+        return HashUtils.murmur3x64_128(Arrays.copyOf(normalized, length), SEED);
+    }
+
+    /**
+     * Hash of the first {@link #PREFIX_BYTES} bytes of the body, except ASCII whitespaces
+     */
+    static long[] normalizedPrefixHash(byte[] body) {
+        byte[] prefix = new byte[PREFIX_BYTES];
+        int length = 0;
+        for (int i = 0; i < body.length && length < PREFIX_BYTES; i++) {
+            if (!isWhitespace(body[i])) prefix[length++] = body[i];
+        }
+        return HashUtils.murmur3x64_128(Arrays.copyOf(prefix, length), SEED);
+    }
+
+    private static String toHex(long[] hash) {
+        return "%016x%016x".formatted(hash[0], hash[1]);
+    }
+
+    /**
+     * Fingerprint of a public file
+     *
+     * @param name           name of the file, informative only
+     * @param size           size of the file in bytes
+     * @param hash           MurmurHash3 x64 128-bit of the bytes of the file, as 32 hex digits
+     * @param normalizedHash       MurmurHash3 x64 128-bit of the bytes of the file without ASCII whitespaces, optional
+     * @param normalizedPrefixHash MurmurHash3 x64 128-bit of the first {@link #PREFIX_BYTES} bytes of the file without
+     *                             ASCII whitespaces, optional. Without it, only the exact hash is matched
+     */
+    public record Entry(String name, int size, String hash, String normalizedHash, String normalizedPrefixHash) {
+
+        boolean isValid() {
+            return size >= 0 && Objects.nonNull(hash) && hash.length() == 32;
+        }
+
+        boolean hasNormalizedHashes() {
+            return Objects.nonNull(normalizedHash) && normalizedHash.length() == 32
+                    && Objects.nonNull(normalizedPrefixHash) && normalizedPrefixHash.length() == 32;
+        }
+
+        Entry withLowerCaseHashes() {
+            return new Entry(name, size, hash.toLowerCase(),
+                    Objects.isNull(normalizedHash) ? null : normalizedHash.toLowerCase(),
+                    Objects.isNull(normalizedPrefixHash) ? null : normalizedPrefixHash.toLowerCase());
+        }
+    }
+
+    private record Index(Set<Integer> sizes, Set<String> hashes, Set<String> normalizedHashes, Set<String> normalizedPrefixHashes) {
+    }
+}
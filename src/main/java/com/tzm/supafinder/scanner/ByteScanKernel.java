@@ -0,0 +1,46 @@
+package com.tzm.supafinder.scanner;
+
+/**
+ * Low-level byte scanning primitives used by the prefilter stages of the scanner.
+ * <br><br>
+ * Implementations must be stateless and thread-safe, as a single instance is shared by all the scanning threads.
+ *
+ * @see ByteScanKernels#get()
+ */
+public interface ByteScanKernel {
+    /**
+     * Maximum number of distinct needles supported by {@link #indexOfAny(byte[], int, int, byte[])}.
+     */
+    int MAX_NEEDLES = 8;
+
+    /**
+     * Finds the first position in the region that contains one of the needles.
+     *
+     * @param data    the bytes to search
+     * @param from    start of the region (inclusive)
+     * @param to      end of the region (exclusive)
+     * @param needles distinct bytes to search for, at most {@link #MAX_NEEDLES}
+     * @return the index of the first candidate inside the region, or -1 if there's none
+     */
+    int indexOfAny(byte[] data, int from, int to, byte[] needles);
+
+    /**
+     * Checks if the region only contains printable ASCII characters.
+     * Printable characters are the ones in the range 0x20-0x7E plus tab, line feed and carriage return.
+     *
+     * @param data the bytes to check
+     * @param from start of the region (inclusive)
+     * @param to   end of the region (exclusive)
+     * @return true if every byte in the region is printable ASCII
+     */
+    boolean isPrintableAscii(byte[] data, int from, int to);
+
+    /**
+     * @return a short name of the kernel, used for diagnostics
+     */
+    String name();
+
+    static boolean isPrintableAscii(byte b) {
+        return (b >= 0x20 && b < 0x7F) || b == '\t' || b == '\n' || b == '\r';
+    }
+}
@@ -0,0 +1,51 @@
+package com.tzm.supafinder.scanner;
+
+import java.util.Objects;
+
+/**
+ * Selects the fastest {@link ByteScanKernel} available in the running JVM.
+ * <br><br>
+ * The Vector API lives in the incubating module {@code jdk.incubator.vector}, that the JVM only resolves when
+ * started with {@code --add-modules jdk.incubator.vector}. When the module is missing, or the system property
+ * {@code supafinder.vector} is set to {@code false}, the SWAR kernel is used instead.
+ */
+public class ByteScanKernels {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static volatile ByteScanKernel kernel;
+
+    /**
+     * @return the kernel shared by all the scanners
+     */
+    public static ByteScanKernel get() {
+        ByteScanKernel selected = kernel;
+        if (Objects.isNull(selected)) {
+            synchronized (ByteScanKernels.class) {
+                if (Objects.isNull(kernel)) kernel = selectKernel();
+                selected = kernel;
+            }
+        }
+        return selected;
+    }
+
+    private static ByteScanKernel selectKernel() {
+        if (isVectorApiAvailable()) {
+            try {
+                ByteScanKernel vectorKernel = (ByteScanKernel) Class
+                        .forName("com.tzm.supafinder.scanner.VectorByteScanKernel")
+                        .getDeclaredConstructor()
+                        .newInstance();
+                // exercise the kernel once, so that any linkage problem shows up here instead of during a scan
+                vectorKernel.indexOfAny(new byte[64], 0, 64, new byte[]{1});
+                return vectorKernel;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                System.err.println("Vector API not usable, falling back to SWAR kernel: " + e);
+            }
+        }
+        return new SwarByteScanKernel();
+    }
+
+    public static boolean isVectorApiAvailable() {
+        if (!Boolean.parseBoolean(System.getProperty("supafinder.vector", "true"))) return false;
+        return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+    }
+}
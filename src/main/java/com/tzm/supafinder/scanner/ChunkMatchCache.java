@@ -0,0 +1,424 @@
+package com.tzm.supafinder.scanner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Matches of the patterns in the chunks of large sections (see {@link ContentChunker}), shared by all the messages.
+ * <br><br>
+ * Bundles embed the same libraries with different wrappers, so their bodies are rarely identical while most of their
+ * chunks are. Every chunk is searched alone, on its window, and the local matches are cached per (window hash,
+ * pattern): only the chunks never seen before are actually searched.
+ * <br><br>
+ * Local matches become the matches of the section only where a sequential search would find them too:
+ * <ul>
+ *     <li>the first {@link #HEAD} characters of every chunk are searched again on the whole section, since the local
+ *     search can't see the characters before the chunk (word boundaries, anchors, matches crossing the boundary);</li>
+ *     <li>a sequential search reaching a position inside a local match searches again until the end of that match,
+ *     then continues with the local matches.</li>
+ * </ul>
+ * A local search sees only {@link ContentChunker#LOOKAHEAD} characters after the chunk, so only the patterns whose
+ * matches are shorter than that are cached: their length is estimated from the source of the pattern, see
+ * {@link #maxMatchLength(Pattern)}. Patterns with unbounded quantifiers or backreferences, and patterns with
+ * lookbehinds or {@code \G}, which depend on the characters before the match, are searched on the whole section.
+ */
+public class ChunkMatchCache {
+    /**
+     * Characters at the start of every chunk searched on the whole section
+     */
+    static final int HEAD = 256;
+    private static final int DEFAULT_MAX_ENTRIES = 262_144;
+    private static final int[] NO_MATCHES = new int[0];
+    /**
+     * Estimated lengths of the patterns already seen, by identity. Rules keep their compiled pattern, so each one is
+     * parsed once, and the patterns of deleted rules are collected.
+     */
+    private static final Map<Pattern, Integer> MAX_MATCH_LENGTHS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final int maxEntries;
+    private final LinkedHashMap<Key, int[]> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ChunkMatchCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries maximum number of (chunk, pattern) results cached
+     */
+    public ChunkMatchCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        // access order, the eldest entry is the least recently used
+        this.entries = new LinkedHashMap<>(1024, 0.75f, true);
+    }
+
+    /**
+     * @return false if the matches of the pattern depend on the characters before them, or can be longer than the
+     * characters seen by a local search after the chunk
+     */
+    public static boolean isCacheable(Pattern pattern) {
+        String regex = pattern.pattern();
+        if (regex.contains("(?<=") || regex.contains("(?<!") || regex.contains("\\G")) return false;
+        return maxMatchLength(pattern) < ContentChunker.LOOKAHEAD;
+    }
+
+    /**
+     * Upper bound of the characters read by a match of the pattern, including its lookaheads, estimated from its
+     * source. Every character class, escape or dot counts as one character.
+     *
+     * @return the bound, or {@link Integer#MAX_VALUE} if the matches are unbounded or the source can't be estimated
+     */
+    static int maxMatchLength(Pattern pattern) {
+        return MAX_MATCH_LENGTHS.computeIfAbsent(pattern, ChunkMatchCache::estimateMaxMatchLength);
+    }
+
+    private static int estimateMaxMatchLength(Pattern pattern) {
+        if ((pattern.flags() & Pattern.LITERAL) != 0) return pattern.pattern().length();
+        // whitespace and comments in the source would be counted as characters
+        if ((pattern.flags() & Pattern.COMMENTS) != 0 || pattern.pattern().contains("(?x")) return Integer.MAX_VALUE;
+        LengthEstimator estimator = new LengthEstimator(pattern.pattern());
+        long length = estimator.alternation();
+        return estimator.position < pattern.pattern().length() ? Integer.MAX_VALUE : (int) length;
+    }
+
+    /**
+     * Find all the matches of a cacheable pattern in a chunked content, as {@link Matcher#find()} would do
+     *
+     * @param pattern the pattern to search, see {@link #isCacheable(Pattern)}
+     * @param chunks  the content and its chunks
+     * @return the matches, ordered by position
+     */
+    public List<ParallelMatcher.Span> matches(Pattern pattern, ContentChunker.Chunks chunks) {
+        String content = chunks.content();
+        if (!isCacheable(pattern)) {
+            return pattern.matcher(content).results().map(result -> new ParallelMatcher.Span(result.start(), result.end())).toList();
+        }
+        List<ParallelMatcher.Span> merged = new ArrayList<>();
+        Matcher full = pattern.matcher(content);
+        full.useTransparentBounds(true);
+        full.useAnchoringBounds(false);
+
+        // position where the next find of a sequential search would start
+        int position = 0;
+        for (int chunk = 0; chunk < chunks.count(); chunk++) {
+            int start = chunks.start(chunk);
+            int end = chunks.end(chunk);
+            if (position >= end) continue;
+            int[] local = localMatches(pattern, chunks, chunk);
+            int headEnd = chunk == 0 ? 0 : Math.min(end, start + HEAD);
+
+            while (position < end) {
+                if (position >= headEnd) {
+                    int misaligned = localMatchContaining(local, position - start);
+                    if (misaligned < 0) {
+                        // aligned with the local search: all the local matches from here on are sequential ones
+                        position = adoptLocalMatches(local, start, end, position, pattern, content, merged);
+                        continue;
+                    }
+                    position = searchSequentially(full, content, position, start + local[misaligned + 1], merged);
+                } else {
+                    position = searchSequentially(full, content, position, headEnd, merged);
+                }
+            }
+        }
+        // an empty match at the very end of the content
+        if (position == content.length()) searchSequentially(full, content, position, position + 1, merged);
+        return merged;
+    }
+
+    /**
+     * @return the index of the local match strictly containing the position, or -1 if a local find starts or passes
+     * through the position
+     */
+    private static int localMatchContaining(int[] local, int position) {
+        for (int i = 0; i < local.length && local[i] < position; i += 3) {
+            if (position < local[i + 1]) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Add the local matches starting from the position, up to the end of the chunk
+     *
+     * @return the position of the next find
+     */
+    private static int adoptLocalMatches(int[] local, int chunkStart, int chunkEnd, int position,
+                                         Pattern pattern, String content, List<ParallelMatcher.Span> merged) {
+        for (int i = 0; i < local.length; i += 3) {
+            int matchStart = chunkStart + local[i];
+            if (matchStart < position) continue;
+            int matchEnd = chunkStart + local[i + 1];
+            // cut by the end of the window, it's always the last local match
+            if (local[i + 2] != 0) matchEnd = completeMatch(pattern, content, matchStart, matchEnd);
+            merged.add(new ParallelMatcher.Span(matchStart, matchEnd));
+            position = matchEnd == matchStart ? matchEnd + 1 : matchEnd;
+        }
+        // the local search found nothing else starting in the chunk
+        return Math.max(position, chunkEnd);
+    }
+
+    /**
+     * Search on the whole content the matches starting before the limit
+     *
+     * @return the position of the next find, at least the limit
+     */
+    private static int searchSequentially(Matcher full, String content, int position, int limit,
+                                          List<ParallelMatcher.Span> merged) {
+        int length = content.length();
+        while (position < limit && position <= length) {
+            full.region(position, Math.min(length, limit + ContentChunker.LOOKAHEAD));
+            if (!full.find() || full.start() >= limit) return limit;
+            int matchStart = full.start();
+            int matchEnd = full.end();
+            if (matchEnd == full.regionEnd() && matchEnd < length && full.hitEnd()) {
+                matchEnd = completeMatch(full.pattern(), content, matchStart, matchEnd);
+            }
+            merged.add(new ParallelMatcher.Span(matchStart, matchEnd));
+            position = matchEnd == matchStart ? matchEnd + 1 : matchEnd;
+        }
+        return Math.max(position, limit);
+    }
+
+    /**
+     * @return the end of a match cut by the end of the searched region, searching it again on the whole content
+     */
+    private static int completeMatch(Pattern pattern, String content, int start, int end) {
+        Matcher matcher = pattern.matcher(content);
+        if (matcher.find(start) && matcher.start() == start) return matcher.end();
+        return end;
+    }
+
+    private int[] localMatches(Pattern pattern, ContentChunker.Chunks chunks, int chunk) {
+        Key key = new Key(chunks.hashes()[chunk * 2], chunks.hashes()[chunk * 2 + 1], chunks.end(chunk) - chunks.start(chunk),
+                pattern.pattern(), pattern.flags());
+        synchronized (this) {
+            int[] cached = entries.get(key);
+            if (Objects.nonNull(cached)) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+
+        int[] local = searchChunk(pattern, chunks, chunk);
+        synchronized (this) {
+            entries.put(key, local);
+            Iterator<int[]> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions++;
+            }
+        }
+        return local;
+    }
+
+    /**
+     * Search the chunk alone, on its window. Matches are relative to the chunk start, as triples of
+     * (start, end, 1 if cut by the end of the window).
+     */
+    private static int[] searchChunk(Pattern pattern, ContentChunker.Chunks chunks, int chunk) {
+        int start = chunks.start(chunk);
+        int chunkLength = chunks.end(chunk) - start;
+        String window = chunks.content().substring(start, Math.min(chunks.content().length(), chunks.end(chunk) + ContentChunker.LOOKAHEAD));
+        Matcher matcher = pattern.matcher(window);
+        int[] local = NO_MATCHES;
+        int count = 0;
+        while (matcher.find() && matcher.start() < chunkLength) {
+            if (count + 3 > local.length) local = Arrays.copyOf(local, Math.max(12, local.length * 2));
+            local[count++] = matcher.start();
+            local[count++] = matcher.end();
+            local[count++] = matcher.end() == window.length() && matcher.hitEnd() ? 1 : 0;
+        }
+        return count == local.length ? local : Arrays.copyOf(local, count);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, entries.size());
+    }
+
+    /**
+     * Parser of the source of a pattern computing the maximum length of its matches, saturated at
+     * {@link Integer#MAX_VALUE}
+     */
+    private static class LengthEstimator {
+        private static final long UNBOUNDED = Integer.MAX_VALUE;
+
+        private final String regex;
+        private int position;
+
+        LengthEstimator(String regex) {
+            this.regex = regex;
+            this.position = 0;
+        }
+
+        private static long add(long a, long b) {
+            return Math.min(UNBOUNDED, a + b);
+        }
+
+        private static long multiply(long a, long b) {
+            return a == 0 || b == 0 ? 0 : Math.min(UNBOUNDED, a * b);
+        }
+
+        private boolean next(char c) {
+            if (position < regex.length() && regex.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Branches up to the closing parenthesis of the group, or the end of the source
+         */
+        long alternation() {
+            long longest = 0;
+            long branch = 0;
+            while (position < regex.length() && regex.charAt(position) != ')') {
+                if (next('|')) {
+                    longest = Math.max(longest, branch);
+                    branch = 0;
+                } else {
+                    branch = add(branch, quantified(atom()));
+                }
+            }
+            return Math.max(longest, branch);
+        }
+
+        private long atom() {
+            char c = regex.charAt(position++);
+            return switch (c) {
+                case '(' -> group();
+                case '[' -> characterClass();
+                case '\\' -> escape();
+                case '^', '$' -> 0;
+                default -> 1;
+            };
+        }
+
+        private long group() {
+            if (next('?')) {
+                // inline flags, e.g. (?i), or the flags of a non-capturing group, e.g. (?i:
+                while (position < regex.length() && (Character.isLetter(regex.charAt(position)) || regex.charAt(position) == '-')) {
+                    position++;
+                }
+                if (next(')')) return 0;
+                if (next('<') && position < regex.length() && Character.isLetter(regex.charAt(position))) {
+                    // named group
+                    while (position < regex.length() && regex.charAt(position) != '>') position++;
+                }
+                // the kind of group, lookaheads count as the characters they read
+                if (!next(':') && !next('>') && !next('=')) next('!');
+            }
+            long length = alternation();
+            return next(')') ? length : UNBOUNDED;
+        }
+
+        private long characterClass() {
+            next('^');
+            next(']');
+            int depth = 1;
+            while (position < regex.length() && depth > 0) {
+                char c = regex.charAt(position++);
+                if (c == '\\') position++;
+                else if (c == '[') depth++;
+                else if (c == ']') depth--;
+            }
+            return 1;
+        }
+
+        private long escape() {
+            if (position >= regex.length()) return 1;
+            char c = regex.charAt(position++);
+            switch (c) {
+                case 'Q' -> {
+                    int end = regex.indexOf("\\E", position);
+                    int length = (end < 0 ? regex.length() : end) - position;
+                    position = end < 0 ? regex.length() : end + 2;
+                    return length;
+                }
+                case 'p', 'P', 'x', 'N' -> {
+                    if (next('{')) {
+                        while (position < regex.length() && regex.charAt(position) != '}') position++;
+                        position++;
+                    }
+                    return 1;
+                }
+                case 'R' -> {
+                    return 2;
+                }
+                case 'b', 'B', 'A', 'z', 'Z' -> {
+                    return 0;
+                }
+                default -> {
+                    // backreferences and grapheme clusters
+                    if (c == 'k' || c == 'X' || (c >= '1' && c <= '9')) return UNBOUNDED;
+                    return 1;
+                }
+            }
+        }
+
+        private long quantified(long atom) {
+            long length;
+            if (next('*') || next('+')) {
+                length = multiply(atom, UNBOUNDED);
+            } else if (next('?')) {
+                length = atom;
+            } else if (next('{')) {
+                int close = regex.indexOf('}', position);
+                if (close < 0) return UNBOUNDED;
+                String bounds = regex.substring(position, close);
+                position = close + 1;
+                int comma = bounds.indexOf(',');
+                String max = comma < 0 ? bounds : bounds.substring(comma + 1);
+                if (max.isEmpty()) {
+                    length = multiply(atom, UNBOUNDED);
+                } else {
+                    try {
+                        length = multiply(atom, Long.parseLong(max.trim()));
+                    } catch (NumberFormatException e) {
+                        return UNBOUNDED;
+                    }
+                }
+            } else {
+                return atom;
+            }
+            // lazy and possessive quantifiers have the same bound
+            if (!next('?')) next('+');
+            return length;
+        }
+    }
+
+    /**
+     * A chunk window searched with a pattern. The hash covers the whole window, so the length of the chunk tells
+     * which local matches start in the chunk.
+     */
+    private record Key(long hashHigh, long hashLow, int chunkLength, String regex, int flags) {
+    }
+
+    /**
+     * Counters of the cache
+     *
+     * @param hits      chunks found in the cache
+     * @param misses    chunks searched
+     * @param evictions entries removed to keep the cache within its bounds
+     * @param entries   (chunk, pattern) results in the cache
+     */
+    public record Stats(long hits, long misses, long evictions, int entries) {
+    }
+}
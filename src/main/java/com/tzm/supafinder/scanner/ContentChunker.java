@@ -0,0 +1,111 @@
+package com.tzm.supafinder.scanner;
+
+import com.tzm.supafinder.utils.HashUtils;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Content-defined chunking of large sections, in the style of FastCDC.
+ * <br><br>
+ * A Gear rolling hash runs over the characters and a chunk ends where the top bits of the hash are all zero, so the
+ * boundaries depend only on the characters just before them: the same text (e.g. a vendor library embedded in
+ * different bundles) is split in the same chunks, whatever comes before it. Chunk sizes are normalized around
+ * {@link #AVG_CHUNK} with a stricter mask before the average size and a looser one after it.
+ * <br><br>
+ * Every chunk is identified by the hash of its window: the chunk followed by {@link #LOOKAHEAD} characters of the
+ * next one, which is all that the matches searched in the chunk can see (see {@link ChunkMatchCache}).
+ */
+public class ContentChunker {
+    /**
+     * Smaller contents are not split
+     */
+    public static final int MIN_CONTENT_CHARS = 32 * 1024;
+    /**
+     * Characters after the end of a chunk visible to the matches starting in the chunk
+     */
+    public static final int LOOKAHEAD = 1024;
+    static final int MIN_CHUNK = 2 * 1024;
+    static final int AVG_CHUNK = 8 * 1024;
+    static final int MAX_CHUNK = 32 * 1024;
+    // 15 and 11 top bits: one boundary every 32K and 2K positions on average
+    private static final long MASK_STRICT = 0xFFFE_0000_0000_0000L;
+    private static final long MASK_LOOSE = 0xFFE0_0000_0000_0000L;
+    private static final long[] GEAR = new long[256];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5afec0deL);
+        for (int i = 0; i < GEAR.length; i++) GEAR[i] = random.nextLong();
+    }
+
+    private ContentChunker() {
+    }
+
+    /**
+     * @param content the content to split
+     * @return the chunks of the content, with the hashes of their windows
+     */
+    public static Chunks split(String content) {
+        int[] bounds = new int[content.length() / MIN_CHUNK + 2];
+        int count = 0;
+        for (int start = 0; start < content.length(); ) {
+            start = nextBoundary(content, start);
+            bounds[++count] = start;
+        }
+        bounds = Arrays.copyOf(bounds, count + 1);
+
+        long[] hashes = new long[count * 2];
+        for (int i = 0; i < count; i++) {
+            long[] hash = HashUtils.murmur3x64_128(content, bounds[i], Math.min(content.length(), bounds[i + 1] + LOOKAHEAD), 0);
+            hashes[i * 2] = hash[0];
+            hashes[i * 2 + 1] = hash[1];
+        }
+        return new Chunks(content, bounds, hashes);
+    }
+
+    private static int nextBoundary(String content, int start) {
+        int remaining = content.length() - start;
+        if (remaining <= MIN_CHUNK) return content.length();
+        int normalEnd = start + Math.min(AVG_CHUNK, remaining);
+        int maxEnd = start + Math.min(MAX_CHUNK, remaining);
+
+        // the 64-bit hash forgets characters older than 64 positions, so it can start at the minimum size
+        long hash = 0;
+        int i = start + MIN_CHUNK;
+        for (; i < normalEnd; i++) {
+            hash = (hash << 1) + GEAR[gearIndex(content.charAt(i))];
+            if ((hash & MASK_STRICT) == 0) return i + 1;
+        }
+        for (; i < maxEnd; i++) {
+            hash = (hash << 1) + GEAR[gearIndex(content.charAt(i))];
+            if ((hash & MASK_LOOSE) == 0) return i + 1;
+        }
+        return maxEnd;
+    }
+
+    private static int gearIndex(char c) {
+        return (c ^ (c >>> 8)) & 0xff;
+    }
+
+    /**
+     * A content split in chunks
+     *
+     * @param content the content
+     * @param bounds  start of every chunk, followed by the length of the content
+     * @param hashes  128-bit hash of the window of every chunk, as pairs of {high, low} halves
+     */
+    public record Chunks(String content, int[] bounds, long[] hashes) {
+
+        public int count() {
+            return bounds.length - 1;
+        }
+
+        public int start(int chunk) {
+            return bounds[chunk];
+        }
+
+        public int end(int chunk) {
+            return bounds[chunk + 1];
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.tzm.supafinder.scanner;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiled set of literals that can be searched all at once in a single pass over the data.
+ * <br><br>
+ * The search looks for candidate positions using the distinct first bytes of the literals, and only then verifies
+ * the literals that start with the candidate byte.
+ * Searching the UTF-8 bytes of a message is equivalent to searching its decoded content with {@link String#contains},
+ * as valid UTF-8 sequences are never altered by the decoding.
+ */
+public class LiteralSet {
+    private final byte[][] literals;
+    private final byte[] firstBytes;
+    /**
+     * Bitmap of the first bytes, used when there are too many distinct first bytes for the kernel
+     */
+    private final long[] firstBytesBitmap;
+    private final boolean matchesEverything;
+
+    public LiteralSet(List<String> literals) {
+        this.literals = literals.stream()
+                .map(literal -> literal.getBytes(StandardCharsets.UTF_8))
+                .toArray(byte[][]::new);
+        this.matchesEverything = Arrays.stream(this.literals).anyMatch(literal -> literal.length == 0);
+
+        this.firstBytesBitmap = new long[4];
+        for (byte[] literal : this.literals) {
+            if (literal.length == 0) continue;
+            int b = literal[0] & 0xFF;
+            firstBytesBitmap[b >>> 6] |= 1L << b;
+        }
+        byte[] distinct = new byte[256];
+        int count = 0;
+        for (int b = 0; b < 256; b++) {
+            if ((firstBytesBitmap[b >>> 6] & (1L << b)) != 0) distinct[count++] = (byte) b;
+        }
+        this.firstBytes = Arrays.copyOf(distinct, count);
+    }
+
+    /**
+     * Checks if at least one literal of the set is contained in the data.
+     *
+     * @param data the bytes to search
+     * @return true if any literal is found
+     */
+    public boolean isContainedIn(byte[] data) {
+        return isContainedIn(ByteScanKernels.get(), data);
+    }
+
+    boolean isContainedIn(ByteScanKernel kernel, byte[] data) {
+        if (matchesEverything) return true;
+        if (firstBytes.length == 0) return false;
+
+        boolean useKernel = firstBytes.length <= ByteScanKernel.MAX_NEEDLES;
+        int position = 0;
+        while (position < data.length) {
+            int candidate = useKernel
+                    ? kernel.indexOfAny(data, position, data.length, firstBytes)
+                    : indexOfAnyScalar(data, position);
+            if (candidate < 0) return false;
+            if (matchesAt(data, candidate)) return true;
+            position = candidate + 1;
+        }
+        return false;
+    }
+
+    private int indexOfAnyScalar(byte[] data, int from) {
+        for (int i = from; i < data.length; i++) {
+            int b = data[i] & 0xFF;
+            if ((firstBytesBitmap[b >>> 6] & (1L << b)) != 0) return i;
+        }
+        return -1;
+    }
+
+    private boolean matchesAt(byte[] data, int position) {
+        for (byte[] literal : literals) {
+            if (literal.length == 0 || literal[0] != data[position]) continue;
+            if (Arrays.equals(data, position, Math.min(position + literal.length, data.length), literal, 0, literal.length))
+                return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        return literals.length;
+    }
+}
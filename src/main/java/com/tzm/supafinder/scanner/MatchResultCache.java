@@ -0,0 +1,264 @@
+package com.tzm.supafinder.scanner;
+
+import burp.api.montoya.persistence.PersistedObject;
+import com.tzm.supafinder.model.HttpSection;
+import com.tzm.supafinder.model.MatchPosition;
+import com.tzm.supafinder.model.RegexEntity;
+import com.tzm.supafinder.utils.HashUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Matches of the rules on section contents already analyzed, shared by all the messages.
+ * <br><br>
+ * The same body (a JS bundle, a config file, a static page) is usually repeated many times in the history.
+ * Contents are identified by a 128-bit hash of their bytes, and their matches are cached together with the
+ * {@link #ruleSetVersion(List, int) version} of the rules that produced them, so a repeated content is not matched
+ * again: its cached matches are turned into findings for the new message.
+ * <br><br>
+ * Only the bodies are cached, since URLs and headers are almost always different between messages. The cache is
+ * bounded both in entries and in the estimated size of the cached matches, and evicts the least recently used
+ * entries first. It can be saved in the project, to be reused after a restart.
+ */
+public class MatchResultCache {
+    /**
+     * Sections whose matches are cached
+     */
+    public static final EnumSet<HttpSection> CACHED_SECTIONS = EnumSet.of(HttpSection.REQ_BODY, HttpSection.RES_BODY);
+    /**
+     * Smaller contents are matched again, hashing and caching them would cost more than matching them
+     */
+    public static final int MIN_SECTION_BYTES = 512;
+    private static final int DEFAULT_MAX_ENTRIES = 16_384;
+    private static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    private static final int MATCH_OVERHEAD_BYTES = 64;
+    private static final String CACHE_KEY = "scan-match-cache";
+    private static final int FORMAT_VERSION = 1;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public MatchResultCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxEntries maximum number of contents cached
+     * @param maxBytes   maximum estimated memory used by the cached matches
+     */
+    public MatchResultCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        // access order, the eldest entry is the least recently used
+        this.entries = new LinkedHashMap<>(256, 0.75f, true);
+    }
+
+    /**
+     * Hash of the rules applied to a message, in their order, and of the options that change their matches.
+     * Cached matches are a list per rule, so they are valid only for the same list of rules.
+     *
+     * @param rules             the rules applied to the messages
+     * @param refineContextSize the characters searched by the refiners before the matches
+     * @return the version of the rule set
+     */
+    public static long ruleSetVersion(List<RegexEntity> rules, int refineContextSize) {
+        HashUtils.FieldsWriter fields = new HashUtils.FieldsWriter().addInt(refineContextSize).addInt(rules.size());
+        rules.forEach(rule -> fields.addLong(RuleCoverage.ruleVersion(rule)));
+        return HashUtils.murmur3x64_128(fields.toBytes(), 0)[0];
+    }
+
+    /**
+     * @param key the content and the rule set analyzing it
+     * @return the cached matches, for each rule of the rule set, or null if the content was not analyzed with this rule set
+     */
+    public synchronized List<List<CachedMatch>> get(Key key) {
+        Entry entry = entries.get(key);
+        if (Objects.isNull(entry)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.matchesByRule();
+    }
+
+    /**
+     * @param key           the content and the rule set that analyzed it
+     * @param matchesByRule the matches of the content, for each rule of the rule set
+     */
+    public synchronized void put(Key key, List<List<CachedMatch>> matchesByRule) {
+        Entry entry = new Entry(matchesByRule, estimateBytes(matchesByRule));
+        if (entry.bytes() > maxBytes) return;
+        Entry previous = entries.put(key, entry);
+        if (Objects.nonNull(previous)) bytes -= previous.bytes();
+        bytes += entry.bytes();
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+            bytes -= eldest.next().bytes();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, entries.size(), bytes);
+    }
+
+    private static long estimateBytes(List<List<CachedMatch>> matchesByRule) {
+        long size = ENTRY_OVERHEAD_BYTES + 16L * matchesByRule.size();
+        for (List<CachedMatch> matches : matchesByRule) {
+            for (CachedMatch match : matches) {
+                size += MATCH_OVERHEAD_BYTES + 2L * (match.match().length() + match.context().length());
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @param extensionData the data of the extension saved in the project
+     * @return the cache saved by the last session, or an empty cache
+     */
+    public static MatchResultCache load(PersistedObject extensionData) {
+        MatchResultCache cache = new MatchResultCache();
+        String saved = extensionData.getString(CACHE_KEY);
+        if (Objects.isNull(saved) || saved.isEmpty()) return cache;
+        try (DataInputStream input = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(saved))))) {
+            if (input.readInt() != FORMAT_VERSION) return cache;
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                Key key = new Key(input.readLong(), input.readLong(), input.readLong(), HttpSection.valueOf(input.readUTF()));
+                List<List<CachedMatch>> matchesByRule = new ArrayList<>();
+                for (int rules = input.readInt(); rules > 0; rules--) {
+                    List<CachedMatch> matches = new ArrayList<>();
+                    for (int size = input.readInt(); size > 0; size--) {
+                        String match = readString(input);
+                        MatchPosition position = new MatchPosition(input.readInt(), input.readInt(), input.readInt(), input.readInt());
+                        matches.add(new CachedMatch(match, position, readString(input)));
+                    }
+                    matchesByRule.add(List.copyOf(matches));
+                }
+                cache.put(key, List.copyOf(matchesByRule));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring invalid match cache: " + e.getMessage());
+            return new MatchResultCache();
+        }
+        return cache;
+    }
+
+    /**
+     * Save the cached matches in the project, from the least to the most recently used
+     */
+    public void save(PersistedObject extensionData) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(new GZIPOutputStream(buffer))) {
+            synchronized (this) {
+                output.writeInt(FORMAT_VERSION);
+                output.writeInt(entries.size());
+                for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+                    Key key = entry.getKey();
+                    output.writeLong(key.hashHigh());
+                    output.writeLong(key.hashLow());
+                    output.writeLong(key.ruleSetVersion());
+                    output.writeUTF(key.section().name());
+                    output.writeInt(entry.getValue().matchesByRule().size());
+                    for (List<CachedMatch> matches : entry.getValue().matchesByRule()) {
+                        output.writeInt(matches.size());
+                        for (CachedMatch match : matches) {
+                            writeString(output, match.match());
+                            output.writeInt(match.position().start());
+                            output.writeInt(match.position().end());
+                            output.writeInt(match.position().refinerStart());
+                            output.writeInt(match.position().refinerEnd());
+                            writeString(output, match.context());
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error saving match cache: " + e.getMessage());
+            return;
+        }
+        extensionData.setString(CACHE_KEY, Base64.getEncoder().encodeToString(buffer.toByteArray()));
+    }
+
+    public static void clear(PersistedObject extensionData) {
+        extensionData.deleteString(CACHE_KEY);
+    }
+
+    // writeUTF is limited to 64KB, matches are not
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A content of a section, analyzed by a rule set
+     *
+     * @param hashHigh       high half of the 128-bit hash of the content
+     * @param hashLow        low half of the 128-bit hash of the content
+     * @param ruleSetVersion see {@link #ruleSetVersion(List, int)}
+     * @param section        the section of the content, since rules analyze only some sections
+     */
+    public record Key(long hashHigh, long hashLow, long ruleSetVersion, HttpSection section) {
+
+        public static Key of(byte[] content, long ruleSetVersion, HttpSection section) {
+            long[] hash = HashUtils.murmur3x64_128(content, 0);
+            return new Key(hash[0], hash[1], ruleSetVersion, section);
+        }
+    }
+
+    /**
+     * A match of a rule in a content, without the message it was found in
+     */
+    public record CachedMatch(String match, MatchPosition position, String context) {
+    }
+
+    /**
+     * Counters of the cache
+     *
+     * @param hits      contents found in the cache
+     * @param misses    contents not found in the cache, matched again
+     * @param evictions entries removed to keep the cache within its bounds
+     * @param entries   contents in the cache
+     * @param bytes     estimated memory used by the cached matches
+     */
+    public record Stats(long hits, long misses, long evictions, int entries, long bytes) {
+    }
+
+    private record Entry(List<List<CachedMatch>> matchesByRule, long bytes) {
+    }
+}
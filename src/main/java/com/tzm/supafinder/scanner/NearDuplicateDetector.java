@@ -0,0 +1,275 @@
+package com.tzm.supafinder.scanner;
+
+import com.tzm.supafinder.utils.HashUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Detects response bodies nearly identical to a body of the same endpoint already analyzed, e.g. the responses of
+ * Intruder or of the active scanner, which differ only in the echoed payloads, timestamps or CSRF tokens.
+ * <br><br>
+ * Every body is summarized by a 64-bit SimHash of its words: similar bodies have SimHashes with a small Hamming
+ * distance. The SimHashes of the bodies analyzed are indexed per endpoint by bands of bits (locality-sensitive
+ * hashing): with {@code maxDistance + 1} bands, two SimHashes within the maximum distance have at least one identical
+ * band, so only the bodies sharing a band with the new one are compared.
+ * <br><br>
+ * A near-duplicate is analyzed only in the region that differs from its reference body, found by comparing their
+ * common prefix and suffix. Matches in the rest of the body are the same of the reference, which was fully analyzed.
+ * This class is thread-safe.
+ */
+public class NearDuplicateDetector {
+    /**
+     * Smaller bodies have too few words for a meaningful SimHash, and they are cheap to analyze anyway
+     */
+    public static final int MIN_BODY_CHARS = 512;
+    /**
+     * Characters around the changed region analyzed too, for the matches crossing its bounds
+     */
+    static final int MARGIN = 256;
+    private static final int MAX_REFERENCE_CHARS = 256 * 1024;
+    private static final int MAX_REFERENCES_PER_ENDPOINT = 8;
+    private static final int MAX_ENDPOINTS = 512;
+    private static final long MAX_TOTAL_CHARS = 16L * 1024 * 1024;
+
+    private final int maxDistance;
+    private final int bandBits;
+    private final LinkedHashMap<String, Endpoint> endpoints;
+    private long totalChars;
+    private final LongAdder checked;
+    private final LongAdder nearDuplicates;
+    private final LongAdder analyzedChars;
+    private final LongAdder skippedChars;
+
+    /**
+     * @param maxDistance maximum Hamming distance between the SimHashes of near-duplicate bodies, from 0 to 63
+     */
+    public NearDuplicateDetector(int maxDistance) {
+        this.maxDistance = Math.max(0, Math.min(63, maxDistance));
+        this.bandBits = 64 / (this.maxDistance + 1);
+        // access order, the eldest endpoint is the least recently used
+        this.endpoints = new LinkedHashMap<>(64, 0.75f, true);
+        this.checked = new LongAdder();
+        this.nearDuplicates = new LongAdder();
+        this.analyzedChars = new LongAdder();
+        this.skippedChars = new LongAdder();
+    }
+
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     * SimHash of the words (runs of letters and digits) of a text
+     */
+    public static long simHash(CharSequence text) {
+        int[] weights = new int[64];
+        long wordHash = 0;
+        boolean inWord = false;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                wordHash = wordHash * 31 + c;
+                inWord = true;
+            } else if (inWord) {
+                long feature = HashUtils.fmix64(wordHash);
+                for (int bit = 0; bit < 64; bit++) weights[bit] += ((feature >>> bit) & 1) != 0 ? 1 : -1;
+                wordHash = 0;
+                inWord = false;
+            }
+        }
+        long hash = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) hash |= 1L << bit;
+        }
+        return hash;
+    }
+
+    /**
+     * Find the region of the body to analyze. Bodies that are not near-duplicates are analyzed entirely, and they
+     * become references for the next bodies of the endpoint.
+     * <br><br>
+     * The SimHash and the changed region are computed without holding the lock of the detector, which is held only
+     * to look up and update the references, so that the bodies of many threads are compared in parallel.
+     *
+     * @param endpoint the endpoint of the response, e.g. method, host and path
+     * @param body     the response body
+     * @return the region of the body to analyze
+     */
+    public Region regionToAnalyze(String endpoint, String body) {
+        checked.increment();
+        Region region = new Region(0, body.length());
+        if (body.length() >= MIN_BODY_CHARS) {
+            long simHash = simHash(body);
+            String reference = referenceOf(endpoint, simHash, body);
+            if (Objects.nonNull(reference)) {
+                nearDuplicates.increment();
+                region = changedRegion(reference, body);
+            }
+        }
+        analyzedChars.add(region.end() - region.start());
+        skippedChars.add(body.length() - (region.end() - region.start()));
+        return region;
+    }
+
+    /**
+     * @return the nearest reference body of the endpoint, or null if there's none, in which case the body becomes
+     * a reference
+     */
+    private synchronized String referenceOf(String endpoint, long simHash, String body) {
+        Endpoint references = endpoints.computeIfAbsent(endpoint, key -> new Endpoint());
+        String reference = references.nearest(simHash);
+        if (Objects.isNull(reference) && body.length() <= MAX_REFERENCE_CHARS) addReference(references, simHash, body);
+        return reference;
+    }
+
+    /**
+     * Find the matches of a pattern starting in a region of the body, as a search of the whole body would find them.
+     * <br><br>
+     * The region is searched in place, with transparent bounds, so that lookarounds and word boundaries see the
+     * characters around it, and without anchoring bounds, so that {@code ^} and {@code $} don't match at its bounds.
+     * Matches starting in the region can end past it: the search reaches the longest match after the region, or the
+     * end of the body if the length of the matches is unbounded (see {@link ChunkMatchCache#maxMatchLength(Pattern)}).
+     *
+     * @return the matches, with their offsets in the whole body
+     */
+    public static List<ParallelMatcher.Span> matches(Pattern pattern, String body, Region region) {
+        int maxMatchLength = ChunkMatchCache.maxMatchLength(pattern);
+        int searchEnd = (int) Math.min(body.length(), (long) region.end() + maxMatchLength);
+        Matcher matcher = pattern.matcher(body);
+        matcher.useTransparentBounds(true);
+        matcher.useAnchoringBounds(false);
+        matcher.region(region.start(), searchEnd);
+        List<ParallelMatcher.Span> spans = new ArrayList<>();
+        while (matcher.find() && matcher.start() < region.end()) {
+            spans.add(new ParallelMatcher.Span(matcher.start(), matcher.end()));
+        }
+        return spans;
+    }
+
+    /**
+     * @return the region of the body that differs from the reference, with a margin
+     */
+    static Region changedRegion(String reference, String body) {
+        int maxCommon = Math.min(reference.length(), body.length());
+        int prefix = 0;
+        while (prefix < maxCommon && reference.charAt(prefix) == body.charAt(prefix)) prefix++;
+        int suffix = 0;
+        while (suffix < maxCommon - prefix
+                && reference.charAt(reference.length() - 1 - suffix) == body.charAt(body.length() - 1 - suffix)) {
+            suffix++;
+        }
+        int start = Math.max(0, prefix - MARGIN);
+        int end = Math.min(body.length(), body.length() - suffix + MARGIN);
+        return new Region(start, Math.max(start, end));
+    }
+
+    private void addReference(Endpoint references, long simHash, String body) {
+        totalChars += references.add(simHash, body);
+        // drop the least recently used endpoints, except the current one
+        Iterator<Endpoint> eldest = endpoints.values().iterator();
+        while ((endpoints.size() > MAX_ENDPOINTS || totalChars > MAX_TOTAL_CHARS) && endpoints.size() > 1) {
+            Endpoint removed = eldest.next();
+            totalChars -= removed.chars;
+            eldest.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        endpoints.clear();
+        totalChars = 0;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(checked.sum(), nearDuplicates.sum(), analyzedChars.sum(), skippedChars.sum(), endpoints.size());
+    }
+
+    /**
+     * Range of characters of a body, from start (inclusive) to end (exclusive)
+     */
+    public record Region(int start, int end) {
+    }
+
+    /**
+     * Counters of the detector
+     *
+     * @param checked        bodies checked
+     * @param nearDuplicates bodies analyzed only in the region changed from their reference
+     * @param analyzedChars  characters of the bodies analyzed
+     * @param skippedChars   characters of the bodies not analyzed, since equal to their reference
+     * @param endpoints      endpoints with reference bodies
+     */
+    public record Stats(long checked, long nearDuplicates, long analyzedChars, long skippedChars, int endpoints) {
+
+        /**
+         * @return the percentage of characters not analyzed
+         */
+        public double skippedPercent() {
+            long total = analyzedChars + skippedChars;
+            return total == 0 ? 0 : skippedChars * 100.0 / total;
+        }
+    }
+
+    /**
+     * Reference bodies of an endpoint, indexed by the bands of their SimHashes
+     */
+    private class Endpoint {
+        private final List<Long> simHashes = new ArrayList<>();
+        private final List<String> bodies = new ArrayList<>();
+        private final Map<Long, List<Integer>> bands = new HashMap<>();
+        private long chars;
+
+        String nearest(long simHash) {
+            int nearest = -1;
+            int nearestDistance = maxDistance + 1;
+            for (int band = 0; band <= maxDistance; band++) {
+                for (int index : bands.getOrDefault(bandKey(simHash, band), List.of())) {
+                    int distance = Long.bitCount(simHash ^ simHashes.get(index));
+                    if (distance < nearestDistance) {
+                        nearest = index;
+                        nearestDistance = distance;
+                    }
+                }
+            }
+            return nearest < 0 ? null : bodies.get(nearest);
+        }
+
+        /**
+         * @return the characters added, minus the ones removed
+         */
+        long add(long simHash, String body) {
+            long added = body.length();
+            if (bodies.size() >= MAX_REFERENCES_PER_ENDPOINT) {
+                // the oldest reference is replaced, the index is rebuilt
+                added -= bodies.remove(0).length();
+                simHashes.remove(0);
+            }
+            simHashes.add(simHash);
+            bodies.add(body);
+            bands.clear();
+            for (int index = 0; index < simHashes.size(); index++) {
+                for (int band = 0; band <= maxDistance; band++) {
+                    bands.computeIfAbsent(bandKey(simHashes.get(index), band), key -> new ArrayList<>(2)).add(index);
+                }
+            }
+            chars += added;
+            return added;
+        }
+
+        private long bandKey(long simHash, int band) {
+            // the last band takes the remaining bits
+            int shift = band * bandBits;
+            int bits = band == maxDistance ? 64 - shift : bandBits;
+            long mask = bits == 64 ? -1L : (1L << bits) - 1;
+            return ((simHash >>> shift) & mask) * 64 + band;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.tzm.supafinder.scanner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Splits the analysis of a single large message across multiple threads, using a fork/join pool.
+ * <br><br>
+ * Two kinds of splitting are supported:
+ * <ul>
+ *     <li>large sections are divided into overlapping chunks, each one searched by a different task;</li>
+ *     <li>the rules to apply to a large message are divided into slices, each one applied by a different task.</li>
+ * </ul>
+ * Results are always merged back in the order a sequential scan would produce them.
+ */
+public class ParallelMatcher {
+    /**
+     * Sections shorter than this are searched sequentially
+     */
+    public static final int SPLIT_SECTION_THRESHOLD = 1 << 20;
+    /**
+     * Messages smaller than this are analyzed by a single task
+     */
+    public static final int SPLIT_RULES_THRESHOLD = 256 * 1024;
+    private static final int CHUNK_SIZE = 256 * 1024;
+    /**
+     * Characters each chunk can look past its end, to complete matches that start near the end of the chunk.
+     * Searches that may have been cut by the end of this region are repeated on the whole section while merging
+     * the chunks (see {@link #mergeChunks(List)}).
+     */
+    static final int CHUNK_OVERLAP = 16 * 1024;
+    private static final int MIN_RULES_PER_SLICE = 4;
+
+    private ForkJoinPool pool;
+    private final LongAdder sectionSearches = new LongAdder();
+
+    public ParallelMatcher(int parallelism) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    /**
+     * Change the number of threads of the pool. Tasks already running complete on the previous pool.
+     *
+     * @param parallelism the new number of threads
+     */
+    public synchronized void setParallelism(int parallelism) {
+        parallelism = Math.max(1, parallelism);
+        if (pool.getParallelism() == parallelism) return;
+        pool.shutdown();
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    private synchronized ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Release the threads of the pool
+     */
+    public synchronized void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Find all the matches of a pattern in the content, as {@link Matcher#find()} would do.
+     * Small contents are searched lazily in the current thread,
+     * while large contents are split in chunks searched in parallel.
+     *
+     * @param pattern the pattern to search
+     * @param content the content to search in
+     * @return the matches, ordered by position
+     */
+    public Stream<Span> matches(Pattern pattern, String content) {
+        if (content.length() < SPLIT_SECTION_THRESHOLD) {
+            return pattern.matcher(content).results().map(result -> new Span(result.start(), result.end()));
+        }
+        return findAllChunked(pattern, content).stream();
+    }
+
+    private List<Span> findAllChunked(Pattern pattern, String content) {
+        // matches of a bounded pattern starting in a chunk always end within its overlap
+        boolean bounded = ChunkMatchCache.maxMatchLength(pattern) <= CHUNK_OVERLAP;
+        int chunksCount = (content.length() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        List<ChunkTask> tasks = new ArrayList<>(chunksCount);
+        for (int i = 0; i < chunksCount; i++) {
+            tasks.add(new ChunkTask(pattern, content, i * CHUNK_SIZE, bounded));
+        }
+        invokeAll(tasks);
+        return mergeChunks(tasks);
+    }
+
+    /**
+     * @return the number of searches repeated on the whole section, since the creation of the matcher
+     */
+    long getSectionSearches() {
+        return sectionSearches.sum();
+    }
+
+    /**
+     * Apply a function to every item of the list, splitting the list in slices processed in parallel.
+     *
+     * @param items  the items to process
+     * @param mapper the function to apply to each item
+     * @return the results, in the same order of the items
+     */
+    public <T, R> List<R> mapSliced(List<T> items, Function<T, R> mapper) {
+        int parallelism = getPool().getParallelism();
+        int sliceSize = Math.max(MIN_RULES_PER_SLICE, (items.size() + parallelism - 1) / parallelism);
+        if (parallelism == 1 || items.size() <= sliceSize) {
+            return items.stream().map(mapper).toList();
+        }
+
+        List<SliceTask<T, R>> tasks = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += sliceSize) {
+            tasks.add(new SliceTask<>(items.subList(from, Math.min(from + sliceSize, items.size())), mapper));
+        }
+        invokeAll(tasks);
+
+        List<R> results = new ArrayList<>(items.size());
+        tasks.forEach(task -> results.addAll(task.join()));
+        return results;
+    }
+
+    private void invokeAll(List<? extends ForkJoinTask<?>> tasks) {
+        ForkJoinPool currentPool = getPool();
+        if (ForkJoinTask.getPool() == currentPool) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            try {
+                currentPool.invoke(new RecursiveTask<Void>() {
+                    @Override
+                    protected Void compute() {
+                        ForkJoinTask.invokeAll(tasks);
+                        return null;
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the pool was replaced or shut down in the meantime: run in the current thread
+                tasks.forEach(ForkJoinTask::invoke);
+            }
+        }
+    }
+
+    /**
+     * Merge the results of the chunks, as if the content was searched sequentially.
+     * <br><br>
+     * The merge follows the positions where a sequential search would resume. When a chunk searched from the same
+     * position with an exact result, the result is taken from the chunk. Otherwise, e.g. a match crossed the chunk
+     * boundary, or the search of the chunk reached the end of its overlap, the search is repeated on the whole
+     * content from that position. Each repeated search resumes where the previous one ended, so the content is
+     * searched again at most once, and only for the patterns whose matches can be longer than the overlap.
+     */
+    private List<Span> mergeChunks(List<ChunkTask> tasks) {
+        List<Span> merged = new ArrayList<>();
+        Matcher sectionMatcher = null;
+        int position = 0;
+        while (position / CHUNK_SIZE < tasks.size()) {
+            ChunkTask task = tasks.get(position / CHUNK_SIZE);
+            Search search = task.join().get(position);
+            Span span;
+            if (Objects.nonNull(search) && search.exact()) {
+                span = search.span();
+                if (Objects.isNull(span)) {
+                    // no match starts in the rest of the chunk
+                    position = task.ownedEnd;
+                    continue;
+                }
+            } else {
+                if (Objects.isNull(sectionMatcher)) sectionMatcher = task.createMatcher();
+                sectionSearches.increment();
+                sectionMatcher.region(position, task.content.length());
+                if (!sectionMatcher.find()) break;
+                span = new Span(sectionMatcher.start(), sectionMatcher.end());
+            }
+            merged.add(span);
+            position = nextSearchStart(span);
+        }
+        return merged;
+    }
+
+    /**
+     * @return where a sequential search resumes after the match: empty matches are skipped by one character
+     */
+    private static int nextSearchStart(Span span) {
+        return span.end() == span.start() ? span.end() + 1 : span.end();
+    }
+
+    /**
+     * Range of a match, from start (inclusive) to end (exclusive)
+     */
+    public record Span(int start, int end) {
+    }
+
+    /**
+     * Search of a chunk from a position
+     *
+     * @param span  the first match starting in the chunk at or after the position, or null
+     * @param exact true if a search of the whole content from the position finds the same match, or no match
+     *              starting in the chunk
+     */
+    private record Search(Span span, boolean exact) {
+    }
+
+    /**
+     * Searches the matches starting in a chunk of the content, by the position each search started from
+     */
+    private static class ChunkTask extends RecursiveTask<Map<Integer, Search>> {
+        private final Pattern pattern;
+        private final String content;
+        private final int start;
+        private final int ownedEnd;
+        private final int regionEnd;
+        private final boolean bounded;
+
+        /**
+         * @param bounded true if the matches of the pattern are never longer than {@link #CHUNK_OVERLAP}
+         */
+        ChunkTask(Pattern pattern, String content, int start, boolean bounded) {
+            this.pattern = pattern;
+            this.content = content;
+            this.start = start;
+            this.ownedEnd = Math.min(content.length(), start + CHUNK_SIZE);
+            this.regionEnd = Math.min(content.length(), ownedEnd + CHUNK_OVERLAP);
+            this.bounded = bounded;
+        }
+
+        Matcher createMatcher() {
+            Matcher matcher = pattern.matcher(content);
+            // lookarounds and boundaries must see the content outside the chunk, as in a sequential search
+            matcher.useTransparentBounds(true);
+            matcher.useAnchoringBounds(false);
+            return matcher;
+        }
+
+        /**
+         * Search the first match starting in the chunk at or after a position, within the chunk and its overlap.
+         * <br><br>
+         * When the search reaches the end of the overlap, a match could have been cut or prevented by it (e.g. a
+         * lazy quantifier looking for its terminator), unless the matches of the pattern are bounded.
+         */
+        private Search find(Matcher matcher, int from) {
+            matcher.region(from, regionEnd);
+            boolean found = matcher.find();
+            boolean exact = bounded || !matcher.hitEnd() || regionEnd == content.length();
+            return new Search(found && matcher.start() < ownedEnd ? new Span(matcher.start(), matcher.end()) : null, exact);
+        }
+
+        /**
+         * Search the chunk as a sequential search would, stopping at the first search that is not exact
+         */
+        @Override
+        protected Map<Integer, Search> compute() {
+            Map<Integer, Search> searches = new HashMap<>();
+            Matcher matcher = createMatcher();
+            int from = start;
+            while (from < ownedEnd) {
+                Search search = find(matcher, from);
+                searches.put(from, search);
+                if (!search.exact() || Objects.isNull(search.span())) break;
+                from = nextSearchStart(search.span());
+            }
+            return searches;
+        }
+    }
+
+    /**
+     * Applies a function to a slice of items
+     */
+    private static class SliceTask<T, R> extends RecursiveTask<List<R>> {
+        private final List<T> items;
+        private final Function<T, R> mapper;
+
+        SliceTask(List<T> items, Function<T, R> mapper) {
+            this.items = Objects.requireNonNull(items);
+            this.mapper = mapper;
+        }
+
+        @Override
+        protected List<R> compute() {
+            return items.stream().map(mapper).toList();
+        }
+    }
+}
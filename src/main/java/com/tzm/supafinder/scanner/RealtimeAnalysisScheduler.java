@@ -0,0 +1,196 @@
+package com.tzm.supafinder.scanner;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scheduler for the real-time analysis of the HTTP traffic.
+ * <br><br>
+ * Messages to analyze are queued in a bounded queue and processed by a fixed number of workers.
+ * When the queue is full, the configured {@link OverflowPolicy} decides what to do with the new message,
+ * so that a burst of traffic (e.g. from Intruder or Scanner) never results in an unbounded number of threads.
+ */
+public class RealtimeAnalysisScheduler {
+    private final ThreadPoolExecutor executor;
+    private final BlockingQueue<Runnable> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final boolean virtualThreads;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * @param workers         number of workers analyzing messages concurrently
+     * @param queueCapacity   maximum number of messages waiting to be analyzed
+     * @param overflowPolicy  what to do when a message arrives and the queue is full
+     * @param useVirtualThreads if true, workers are virtual threads when the JVM supports them
+     */
+    public RealtimeAnalysisScheduler(int workers, int queueCapacity, OverflowPolicy overflowPolicy, boolean useVirtualThreads) {
+        if (workers < 1) throw new IllegalArgumentException("workers must be >= 1");
+        if (queueCapacity < 1) throw new IllegalArgumentException("queueCapacity must be >= 1");
+
+        ThreadFactory threadFactory = useVirtualThreads ? createVirtualThreadFactory() : null;
+        this.virtualThreads = Objects.nonNull(threadFactory);
+        if (Objects.isNull(threadFactory)) threadFactory = createPlatformThreadFactory();
+
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.executor = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS, queue, threadFactory, createRejectedHandler());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Check if the running JVM supports virtual threads (Java 21+)
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return Objects.nonNull(createVirtualThreadFactory());
+    }
+
+    private static ThreadFactory createVirtualThreadFactory() {
+        try {
+            // invoked by reflection, as the extension is compiled for Java 17
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "RealTime-Analyzer-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory createPlatformThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "RealTime-Analyzer-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private RejectedExecutionHandler createRejectedHandler() {
+        return (runnable, threadPoolExecutor) -> {
+            if (threadPoolExecutor.isShutdown()) {
+                rejected.increment();
+                return;
+            }
+            switch (overflowPolicy) {
+                case DROP_NEWEST -> rejected.increment();
+                case DROP_OLDEST -> {
+                    if (Objects.nonNull(queue.poll())) rejected.increment();
+                    if (!queue.offer(runnable)) rejected.increment();
+                }
+                // backpressure: the thread delivering the message (Burp's HTTP handler) analyzes it
+                case CALLER_RUNS -> runnable.run();
+            }
+        };
+    }
+
+    /**
+     * Queue a message analysis.
+     *
+     * @param task the analysis to run
+     */
+    public void submit(Runnable task) {
+        long enqueuedAt = System.nanoTime();
+        submitted.increment();
+        executor.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                failed.increment();
+                System.err.println("Error in real-time analysis: " + e.getMessage());
+            } finally {
+                long latency = System.nanoTime() - enqueuedAt;
+                totalLatencyNanos.add(latency);
+                maxLatencyNanos.accumulateAndGet(latency, Math::max);
+                completed.increment();
+            }
+        });
+    }
+
+    /**
+     * Stop accepting new messages and discard the ones still queued.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return a snapshot of the current counters
+     */
+    public Stats getStats() {
+        long completedCount = completed.sum();
+        return new Stats(
+                queue.size(),
+                executor.getActiveCount(),
+                submitted.sum(),
+                completedCount,
+                rejected.sum(),
+                failed.sum(),
+                completedCount == 0 ? 0 : totalLatencyNanos.sum() / completedCount / 1_000_000.0,
+                maxLatencyNanos.get() / 1_000_000.0
+        );
+    }
+
+    /**
+     * Policies to apply when a message arrives and the queue is full
+     */
+    public enum OverflowPolicy {
+        /**
+         * The new message is not analyzed
+         */
+        DROP_NEWEST,
+        /**
+         * The oldest message in the queue is discarded to make room for the new one
+         */
+        DROP_OLDEST,
+        /**
+         * The new message is analyzed by the thread that delivered it, slowing down the traffic
+         */
+        CALLER_RUNS;
+
+        public static OverflowPolicy fromString(String value) {
+            for (OverflowPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(value)) return policy;
+            }
+            return DROP_NEWEST;
+        }
+    }
+
+    /**
+     * Snapshot of the scheduler counters
+     *
+     * @param queueDepth       messages waiting to be analyzed
+     * @param activeWorkers    workers currently analyzing a message
+     * @param submitted        messages submitted since the scheduler started
+     * @param completed        messages analyzed
+     * @param rejected         messages discarded because the queue was full
+     * @param failed           analyses that ended with an error
+     * @param avgLatencyMillis average time from submission to end of analysis
+     * @param maxLatencyMillis maximum time from submission to end of analysis
+     */
+    public record Stats(int queueDepth,
+                        int activeWorkers,
+                        long submitted,
+                        long completed,
+                        long rejected,
+                        long failed,
+                        double avgLatencyMillis,
+                        double maxLatencyMillis) {
+    }
+}
@@ -0,0 +1,218 @@
+package com.tzm.supafinder.scanner;
+
+import burp.api.montoya.persistence.PersistedObject;
+import com.tzm.supafinder.model.HttpSection;
+import com.tzm.supafinder.model.RegexEntity;
+import com.tzm.supafinder.utils.HashUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * History items already analyzed by each rule, saved in the project together with the {@link ScanWatermark}.
+ * <br><br>
+ * Rules are identified by their {@link #ruleVersion(RegexEntity) version}, a hash of the fields that change their
+ * matches, so an edited rule is a new rule with no coverage. The items covered by a rule are kept as a sorted list of
+ * ranges of history indexes: scans always analyze contiguous ranges of the history, so the coverage of a rule
+ * is usually a single range, whatever the size of the history.
+ * <br><br>
+ * Before a scan, {@link #plan(List, int, int)} splits the items to analyze in segments with the rules still missing on
+ * them, so that after adding a rule only the new rule is run on the items already analyzed.
+ */
+public class RuleCoverage {
+    private static final String COVERAGE_KEY = "scan-rule-coverage";
+
+    private final Map<Long, Ranges> coverage;
+
+    public RuleCoverage() {
+        this.coverage = new HashMap<>();
+    }
+
+    /**
+     * @param extensionData the data of the extension saved in the project
+     * @return the coverage saved by the last scan, or an empty coverage
+     */
+    public static RuleCoverage load(PersistedObject extensionData) {
+        RuleCoverage ruleCoverage = new RuleCoverage();
+        String saved = extensionData.getString(COVERAGE_KEY);
+        if (Objects.isNull(saved) || saved.isEmpty()) return ruleCoverage;
+        try {
+            for (String rule : saved.split(";")) {
+                String[] versionAndRanges = rule.split(":", 2);
+                Ranges ranges = ruleCoverage.coverage.computeIfAbsent(Long.parseUnsignedLong(versionAndRanges[0], 16), key -> new Ranges());
+                for (String range : versionAndRanges[1].split(",")) {
+                    String[] bounds = range.split("-", 2);
+                    ranges.add(Integer.parseInt(bounds[0]), Integer.parseInt(bounds[1]));
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Ignoring invalid rule coverage: " + e.getMessage());
+            return new RuleCoverage();
+        }
+        return ruleCoverage;
+    }
+
+    public void save(PersistedObject extensionData) {
+        extensionData.setString(COVERAGE_KEY, coverage.entrySet().stream()
+                .filter(entry -> !entry.getValue().isEmpty())
+                .map(entry -> Long.toHexString(entry.getKey()) + ":" + entry.getValue())
+                .collect(Collectors.joining(";")));
+    }
+
+    public static void clear(PersistedObject extensionData) {
+        extensionData.deleteString(COVERAGE_KEY);
+    }
+
+    /**
+     * Hash of the fields of a rule that change its matches. The importance and the active flag are not part of it,
+     * since they don't change what the rule finds.
+     */
+    public static long ruleVersion(RegexEntity rule) {
+        byte[] fields = new HashUtils.FieldsWriter()
+                .add(rule.getDescription())
+                .add(rule.getRegex())
+                .add(rule.getRefinerRegex().orElse(null))
+                .addInt(rule.getSections().stream().mapToInt(HttpSection::ordinal).map(ordinal -> 1 << ordinal).sum())
+                .addInt(rule.isCaseInsensitive() ? 1 : 0)
+                .addInt(rule.isStopFirstOccurrence() ? 1 : 0)
+                .add(String.valueOf(rule.getPrechecks()))
+                .add(String.valueOf(rule.getIgnorePatterns()))
+                .toBytes();
+        return HashUtils.murmur3x64_128(fields, 0)[0];
+    }
+
+    /**
+     * Split a range of history items in segments, each with the rules that did not analyze its items yet
+     *
+     * @param rules the rules of the scan
+     * @param from  first history index to analyze, inclusive
+     * @param to    last history index to analyze, exclusive
+     * @return the segments with at least one rule to run, in history order
+     */
+    public List<Segment> plan(List<RegexEntity> rules, int from, int to) {
+        List<Ranges> rulesCoverage = rules.stream().map(rule -> coverage.get(ruleVersion(rule))).toList();
+        TreeSet<Integer> bounds = new TreeSet<>(List.of(from, to));
+        for (Ranges ranges : rulesCoverage) {
+            if (Objects.nonNull(ranges)) ranges.boundsWithin(from, to, bounds);
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        Integer start = bounds.first();
+        for (Integer end = bounds.higher(start); Objects.nonNull(end); start = end, end = bounds.higher(end)) {
+            List<RegexEntity> missing = new ArrayList<>();
+            for (int i = 0; i < rules.size(); i++) {
+                Ranges ranges = rulesCoverage.get(i);
+                if (Objects.isNull(ranges) || !ranges.contains(start)) missing.add(rules.get(i));
+            }
+            if (missing.isEmpty()) continue;
+            // merge with the previous segment when it runs the same rules
+            Segment previous = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (Objects.nonNull(previous) && previous.end() == start && previous.rules().equals(missing)) {
+                segments.set(segments.size() - 1, new Segment(previous.start(), end, previous.rules()));
+            } else {
+                segments.add(new Segment(start, end, List.copyOf(missing)));
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Record that the rules analyzed a range of history items
+     */
+    public void markScanned(List<RegexEntity> rules, int from, int to) {
+        for (RegexEntity rule : rules) {
+            coverage.computeIfAbsent(ruleVersion(rule), key -> new Ranges()).add(from, to);
+        }
+    }
+
+    /**
+     * Forget the coverage of the rules that are not in the given list, i.e. rules deleted or edited
+     *
+     * @param rules all the current rules
+     */
+    public void retainRules(List<RegexEntity> rules) {
+        Set<Long> versions = rules.stream().map(RuleCoverage::ruleVersion).collect(Collectors.toSet());
+        coverage.keySet().retainAll(versions);
+    }
+
+    /**
+     * Items of the history to analyze with some rules
+     *
+     * @param start first history index, inclusive
+     * @param end   last history index, exclusive
+     * @param rules the rules to run on these items
+     */
+    public record Segment(int start, int end, List<RegexEntity> rules) {
+    }
+
+    /**
+     * Sorted list of disjoint ranges of history indexes, as pairs of (start inclusive, end exclusive)
+     */
+    private static class Ranges {
+        private int[] bounds = new int[0];
+
+        boolean isEmpty() {
+            return bounds.length == 0;
+        }
+
+        boolean contains(int index) {
+            for (int i = 0; i < bounds.length && bounds[i] <= index; i += 2) {
+                if (index < bounds[i + 1]) return true;
+            }
+            return false;
+        }
+
+        void boundsWithin(int from, int to, Set<Integer> target) {
+            for (int bound : bounds) {
+                if (bound > from && bound < to) target.add(bound);
+            }
+        }
+
+        void add(int start, int end) {
+            if (start >= end) return;
+            int[] merged = new int[bounds.length + 2];
+            int size = 0;
+            boolean added = false;
+            for (int i = 0; i < bounds.length; i += 2) {
+                if (bounds[i + 1] < start) {
+                    merged[size++] = bounds[i];
+                    merged[size++] = bounds[i + 1];
+                } else if (bounds[i] > end) {
+                    if (!added) {
+                        merged[size++] = start;
+                        merged[size++] = end;
+                        added = true;
+                    }
+                    merged[size++] = bounds[i];
+                    merged[size++] = bounds[i + 1];
+                } else {
+                    // overlapping or adjacent
+                    start = Math.min(start, bounds[i]);
+                    end = Math.max(end, bounds[i + 1]);
+                }
+            }
+            if (!added) {
+                merged[size++] = start;
+                merged[size++] = end;
+            }
+            bounds = Arrays.copyOf(merged, size);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < bounds.length; i += 2) {
+                if (i > 0) text.append(',');
+                text.append(bounds[i]).append('-').append(bounds[i + 1]);
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.tzm.supafinder.scanner;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Summary of a completed scan
+ *
+ * @param totalItems    items selected for the scan
+ * @param analyzedItems items actually analyzed, lower than totalItems if the scan was cancelled
+ * @param findings      number of matches reported during the scan
+ * @param startTime     time the scan started
+ * @param endTime       time the last item finished its analysis
+ * @param cancelled     true if the scan was interrupted before completion
+ */
+public record ScanReport(int totalItems,
+                         int analyzedItems,
+                         long findings,
+                         Instant startTime,
+                         Instant endTime,
+                         boolean cancelled) {
+
+    public static ScanReport empty(Instant time) {
+        return new ScanReport(0, 0, 0, time, time, false);
+    }
+
+    public Duration duration() {
+        return Duration.between(startTime, endTime);
+    }
+
+    /**
+     * @return analyzed items per second
+     */
+    public double throughput() {
+        long millis = duration().toMillis();
+        return millis == 0 ? analyzedItems : analyzedItems * 1000.0 / millis;
+    }
+
+    @Override
+    public String toString() {
+        return "%s %d/%d items in %.1f s (%.0f items/s), %d findings".formatted(
+                cancelled ? "Stopped after" : "Analyzed",
+                analyzedItems,
+                totalItems,
+                duration().toMillis() / 1000.0,
+                throughput(),
+                findings);
+    }
+}
@@ -0,0 +1,97 @@
+package com.tzm.supafinder.scanner;
+
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.persistence.PersistedObject;
+import burp.api.montoya.proxy.ProxyHttpRequestResponse;
+import com.tzm.supafinder.model.RegexEntity;
+import com.tzm.supafinder.model.RegexScannerOptions;
+import com.tzm.supafinder.utils.HashUtils;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Point reached by the last scan of the proxy history, saved in the project, so that the next scan only analyzes
+ * the items added since then, and the items not yet analyzed by each rule (see {@link RuleCoverage}).
+ * <br><br>
+ * The watermark is valid only if the history still starts with the items scanned (the last one is recognized by its
+ * hash) and the filters of the items are the same, otherwise the whole history must be scanned again.
+ *
+ * @param historySize    number of history items when the scan started
+ * @param filtersVersion hash of the filters used for the scan, see {@link #filtersVersion(RegexScannerOptions)}
+ * @param lastItemHash   hash of the last item scanned, see {@link #itemHash(ProxyHttpRequestResponse)}
+ */
+public record ScanWatermark(int historySize, long filtersVersion, long lastItemHash) {
+    private static final String HISTORY_SIZE_KEY = "scan-watermark-history-size";
+    private static final String FILTERS_VERSION_KEY = "scan-watermark-filters-version";
+    private static final String LAST_ITEM_HASH_KEY = "scan-watermark-last-item-hash";
+
+    /**
+     * @param extensionData the data of the extension saved in the project
+     * @return the watermark of the last scan, if any
+     */
+    public static Optional<ScanWatermark> load(PersistedObject extensionData) {
+        Integer historySize = extensionData.getInteger(HISTORY_SIZE_KEY);
+        Long filtersVersion = extensionData.getLong(FILTERS_VERSION_KEY);
+        Long lastItemHash = extensionData.getLong(LAST_ITEM_HASH_KEY);
+        if (Objects.isNull(historySize) || Objects.isNull(filtersVersion) || Objects.isNull(lastItemHash)) {
+            return Optional.empty();
+        }
+        return Optional.of(new ScanWatermark(historySize, filtersVersion, lastItemHash));
+    }
+
+    public void save(PersistedObject extensionData) {
+        extensionData.setInteger(HISTORY_SIZE_KEY, historySize);
+        extensionData.setLong(FILTERS_VERSION_KEY, filtersVersion);
+        extensionData.setLong(LAST_ITEM_HASH_KEY, lastItemHash);
+    }
+
+    /**
+     * Forget the last scan, e.g. when its findings are cleared, so that the next scan analyzes the whole history
+     */
+    public static void clear(PersistedObject extensionData) {
+        extensionData.deleteInteger(HISTORY_SIZE_KEY);
+        extensionData.deleteLong(FILTERS_VERSION_KEY);
+        extensionData.deleteLong(LAST_ITEM_HASH_KEY);
+    }
+
+    /**
+     * @param history        the current proxy history
+     * @param filtersVersion the version of the filters of the new scan
+     * @return true if the history still starts with the items of the last scan, analyzed with the same filters
+     */
+    public boolean isValidFor(List<ProxyHttpRequestResponse> history, long filtersVersion) {
+        if (this.filtersVersion != filtersVersion || historySize <= 0 || historySize > history.size()) return false;
+        return itemHash(history.get(historySize - 1)) == lastItemHash;
+    }
+
+    /**
+     * Hash of the options that change which history items are analyzed, or how. Rules have their own version,
+     * see {@link RuleCoverage#ruleVersion(RegexEntity)}.
+     *
+     * @param options the options of the scanner
+     * @return the version of the filters
+     */
+    public static long filtersVersion(RegexScannerOptions options) {
+        byte[] fields = new HashUtils.FieldsWriter()
+                .addInt(options.isFilterInScopeCheckbox() ? 1 : 0)
+                .addInt(options.isFilterSkipMaxSizeCheckbox() ? options.getConfigMaxResponseSize() : -1)
+                .addInt(options.isFilterSkipMediaTypeCheckbox() ? 1 : 0)
+                .addInt(options.getConfigRefineContextSize())
+                .toBytes();
+        return HashUtils.murmur3x64_128(fields, 0)[0];
+    }
+
+    /**
+     * Hash identifying a history item, to check that the history was not cleared or changed since the last scan
+     */
+    public static long itemHash(ProxyHttpRequestResponse item) {
+        HttpRequest request = item.finalRequest();
+        byte[] fields = new HashUtils.FieldsWriter()
+                .add(request.url())
+                .add(request.bodyToString())
+                .toBytes();
+        return HashUtils.murmur3x64_128(fields, 0)[0];
+    }
+}
@@ -0,0 +1,159 @@
+package com.tzm.supafinder.scanner;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-lived pool of workers shared by all the scans of a scanner.
+ * <br><br>
+ * Each scan submits its items through a {@link Batch}, that limits the number of items in flight,
+ * so that the memory used by a scan doesn't depend on the number of items to analyze.
+ * Idle workers are released after a while, so the pool costs nothing between scans.
+ */
+public class ScanWorkerPool {
+    /**
+     * Number of items that can be queued for each worker, before the submission blocks
+     */
+    static final int ITEMS_IN_FLIGHT_PER_WORKER = 4;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param threadNamePrefix prefix of the name of the workers
+     */
+    public ScanWorkerPool(String threadNamePrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, threadNamePrefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Change the number of workers. Workers in excess are released once they finish their current item.
+     *
+     * @param workers the new number of workers
+     */
+    public synchronized void setWorkers(int workers) {
+        if (workers < 1) throw new IllegalArgumentException("workers must be >= 1");
+        if (workers > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(workers);
+            executor.setCorePoolSize(workers);
+        } else {
+            executor.setCorePoolSize(workers);
+            executor.setMaximumPoolSize(workers);
+        }
+    }
+
+    public int getWorkers() {
+        return executor.getCorePoolSize();
+    }
+
+    /**
+     * Start a new group of items to analyze.
+     *
+     * @return the batch to submit items to
+     */
+    public Batch newBatch() {
+        return new Batch(getWorkers() * ITEMS_IN_FLIGHT_PER_WORKER);
+    }
+
+    /**
+     * Stop all the workers. The pool can't be used anymore.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Group of items submitted by a single scan.
+     * <br><br>
+     * The completion is tracked with a {@link Phaser}: the producer and every item in flight are parties,
+     * and the phaser terminates when the producer has {@link #close() closed} the batch and the last item is done.
+     */
+    public class Batch {
+        private final Semaphore inFlight;
+        private final CompletableFuture<Instant> completion;
+        private final Phaser phaser;
+        private volatile boolean cancelled;
+        private boolean closed;
+
+        private Batch(int maxInFlight) {
+            this.inFlight = new Semaphore(maxInFlight);
+            this.completion = new CompletableFuture<>();
+            this.phaser = new Phaser(1) {
+                @Override
+                protected boolean onAdvance(int phase, int registeredParties) {
+                    if (registeredParties == 0) completion.complete(Instant.now());
+                    return registeredParties == 0;
+                }
+            };
+        }
+
+        /**
+         * Submit an item, waiting if too many items are already in flight.
+         *
+         * @param task the analysis of the item
+         * @return false if the batch was cancelled and the item was not submitted
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public boolean submit(Runnable task) throws InterruptedException {
+            if (cancelled) return false;
+            inFlight.acquire();
+            if (cancelled) {
+                inFlight.release();
+                return false;
+            }
+
+            phaser.register();
+            try {
+                executor.execute(() -> {
+                    try {
+                        if (!cancelled) task.run();
+                    } finally {
+                        inFlight.release();
+                        phaser.arriveAndDeregister();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+                phaser.arriveAndDeregister();
+                cancelled = true;
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Signal that no more items will be submitted.
+         *
+         * @return a future completed with the time the last item finished
+         */
+        public synchronized CompletableFuture<Instant> close() {
+            if (!closed) {
+                closed = true;
+                phaser.arriveAndDeregister();
+            }
+            return completion;
+        }
+
+        /**
+         * Skip the items not yet started. Items being analyzed are expected to check {@link #isCancelled()}.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.tzm.supafinder.scanner;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Kernel that processes 8 bytes at a time using plain long arithmetic (SIMD Within A Register).
+ * <br><br>
+ * This is the fallback used when the Vector API is not available in the running JVM.
+ */
+public class SwarByteScanKernel implements ByteScanKernel {
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+
+    /**
+     * Returns a word where the high bit of each byte is set if the corresponding byte of the input is zero.
+     * Only the lowest set bit is guaranteed to be exact, which is all that's needed to find the first match.
+     */
+    private static long zeroBytes(long word) {
+        return (word - ONES) & ~word & HIGHS;
+    }
+
+    private static long broadcast(byte b) {
+        return (b & 0xFFL) * ONES;
+    }
+
+    @Override
+    public int indexOfAny(byte[] data, int from, int to, byte[] needles) {
+        if (needles.length == 0 || needles.length > MAX_NEEDLES)
+            throw new IllegalArgumentException("Unsupported number of needles: " + needles.length);
+
+        long[] patterns = new long[needles.length];
+        for (int i = 0; i < needles.length; i++) {
+            patterns[i] = broadcast(needles[i]);
+        }
+
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = (long) LONG_VIEW.get(data, i);
+            long found = 0;
+            for (long pattern : patterns) {
+                found |= zeroBytes(word ^ pattern);
+            }
+            if (found != 0) return i + (Long.numberOfTrailingZeros(found) >>> 3);
+        }
+        for (; i < to; i++) {
+            byte b = data[i];
+            for (byte needle : needles) {
+                if (b == needle) return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean isPrintableAscii(byte[] data, int from, int to) {
+        long lowerBound = broadcast((byte) 0x20);
+        long del = broadcast((byte) 0x7F);
+
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = (long) LONG_VIEW.get(data, i);
+            if ((word & HIGHS) != 0) return false;
+            if (zeroBytes(word ^ del) != 0) return false;
+            // some byte is below 0x20: it may still be a whitespace, so check the word byte by byte
+            if (((word - lowerBound) & ~word & HIGHS) != 0 && !isPrintableAsciiScalar(data, i, i + Long.BYTES))
+                return false;
+        }
+        return isPrintableAsciiScalar(data, i, to);
+    }
+
+    private static boolean isPrintableAsciiScalar(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!ByteScanKernel.isPrintableAscii(data[i])) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String name() {
+        return "SWAR";
+    }
+}
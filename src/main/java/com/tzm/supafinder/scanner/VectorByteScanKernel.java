@@ -0,0 +1,56 @@
+package com.tzm.supafinder.scanner;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernel based on the incubating Vector API, which uses the widest SIMD registers available on the CPU.
+ * <br><br>
+ * <b>Warning</b>: this class references the optional module {@code jdk.incubator.vector}.
+ * It must only be loaded through {@link ByteScanKernels}, that checks the module is present in the running JVM.
+ */
+class VectorByteScanKernel implements ByteScanKernel {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private final SwarByteScanKernel tailKernel = new SwarByteScanKernel();
+
+    @Override
+    public int indexOfAny(byte[] data, int from, int to, byte[] needles) {
+        if (needles.length == 0 || needles.length > MAX_NEEDLES)
+            throw new IllegalArgumentException("Unsupported number of needles: " + needles.length);
+
+        int i = from;
+        int upperBound = from + SPECIES.loopBound(to - from);
+        for (; i < upperBound; i += SPECIES.length()) {
+            ByteVector vector = ByteVector.fromArray(SPECIES, data, i);
+            VectorMask<Byte> found = vector.eq(needles[0]);
+            for (int n = 1; n < needles.length; n++) {
+                found = found.or(vector.eq(needles[n]));
+            }
+            if (found.anyTrue()) return i + found.firstTrue();
+        }
+        return tailKernel.indexOfAny(data, i, to, needles);
+    }
+
+    @Override
+    public boolean isPrintableAscii(byte[] data, int from, int to) {
+        int i = from;
+        int upperBound = from + SPECIES.loopBound(to - from);
+        for (; i < upperBound; i += SPECIES.length()) {
+            ByteVector vector = ByteVector.fromArray(SPECIES, data, i);
+            // bytes are signed, so everything over 0x7F is also lower than 0x20
+            VectorMask<Byte> controls = vector.lt((byte) 0x20);
+            VectorMask<Byte> whitespaces = vector.eq((byte) '\t')
+                    .or(vector.eq((byte) '\n'))
+                    .or(vector.eq((byte) '\r'));
+            VectorMask<Byte> invalid = controls.andNot(whitespaces).or(vector.eq((byte) 0x7F));
+            if (invalid.anyTrue()) return false;
+        }
+        return tailKernel.isPrintableAscii(data, i, to);
+    }
+
+    @Override
+    public String name() {
+        return "Vector (%d bits)".formatted(SPECIES.vectorBitSize());
+    }
+}
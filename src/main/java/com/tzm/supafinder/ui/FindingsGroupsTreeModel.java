@@ -0,0 +1,102 @@
+package com.tzm.supafinder.ui;
+
+import com.tzm.supafinder.model.FindingsGroups;
+import com.tzm.supafinder.utils.ImportanceUtils;
+
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tree of the findings grouped by rule, then by match, then by URL.
+ * <br><br>
+ * The tree is backed by a snapshot of the groups maintained by the manager, so it shows one node per group
+ * instead of one row per finding. Nodes are the group records themselves, the label is given by {@link #labelOf(Object)}.
+ */
+public class FindingsGroupsTreeModel implements TreeModel {
+    private final String root;
+    private final List<TreeModelListener> listeners;
+    private List<FindingsGroups.RuleGroup> groups;
+
+    public FindingsGroupsTreeModel(String root) {
+        this.root = root;
+        this.listeners = new ArrayList<>();
+        this.groups = List.of();
+    }
+
+    /**
+     * Replace the groups shown by the tree
+     *
+     * @param groups the new groups, see {@link com.tzm.supafinder.model.LogEntriesManager#getGroups()}
+     */
+    public void setGroups(List<FindingsGroups.RuleGroup> groups) {
+        this.groups = groups;
+        TreeModelEvent event = new TreeModelEvent(this, new TreePath(root));
+        listeners.forEach(listener -> listener.treeStructureChanged(event));
+    }
+
+    /**
+     * @return the text shown for a node of the tree
+     */
+    public static String labelOf(Object node) {
+        if (node instanceof FindingsGroups.RuleGroup rule) {
+            return "[%s] %s (%d)".formatted(ImportanceUtils.getImportanceLabel(rule.regexEntity().getImportance()),
+                    rule.regexEntity().getDescription(), rule.count());
+        } else if (node instanceof FindingsGroups.MatchGroup match) {
+            return "%s (%d)".formatted(match.match(), match.count());
+        } else if (node instanceof FindingsGroups.UrlGroup url) {
+            return "%s (%d)".formatted(url.url(), url.count());
+        }
+        return String.valueOf(node);
+    }
+
+    private List<?> childrenOf(Object parent) {
+        if (parent == root) return groups;
+        if (parent instanceof FindingsGroups.RuleGroup rule) return rule.matches();
+        if (parent instanceof FindingsGroups.MatchGroup match) return match.urls();
+        return List.of();
+    }
+
+    @Override
+    public Object getRoot() {
+        return root;
+    }
+
+    @Override
+    public Object getChild(Object parent, int index) {
+        return childrenOf(parent).get(index);
+    }
+
+    @Override
+    public int getChildCount(Object parent) {
+        return childrenOf(parent).size();
+    }
+
+    @Override
+    public boolean isLeaf(Object node) {
+        return node instanceof FindingsGroups.UrlGroup;
+    }
+
+    @Override
+    public void valueForPathChanged(TreePath path, Object newValue) {
+        // the tree is read-only
+    }
+
+    @Override
+    public int getIndexOfChild(Object parent, Object child) {
+        return childrenOf(parent).indexOf(child);
+    }
+
+    @Override
+    public void addTreeModelListener(TreeModelListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeTreeModelListener(TreeModelListener listener) {
+        listeners.remove(listener);
+    }
+}
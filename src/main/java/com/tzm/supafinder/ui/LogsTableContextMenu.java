@@ -3,16 +3,23 @@ package com.tzm.supafinder.ui;
 import burp.api.montoya.MontoyaApi;
 import burp.api.montoya.core.Annotations;
 import burp.api.montoya.core.ByteArray;
+import burp.api.montoya.core.Marker;
+import burp.api.montoya.core.Range;
 import burp.api.montoya.http.message.HttpRequestResponse;
 import burp.api.montoya.http.message.requests.HttpRequest;
 import burp.api.montoya.http.message.responses.HttpResponse;
 import burp.api.montoya.ui.editor.HttpRequestEditor;
+import burp.api.montoya.intruder.HttpRequestTemplate;
 import burp.api.montoya.ui.editor.HttpResponseEditor;
+import com.tzm.supafinder.model.HttpSection;
 import com.tzm.supafinder.model.LogEntity;
 import com.tzm.supafinder.model.LogEntriesManager;
 import com.tzm.supafinder.model.RegexEntity;
+import com.tzm.supafinder.model.RegexScannerOptions;
+import com.tzm.supafinder.scanner.AssetAllowlist;
 import com.tzm.supafinder.ui.table.LogsTable;
 import com.tzm.supafinder.ui.table.LogsTableModel;
+import com.tzm.supafinder.utils.MatchOffsets;
 
 import javax.swing.AbstractAction;
 import javax.swing.JMenu;
@@ -22,6 +29,7 @@ import java.awt.Toolkit;
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.StringSelection;
 import java.awt.event.ActionEvent;
+import java.util.List;
 
 import static com.tzm.supafinder.utils.Messages.getLocaleString;
 
@@ -34,6 +42,7 @@ public class LogsTableContextMenu extends JPopupMenu {
                                 LogsTableModel logsTableModel,
                                 LogsTable logsTable,
                                 MontoyaApi burpApi,
+                                RegexScannerOptions scannerOptions,
                                 boolean isAnalysisRunning) {
         RegexEntity regexEntity = logEntry.getRegexEntity();
         String url = logEntry.getRequestUrl();
@@ -52,7 +61,15 @@ public class LogsTableContextMenu extends JPopupMenu {
         JMenuItem sendToIntruder = new JMenuItem(new AbstractAction(getLocaleString("logger-ctxMenu-sendToIntruder")) {
             @Override
             public void actionPerformed(ActionEvent e) {
-                burpApi.intruder().sendToIntruder(request);
+                // a match in the request becomes the insertion point
+                List<int[]> ranges = HttpSection.REQ.contains(logEntry.getMatchedSection()) ? matchRanges(logEntry) : List.of();
+                if (ranges.isEmpty()) {
+                    burpApi.intruder().sendToIntruder(request);
+                } else {
+                    int[] match = ranges.get(0);
+                    burpApi.intruder().sendToIntruder(request.httpService(),
+                            HttpRequestTemplate.httpRequestTemplate(request, List.of(Range.range(match[0], match[1]))));
+                }
             }
         });
         this.add(sendToIntruder);
@@ -60,11 +77,12 @@ public class LogsTableContextMenu extends JPopupMenu {
         JMenuItem sendToOrganizer = new JMenuItem(new AbstractAction(getLocaleString("logger-ctxMenu-sendToOrganizer")) {
             @Override
             public void actionPerformed(ActionEvent e) {
-                burpApi.organizer().sendToOrganizer(
+                burpApi.organizer().sendToOrganizer(withMarkers(
                         HttpRequestResponse.httpRequestResponse(
                                 request,
                                 response,
-                                Annotations.annotations(logEntry.getMatch())));
+                                Annotations.annotations(logEntry.getMatch())),
+                        logEntry));
             }
         });
         this.add(sendToOrganizer);
@@ -112,6 +130,18 @@ public class LogsTableContextMenu extends JPopupMenu {
         if (isAnalysisRunning) removeItem.setEnabled(false);
         this.add(removeItem);
 
+        JMenuItem neverScanAsset = new JMenuItem(new AbstractAction(getLocaleString("logger-ctxMenu-neverScanAsset")) {
+            @Override
+            public void actionPerformed(ActionEvent actionEvent) {
+                // the response body is skipped by the next scans, as a known public file
+                String name = request.pathWithoutQuery().substring(request.pathWithoutQuery().lastIndexOf('/') + 1);
+                AssetAllowlist.Entry entry = AssetAllowlist.fingerprint(name, response.body().getBytes());
+                if (scannerOptions.getAssetAllowlist().addAll(List.of(entry)) > 0) scannerOptions.saveToPersistentStorage();
+            }
+        });
+        if (response == null || response.body().length() == 0) neverScanAsset.setEnabled(false);
+        this.add(neverScanAsset);
+
         this.add(new JMenuItem(new AbstractAction(getLocaleString("logger-ctxMenu-copyURL")) {
             @Override
             public void actionPerformed(final ActionEvent e) {
@@ -144,4 +174,27 @@ public class LogsTableContextMenu extends JPopupMenu {
             }
         }));
     }
+
+    /**
+     * Ranges of the match and of its refiner match in the raw message, from the offsets stored with the finding
+     */
+    private static List<int[]> matchRanges(LogEntity logEntry) {
+        try {
+            return MatchOffsets.messageRanges(logEntry.getMatchedSection(), logEntry.getPosition(), logEntry.getRequest(), logEntry.getResponse());
+        } catch (RuntimeException e) {
+            System.err.println("Error locating the match in the message: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Mark the match, and its refiner match, in the message sent to another tool
+     */
+    private static HttpRequestResponse withMarkers(HttpRequestResponse requestResponse, LogEntity logEntry) {
+        List<Marker> markers = matchRanges(logEntry).stream().map(range -> Marker.marker(range[0], range[1])).toList();
+        if (markers.isEmpty()) return requestResponse;
+        return HttpSection.REQ.contains(logEntry.getMatchedSection())
+                ? requestResponse.withRequestMarkers(markers)
+                : requestResponse.withResponseMarkers(markers);
+    }
 }
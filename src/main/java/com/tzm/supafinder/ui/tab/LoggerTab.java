@@ -6,12 +6,29 @@ import burp.api.montoya.ui.editor.HttpRequestEditor;
 import burp.api.montoya.ui.editor.HttpResponseEditor;
 import com.tzm.supafinder.MainUI;
 import com.tzm.supafinder.RegexScanner;
+import com.tzm.supafinder.model.FindingsJournal;
+import com.tzm.supafinder.model.FindingsPersistence;
+import com.tzm.supafinder.model.FindingsRollup;
+import com.tzm.supafinder.model.FindingsStatistics;
+import com.tzm.supafinder.model.FindingsStore;
+import com.tzm.supafinder.model.HistoryReference;
+import com.tzm.supafinder.model.HttpSection;
 import com.tzm.supafinder.model.LogEntity;
 import com.tzm.supafinder.model.LogEntriesManager;
+import com.tzm.supafinder.model.RegexEntity;
+import com.tzm.supafinder.model.RegexScannerOptions;
+import com.tzm.supafinder.scanner.NearDuplicateDetector;
+import com.tzm.supafinder.scanner.RealtimeAnalysisScheduler;
+import com.tzm.supafinder.scanner.RuleCoverage;
+import com.tzm.supafinder.scanner.ScanWatermark;
+import com.tzm.supafinder.ui.FindingsGroupsTreeModel;
 import com.tzm.supafinder.ui.LogsTableContextMenu;
 import com.tzm.supafinder.ui.PopupMenuButton;
+import com.tzm.supafinder.ui.table.LogEntriesPublisher;
+import com.tzm.supafinder.ui.table.LogsFilterEngine;
 import com.tzm.supafinder.ui.table.LogsTable;
 import com.tzm.supafinder.ui.table.LogsTableModel;
+import com.tzm.supafinder.ui.table.LogsTableRowSorter;
 import com.tzm.supafinder.utils.FileUtils;
 import com.tzm.supafinder.utils.LoggerUtils;
 import com.tzm.supafinder.utils.SwingUtils;
@@ -20,20 +37,32 @@ import com.tzm.supafinder.utils.ImportanceColorScheme;
 import com.tzm.supafinder.utils.UIConstants;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
+import burp.api.montoya.persistence.PersistedObject;
 
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
-import javax.swing.table.TableRowSorter;
+import javax.swing.tree.DefaultTreeCellRenderer;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.function.Consumer;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.tzm.supafinder.utils.Messages.getLocaleString;
 import static com.tzm.supafinder.utils.Utils.createGsonBuilder;
@@ -53,13 +82,36 @@ public class LoggerTab implements ApplicationTab {
     private final LogEntriesManager logEntriesManager;
     private final Object loggerLock = new Object();
     private final RegexScanner regexScanner;
+    /**
+     * Findings saved in the project, restored when the tab is created
+     */
+    private final FindingsPersistence findingsPersistence;
+    private Thread restoreFindingsThread;
+    /**
+     * Journal of the new findings for external tools, opened when configured in the options
+     */
+    private FindingsJournal findingsJournal;
+    private String failedJournalPath;
     private HttpRequestEditor originalRequestViewer;
     private HttpResponseEditor originalResponseViewer;
     private LogsTableModel logsTableModel;
+    /**
+     * Publisher adding the findings to the table in batches
+     */
+    private LogEntriesPublisher logEntriesPublisher;
     private LogsTable logsTable;
-    private TableRowSorter<LogsTableModel> logsTableRowSorter;
+    private LogsTableRowSorter logsTableRowSorter;
+    private LogsFilterEngine logsFilterEngine;
     private boolean isAnalysisRunning;
     private Thread analyzeProxyHistoryThread;
+    private JCheckBox fullRescanCheckbox;
+    private Timer realtimeStatsTimer;
+    private FindingsGroupsTreeModel groupsTreeModel;
+    private JTree groupsTree;
+    private Timer groupsRefreshTimer;
+    private Timer retentionTimer;
+    private final AtomicBoolean groupsChanged = new AtomicBoolean(false);
+    private final AtomicBoolean retentionScheduled = new AtomicBoolean(false);
     // Filter state for re-applying filters when importance changes
     private JTextField searchField;
     private JCheckBox regexCheckbox;
@@ -75,17 +127,70 @@ public class LoggerTab implements ApplicationTab {
         this.regexScanner = new RegexScanner(
                 this.mainUI.getBurpApi(),
                 this.mainUI.getScannerOptions());
-
-        // Inject log entries manager for real-time analysis
-        this.regexScanner.setLogEntriesManager(this.logEntriesManager);
+        PersistedObject extensionData = this.mainUI.getBurpApi().persistence().extensionData();
+        this.findingsPersistence = new FindingsPersistence(extensionData);
+        // without the findings of the previous session, a scan saved by it doesn't cover them
+        if (!findingsPersistence.hasSavedFindings()) ScanWatermark.clear(extensionData);
 
         // keep as last call
         this.panel = this.createPanel();
+        this.restoreFindings();
+
+        // findings of the real-time analysis are published to the table like the ones of history scans
+        this.regexScanner.setRealtimeLogEntriesCallback(this.logEntriesPublisher);
 
         // Register listener for importance changes
         this.mainUI.getScannerOptions().addImportanceChangeListener(this::refreshFilterForImportance);
     }
 
+    /**
+     * Append the new findings to the journal, opening it again if its options changed.
+     * Called in the consumer thread of the {@link LogEntriesPublisher}.
+     */
+    private synchronized void appendToJournal(List<LogEntity> added) {
+        RegexScannerOptions options = mainUI.getScannerOptions();
+        String path = options.getConfigJournalPath().trim();
+        long maxFileBytes = Math.max(1024, options.getConfigJournalMaxFileSize() * 1024L * 1024L);
+        if (Objects.nonNull(findingsJournal) && (!findingsJournal.getPath().toString().equals(path)
+                || findingsJournal.getMaxFileBytes() != maxFileBytes)) {
+            closeJournal();
+        }
+        if (path.isEmpty() || path.equals(failedJournalPath)) return;
+        if (Objects.isNull(findingsJournal)) {
+            try {
+                findingsJournal = new FindingsJournal(Path.of(path), maxFileBytes);
+            } catch (IOException | InvalidPathException e) {
+                // don't retry for every batch, until the path is changed
+                System.err.println("Error opening the findings journal " + path + ": " + e.getMessage());
+                failedJournalPath = path;
+                return;
+            }
+        }
+        findingsJournal.append(added);
+    }
+
+    private synchronized void closeJournal() {
+        if (Objects.isNull(findingsJournal)) return;
+        findingsJournal.close();
+        findingsJournal = null;
+        failedJournalPath = null;
+    }
+
+    /**
+     * Restore in background the findings saved in the project, showing them one page at a time
+     */
+    private void restoreFindings() {
+        List<RegexEntity> rules = Stream.concat(
+                mainUI.getScannerOptions().getGeneralRegexList().stream(),
+                mainUI.getScannerOptions().getExtensionsRegexList().stream()).toList();
+        HistoryReference.Source history = new HistoryReference.Source(mainUI.getBurpApi().proxy()::history);
+        restoreFindingsThread = new Thread(() -> findingsPersistence.restore(logEntriesManager,
+                logEntriesPublisher::addAllAndWait, rules, history,
+                () -> SwingUtilities.invokeLater(logEntriesPublisher::flush)), "Findings-Restore");
+        restoreFindingsThread.setDaemon(true);
+        restoreFindingsThread.start();
+    }
+
     private JPanel createPanel() {
         JPanel box;
         JPanel boxCenter;
@@ -209,7 +314,7 @@ public class LoggerTab implements ApplicationTab {
         gbc = createGridConstraints(0, 1, 1.0, 0.0, GridBagConstraints.HORIZONTAL);
         headerBox.add(filtersContainer, gbc);
 
-        resultsFilterBar = createResultsFilterBar();
+        resultsFilterBar = createResultsFilterBar(logEntriesPane);
         gbc = createGridConstraints(0, 2, 1.0, 0.0, GridBagConstraints.HORIZONTAL);
         gbc.insets = new Insets(2, 10, 5, 10);
         headerBox.add(resultsFilterBar, gbc);
@@ -217,7 +322,7 @@ public class LoggerTab implements ApplicationTab {
         return headerBox;
     }
 
-    private JPanel createResultsFilterBar() {
+    private JPanel createResultsFilterBar(JScrollPane logEntriesPane) {
         JPanel resultsFilterBar;
         GridBagConstraints gbc;
 
@@ -239,6 +344,16 @@ public class LoggerTab implements ApplicationTab {
             filteredCountValueLabel.setText(String.valueOf(Math.min(entriesCount, logsTable.getRowSorter().getViewRowCount())));
             totalCountValueLabel.setText("/" + entriesCount);
         }));
+        logEntriesPublisher.addFlushListener(stats -> {
+            FindingsStore.Stats storeStats = logEntriesManager.getStoreStats();
+            FindingsRollup rollup = logEntriesManager.getRollup();
+            totalCountValueLabel.setToolTipText(
+                    "Table updates: %d (%d rows) | Last: %.1f ms | Max: %.1f ms | In memory: %d | On disk: %d (%d MB) | Shared strings: %d (%d KB saved) | Rolled up: %d (%d rows)".formatted(
+                            stats.flushes(), stats.publishedRows(), stats.lastFlushMillis(), stats.maxFlushMillis(),
+                            storeStats.hotRows(), storeStats.spilledRows(), storeStats.spilledBytes() / (1024 * 1024),
+                            storeStats.strings().strings(), storeStats.strings().savedBytes() / 1024,
+                            rollup.getRolledUpFindings(), rollup.size()));
+        });
         gbc = createGridConstraints(2, 0, 0, 0, GridBagConstraints.HORIZONTAL);
         resultsFilterBar.add(totalCountValueLabel, gbc);
 
@@ -285,37 +400,76 @@ public class LoggerTab implements ApplicationTab {
         gbc.insets = new Insets(0, 10, 0, 0);
         resultsFilterBar.add(this.UniqueCheckbox, gbc);
 
-        Runnable doUpdateRowFilter = () -> updateRowFilter(
+        IntConsumer doUpdateRowFilter = debounceMs -> updateRowFilter(
                 searchField.getText(),
                 regexCheckbox.isSelected(),
                 matchCheckbox.isSelected(),
                 URLCheckbox.isSelected(),
-                UniqueCheckbox.isSelected()
+                UniqueCheckbox.isSelected(),
+                debounceMs
         );
-        regexCheckbox.addActionListener(event -> doUpdateRowFilter.run());
-        matchCheckbox.addActionListener(event -> doUpdateRowFilter.run());
-        URLCheckbox.addActionListener(event -> doUpdateRowFilter.run());
+        regexCheckbox.addActionListener(event -> doUpdateRowFilter.accept(0));
+        matchCheckbox.addActionListener(event -> doUpdateRowFilter.accept(0));
+        URLCheckbox.addActionListener(event -> doUpdateRowFilter.accept(0));
         searchField.getDocument().addDocumentListener(new DocumentListener() {
             @Override
             public void insertUpdate(DocumentEvent documentEvent) {
-                doUpdateRowFilter.run();
+                doUpdateRowFilter.accept(LogsFilterEngine.TYPING_DEBOUNCE_MS);
             }
 
             @Override
             public void removeUpdate(DocumentEvent documentEvent) {
-                doUpdateRowFilter.run();
+                doUpdateRowFilter.accept(LogsFilterEngine.TYPING_DEBOUNCE_MS);
             }
 
             @Override
             public void changedUpdate(DocumentEvent documentEvent) {
-                doUpdateRowFilter.run();
+                doUpdateRowFilter.accept(LogsFilterEngine.TYPING_DEBOUNCE_MS);
             }
         });
-        UniqueCheckbox.addActionListener(event -> doUpdateRowFilter.run());
+        UniqueCheckbox.addActionListener(event -> doUpdateRowFilter.accept(0));
+
+        JCheckBox groupedCheckbox = new JCheckBox(getLocaleString("logger-groupedResults-label"));
+        groupedCheckbox.setSelected(false);
+        gbc = createGridConstraints(11, 0, 0, 0, GridBagConstraints.HORIZONTAL);
+        gbc.insets = new Insets(0, 10, 0, 0);
+        resultsFilterBar.add(groupedCheckbox, gbc);
+        groupedCheckbox.addActionListener(event -> showGroupedResults(logEntriesPane, groupedCheckbox.isSelected()));
 
         return resultsFilterBar;
     }
 
+    /**
+     * Switch between the table of the findings and the tree of the groups of findings.
+     * While the tree is shown, it's refreshed periodically if findings changed.
+     */
+    private void showGroupedResults(JScrollPane logEntriesPane, boolean grouped) {
+        if (Objects.isNull(groupsTree)) {
+            groupsTreeModel = new FindingsGroupsTreeModel(getLocaleString("logger-groupedResults-label"));
+            groupsTree = new JTree(groupsTreeModel);
+            groupsTree.setCellRenderer(new DefaultTreeCellRenderer() {
+                @Override
+                public Component getTreeCellRendererComponent(JTree tree, Object value, boolean selected, boolean expanded,
+                                                              boolean leaf, int row, boolean hasFocus) {
+                    return super.getTreeCellRendererComponent(tree, FindingsGroupsTreeModel.labelOf(value), selected, expanded, leaf, row, hasFocus);
+                }
+            });
+            groupsRefreshTimer = new Timer(1000, e -> {
+                if (groupsChanged.getAndSet(false)) groupsTreeModel.setGroups(logEntriesManager.getGroups());
+            });
+            logEntriesManager.subscribeChangeListener(entriesCount -> groupsChanged.set(true));
+        }
+        if (grouped) {
+            groupsChanged.set(false);
+            groupsTreeModel.setGroups(logEntriesManager.getGroups());
+            logEntriesPane.setViewportView(groupsTree);
+            groupsRefreshTimer.start();
+        } else {
+            groupsRefreshTimer.stop();
+            logEntriesPane.setViewportView(logsTable);
+        }
+    }
+
     /**
      * Create tool source filter panel with checkboxes
      */
@@ -420,7 +574,7 @@ public class LoggerTab implements ApplicationTab {
         // Left side panel - Scan History, Limit, Enable Real-time
         leftSidePanel = new JPanel();
         leftSidePanel.setLayout(new GridBagLayout());
-        leftSidePanel.setPreferredSize(new Dimension(450, 40));
+        leftSidePanel.setPreferredSize(new Dimension(560, 40));
         gbc = createGridConstraints(0, 0, 0.0, 0.0, GridBagConstraints.VERTICAL);
         gbc.anchor = GridBagConstraints.WEST;
         analysisBar.add(leftSidePanel, gbc);
@@ -450,10 +604,19 @@ public class LoggerTab implements ApplicationTab {
             mainUI.getScannerOptions().saveToPersistentStorage();
         });
         gbc = createGridConstraints(2, 0, 0.0, 0.0, GridBagConstraints.NONE);
-        gbc.insets = new Insets(0, 0, 0, 15);
+        gbc.insets = new Insets(0, 0, 0, 10);
         gbc.anchor = GridBagConstraints.CENTER;
         leftSidePanel.add(limitSpinner, gbc);
 
+        // by default only the items added since the last scan are analyzed
+        fullRescanCheckbox = new JCheckBox(getLocaleString("logger-fullRescan-label"));
+        fullRescanCheckbox.setToolTipText(getLocaleString("logger-fullRescan-tooltip"));
+        fullRescanCheckbox.putClientProperty("analysisDependent", "1");
+        gbc = createGridConstraints(3, 0, 0.0, 0.0, GridBagConstraints.NONE);
+        gbc.insets = new Insets(0, 0, 0, 15);
+        gbc.anchor = GridBagConstraints.CENTER;
+        leftSidePanel.add(fullRescanCheckbox, gbc);
+
         // Real-time analysis toggle button (Burp Intercept style)
         JToggleButton realtimeToggle = new JToggleButton("Real-time Analysis");
         realtimeToggle.setPreferredSize(new Dimension(150, 28));
@@ -479,11 +642,18 @@ public class LoggerTab implements ApplicationTab {
             realtimeToggle.setForeground(enabled ? Color.WHITE : null);
             realtimeToggle.setEnabled(true);
         });
-        gbc = createGridConstraints(3, 0, 0.0, 0.0, GridBagConstraints.NONE);
+        gbc = createGridConstraints(4, 0, 0.0, 0.0, GridBagConstraints.NONE);
         gbc.insets = new Insets(0, 0, 0, 10);
         gbc.anchor = GridBagConstraints.CENTER;
         leftSidePanel.add(realtimeToggle, gbc);
 
+        // Real-time queue counters, refreshed while the analysis is enabled
+        JLabel realtimeStatsLabel = createRealtimeStatsLabel();
+        gbc = createGridConstraints(5, 0, 0.0, 0.0, GridBagConstraints.NONE);
+        gbc.insets = new Insets(0, 0, 0, 10);
+        gbc.anchor = GridBagConstraints.CENTER;
+        leftSidePanel.add(realtimeStatsLabel, gbc);
+
         // Progress bar (center)
         JProgressBar progressBar = new JProgressBar(0, 1);
         progressBar.setStringPainted(true);
@@ -518,47 +688,79 @@ public class LoggerTab implements ApplicationTab {
     }
 
     /**
-     * Filter rows of LogsTable that contains text string
+     * Create the label showing the counters of the real-time analysis scheduler.
+     * The label is refreshed every second, and it's hidden when the real-time analysis is disabled.
+     */
+    private JLabel createRealtimeStatsLabel() {
+        JLabel statsLabel = new JLabel();
+        statsLabel.setFont(statsLabel.getFont().deriveFont(11f));
+        statsLabel.setVisible(false);
+
+        realtimeStatsTimer = new Timer(1000, e -> {
+            RealtimeAnalysisScheduler scheduler = mainUI.getRealtimeScheduler();
+            statsLabel.setVisible(Objects.nonNull(scheduler));
+            if (Objects.isNull(scheduler)) return;
+
+            RealtimeAnalysisScheduler.Stats stats = scheduler.getStats();
+            NearDuplicateDetector.Stats nearDuplicates = regexScanner.getNearDuplicateStats();
+            statsLabel.setText("Queue: %d | Dropped: %d | Avg: %.1f ms%s".formatted(
+                    stats.queueDepth(), stats.rejected(), stats.avgLatencyMillis(),
+                    Objects.isNull(nearDuplicates) ? "" : " | Near-dup: %d (%.0f%% skipped)".formatted(
+                            nearDuplicates.nearDuplicates(), nearDuplicates.skippedPercent())));
+            statsLabel.setToolTipText("<html>Workers busy: %d%s<br>Submitted: %d<br>Completed: %d<br>Dropped: %d<br>Failed: %d<br>Max latency: %.1f ms%s</html>".formatted(
+                    stats.activeWorkers(),
+                    scheduler.isUsingVirtualThreads() ? " (virtual threads)" : "",
+                    stats.submitted(),
+                    stats.completed(),
+                    stats.rejected(),
+                    stats.failed(),
+                    stats.maxLatencyMillis(),
+                    Objects.isNull(nearDuplicates) ? "" : "<br>Near-duplicate responses: %d of %d<br>Body characters skipped: %d of %d".formatted(
+                            nearDuplicates.nearDuplicates(), nearDuplicates.checked(),
+                            nearDuplicates.skippedChars(), nearDuplicates.analyzedChars() + nearDuplicates.skippedChars())));
+        });
+        realtimeStatsTimer.start();
+
+        return statsLabel;
+    }
+
+    /**
+     * Stop the background activities of the tab, when the extension is unloaded
+     */
+    public void shutdown() {
+        if (Objects.nonNull(realtimeStatsTimer)) realtimeStatsTimer.stop();
+        if (Objects.nonNull(groupsRefreshTimer)) groupsRefreshTimer.stop();
+        if (Objects.nonNull(retentionTimer)) retentionTimer.stop();
+        regexScanner.shutdown();
+        logEntriesPublisher.stop();
+        closeJournal();
+        // an interrupted restore keeps the findings saved by the previous session
+        if (Objects.nonNull(restoreFindingsThread)) restoreFindingsThread.interrupt();
+        findingsPersistence.save(logEntriesManager);
+        logsFilterEngine.shutdown();
+        logsTable.shutdown();
+        logEntriesManager.close();
+    }
+
+    /**
+     * Filter rows of LogsTable that contains text string.
+     * The visible rows are computed in background, see {@link LogsFilterEngine}.
      *
      * @param text          text to search
      * @param includeRegex  if true, also search in Regex column
      * @param includeMatch  if true, also search in Match column
      * @param includeURL    if true, also search in URL column
      * @param uniqueResults if true, remove duplicate results
+     * @param debounceMs    time to wait for further changes before filtering
      */
-    private void updateRowFilter(String text, boolean includeRegex, boolean includeMatch, boolean includeURL, boolean uniqueResults) {
-        SwingUtilities.invokeLater(() -> {
-            // hashmap to keep track of unique rows in the table
-            final HashSet<Integer> uniqueResultsMap = new HashSet<>();
-
-            logsTableRowSorter.setRowFilter(new RowFilter<>() {
-                @Override
-                public boolean include(Entry<? extends LogsTableModel, ? extends Integer> entry) {
-                    // Filter by importance level first
-                    LogEntity logEntity = logEntriesManager.get(entry.getIdentifier());
-                    if (logEntity != null && logEntity.getRegexEntity() != null) {
-                        int importance = logEntity.getRegexEntity().getImportance();
-                        if (!mainUI.getScannerOptions().getSelectedImportanceLevels().contains(importance)) {
-                            return false;
-                        }
-                    }
-
-                    if (uniqueResults) {
-                        int hashcode = entry.getModel().getRowHashcode(entry.getIdentifier());
-                        if (uniqueResultsMap.contains(hashcode)) return false;
-                        uniqueResultsMap.add(hashcode);
-                    }
-                    if (text.isBlank()) {
-                        return true;
-                    }
-                    List<LogsTableModel.Column> places = new ArrayList<>();
-                    if (includeRegex) places.add(LogsTableModel.Column.REGEX);
-                    if (includeMatch) places.add(LogsTableModel.Column.MATCH);
-                    if (includeURL) places.add(LogsTableModel.Column.URL);
-                    return places.stream().anyMatch(column -> entry.getStringValue(column.getIndex()).toLowerCase().contains(text.toLowerCase()));
-                }
-            });
-        });
+    private void updateRowFilter(String text, boolean includeRegex, boolean includeMatch, boolean includeURL, boolean uniqueResults, int debounceMs) {
+        logsFilterEngine.submit(new LogsFilterEngine.Query(
+                text,
+                includeRegex,
+                includeMatch,
+                includeURL,
+                uniqueResults,
+                mainUI.getScannerOptions().getSelectedImportanceLevels()), debounceMs);
     }
 
     /**
@@ -571,7 +773,8 @@ public class LoggerTab implements ApplicationTab {
                 regexCheckbox.isSelected(),
                 matchCheckbox.isSelected(),
                 URLCheckbox.isSelected(),
-                UniqueCheckbox.isSelected()
+                UniqueCheckbox.isSelected(),
+                0
             );
         }
     }
@@ -619,6 +822,77 @@ public class LoggerTab implements ApplicationTab {
         }).start();
     }
 
+    /**
+     * Roll up the findings beyond the retention limits of the options, after new findings are stored and every
+     * {@link LoggerUtils#RETENTION_CHECK_INTERVAL_MS}, so that findings expire even when no new ones are found and a
+     * plan invalidated by other removals is retried.
+     * The findings to remove are selected in the calling thread, and removed from the table in the EDT.
+     * The check is cheap, findings are rolled up in batches only when a limit is exceeded by a tenth.
+     */
+    private void applyRetention() {
+        logEntriesManager.setRetentionPolicy(mainUI.getScannerOptions().getRetentionPolicy());
+        if (!retentionScheduled.compareAndSet(false, true)) return;
+        LogEntriesManager.Eviction eviction;
+        try {
+            eviction = logEntriesManager.planRetention();
+        } catch (RuntimeException e) {
+            retentionScheduled.set(false);
+            throw e;
+        }
+        if (Objects.isNull(eviction)) {
+            retentionScheduled.set(false);
+            return;
+        }
+
+        SwingUtilities.invokeLater(() -> {
+            retentionScheduled.set(false);
+            // the rows to remove must be in the table
+            logEntriesPublisher.flush();
+            if (logEntriesManager.evict(eviction) == 0) return;
+            logsTable.clearLoadedEvidence();
+            logsTableModel.fireTableRowsDeleted(eviction.rows());
+        });
+    }
+
+    /**
+     * Remove the findings of the rules deleted or edited since they were found, as identified by their
+     * {@link RuleCoverage#ruleVersion(RegexEntity) version}.
+     * Scans only run the new or edited rules on the items already analyzed, so these findings would never be replaced.
+     * The findings are selected in the calling thread and removed from the table in the EDT, as for the retention.
+     * The selection is repeated if other findings were removed in the meantime.
+     */
+    private void dropFindingsOfRemovedRules() {
+        RegexScannerOptions scannerOptions = mainUI.getScannerOptions();
+        Set<Long> versions = Stream.concat(scannerOptions.getGeneralRegexList().stream(), scannerOptions.getExtensionsRegexList().stream())
+                .map(RuleCoverage::ruleVersion)
+                .collect(Collectors.toSet());
+        Map<RegexEntity, Boolean> removedRules = new IdentityHashMap<>();
+        Predicate<RegexEntity> isRemoved = rule -> removedRules.computeIfAbsent(rule, key -> !versions.contains(RuleCoverage.ruleVersion(key)));
+        if (logEntriesManager.getStatistics().byRule().keySet().stream().noneMatch(isRemoved)) return;
+
+        AtomicBoolean removed = new AtomicBoolean(false);
+        while (!removed.get()) {
+            LogEntriesManager.Eviction removal = logEntriesManager.planRemovalIfRule(isRemoved);
+            if (Objects.isNull(removal)) return;
+            try {
+                SwingUtilities.invokeAndWait(() -> {
+                    // the rows to remove must be in the table
+                    logEntriesPublisher.flush();
+                    if (logEntriesManager.remove(removal) == 0) return;
+                    removed.set(true);
+                    logsTable.clearLoadedEvidence();
+                    logsTableModel.fireTableRowsDeleted(removal.rows());
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (InvocationTargetException e) {
+                System.err.println("Error removing the findings of removed rules: " + e.getCause());
+                return;
+            }
+        }
+    }
+
     private void startAnalysisAction(JButton analysisButton) {
         this.preAnalysisOperations();
         isAnalysisRunning = true;
@@ -632,11 +906,13 @@ public class LoggerTab implements ApplicationTab {
 
             private void setupScan() {
                 SwingUtilities.invokeLater(() -> analysisButton.setText(getLocaleString("logger-analysis-stop")));
+                dropFindingsOfRemovedRules();
             }
 
             private void startScan() {
-                Consumer<LogEntity> addLogEntryCallback = LoggerUtils.createAddLogEntryCallback(logEntriesManager, loggerLock, logsTableModel);
-                regexScanner.analyzeProxyHistory(addLogEntryCallback);
+                regexScanner.analyzeProxyHistory(logEntriesPublisher, fullRescanCheckbox.isSelected());
+                logEntriesPublisher.flushAndWait();
+                findingsPersistence.save(logEntriesManager);
             }
 
             private void finalizeScan() {
@@ -656,12 +932,21 @@ public class LoggerTab implements ApplicationTab {
 
     private JScrollPane createLogEntriesTable() {
         logsTableModel = new LogsTableModel(logEntriesManager);
+        logEntriesPublisher = new LogEntriesPublisher(logEntriesManager, loggerLock, logsTableModel, LoggerUtils.TABLE_FLUSH_INTERVAL_MS);
+        logEntriesPublisher.addStoredListener(this::appendToJournal);
+        logEntriesPublisher.addStoredListener(added -> applyRetention());
+        // the timer runs in the EDT, the findings to remove are selected in another thread
+        retentionTimer = new Timer(LoggerUtils.RETENTION_CHECK_INTERVAL_MS, e -> {
+            if (!retentionScheduled.get()) new Thread(this::applyRetention, "Findings-Retention").start();
+        });
+        retentionTimer.start();
         this.originalRequestViewer = this.mainUI.getBurpApi().userInterface().createHttpRequestEditor();
         this.originalResponseViewer = this.mainUI.getBurpApi().userInterface().createHttpResponseEditor();
         this.logsTable = new LogsTable(logsTableModel, logEntriesManager, this.originalRequestViewer, this.originalResponseViewer);
         logsTable.setAutoCreateRowSorter(false);
-        logsTableRowSorter = new TableRowSorter<>(logsTableModel);
+        logsTableRowSorter = new LogsTableRowSorter(logsTableModel, logEntriesManager);
         logsTable.setRowSorter(logsTableRowSorter);
+        logsFilterEngine = new LogsFilterEngine(logEntriesManager, logsTableRowSorter::setRowFilter);
 
         // when you right-click on a logTable entry, it will appear a context menu defined here
         MouseAdapter contextMenu = new MouseAdapter() {
@@ -680,7 +965,7 @@ public class LoggerTab implements ApplicationTab {
                     if (logEntry == null) return;
 
                     if (e.getComponent() instanceof LogsTable) {
-                        new LogsTableContextMenu(logEntry, logEntriesManager, originalRequestViewer, originalResponseViewer, logsTableModel, logsTable, mainUI.getBurpApi(), isAnalysisRunning)
+                        new LogsTableContextMenu(logEntry, logEntriesManager, originalRequestViewer, originalResponseViewer, logsTableModel, logsTable, mainUI.getBurpApi(), mainUI.getScannerOptions(), isAnalysisRunning)
                                 .show(e.getComponent(), e.getX(), e.getY());
                     }
                 }
@@ -720,8 +1005,8 @@ public class LoggerTab implements ApplicationTab {
                 final int rowIndex = i;
                 String line = columns.stream()
                         .map(LogsTableModel.Column::getIndex)
-                        .map(columnIdx -> logsTableModel.getValueAt(logsTable.convertRowIndexToModel(rowIndex), columnIdx))
-                        .map(cellValue -> cellValue.toString().replaceAll("\"", "\"\""))
+                        .map(columnIdx -> logsTableModel.getDisplayValueAt(logsTable.convertRowIndexToModel(rowIndex), columnIdx))
+                        .map(cellValue -> cellValue.replaceAll("\"", "\"\""))
                         .map(s -> '"' + s + '"')
                         .collect(Collectors.joining(","));
                 lines.add(line);
@@ -742,7 +1027,7 @@ public class LoggerTab implements ApplicationTab {
             for (int i = 0; i < logsTable.getRowCount(); i++) {
                 JsonObject json = new JsonObject();
                 for (LogsTableModel.Column column : fields) {
-                    json.addProperty(column.getNameFormatted(), logsTableModel.getValueAt(logsTable.convertRowIndexToModel(i), column.getIndex()).toString());
+                    json.addProperty(column.getNameFormatted(), logsTableModel.getDisplayValueAt(logsTable.convertRowIndexToModel(i), column.getIndex()));
                 }
                 lines.add(json);
             }
@@ -753,6 +1038,54 @@ public class LoggerTab implements ApplicationTab {
         });
         menu.add(itemToJSON);
 
+        JMenuItem itemRollupToCSV = new JMenuItem(getLocaleString("logger-exportRollup-label"));
+        itemRollupToCSV.setToolTipText(getLocaleString("logger-exportRollup-tooltip"));
+        itemRollupToCSV.addActionListener(actionEvent -> {
+            String csvFile = SwingUtils.selectFile(List.of("CSV"), false);
+            if (csvFile.isBlank()) return;
+
+            List<String> lines = new ArrayList<>();
+            lines.add("\"Regex\",\"Host\",\"Match hash\",\"First seen\",\"Last seen\",\"Count\"");
+            for (FindingsRollup.Row row : logEntriesManager.getRollup().getRows()) {
+                lines.add(Stream.of(row.rule().getDescription(), row.host(), row.matchHash(),
+                                Instant.ofEpochMilli(row.firstSeen()).toString(), Instant.ofEpochMilli(row.lastSeen()).toString(),
+                                String.valueOf(row.count()))
+                        .map(value -> '"' + value.replaceAll("\"", "\"\"") + '"')
+                        .collect(Collectors.joining(",")));
+            }
+            FileUtils.writeLinesToFile(csvFile, lines);
+        });
+        menu.add(itemRollupToCSV);
+
+        JMenuItem itemStatisticsToCSV = new JMenuItem(getLocaleString("logger-exportStatistics-label"));
+        itemStatisticsToCSV.setToolTipText(getLocaleString("logger-exportStatistics-tooltip"));
+        itemStatisticsToCSV.addActionListener(actionEvent -> {
+            String csvFile = SwingUtils.selectFile(List.of("CSV"), false);
+            if (csvFile.isBlank()) return;
+
+            FindingsStatistics.Snapshot statistics = logEntriesManager.getStatistics();
+            String[] levels = ImportanceUtils.getAllLabels();
+            List<String[]> rows = new ArrayList<>();
+            rows.add(new String[]{"Total", "", String.valueOf(statistics.total())});
+            for (int i = 0; i < levels.length; i++) {
+                rows.add(new String[]{"Importance", levels[i], String.valueOf(statistics.countByImportance(i))});
+            }
+            for (HttpSection section : HttpSection.values()) {
+                rows.add(new String[]{"Section", section.toString(), String.valueOf(statistics.countBySection(section))});
+            }
+            statistics.byRule().forEach((rule, count) -> rows.add(new String[]{"Regex", rule.getDescription(), String.valueOf(count)}));
+
+            List<String> lines = new ArrayList<>();
+            lines.add("\"Group\",\"Name\",\"Count\"");
+            for (String[] row : rows) {
+                lines.add(Arrays.stream(row)
+                        .map(value -> '"' + value.replaceAll("\"", "\"\"") + '"')
+                        .collect(Collectors.joining(",")));
+            }
+            FileUtils.writeLinesToFile(csvFile, lines);
+        });
+        menu.add(itemStatisticsToCSV);
+
         PopupMenuButton btnExportLogs = new PopupMenuButton(getLocaleString("logger-exportLogs-label"), menu);
         btnExportLogs.setToolTipText("Export logged findings to CSV or JSON format");
         btnExportLogs.putClientProperty("analysisDependent", "1");
@@ -772,6 +1105,11 @@ public class LoggerTab implements ApplicationTab {
             if (dialog == JOptionPane.YES_OPTION) {
                 if (logEntriesManager != null) {
                     logEntriesManager.clear();
+                    // the next scan must analyze again the items of the cleared findings
+                    ScanWatermark.clear(mainUI.getBurpApi().persistence().extensionData());
+                }
+                if (logsTable != null) {
+                    logsTable.clearLoadedEvidence();
                 }
                 if (logsTableModel != null) {
                     logsTableModel.fireTableDataChanged();
@@ -871,20 +1209,15 @@ public class LoggerTab implements ApplicationTab {
             panel.add(levelPanel);
         }
 
-        // Update counts when entries change
+        // Update counts when entries change, reading the counters maintained by the manager
         logEntriesManager.subscribeChangeListener(entriesCount -> SwingUtilities.invokeLater(() -> {
-            int[] counts = new int[6];
-            for (int i = 0; i < logEntriesManager.size(); i++) {
-                LogEntity entity = logEntriesManager.get(i);
-                if (entity == null || entity.getRegexEntity() == null) continue;
-                int importance = entity.getRegexEntity().getImportance();
-                if (importance >= 0 && importance <= 5) {
-                    counts[importance]++;
-                }
-            }
+            FindingsStatistics.Snapshot statistics = logEntriesManager.getStatistics();
             for (int i = 0; i < 6; i++) {
-                countLabels[i].setText(levels[i] + ": " + counts[i]);
+                countLabels[i].setText(levels[i] + ": " + statistics.countByImportance(i));
             }
+            panel.setToolTipText(Arrays.stream(HttpSection.values())
+                    .map(section -> section.toString() + ": " + statistics.countBySection(section))
+                    .collect(Collectors.joining(" | ", "Rules with findings: " + statistics.byRule().size() + " | ", "")));
         }));
 
         return panel;
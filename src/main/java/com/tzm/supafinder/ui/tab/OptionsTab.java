@@ -6,15 +6,20 @@ import com.tzm.supafinder.event.OptionsScannerUpdateListener;
 import com.tzm.supafinder.event.OptionsScannerUpdateMaxSizeListener;
 import com.tzm.supafinder.event.OptionsScannerUpdateNumThreadsListener;
 import com.tzm.supafinder.model.RegexScannerOptions;
+import com.tzm.supafinder.scanner.AssetAllowlist;
+import com.tzm.supafinder.scanner.RealtimeAnalysisScheduler;
 import com.tzm.supafinder.ui.RegexListPanel;
+import com.tzm.supafinder.utils.FileUtils;
 import com.tzm.supafinder.utils.ImportanceColorScheme;
 import com.tzm.supafinder.utils.ImportanceUtils;
+import com.tzm.supafinder.utils.SwingUtils;
 import com.tzm.supafinder.utils.UIConstants;
 
 import javax.swing.BorderFactory;
 import javax.swing.ButtonGroup;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JDialog;
 import javax.swing.JFileChooser;
 import javax.swing.JLabel;
@@ -23,13 +28,16 @@ import javax.swing.JPanel;
 import javax.swing.JProgressBar;
 import javax.swing.JRadioButton;
 import javax.swing.JSeparator;
+import javax.swing.JSpinner;
 import javax.swing.JTextField;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.SwingWorker;
 import javax.swing.border.TitledBorder;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.FlowLayout;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
@@ -248,6 +256,11 @@ public class OptionsTab implements ApplicationTab {
 
         createOptionThreadsNumber(panel, threadNumListener);
         createOptionMaxResponseSize(panel, responseSizeListener);
+        createOptionRealtimeScheduler(panel);
+        createOptionMatchCache(panel);
+        createOptionAssetAllowlist(panel);
+        createOptionFindingsJournal(panel);
+        createOptionRetention(panel);
 
         return panel;
     }
@@ -955,6 +968,320 @@ public class OptionsTab implements ApplicationTab {
         resetOptionsListeners.add(updateLabelText);
     }
 
+    /**
+     * Create the options of the real-time analysis scheduler.
+     * Changes are applied the next time the real-time analysis is enabled.
+     */
+    private void createOptionRealtimeScheduler(JPanel containerPanel) {
+        GridBagConstraints gbc;
+        Runnable setValueFromOptions;
+
+        final JPanel realtimePanel = new JPanel();
+        realtimePanel.setLayout(new GridBagLayout());
+        realtimePanel.setToolTipText("Applied the next time Real-time Analysis is enabled");
+        gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 4;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.fill = GridBagConstraints.VERTICAL;
+        gbc.insets = new Insets(12, 2, 0, 2);
+        containerPanel.add(realtimePanel, gbc);
+
+        final JLabel workersLabel = new JLabel("Real-time workers:");
+        gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(0, 0, 2, 5);
+        realtimePanel.add(workersLabel, gbc);
+
+        final JSpinner workersSpinner = new JSpinner(new SpinnerNumberModel(1, 1, 64, 1));
+        setValueFromOptions = () -> workersSpinner.setValue(Math.max(1, scannerOptions.getConfigRealtimeWorkers()));
+        setValueFromOptions.run();
+        workersSpinner.addChangeListener(e -> scannerOptions.setConfigRealtimeWorkers((Integer) workersSpinner.getValue()));
+        resetOptionsListeners.add(setValueFromOptions);
+        gbc = new GridBagConstraints();
+        gbc.gridx = 1;
+        gbc.gridy = 0;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(0, 0, 2, 0);
+        realtimePanel.add(workersSpinner, gbc);
+
+        final JLabel queueLabel = new JLabel("Real-time queue size:");
+        gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 1;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(0, 0, 2, 5);
+        realtimePanel.add(queueLabel, gbc);
+
+        final JSpinner queueSpinner = new JSpinner(new SpinnerNumberModel(1000, 1, 100000, 100));
+        setValueFromOptions = () -> queueSpinner.setValue(Math.max(1, scannerOptions.getConfigRealtimeQueueCapacity()));
+        setValueFromOptions.run();
+        queueSpinner.addChangeListener(e -> scannerOptions.setConfigRealtimeQueueCapacity((Integer) queueSpinner.getValue()));
+        resetOptionsListeners.add(setValueFromOptions);
+        gbc = new GridBagConstraints();
+        gbc.gridx = 1;
+        gbc.gridy = 1;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(0, 0, 2, 0);
+        realtimePanel.add(queueSpinner, gbc);
+
+        final JLabel overflowLabel = new JLabel("When the queue is full:");
+        gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 2;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(0, 0, 2, 5);
+        realtimePanel.add(overflowLabel, gbc);
+
+        final JComboBox<RealtimeAnalysisScheduler.OverflowPolicy> overflowComboBox = new JComboBox<>(RealtimeAnalysisScheduler.OverflowPolicy.values());
+        overflowComboBox.setToolTipText("<html>DROP_NEWEST: skip the new message<br>DROP_OLDEST: skip the oldest queued message<br>CALLER_RUNS: analyze in Burp's thread, slowing down the traffic</html>");
+        setValueFromOptions = () -> overflowComboBox.setSelectedItem(RealtimeAnalysisScheduler.OverflowPolicy.fromString(scannerOptions.getConfigRealtimeOverflowPolicy()));
+        setValueFromOptions.run();
+        overflowComboBox.addActionListener(e -> scannerOptions.setConfigRealtimeOverflowPolicy(String.valueOf(overflowComboBox.getSelectedItem())));
+        resetOptionsListeners.add(setValueFromOptions);
+        gbc = new GridBagConstraints();
+        gbc.gridx = 1;
+        gbc.gridy = 2;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(0, 0, 2, 0);
+        realtimePanel.add(overflowComboBox, gbc);
+
+        final JCheckBox virtualThreadsCheckbox = new JCheckBox("Use virtual threads");
+        boolean virtualThreadsSupported = RealtimeAnalysisScheduler.isVirtualThreadsSupported();
+        virtualThreadsCheckbox.setEnabled(virtualThreadsSupported);
+        if (!virtualThreadsSupported) virtualThreadsCheckbox.setToolTipText("Requires Java 21 or newer");
+        setValueFromOptions = () -> virtualThreadsCheckbox.getModel().setSelected(scannerOptions.isConfigRealtimeVirtualThreads());
+        setValueFromOptions.run();
+        virtualThreadsCheckbox.addActionListener(e -> scannerOptions.setConfigRealtimeVirtualThreads(virtualThreadsCheckbox.getModel().isSelected()));
+        resetOptionsListeners.add(setValueFromOptions);
+        gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 3;
+        gbc.gridwidth = 2;
+        gbc.anchor = GridBagConstraints.WEST;
+        realtimePanel.add(virtualThreadsCheckbox, gbc);
+
+        final JLabel nearDuplicateLabel = new JLabel("Near-duplicate distance (bits):");
+        nearDuplicateLabel.setToolTipText("<html>Responses whose SimHash differs from a response of the same endpoint by at most these bits<br>are analyzed only where they differ from it. -1 analyzes every response entirely.</html>");
+        gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 4;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(2, 0, 0, 5);
+        realtimePanel.add(nearDuplicateLabel, gbc);
+
+        final JSpinner nearDuplicateSpinner = new JSpinner(new SpinnerNumberModel(3, -1, 16, 1));
+        setValueFromOptions = () -> nearDuplicateSpinner.setValue(Math.max(-1, Math.min(16, scannerOptions.getConfigRealtimeNearDuplicateDistance())));
+        setValueFromOptions.run();
+        nearDuplicateSpinner.addChangeListener(e -> scannerOptions.setConfigRealtimeNearDuplicateDistance((Integer) nearDuplicateSpinner.getValue()));
+        resetOptionsListeners.add(setValueFromOptions);
+        gbc = new GridBagConstraints();
+        gbc.gridx = 1;
+        gbc.gridy = 4;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(2, 0, 0, 0);
+        realtimePanel.add(nearDuplicateSpinner, gbc);
+
+        final JLabel nearDuplicateToolsLabel = new JLabel("Near-duplicate tools:");
+        nearDuplicateToolsLabel.setToolTipText("<html>Comma-separated tools whose responses are checked for near-duplicates, e.g. INTRUDER,SCANNER, or ALL.<br>Responses of the other tools are analyzed entirely.</html>");
+        gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 5;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(2, 0, 0, 5);
+        realtimePanel.add(nearDuplicateToolsLabel, gbc);
+
+        final JTextField nearDuplicateToolsField = new JTextField(16);
+        setValueFromOptions = () -> nearDuplicateToolsField.setText(scannerOptions.getConfigRealtimeNearDuplicateTools());
+        setValueFromOptions.run();
+        nearDuplicateToolsField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                scannerOptions.setConfigRealtimeNearDuplicateTools(nearDuplicateToolsField.getText().trim());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                scannerOptions.setConfigRealtimeNearDuplicateTools(nearDuplicateToolsField.getText().trim());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                scannerOptions.setConfigRealtimeNearDuplicateTools(nearDuplicateToolsField.getText().trim());
+            }
+        });
+        resetOptionsListeners.add(setValueFromOptions);
+        gbc = new GridBagConstraints();
+        gbc.gridx = 1;
+        gbc.gridy = 5;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(2, 0, 0, 0);
+        realtimePanel.add(nearDuplicateToolsField, gbc);
+    }
+
+    /**
+     * Create the option to keep the cache of the matches of the bodies after a restart.
+     * The cache is saved in the project when the extension is unloaded.
+     */
+    private void createOptionMatchCache(JPanel containerPanel) {
+        GridBagConstraints gbc;
+        Runnable setValueFromOptions;
+
+        final JCheckBox persistMatchCacheCheckbox = new JCheckBox(getLocaleString("options-scanner-persistMatchCache"));
+        persistMatchCacheCheckbox.setToolTipText(getLocaleString("options-scanner-persistMatchCache-tooltip"));
+        setValueFromOptions = () -> persistMatchCacheCheckbox.getModel().setSelected(scannerOptions.isConfigMatchCachePersisted());
+        setValueFromOptions.run();
+        persistMatchCacheCheckbox.addActionListener(e -> scannerOptions.setConfigMatchCachePersisted(persistMatchCacheCheckbox.getModel().isSelected()));
+        resetOptionsListeners.add(setValueFromOptions);
+        gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 5;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(8, 2, 0, 2);
+        containerPanel.add(persistMatchCacheCheckbox, gbc);
+    }
+
+    /**
+     * Create the button to import the fingerprints of public files skipped by the scanner.
+     * Fingerprints can also be added from the Logger context menu.
+     */
+    private void createOptionAssetAllowlist(JPanel containerPanel) {
+        GridBagConstraints gbc;
+
+        final JButton importButton = new JButton(getLocaleString("options-scanner-importAssetAllowlist"));
+        importButton.setToolTipText(getLocaleString("options-scanner-importAssetAllowlist-tooltip"));
+        importButton.addActionListener(e -> {
+            JFileChooser fileChooser = new JFileChooser(lastImportDirectory);
+            fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("JSON files", "json"));
+            if (fileChooser.showOpenDialog(containerPanel) != JFileChooser.APPROVE_OPTION) return;
+            lastImportDirectory = fileChooser.getSelectedFile().getParentFile();
+
+            List<String> lines = FileUtils.readLinesFromFile(fileChooser.getSelectedFile().getAbsolutePath());
+            try {
+                AssetAllowlist assetAllowlist = scannerOptions.getAssetAllowlist();
+                int imported = assetAllowlist.addAll(AssetAllowlist.parseEntries(lines == null ? null : String.join("\n", lines)));
+                if (imported > 0) scannerOptions.saveToPersistentStorage();
+                JOptionPane.showMessageDialog(containerPanel,
+                        getLocaleString("options-scanner-importAssetAllowlist-result").formatted(imported, assetAllowlist.size()),
+                        getLocaleString("options-scanner-importAssetAllowlist"), JOptionPane.INFORMATION_MESSAGE);
+            } catch (RuntimeException ex) {
+                JOptionPane.showMessageDialog(containerPanel,
+                        getLocaleString("options-scanner-importAssetAllowlist-error").formatted(ex.getMessage()),
+                        getLocaleString("options-scanner-importAssetAllowlist"), JOptionPane.ERROR_MESSAGE);
+            }
+        });
+        gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 6;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(4, 2, 0, 2);
+        containerPanel.add(importButton, gbc);
+    }
+
+    /**
+     * Create the options of the journal where the new findings are appended, for external tools that tail it.
+     * An empty path disables the journal.
+     */
+    private void createOptionFindingsJournal(JPanel containerPanel) {
+        GridBagConstraints gbc;
+        Runnable setValueFromOptions;
+
+        final JPanel journalPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        final JLabel journalLabel = new JLabel(getLocaleString("options-scanner-findingsJournal"));
+        journalLabel.setToolTipText(getLocaleString("options-scanner-findingsJournal-tooltip"));
+        journalPanel.add(journalLabel);
+
+        final JTextField journalPathField = new JTextField(24);
+        journalPathField.setToolTipText(getLocaleString("options-scanner-findingsJournal-tooltip"));
+        setValueFromOptions = () -> journalPathField.setText(scannerOptions.getConfigJournalPath());
+        setValueFromOptions.run();
+        journalPathField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                scannerOptions.setConfigJournalPath(journalPathField.getText().trim());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                scannerOptions.setConfigJournalPath(journalPathField.getText().trim());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                scannerOptions.setConfigJournalPath(journalPathField.getText().trim());
+            }
+        });
+        resetOptionsListeners.add(setValueFromOptions);
+        journalPanel.add(journalPathField);
+
+        final JButton browseButton = new JButton(getLocaleString("common-browse"));
+        browseButton.addActionListener(e -> {
+            String journalFile = SwingUtils.selectFile(List.of("jsonl"), false);
+            if (!journalFile.isBlank()) journalPathField.setText(journalFile);
+        });
+        journalPanel.add(browseButton);
+
+        journalPanel.add(new JLabel(getLocaleString("options-scanner-findingsJournal-rotate")));
+        final JSpinner rotateSpinner = new JSpinner(new SpinnerNumberModel(64, 1, 4096, 16));
+        setValueFromOptions = () -> rotateSpinner.setValue(Math.max(1, Math.min(4096, scannerOptions.getConfigJournalMaxFileSize())));
+        setValueFromOptions.run();
+        rotateSpinner.addChangeListener(e -> scannerOptions.setConfigJournalMaxFileSize((Integer) rotateSpinner.getValue()));
+        resetOptionsListeners.add(setValueFromOptions);
+        journalPanel.add(rotateSpinner);
+
+        gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 7;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(4, 0, 0, 2);
+        containerPanel.add(journalPanel, gbc);
+    }
+
+    /**
+     * Create the limits of the findings kept in the Logger, for long real-time sessions.
+     * Findings beyond the limits are rolled up, see {@link com.tzm.supafinder.model.FindingsRollup}.
+     */
+    private void createOptionRetention(JPanel containerPanel) {
+        GridBagConstraints gbc;
+        Runnable setValueFromOptions;
+
+        final JPanel retentionPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        retentionPanel.setToolTipText(getLocaleString("options-scanner-retention-tooltip"));
+        retentionPanel.add(new JLabel(getLocaleString("options-scanner-retention")));
+
+        final JSpinner maxFindingsSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 10_000_000, 10_000));
+        setValueFromOptions = () -> maxFindingsSpinner.setValue(scannerOptions.getConfigRetentionMaxFindings());
+        setValueFromOptions.run();
+        maxFindingsSpinner.addChangeListener(e -> scannerOptions.setConfigRetentionMaxFindings((Integer) maxFindingsSpinner.getValue()));
+        resetOptionsListeners.add(setValueFromOptions);
+        retentionPanel.add(maxFindingsSpinner);
+
+        retentionPanel.add(new JLabel(getLocaleString("options-scanner-retention-perRule")));
+        final JSpinner perRuleSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 10_000_000, 1_000));
+        setValueFromOptions = () -> perRuleSpinner.setValue(scannerOptions.getConfigRetentionMaxFindingsPerRule());
+        setValueFromOptions.run();
+        perRuleSpinner.addChangeListener(e -> scannerOptions.setConfigRetentionMaxFindingsPerRule((Integer) perRuleSpinner.getValue()));
+        resetOptionsListeners.add(setValueFromOptions);
+        retentionPanel.add(perRuleSpinner);
+
+        retentionPanel.add(new JLabel(getLocaleString("options-scanner-retention-ttl")));
+        final JSpinner ttlSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 24 * 365, 24));
+        setValueFromOptions = () -> ttlSpinner.setValue(scannerOptions.getConfigRetentionTtlHours());
+        setValueFromOptions.run();
+        ttlSpinner.addChangeListener(e -> scannerOptions.setConfigRetentionTtlHours((Integer) ttlSpinner.getValue()));
+        resetOptionsListeners.add(setValueFromOptions);
+        retentionPanel.add(ttlSpinner);
+
+        gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 8;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.insets = new Insets(4, 0, 0, 2);
+        containerPanel.add(retentionPanel, gbc);
+    }
+
     /**
      * Create statistics panel showing breakdown by importance
      */
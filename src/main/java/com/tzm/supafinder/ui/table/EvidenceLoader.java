@@ -0,0 +1,123 @@
+package com.tzm.supafinder.ui.table;
+
+import com.tzm.supafinder.model.Evidence;
+
+import javax.swing.SwingUtilities;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Loads the messages of the selected findings in a background thread, so that moving through the table
+ * doesn't wait for the messages stored on disk.
+ * <br><br>
+ * Only the last requested message is delivered: when the selection changes before the message is loaded,
+ * the load is cancelled. After the selected message, the messages of the neighbouring rows are loaded too,
+ * and the last loaded messages are kept in a small cache, so that moving to the next row is immediate.
+ */
+public class EvidenceLoader {
+    static final int CACHED_MESSAGES = 16;
+
+    private final ExecutorService executor;
+    private final Executor callbackExecutor;
+    private final Map<Evidence, Evidence> cache;
+    private final AtomicLong generation;
+    private Future<?> pending;
+
+    public EvidenceLoader() {
+        this(SwingUtilities::invokeLater);
+    }
+
+    /**
+     * @param callbackExecutor executor of the callbacks receiving the loaded messages
+     */
+    EvidenceLoader(Executor callbackExecutor) {
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Evidence-Loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.callbackExecutor = callbackExecutor;
+        this.cache = new LinkedHashMap<>(CACHED_MESSAGES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Evidence, Evidence> eldest) {
+                return size() > CACHED_MESSAGES;
+            }
+        };
+        this.generation = new AtomicLong();
+    }
+
+    /**
+     * @return the message with request and response already loaded, or null if it must be loaded
+     */
+    public Evidence getIfLoaded(Evidence evidence) {
+        if (evidence instanceof Evidence.Pinned) return evidence;
+        synchronized (cache) {
+            return cache.get(evidence);
+        }
+    }
+
+    /**
+     * Load a message, cancelling the load of the previous one
+     *
+     * @param evidence   the message to load
+     * @param neighbours messages to load next, in order of priority
+     * @param onLoaded   called in the EDT with the loaded message, unless another load is requested before
+     * @return true if the message was already loaded and the callback was called immediately
+     */
+    public synchronized boolean load(Evidence evidence, List<Evidence> neighbours, Consumer<Evidence> onLoaded) {
+        long loadGeneration = generation.incrementAndGet();
+        if (Objects.nonNull(pending)) pending.cancel(false);
+
+        Evidence loaded = getIfLoaded(evidence);
+        if (Objects.nonNull(loaded)) onLoaded.accept(loaded);
+        pending = executor.submit(() -> {
+            try {
+                if (Objects.isNull(loaded)) {
+                    Evidence message = loadCached(evidence);
+                    callbackExecutor.execute(() -> {
+                        if (generation.get() == loadGeneration) onLoaded.accept(message);
+                    });
+                }
+                for (Evidence neighbour : neighbours) {
+                    if (generation.get() != loadGeneration) return;
+                    loadCached(neighbour);
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Error loading the message of the finding: " + e.getMessage());
+            }
+        });
+        return Objects.nonNull(loaded);
+    }
+
+    private Evidence loadCached(Evidence evidence) {
+        Evidence loaded = getIfLoaded(evidence);
+        if (Objects.nonNull(loaded)) return loaded;
+        loaded = Evidence.of(evidence.request(), evidence.response());
+        synchronized (cache) {
+            cache.put(evidence, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Discard the loaded messages, e.g. when the findings are cleared
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
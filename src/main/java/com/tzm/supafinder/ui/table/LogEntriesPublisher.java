@@ -0,0 +1,278 @@
+package com.tzm.supafinder.ui.table;
+
+import com.tzm.supafinder.model.LogEntity;
+import com.tzm.supafinder.model.LogEntriesManager;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Publishes the findings of the scanners to the logs table, in batches.
+ * <br><br>
+ * Scanner threads only put the findings in a lock-free ring buffer (see {@link MpscRingBuffer}), so they never wait
+ * for other scanners, for the list of findings or for the EDT. A single consumer thread takes the findings from the
+ * buffer and adds them to the list of findings, which removes the duplicates, updates the indexes and statistics,
+ * and moves old findings to disk, all off the EDT.
+ * <br><br>
+ * The table is updated in the EDT at most once every flush interval, notifying it with a single rows-inserted event
+ * for all the rows added since the previous update (see {@link LogsTableModel#publishNewRows()}).
+ * This lets the row sorter insert the new rows incrementally, instead of sorting and filtering again all the rows
+ * for every single finding.
+ * <br><br>
+ * When the buffer is full, scanners wait for the consumer to make room, which keeps the memory bounded when
+ * findings are produced faster than they can be stored.
+ * <br><br>
+ * Findings restored from the project are added by the consumer too (see {@link #addAllAndWait(List)}), between two
+ * batches of the scanners, so that the list of findings is only ever changed by one thread at a time.
+ */
+public class LogEntriesPublisher implements Consumer<LogEntity> {
+    static final int BUFFER_CAPACITY = 8192;
+    private static final int MAX_BATCH = 1024;
+    private static final long FULL_BUFFER_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final LogEntriesManager logEntries;
+    private final Object logEntriesLock;
+    private final LogsTableModel logsTableModel;
+    private final MpscRingBuffer<LogEntity> pending;
+    private final Queue<FutureTask<?>> tasks;
+    private final Thread consumer;
+    private final AtomicBoolean consumerParked;
+    private final Object consumedMonitor;
+    private final AtomicBoolean flushScheduled;
+    private final Timer flushTimer;
+    private final List<Consumer<FlushStats>> flushListeners;
+    private final List<Consumer<List<LogEntity>>> storedListeners;
+    private volatile boolean stopped;
+    private volatile long consumed;
+    private volatile long storedRows;
+    private long flushes;
+    private long publishedRows;
+    private double lastFlushMillis;
+    private double maxFlushMillis;
+
+    /**
+     * @param logEntries      the list of findings shown in the table
+     * @param logEntriesLock  lock protecting the list of findings
+     * @param logsTableModel  the model to notify when rows are added, can be null
+     * @param flushIntervalMs minimum time between two updates of the table
+     */
+    public LogEntriesPublisher(LogEntriesManager logEntries, Object logEntriesLock, LogsTableModel logsTableModel, int flushIntervalMs) {
+        this.logEntries = logEntries;
+        this.logEntriesLock = logEntriesLock;
+        this.logsTableModel = logsTableModel;
+        this.pending = new MpscRingBuffer<>(BUFFER_CAPACITY);
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.consumerParked = new AtomicBoolean(false);
+        this.consumedMonitor = new Object();
+        this.flushScheduled = new AtomicBoolean(false);
+        this.flushListeners = new ArrayList<>();
+        this.storedListeners = new CopyOnWriteArrayList<>();
+        this.flushTimer = new Timer(flushIntervalMs, e -> flush());
+        this.flushTimer.setRepeats(false);
+        this.consumer = new Thread(this::consume, "Findings-Consumer");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * Queue a finding to be added to the table with the next batch. Can be called from any thread.
+     *
+     * @param logEntity the finding to add
+     */
+    @Override
+    public void accept(LogEntity logEntity) {
+        while (!pending.offer(logEntity)) {
+            if (stopped) return;
+            wakeUpConsumer();
+            LockSupport.parkNanos(FULL_BUFFER_WAIT_NANOS);
+        }
+        if (consumerParked.get()) wakeUpConsumer();
+    }
+
+    private void wakeUpConsumer() {
+        if (consumerParked.compareAndSet(true, false)) LockSupport.unpark(consumer);
+    }
+
+    private void consume() {
+        List<LogEntity> batch = new ArrayList<>(MAX_BATCH);
+        while (!stopped) {
+            for (FutureTask<?> task = tasks.poll(); Objects.nonNull(task); task = tasks.poll()) task.run();
+            if (pending.drainTo(batch, MAX_BATCH) == 0) {
+                consumerParked.set(true);
+                // check again, a producer may have added a finding before seeing the flag
+                if (pending.isEmpty() && tasks.isEmpty()) LockSupport.park(this);
+                consumerParked.set(false);
+                continue;
+            }
+            try {
+                List<LogEntity> added;
+                synchronized (logEntriesLock) {
+                    added = logEntries.addAllIfAbsent(batch);
+                }
+                storedRows += added.size();
+                if (!added.isEmpty()) storedListeners.forEach(listener -> listener.accept(added));
+                if (!added.isEmpty() && flushScheduled.compareAndSet(false, true)) flushTimer.restart();
+            } catch (RuntimeException e) {
+                System.err.println("Error storing findings: " + e.getMessage());
+            }
+            synchronized (consumedMonitor) {
+                consumed += batch.size();
+                consumedMonitor.notifyAll();
+            }
+            batch.clear();
+        }
+        cancelTasks();
+    }
+
+    private void cancelTasks() {
+        for (FutureTask<?> task = tasks.poll(); Objects.nonNull(task); task = tasks.poll()) task.cancel(false);
+    }
+
+    /**
+     * Add findings in the consumer thread, waiting for them to be stored. Unlike the findings of the scanners, they
+     * are not passed to the {@link #addStoredListener(Consumer) stored listeners}, e.g. findings restored from the
+     * project are not written again to the journal. The table is not updated, see {@link #flush()}.
+     *
+     * @return the findings added, duplicates excluded, or an empty list if the publisher is stopped or the calling
+     * thread is interrupted
+     */
+    public List<LogEntity> addAllAndWait(List<LogEntity> entries) {
+        return callInConsumer(() -> {
+            List<LogEntity> added;
+            synchronized (logEntriesLock) {
+                added = logEntries.addAllIfAbsent(entries);
+            }
+            storedRows += added.size();
+            return added;
+        }, List.of());
+    }
+
+    private <T> T callInConsumer(Callable<T> callable, T ifNotRun) {
+        FutureTask<T> task = new FutureTask<>(callable);
+        tasks.add(task);
+        if (stopped) cancelTasks();
+        wakeUpConsumer();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.cancel(false);
+            return ifNotRun;
+        } catch (CancellationException e) {
+            return ifNotRun;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Show in the table the findings already stored. Must be called in the EDT.
+     */
+    public void flush() {
+        flushScheduled.set(false);
+        if (Objects.isNull(logsTableModel)) return;
+
+        long start = System.nanoTime();
+        int newRows = logsTableModel.publishNewRows();
+        if (newRows == 0) return;
+
+        double elapsedMillis = (System.nanoTime() - start) / 1_000_000.0;
+        flushes++;
+        publishedRows += newRows;
+        lastFlushMillis = elapsedMillis;
+        maxFlushMillis = Math.max(maxFlushMillis, elapsedMillis);
+        FlushStats stats = getStats();
+        flushListeners.forEach(listener -> listener.accept(stats));
+    }
+
+    /**
+     * Wait for all the findings queued so far to be stored, then add them to the table, e.g. at the end of a scan.
+     * Can be called from any thread.
+     */
+    public void flushAndWait() {
+        long target = pending.offeredCount();
+        synchronized (consumedMonitor) {
+            while (consumed < target && !stopped) {
+                if (consumerParked.get()) wakeUpConsumer();
+                try {
+                    consumedMonitor.wait(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        if (SwingUtilities.isEventDispatchThread()) {
+            flush();
+            return;
+        }
+        try {
+            SwingUtilities.invokeAndWait(this::flush);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException e) {
+            System.err.println("Error publishing findings: " + e.getCause());
+        }
+    }
+
+    /**
+     * Stop the consumer and the scheduled updates. Pending findings are discarded.
+     */
+    public void stop() {
+        stopped = true;
+        LockSupport.unpark(consumer);
+        flushTimer.stop();
+    }
+
+    /**
+     * Add a listener called in the EDT after every update of the table
+     */
+    public void addFlushListener(Consumer<FlushStats> listener) {
+        flushListeners.add(listener);
+    }
+
+    /**
+     * Add a listener called in the consumer thread with the findings just stored, duplicates excluded.
+     * Listeners must not block, or they slow down the scanners.
+     */
+    public void addStoredListener(Consumer<List<LogEntity>> listener) {
+        storedListeners.add(listener);
+    }
+
+    /**
+     * @return the counters of the updates of the table. Must be called in the EDT.
+     */
+    public FlushStats getStats() {
+        return new FlushStats(flushes, publishedRows, pending.size(), storedRows, lastFlushMillis, maxFlushMillis);
+    }
+
+    /**
+     * Counters of the updates of the table
+     *
+     * @param flushes         number of batches added to the table
+     * @param publishedRows   number of rows added to the table
+     * @param pendingRows     findings waiting to be stored
+     * @param storedRows      findings stored by the consumer, duplicates excluded
+     * @param lastFlushMillis time spent in the EDT by the last batch
+     * @param maxFlushMillis  maximum time spent in the EDT by a batch
+     */
+    public record FlushStats(long flushes, long publishedRows, int pendingRows, long storedRows,
+                             double lastFlushMillis, double maxFlushMillis) {
+    }
+}
@@ -0,0 +1,246 @@
+package com.tzm.supafinder.ui.table;
+
+import com.tzm.supafinder.model.LogEntity;
+import com.tzm.supafinder.model.LogEntriesManager;
+
+import javax.swing.RowFilter;
+import javax.swing.SwingUtilities;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Computes the rows of the logs table to show, in a background thread.
+ * <br><br>
+ * Queries are debounced, so that typing in the search field does not start a filtering for every keystroke,
+ * and a query superseded by a newer one is cancelled as soon as possible.
+ * Text searches use a {@link TrigramIndex} of the findings, kept up to date as findings arrive,
+ * so that only the candidate rows are checked.
+ * <br><br>
+ * The result is handed to the EDT as a row filter backed by the precomputed set of visible rows.
+ * Rows added after the computation are checked by the filter itself, as they are inserted in the table.
+ */
+public class LogsFilterEngine {
+    /**
+     * Delay before filtering while the search text is being typed
+     */
+    public static final int TYPING_DEBOUNCE_MS = 150;
+    /**
+     * Findings read at once from the manager, and between two checks for cancellation
+     */
+    private static final int PAGE_ROWS = 4096;
+
+    private final LogEntriesManager logEntries;
+    private final Consumer<RowFilter<LogsTableModel, Integer>> onFilterReady;
+    private final ScheduledExecutorService executor;
+    private final TrigramIndex index;
+    private final AtomicLong generation;
+    private final AtomicBoolean indexUpdateScheduled;
+    private ScheduledFuture<?> pendingQuery;
+    private volatile Query lastQuery;
+    private volatile long filterRemovalsCount;
+    private volatile double lastFilterMillis;
+
+    /**
+     * @param logEntries    the findings to filter
+     * @param onFilterReady called in the EDT with the filter to install in the table row sorter
+     */
+    public LogsFilterEngine(LogEntriesManager logEntries, Consumer<RowFilter<LogsTableModel, Integer>> onFilterReady) {
+        this.logEntries = logEntries;
+        this.onFilterReady = onFilterReady;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Logs-Filter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.index = new TrigramIndex();
+        this.generation = new AtomicLong();
+        this.indexUpdateScheduled = new AtomicBoolean(false);
+        this.lastQuery = null;
+
+        logEntries.subscribeChangeListener(entriesCount -> {
+            Query query = lastQuery;
+            if (Objects.nonNull(query) && logEntries.getRemovalsCount() != filterRemovalsCount) {
+                // row numbers changed, the current filter is no longer valid
+                submit(query, 0);
+            } else if (indexUpdateScheduled.compareAndSet(false, true)) {
+                executor.execute(() -> {
+                    indexUpdateScheduled.set(false);
+                    updateIndex();
+                });
+            }
+        });
+    }
+
+    /**
+     * Schedule the computation of a new filter, cancelling the ones not completed yet
+     *
+     * @param query      the filter to apply
+     * @param debounceMs time to wait for a newer query before starting the computation
+     */
+    public synchronized void submit(Query query, int debounceMs) {
+        long queryGeneration = generation.incrementAndGet();
+        lastQuery = query;
+        if (Objects.nonNull(pendingQuery)) pendingQuery.cancel(false);
+        pendingQuery = executor.schedule(() -> compute(query, queryGeneration), debounceMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return time spent computing the last filter
+     */
+    public double getLastFilterMillis() {
+        return lastFilterMillis;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Index the findings added since the last update
+     *
+     * @return the number of findings indexed
+     */
+    private int updateIndex() {
+        long removalsCount = logEntries.getRemovalsCount();
+        if (index.isStale(removalsCount)) index.reset(removalsCount);
+        List<LogEntity> rows;
+        do {
+            rows = logEntries.getRange(index.getIndexedRows(), index.getIndexedRows() + PAGE_ROWS);
+            index.add(rows);
+        } while (rows.size() == PAGE_ROWS);
+        return index.getIndexedRows();
+    }
+
+    private void compute(Query query, long queryGeneration) {
+        long start = System.nanoTime();
+        long removalsCount = logEntries.getRemovalsCount();
+        int rowsCount = updateIndex();
+
+        BitSetRowFilter filter;
+        try {
+            filter = computeFilter(query, rowsCount, () -> generation.get() != queryGeneration);
+        } catch (CancellationException | IndexOutOfBoundsException e) {
+            // superseded, or findings removed in the meantime: a new query follows
+            return;
+        }
+
+        lastFilterMillis = (System.nanoTime() - start) / 1_000_000.0;
+        SwingUtilities.invokeLater(() -> {
+            if (generation.get() != queryGeneration) return;
+            filterRemovalsCount = removalsCount;
+            onFilterReady.accept(filter);
+        });
+    }
+
+    /**
+     * @param query     the filter to apply
+     * @param rowsCount the number of findings already indexed
+     * @param cancelled checked periodically, when true the computation is abandoned
+     * @return the filter with the decisions for the indexed findings
+     * @throws CancellationException if the computation was cancelled
+     */
+    BitSetRowFilter computeFilter(Query query, int rowsCount, BooleanSupplier cancelled) {
+        BitSetRowFilter filter = new BitSetRowFilter(query, logEntries);
+        String foldedText = TrigramIndex.fold(query.text().trim());
+        int[] candidates = foldedText.isEmpty() ? null : index.candidates(foldedText);
+
+        if (Objects.isNull(candidates)) {
+            for (int from = 0; from < rowsCount; from += PAGE_ROWS) {
+                if (cancelled.getAsBoolean()) throw new CancellationException();
+                List<LogEntity> rows = logEntries.getRange(from, Math.min(rowsCount, from + PAGE_ROWS));
+                for (int i = 0; i < rows.size(); i++) filter.evaluate(from + i, rows.get(i));
+            }
+        } else {
+            for (int i = 0; i < candidates.length; i++) {
+                if (i % PAGE_ROWS == 0 && cancelled.getAsBoolean()) throw new CancellationException();
+                // candidates are in ascending order, so the first of duplicated rows is kept as in a full scan
+                filter.evaluate(candidates[i], logEntries.get(candidates[i]));
+            }
+        }
+        filter.decidedRows = rowsCount;
+        return filter;
+    }
+
+    /**
+     * Filter applied to the logs table
+     *
+     * @param text             text to search, case-insensitive
+     * @param includeRegex     if true, search in the description column
+     * @param includeMatch     if true, search in the match column
+     * @param includeURL       if true, search in the URL column
+     * @param uniqueResults    if true, hide rows with the same values of a previous row
+     * @param importanceLevels importance levels to show
+     */
+    public record Query(String text,
+                        boolean includeRegex,
+                        boolean includeMatch,
+                        boolean includeURL,
+                        boolean uniqueResults,
+                        Set<Integer> importanceLevels) {
+
+        public Query {
+            importanceLevels = Set.copyOf(importanceLevels);
+        }
+
+        /**
+         * @return true if the finding satisfies the importance and text conditions of the query
+         */
+        public boolean matches(LogEntity logEntity) {
+            if (Objects.nonNull(logEntity.getRegexEntity()) && !importanceLevels.contains(logEntity.getRegexEntity().getImportance())) {
+                return false;
+            }
+            if (text.isBlank()) return true;
+            String foldedText = TrigramIndex.fold(text);
+            return (includeRegex && TrigramIndex.fold(logEntity.getRegexEntity().getDescription()).contains(foldedText)) ||
+                    (includeMatch && TrigramIndex.fold(logEntity.getMatch()).contains(foldedText)) ||
+                    (includeURL && TrigramIndex.fold(logEntity.getRequestUrl()).contains(foldedText));
+        }
+    }
+
+    /**
+     * Row filter returning the precomputed decisions.
+     * Rows past the computed ones are evaluated in order when first requested.
+     * Unique results are the first findings of their group, maintained by the manager: the rows of a group
+     * all match or don't match a query, so this is the first visible row of the group.
+     */
+    static class BitSetRowFilter extends RowFilter<LogsTableModel, Integer> {
+        private final Query query;
+        private final LogEntriesManager logEntries;
+        private final BitSet included;
+        private int decidedRows;
+
+        BitSetRowFilter(Query query, LogEntriesManager logEntries) {
+            this.query = query;
+            this.logEntries = logEntries;
+            this.included = new BitSet();
+            this.decidedRows = 0;
+        }
+
+        private void evaluate(int row, LogEntity logEntity) {
+            boolean include = query.matches(logEntity);
+            if (include && query.uniqueResults()) include = logEntries.isFirstOfGroup(row);
+            included.set(row, include);
+            decidedRows = row + 1;
+        }
+
+        @Override
+        public boolean include(Entry<? extends LogsTableModel, ? extends Integer> entry) {
+            int row = entry.getIdentifier();
+            while (decidedRows <= row && decidedRows < logEntries.size()) {
+                evaluate(decidedRows, logEntries.get(decidedRows));
+            }
+            return included.get(row);
+        }
+    }
+}
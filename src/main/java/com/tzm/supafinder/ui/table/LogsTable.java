@@ -4,9 +4,11 @@ import burp.api.montoya.http.message.requests.HttpRequest;
 import burp.api.montoya.http.message.responses.HttpResponse;
 import burp.api.montoya.ui.editor.HttpRequestEditor;
 import burp.api.montoya.ui.editor.HttpResponseEditor;
+import com.tzm.supafinder.model.Evidence;
 import com.tzm.supafinder.model.LogEntity;
 import com.tzm.supafinder.model.LogEntriesManager;
 import com.tzm.supafinder.utils.ImportanceColorScheme;
+import com.tzm.supafinder.utils.ImportanceUtils;
 import com.tzm.supafinder.utils.UIConstants;
 
 import javax.swing.JTable;
@@ -15,15 +17,22 @@ import javax.swing.SwingUtilities;
 import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.Color;
 import java.awt.Component;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * JTable for Viewing Logs
  */
 public class LogsTable extends JTable {
+    /**
+     * Rows before and after the selected one whose messages are loaded in advance
+     */
+    private static final int PREFETCH_ROWS = 2;
 
     private final LogEntriesManager logEntries;
     private final HttpRequestEditor requestViewer;
     private final HttpResponseEditor responseViewer;
+    private final EvidenceLoader evidenceLoader;
 
     public LogsTable(LogsTableModel logsTableModel, LogEntriesManager logEntries, HttpRequestEditor requestViewer, HttpResponseEditor responseViewer) {
         super(logsTableModel);
@@ -33,10 +42,14 @@ public class LogsTable extends JTable {
         this.logEntries = logEntries;
         this.requestViewer = requestViewer;
         this.responseViewer = responseViewer;
+        this.evidenceLoader = new EvidenceLoader();
 
         // Set custom renderer for Importance column (index 1 after reordering)
         setupImportanceColumnRenderer();
 
+        // Show the text around the match as tooltip of the Match column
+        setupMatchColumnRenderer();
+
         // Set optimal column widths
         setupColumnWidths();
     }
@@ -49,7 +62,9 @@ public class LogsTable extends JTable {
             @Override
             public Component getTableCellRendererComponent(JTable table, Object value,
                     boolean isSelected, boolean hasFocus, int row, int column) {
-                Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+                // the model provides the numeric level, used for sorting
+                Object label = value instanceof Integer importance ? ImportanceUtils.getImportanceLabel(importance) : value;
+                Component c = super.getTableCellRendererComponent(table, label, isSelected, hasFocus, row, column);
 
                 if (!isSelected) {
                     int modelRow = convertRowIndexToModel(row);
@@ -71,6 +86,24 @@ public class LogsTable extends JTable {
         });
     }
 
+    private void setupMatchColumnRenderer() {
+        int matchColumnIndex = LogsTableModel.Column.MATCH.getIndex();
+
+        this.getColumnModel().getColumn(matchColumnIndex).setCellRenderer(new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value,
+                    boolean isSelected, boolean hasFocus, int row, int column) {
+                Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+
+                LogEntity logEntity = logEntries.get(convertRowIndexToModel(row));
+                String context = logEntity == null ? null : logEntity.getContext();
+                // tooltips are shown on a single line
+                setToolTipText(context == null ? null : context.replaceAll("\\s", " "));
+                return c;
+            }
+        });
+    }
+
     private void setupColumnWidths() {
         // Set optimal column widths based on LogsTableModel.Column order
         // After reordering: IMPORTANCE, REGEX, MATCH, URL, SECTION
@@ -105,9 +138,43 @@ public class LogsTable extends JTable {
         LogEntity logEntry = logEntries.get(realRow);
 
         // Null check to prevent crashes
+        // The editors highlight the text matched by the regex, without the refiner match
         if (logEntry != null) {
-            updateRequestViewers(logEntry.getRequest(), logEntry.getResponse(), logEntry.getMatch());
+            String search = logEntry.getMatchedText();
+            boolean loaded = evidenceLoader.load(logEntry.getEvidence(), neighbourEvidences(row),
+                    evidence -> updateRequestViewers(evidence.request(), evidence.response(), search));
+            // empty editors while the message is loaded from disk
+            if (!loaded) updateRequestViewers(HttpRequest.httpRequest(""), HttpResponse.httpResponse(""), "");
+        }
+    }
+
+    /**
+     * @return the messages of the rows around the given view row, nearest first
+     */
+    private List<Evidence> neighbourEvidences(int row) {
+        List<Evidence> neighbours = new ArrayList<>(PREFETCH_ROWS * 2);
+        for (int distance = 1; distance <= PREFETCH_ROWS; distance++) {
+            for (int neighbour : new int[]{row + distance, row - distance}) {
+                if (neighbour < 0 || neighbour >= getRowCount()) continue;
+                LogEntity logEntity = logEntries.get(convertRowIndexToModel(neighbour));
+                if (logEntity != null) neighbours.add(logEntity.getEvidence());
+            }
         }
+        return neighbours;
+    }
+
+    /**
+     * Discard the messages loaded for the previous selections
+     */
+    public void clearLoadedEvidence() {
+        evidenceLoader.clear();
+    }
+
+    /**
+     * Stop the loading of messages, when the extension is unloaded
+     */
+    public void shutdown() {
+        evidenceLoader.shutdown();
     }
 
     public void updateRequestViewers(HttpRequest request, HttpResponse response, String search) {
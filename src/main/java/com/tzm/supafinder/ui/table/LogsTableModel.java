@@ -4,24 +4,90 @@ import com.tzm.supafinder.model.LogEntity;
 import com.tzm.supafinder.model.LogEntriesManager;
 import com.tzm.supafinder.utils.ImportanceUtils;
 
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.AbstractTableModel;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Objects;
 
 import static com.tzm.supafinder.utils.Messages.getLocaleString;
 
+/**
+ * Model of the logs table, backed by the list of findings.
+ * <br><br>
+ * Findings are appended to the list outside the EDT, so the model shows only the rows its listeners were notified of:
+ * new rows become visible with {@link #publishNewRows()}, and the row count is otherwise changed only by the events
+ * fired on the model, e.g. when rows are deleted or all the data changes.
+ */
 public class LogsTableModel extends AbstractTableModel {
 
     // get the reference of the array of entries
     private final LogEntriesManager logEntries;
+    private int rowCount;
+    /**
+     * Rows removed by the event being fired, see {@link #fireTableRowsDeleted(BitSet)}
+     */
+    private BitSet removedRows;
 
     public LogsTableModel(LogEntriesManager logEntries) {
         this.logEntries = logEntries;
+        this.rowCount = logEntries.size();
+        this.removedRows = null;
     }
 
     @Override
     public int getRowCount() {
-        return logEntries.size();
+        return rowCount;
+    }
+
+    /**
+     * Show the rows appended to the findings since the last call, firing a single rows-inserted event.
+     * Must be called in the EDT.
+     *
+     * @return the number of rows added to the table
+     */
+    public int publishNewRows() {
+        int size = logEntries.size();
+        if (size <= rowCount) return 0;
+        int firstRow = rowCount;
+        rowCount = size;
+        fireTableRowsInserted(firstRow, size - 1);
+        return size - firstRow;
+    }
+
+    /**
+     * Notify the removal of rows that are not contiguous, e.g. the findings of a deleted rule.
+     * A single all-data-changed event is fired: while it is dispatched, {@link #getRemovedRows()} returns the removed
+     * rows, so that listeners can update their state from them instead of reading all the rows again.
+     * Must be called in the EDT.
+     *
+     * @param rows the removed rows, numbered as before the removal
+     */
+    public void fireTableRowsDeleted(BitSet rows) {
+        removedRows = rows;
+        try {
+            fireTableDataChanged();
+        } finally {
+            removedRows = null;
+        }
+    }
+
+    /**
+     * @return the rows removed by the event being fired, or null if the event is not a removal of rows
+     */
+    public BitSet getRemovedRows() {
+        return removedRows;
+    }
+
+    @Override
+    public void fireTableChanged(TableModelEvent e) {
+        if (e.getType() == TableModelEvent.DELETE) {
+            rowCount = Math.max(0, rowCount - (e.getLastRow() - e.getFirstRow() + 1));
+        } else if (e.getFirstRow() == TableModelEvent.HEADER_ROW || e.getLastRow() == Integer.MAX_VALUE) {
+            // all the data changed, e.g. the findings were cleared
+            rowCount = logEntries.size();
+        }
+        super.fireTableChanged(e);
     }
 
     @Override
@@ -46,15 +112,29 @@ public class LogsTableModel extends AbstractTableModel {
         return switch (Column.getById(columnIndex)) {
             case URL -> logEntity.getRequestUrl();
             case REGEX -> logEntity.getRegexEntity().getDescription();
-            case IMPORTANCE -> ImportanceUtils.getImportanceLabel(logEntity.getRegexEntity().getImportance());
+            case IMPORTANCE -> logEntity.getRegexEntity().getImportance();
             case SECTION -> logEntity.getMatchedSection().toString();
             case MATCH -> logEntity.getMatch();
         };
     }
 
+    /**
+     * Value of a cell as shown to the user, e.g. the label of the importance level instead of its number
+     */
+    public String getDisplayValueAt(int rowIndex, int columnIndex) {
+        Object value = getValueAt(rowIndex, columnIndex);
+        if (Column.getById(columnIndex) == Column.IMPORTANCE) return ImportanceUtils.getImportanceLabel((Integer) value);
+        return value.toString();
+    }
 
     public int getRowHashcode(int rowIndex) {
-        LogEntity logEntity = logEntries.get(rowIndex);
+        return getRowHashcode(logEntries.get(rowIndex));
+    }
+
+    /**
+     * Hashcode of the values shown in a row, used to hide duplicated results
+     */
+    public static int getRowHashcode(LogEntity logEntity) {
         return Objects.hash(
                 logEntity.getRequestUrl(),
                 logEntity.getRegexEntity().getRegex(),
@@ -69,7 +149,7 @@ public class LogsTableModel extends AbstractTableModel {
     public enum Column {
         URL("common-url", "url", String.class),
         REGEX("common-description", "description", String.class),
-        IMPORTANCE("common-importance", "importance", String.class),
+        IMPORTANCE("common-importance", "importance", Integer.class),
         SECTION("common-section", "section", String.class),
         MATCH("common-match", "match", String.class);
 
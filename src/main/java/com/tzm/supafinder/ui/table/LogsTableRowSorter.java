@@ -0,0 +1,522 @@
+package com.tzm.supafinder.ui.table;
+
+import com.tzm.supafinder.model.LogEntity;
+import com.tzm.supafinder.model.LogEntriesManager;
+
+import javax.swing.RowFilter;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Row sorter of the logs table working on precomputed sort keys.
+ * <br><br>
+ * Each column has a compact integer key per finding: the importance level, the section, or the rank of the
+ * normalized text among the distinct values of the column. Keys are computed once when the column is first sorted,
+ * and extended as findings are appended. Sorting packs key and row in a {@code long} and sorts a primitive array,
+ * so the findings are not read again and no string is compared per row.
+ * <br><br>
+ * Appended rows are sorted by themselves and merged in the current order. Removed rows are dropped from the keys and
+ * from the current order, and the following rows are renumbered, so nothing is sorted again.
+ * The order of rows with the same key is the model order. Only one sort key is supported, the one of the last
+ * clicked column.
+ */
+public class LogsTableRowSorter extends RowSorter<LogsTableModel> {
+    /**
+     * Findings read at once from the manager when computing the keys
+     */
+    private static final int PAGE_ROWS = 4096;
+
+    private final LogsTableModel model;
+    private final LogEntriesManager logEntries;
+    private final ColumnKeys[] columnKeys;
+    private final FilterEntry filterEntry;
+    private List<SortKey> sortKeys;
+    private RowFilter<? super LogsTableModel, ? super Integer> rowFilter;
+    /**
+     * Model row of each view row, or null when rows are neither sorted nor filtered
+     */
+    private int[] viewToModel;
+    /**
+     * View row of each model row, computed when first needed
+     */
+    private int[] modelToView;
+    private int modelRowCount;
+
+    public LogsTableRowSorter(LogsTableModel model, LogEntriesManager logEntries) {
+        this.model = model;
+        this.logEntries = logEntries;
+        this.columnKeys = new ColumnKeys[LogsTableModel.Column.getSize()];
+        this.filterEntry = new FilterEntry();
+        this.sortKeys = List.of();
+        this.rowFilter = null;
+        this.viewToModel = null;
+        this.modelToView = null;
+        this.modelRowCount = model.getRowCount();
+    }
+
+    private static ColumnKeys newColumnKeys(LogsTableModel.Column column) {
+        return switch (column) {
+            case IMPORTANCE -> new NumericKeys(logEntity -> logEntity.getRegexEntity().getImportance());
+            case SECTION -> new NumericKeys(logEntity -> logEntity.getMatchedSection().ordinal());
+            case REGEX -> new TextKeys(logEntity -> TrigramIndex.fold(logEntity.getRegexEntity().getDescription()));
+            case MATCH -> new TextKeys(logEntity -> TrigramIndex.fold(logEntity.getMatch()));
+            case URL -> new TextKeys(logEntity -> urlSortKey(logEntity.getRequestUrl()));
+        };
+    }
+
+    /**
+     * URLs are sorted by host and path: the scheme is removed, so that HTTP and HTTPS URLs of the same host are near
+     */
+    static String urlSortKey(String url) {
+        String folded = TrigramIndex.fold(url);
+        int scheme = folded.indexOf("://");
+        return scheme < 0 ? folded : folded.substring(scheme + 3);
+    }
+
+    @Override
+    public LogsTableModel getModel() {
+        return model;
+    }
+
+    @Override
+    public void toggleSortOrder(int column) {
+        SortOrder order = SortOrder.ASCENDING;
+        if (!sortKeys.isEmpty() && sortKeys.get(0).getColumn() == column && sortKeys.get(0).getSortOrder() == SortOrder.ASCENDING) {
+            order = SortOrder.DESCENDING;
+        }
+        setSortKeys(List.of(new SortKey(column, order)));
+    }
+
+    /**
+     * Sort on the first of the given keys, the others are ignored
+     */
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        List<SortKey> newKeys = Objects.isNull(keys) || keys.isEmpty() || keys.get(0).getSortOrder() == SortOrder.UNSORTED
+                ? List.of()
+                : List.of(keys.get(0));
+        if (newKeys.equals(sortKeys)) return;
+        sortKeys = newKeys;
+        fireSortOrderChanged();
+        sort();
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    /**
+     * Set the filter of the rows to show, and update the rows
+     */
+    public void setRowFilter(RowFilter<? super LogsTableModel, ? super Integer> rowFilter) {
+        this.rowFilter = rowFilter;
+        sort();
+    }
+
+    public RowFilter<? super LogsTableModel, ? super Integer> getRowFilter() {
+        return rowFilter;
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if (Objects.isNull(viewToModel)) {
+            Objects.checkIndex(index, modelRowCount);
+            return index;
+        }
+        return viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        Objects.checkIndex(index, modelRowCount);
+        if (Objects.isNull(viewToModel)) return index;
+        if (Objects.isNull(modelToView)) {
+            int[] rows = new int[modelRowCount];
+            Arrays.fill(rows, -1);
+            for (int view = 0; view < viewToModel.length; view++) rows[viewToModel[view]] = view;
+            modelToView = rows;
+        }
+        return modelToView[index];
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return Objects.isNull(viewToModel) ? modelRowCount : viewToModel.length;
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return model.getRowCount();
+    }
+
+    @Override
+    public void modelStructureChanged() {
+        allRowsChanged();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        BitSet removedRows = model.getRemovedRows();
+        if (Objects.nonNull(removedRows)) {
+            removeRows(removedRows);
+            // rows appended meanwhile are published with the same event
+            if (model.getRowCount() > modelRowCount) rowsInserted(modelRowCount, model.getRowCount() - 1);
+            return;
+        }
+        // rows may have been removed: keys must be computed again
+        Arrays.fill(columnKeys, null);
+        sort();
+    }
+
+    /**
+     * Findings are only appended: the rows not known yet are sorted and merged in the current order.
+     * Rows already known, because they were read by a previous sort, are ignored.
+     */
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        int newRowCount = Math.max(modelRowCount, endRow + 1);
+        if (newRowCount == modelRowCount) return;
+        if (!isTransformed()) {
+            modelRowCount = newRowCount;
+            return;
+        }
+
+        int[] inserted = includedRows(modelRowCount, newRowCount);
+        modelRowCount = newRowCount;
+        int[] rows;
+        if (!sortKeys.isEmpty()) {
+            ColumnKeys keys = updatedKeys();
+            rows = merge(viewToModel, sortRows(inserted, keys), keys);
+        } else {
+            rows = Arrays.copyOf(viewToModel, viewToModel.length + inserted.length);
+            System.arraycopy(inserted, 0, rows, viewToModel.length, inserted.length);
+        }
+        setViewToModel(rows);
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        BitSet rows = new BitSet();
+        rows.set(firstRow, endRow + 1);
+        removeRows(rows);
+    }
+
+    /**
+     * Only the keys of the updated rows are computed again, then the rows are sorted by the keys
+     */
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        for (ColumnKeys keys : columnKeys) {
+            if (Objects.nonNull(keys) && firstRow < keys.size()) {
+                keys.set(firstRow, logEntries.getRange(firstRow, Math.min(endRow + 1, keys.size())));
+            }
+        }
+        sort();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        rowsUpdated(firstRow, endRow);
+    }
+
+    /**
+     * Drop removed rows from the keys and from the current order, renumbering the following rows.
+     * Rows not known yet are ignored, they are read when inserted.
+     *
+     * @param removedRows model rows before the removal
+     */
+    private void removeRows(BitSet removedRows) {
+        BitSet rows = removedRows.get(0, modelRowCount);
+        if (rows.isEmpty()) return;
+        for (ColumnKeys keys : columnKeys) {
+            if (Objects.nonNull(keys)) keys.remove(rows);
+        }
+        int newRowCount = modelRowCount - rows.cardinality();
+        if (Objects.isNull(viewToModel)) {
+            modelRowCount = newRowCount;
+            setViewToModel(null);
+            return;
+        }
+
+        // new model row of each row, the number of removed rows before it is subtracted
+        int[] newRows = new int[modelRowCount];
+        int removed = 0;
+        for (int row = 0; row < modelRowCount; row++) {
+            if (rows.get(row)) {
+                newRows[row] = -1;
+                removed++;
+            } else {
+                newRows[row] = row - removed;
+            }
+        }
+        int[] view = new int[viewToModel.length];
+        int count = 0;
+        for (int row : viewToModel) {
+            if (newRows[row] >= 0) view[count++] = newRows[row];
+        }
+        modelRowCount = newRowCount;
+        setViewToModel(Arrays.copyOf(view, count));
+    }
+
+    private boolean isTransformed() {
+        return Objects.nonNull(rowFilter) || !sortKeys.isEmpty();
+    }
+
+    /**
+     * Compute the order of all the rows
+     */
+    private void sort() {
+        modelRowCount = model.getRowCount();
+        if (!isTransformed()) {
+            setViewToModel(null);
+            return;
+        }
+        int[] rows = includedRows(0, modelRowCount);
+        if (!sortKeys.isEmpty()) rows = sortRows(rows, updatedKeys());
+        setViewToModel(rows);
+    }
+
+    private void setViewToModel(int[] rows) {
+        int[] previous = Objects.isNull(viewToModel) ? new int[0] : viewToModel;
+        viewToModel = rows;
+        modelToView = null;
+        fireRowSorterChanged(previous);
+    }
+
+    /**
+     * @return the rows in the given range accepted by the filter, in model order
+     */
+    private int[] includedRows(int from, int to) {
+        int[] rows = new int[to - from];
+        int count = 0;
+        for (int row = from; row < to; row++) {
+            if (Objects.isNull(rowFilter)) {
+                rows[count++] = row;
+            } else {
+                filterEntry.row = row;
+                if (rowFilter.include(filterEntry)) rows[count++] = row;
+            }
+        }
+        return count == rows.length ? rows : Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * @return the keys of the sorted column, extended to all the known rows
+     */
+    private ColumnKeys updatedKeys() {
+        int column = sortKeys.get(0).getColumn();
+        if (Objects.isNull(columnKeys[column])) columnKeys[column] = newColumnKeys(LogsTableModel.Column.getById(column));
+        ColumnKeys keys = columnKeys[column];
+        while (keys.size() < modelRowCount) {
+            keys.add(logEntries.getRange(keys.size(), Math.min(modelRowCount, keys.size() + PAGE_ROWS)));
+        }
+        return keys;
+    }
+
+    /**
+     * Key and row packed in a long: sorting the packed values sorts by key, then by model row
+     */
+    private long packed(ColumnKeys keys, int row) {
+        int key = keys.key(row);
+        if (sortKeys.get(0).getSortOrder() == SortOrder.DESCENDING) key = Integer.MAX_VALUE - key;
+        return ((long) key << 32) | row;
+    }
+
+    private int[] sortRows(int[] rows, ColumnKeys keys) {
+        long[] values = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) values[i] = packed(keys, rows[i]);
+        Arrays.sort(values);
+        int[] sorted = new int[rows.length];
+        for (int i = 0; i < values.length; i++) sorted[i] = (int) values[i];
+        return sorted;
+    }
+
+    /**
+     * Merge two lists of rows sorted by the same keys
+     */
+    private int[] merge(int[] rows, int[] appended, ColumnKeys keys) {
+        int[] merged = new int[rows.length + appended.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < rows.length && j < appended.length) {
+            merged[k++] = packed(keys, rows[i]) <= packed(keys, appended[j]) ? rows[i++] : appended[j++];
+        }
+        while (i < rows.length) merged[k++] = rows[i++];
+        while (j < appended.length) merged[k++] = appended[j++];
+        return merged;
+    }
+
+    /**
+     * Entry passed to the row filter, reused for all the rows
+     */
+    private class FilterEntry extends RowFilter.Entry<LogsTableModel, Integer> {
+        private int row;
+
+        @Override
+        public LogsTableModel getModel() {
+            return model;
+        }
+
+        @Override
+        public int getValueCount() {
+            return model.getColumnCount();
+        }
+
+        @Override
+        public Object getValue(int index) {
+            return model.getValueAt(row, index);
+        }
+
+        @Override
+        public Integer getIdentifier() {
+            return row;
+        }
+    }
+
+    /**
+     * Sort keys of a column, one per model row
+     */
+    private abstract static class ColumnKeys {
+        protected int[] rowKeys = new int[1024];
+        protected int size = 0;
+
+        int size() {
+            return size;
+        }
+
+        void add(List<LogEntity> rows) {
+            if (size + rows.size() > rowKeys.length) {
+                rowKeys = Arrays.copyOf(rowKeys, Math.max(size + rows.size(), rowKeys.length + (rowKeys.length >> 1)));
+            }
+            for (LogEntity logEntity : rows) rowKeys[size++] = valueOf(logEntity);
+        }
+
+        /**
+         * Compute again the keys of rows starting from the given one
+         */
+        void set(int firstRow, List<LogEntity> rows) {
+            for (int i = 0; i < rows.size(); i++) rowKeys[firstRow + i] = valueOf(rows.get(i));
+        }
+
+        /**
+         * Drop the keys of the removed rows, moving back the keys of the following rows
+         */
+        void remove(BitSet rows) {
+            int kept = rows.nextSetBit(0);
+            if (kept < 0 || kept >= size) return;
+            for (int row = kept + 1; row < size; row++) {
+                if (!rows.get(row)) rowKeys[kept++] = rowKeys[row];
+            }
+            size = kept;
+        }
+
+        abstract int valueOf(LogEntity logEntity);
+
+        abstract int key(int row);
+    }
+
+    /**
+     * Keys that are small non-negative numbers already in the right order
+     */
+    private static class NumericKeys extends ColumnKeys {
+        private final ToIntFunction<LogEntity> value;
+
+        NumericKeys(ToIntFunction<LogEntity> value) {
+            this.value = value;
+        }
+
+        @Override
+        int valueOf(LogEntity logEntity) {
+            return Math.max(0, value.applyAsInt(logEntity));
+        }
+
+        @Override
+        int key(int row) {
+            return rowKeys[row];
+        }
+    }
+
+    /**
+     * Keys of text columns: each row stores the id of its normalized text, and the key is the rank of the text
+     * among the distinct texts of the column.
+     * <br><br>
+     * Ranks are spaced out, so that a new text gets a rank between the ones of its neighbours in the sorted texts
+     * without changing the others. Only when there's no room left, the ranks of all the texts are spaced out again,
+     * keeping their order, so the current order of the rows stays valid.
+     */
+    private static class TextKeys extends ColumnKeys {
+        /**
+         * Ranks are in [1, MAX_RANK], so that descending keys are non-negative too
+         */
+        private static final int MAX_RANK = Integer.MAX_VALUE - 1;
+
+        private final Function<LogEntity, String> normalizer;
+        private final Map<String, Integer> ids;
+        private final TreeMap<String, Integer> sortedIds;
+        private int[] ranks;
+        /**
+         * Distance between the ranks given by the last relabeling, used for the texts after the last one
+         */
+        private int spacing;
+
+        TextKeys(Function<LogEntity, String> normalizer) {
+            this.normalizer = normalizer;
+            this.ids = new HashMap<>();
+            this.sortedIds = new TreeMap<>();
+            this.ranks = new int[64];
+            this.spacing = MAX_RANK / 2;
+        }
+
+        @Override
+        int valueOf(LogEntity logEntity) {
+            String text = normalizer.apply(logEntity);
+            Integer id = ids.get(text);
+            if (Objects.nonNull(id)) return id;
+
+            id = ids.size();
+            ids.put(text, id);
+            if (id == ranks.length) ranks = Arrays.copyOf(ranks, ranks.length * 2);
+            Map.Entry<String, Integer> lower = sortedIds.lowerEntry(text);
+            Map.Entry<String, Integer> higher = sortedIds.higherEntry(text);
+            sortedIds.put(text, id);
+            long lowerRank = Objects.isNull(lower) ? 0 : ranks[lower.getValue()];
+            long higherRank = Objects.isNull(higher) ? (long) MAX_RANK + 1 : ranks[higher.getValue()];
+            if (higherRank - lowerRank < 2) {
+                relabel();
+            } else if (Objects.isNull(higher)) {
+                ranks[id] = (int) (lowerRank + Math.min(spacing, (higherRank - lowerRank) / 2));
+            } else {
+                ranks[id] = (int) ((lowerRank + higherRank) / 2);
+            }
+            return id;
+        }
+
+        /**
+         * Space out the ranks of all the texts in the first half of the range, leaving the rest for the texts after them
+         */
+        private void relabel() {
+            spacing = Math.max(1, MAX_RANK / 2 / (sortedIds.size() + 1));
+            int rank = 0;
+            for (int id : sortedIds.values()) {
+                rank += spacing;
+                ranks[id] = rank;
+            }
+        }
+
+        @Override
+        int key(int row) {
+            return ranks[rowKeys[row]];
+        }
+    }
+}
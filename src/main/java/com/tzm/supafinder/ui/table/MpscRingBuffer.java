@@ -0,0 +1,124 @@
+package com.tzm.supafinder.ui.table;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producer threads and a single consumer thread.
+ * <br><br>
+ * Every slot of the ring has a sequence number telling whose turn it is: a producer claims the next position with a
+ * CAS on the tail, writes the element, then publishes the slot by setting its sequence. The consumer reads the slot
+ * only when its sequence says it was published, and gives it back to the producers one lap later.
+ * Producers never wait for each other while writing, and never wait for the consumer unless the ring is full.
+ * <br><br>
+ * {@link #offer(Object)} can be called from any thread, {@link #poll()} and {@link #drainTo(List, int)} only from
+ * the consumer thread.
+ *
+ * @param <E> type of the elements
+ */
+public class MpscRingBuffer<E> {
+    private final int mask;
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail;
+    private volatile long head;
+
+    /**
+     * @param capacity maximum number of elements in the buffer, rounded up to a power of two
+     */
+    public MpscRingBuffer(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        this.mask = size - 1;
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+        this.tail = new AtomicLong();
+        this.head = 0;
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+
+    /**
+     * Add an element, without blocking. Can be called from any thread.
+     *
+     * @param element the element to add
+     * @return false if the buffer is full
+     */
+    public boolean offer(E element) {
+        if (element == null) throw new NullPointerException();
+        long position = tail.get();
+        while (true) {
+            int slot = (int) position & mask;
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[slot] = element;
+                    // the volatile write publishes the element to the consumer
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // the consumer has not freed the slot yet, one lap behind
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Remove the oldest element. Must be called only from the consumer thread.
+     *
+     * @return the element, or null if the buffer is empty or the next element is still being written
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        int slot = (int) head & mask;
+        if (sequences.get(slot) != head + 1) return null;
+        E element = (E) elements[slot];
+        elements[slot] = null;
+        sequences.set(slot, head + elements.length);
+        head++;
+        return element;
+    }
+
+    /**
+     * Remove the oldest elements. Must be called only from the consumer thread.
+     *
+     * @param target      the list where elements are added
+     * @param maxElements maximum number of elements to remove
+     * @return the number of elements removed
+     */
+    public int drainTo(List<? super E> target, int maxElements) {
+        int count = 0;
+        for (E element; count < maxElements && (element = poll()) != null; count++) {
+            target.add(element);
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of elements added since the creation of the buffer. Can be called from any thread.
+     */
+    public long offeredCount() {
+        return tail.get();
+    }
+
+    /**
+     * @return an estimate of the number of elements in the buffer. Can be called from any thread.
+     */
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, elements.length));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -0,0 +1,159 @@
+package com.tzm.supafinder.ui.table;
+
+import com.tzm.supafinder.model.LogEntity;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index from the trigrams of the searchable columns (URL, description and match) to the rows containing them.
+ * <br><br>
+ * Rows are only ever appended to the findings, so the index is updated incrementally by indexing the new rows.
+ * When findings are removed the row numbers shift, and the index is built again from scratch.
+ * Text is case-folded character by character, see {@link #fold(String)}.
+ * <br><br>
+ * This class is not thread-safe, it is meant to be used by a single background thread.
+ */
+public class TrigramIndex {
+    private final Map<Long, IntList> postings;
+    private int indexedRows;
+    private long removalsCount;
+
+    public TrigramIndex() {
+        this.postings = new HashMap<>();
+        this.indexedRows = 0;
+        this.removalsCount = 0;
+    }
+
+    /**
+     * Lowercase the text one character at a time, so that the folded text has the same length of the original one
+     *
+     * @param text the text to fold
+     * @return the lowercase text
+     */
+    public static String fold(String text) {
+        if (text == null) return "";
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static long trigramAt(String folded, int i) {
+        return ((long) folded.charAt(i) << 32) | ((long) folded.charAt(i + 1) << 16) | folded.charAt(i + 2);
+    }
+
+    /**
+     * @param removalsCount the current removals count of the findings
+     * @return true if findings were removed since the index was built, and it must be {@link #reset(long) reset}
+     */
+    public boolean isStale(long removalsCount) {
+        return removalsCount != this.removalsCount;
+    }
+
+    /**
+     * Discard all the indexed rows
+     *
+     * @param removalsCount the current removals count of the findings
+     */
+    public void reset(long removalsCount) {
+        postings.clear();
+        indexedRows = 0;
+        this.removalsCount = removalsCount;
+    }
+
+    /**
+     * Index the rows following the ones already indexed
+     *
+     * @param rows the findings, starting from row {@link #getIndexedRows()}
+     */
+    public void add(List<LogEntity> rows) {
+        for (LogEntity entry : rows) {
+            long[] trigrams = rowTrigrams(fold(entry.getRequestUrl()), fold(entry.getRegexEntity().getDescription()), fold(entry.getMatch()));
+            for (long trigram : trigrams) {
+                postings.computeIfAbsent(trigram, key -> new IntList()).add(indexedRows);
+            }
+            indexedRows++;
+        }
+    }
+
+    private static long[] rowTrigrams(String... values) {
+        int count = 0;
+        for (String value : values) count += Math.max(0, value.length() - 2);
+        long[] trigrams = new long[count];
+        int position = 0;
+        for (String value : values) {
+            for (int i = 0; i + 2 < value.length(); i++) trigrams[position++] = trigramAt(value, i);
+        }
+        Arrays.sort(trigrams);
+        int distinct = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            if (i == 0 || trigrams[i] != trigrams[i - 1]) trigrams[distinct++] = trigrams[i];
+        }
+        return Arrays.copyOf(trigrams, distinct);
+    }
+
+    /**
+     * @return the number of rows currently indexed
+     */
+    public int getIndexedRows() {
+        return indexedRows;
+    }
+
+    /**
+     * Rows that contain all the trigrams of the text in at least one of the indexed columns.
+     * This is a superset of the rows containing the text, candidates must be verified.
+     *
+     * @param foldedText the text to search, already {@link #fold(String) folded}
+     * @return the candidate rows in ascending order, or null if the text is too short to use the index
+     */
+    public int[] candidates(String foldedText) {
+        if (foldedText.length() < 3) return null;
+
+        long[] trigrams = rowTrigrams(foldedText);
+        IntList[] lists = new IntList[trigrams.length];
+        for (int i = 0; i < trigrams.length; i++) {
+            lists[i] = postings.get(trigrams[i]);
+            if (lists[i] == null) return new int[0];
+        }
+        // intersect starting from the shortest list
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        int[] result = Arrays.copyOf(lists[0].values, lists[0].size);
+        int resultSize = result.length;
+        for (int i = 1; i < lists.length && resultSize > 0; i++) {
+            resultSize = intersect(result, resultSize, lists[i]);
+        }
+        return Arrays.copyOf(result, resultSize);
+    }
+
+    private static int intersect(int[] rows, int rowsSize, IntList other) {
+        int size = 0;
+        int j = 0;
+        for (int i = 0; i < rowsSize && j < other.size; i++) {
+            int pos = Arrays.binarySearch(other.values, j, other.size, rows[i]);
+            if (pos >= 0) {
+                rows[size++] = rows[i];
+                j = pos + 1;
+            } else {
+                j = -pos - 1;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Growable list of ints
+     */
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size + (size >> 1));
+            values[size++] = value;
+        }
+    }
+}
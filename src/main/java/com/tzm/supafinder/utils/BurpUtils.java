@@ -8,7 +8,11 @@ import java.util.List;
 
 public class BurpUtils {
     public static String convertByteArrayToString(ByteArray request) {
-        return new String(request.getBytes(), StandardCharsets.UTF_8);
+        return convertBytesToString(request.getBytes());
+    }
+
+    public static String convertBytesToString(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
     }
 
     public static String convertHttpHeaderListToString(List<HttpHeader> headers) {
@@ -0,0 +1,197 @@
+package com.tzm.supafinder.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Non-cryptographic hashing utilities
+ */
+public class HashUtils {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    /**
+     * MurmurHash3 x64 128-bit variant.
+     *
+     * @param data the bytes to hash
+     * @param seed the seed of the hash
+     * @return the hash, as {high, low} 64-bit halves
+     */
+    public static long[] murmur3x64_128(byte[] data, long seed) {
+        final int length = data.length;
+        final int blocks = length / 16;
+        long[] state = {seed, seed};
+
+        for (int i = 0; i < blocks; i++) {
+            mixBlock(state, getLongLE(data, i * 16), getLongLE(data, i * 16 + 8));
+        }
+
+        long k1 = 0;
+        long k2 = 0;
+        int tail = blocks * 16;
+        switch (length & 15) {
+            case 15: k2 ^= (long) (data[tail + 14] & 0xff) << 48;
+            case 14: k2 ^= (long) (data[tail + 13] & 0xff) << 40;
+            case 13: k2 ^= (long) (data[tail + 12] & 0xff) << 32;
+            case 12: k2 ^= (long) (data[tail + 11] & 0xff) << 24;
+            case 11: k2 ^= (long) (data[tail + 10] & 0xff) << 16;
+            case 10: k2 ^= (long) (data[tail + 9] & 0xff) << 8;
+            case 9: k2 ^= data[tail + 8] & 0xff;
+            case 8: k1 ^= (long) (data[tail + 7] & 0xff) << 56;
+            case 7: k1 ^= (long) (data[tail + 6] & 0xff) << 48;
+            case 6: k1 ^= (long) (data[tail + 5] & 0xff) << 40;
+            case 5: k1 ^= (long) (data[tail + 4] & 0xff) << 32;
+            case 4: k1 ^= (long) (data[tail + 3] & 0xff) << 24;
+            case 3: k1 ^= (long) (data[tail + 2] & 0xff) << 16;
+            case 2: k1 ^= (long) (data[tail + 1] & 0xff) << 8;
+            case 1: k1 ^= data[tail] & 0xff;
+        }
+        return finish(state, k1, k2, length);
+    }
+
+    /**
+     * MurmurHash3 x64 128-bit variant of a range of characters, hashed as their UTF-16LE bytes
+     * without copying them.
+     *
+     * @param chars the characters to hash
+     * @param from  first character to hash, inclusive
+     * @param to    last character to hash, exclusive
+     * @param seed  the seed of the hash
+     * @return the hash, as {high, low} 64-bit halves
+     */
+    public static long[] murmur3x64_128(CharSequence chars, int from, int to, long seed) {
+        final int length = (to - from) * 2;
+        long[] state = {seed, seed};
+
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            mixBlock(state, getCharsLE(chars, i, 4), getCharsLE(chars, i + 4, 4));
+        }
+
+        int tailChars = to - i;
+        long k1 = getCharsLE(chars, i, Math.min(4, tailChars));
+        long k2 = tailChars > 4 ? getCharsLE(chars, i + 4, tailChars - 4) : 0;
+        return finish(state, k1, k2, length);
+    }
+
+    private static void mixBlock(long[] state, long k1, long k2) {
+        long h1 = state[0];
+        long h2 = state[1];
+
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        h1 ^= k1;
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        h2 ^= k2;
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+
+        state[0] = h1;
+        state[1] = h2;
+    }
+
+    /**
+     * Mix the last partial block, made of the tail words k1 and k2, then finalize the hash
+     */
+    private static long[] finish(long[] state, long k1, long k2, int length) {
+        long h1 = state[0];
+        long h2 = state[1];
+        int tailLength = length & 15;
+
+        if (tailLength > 8) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+        }
+        if (tailLength > 0) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+
+        return new long[]{h1, h2};
+    }
+
+    private static long getCharsLE(CharSequence chars, int offset, int count) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value |= (long) chars.charAt(offset + i) << (16 * i);
+        }
+        return value;
+    }
+
+    private static long getLongLE(byte[] data, int offset) {
+        return (data[offset] & 0xffL)
+                | (data[offset + 1] & 0xffL) << 8
+                | (data[offset + 2] & 0xffL) << 16
+                | (data[offset + 3] & 0xffL) << 24
+                | (data[offset + 4] & 0xffL) << 32
+                | (data[offset + 5] & 0xffL) << 40
+                | (data[offset + 6] & 0xffL) << 48
+                | (data[offset + 7] & 0xffL) << 56;
+    }
+
+    /**
+     * Finalization mix of MurmurHash3: spreads the bits of a 64-bit value
+     */
+    public static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * Builder of an unambiguous byte sequence from multiple fields, to be hashed as a whole.
+     * Every field is prefixed with its length, so that ("ab", "c") and ("a", "bc") produce different bytes.
+     */
+    public static class FieldsWriter {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+
+        public FieldsWriter add(String value) {
+            if (value == null) return addInt(-1);
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            addInt(bytes.length);
+            buffer.writeBytes(bytes);
+            return this;
+        }
+
+        public FieldsWriter addInt(int value) {
+            buffer.write(value >>> 24);
+            buffer.write(value >>> 16);
+            buffer.write(value >>> 8);
+            buffer.write(value);
+            return this;
+        }
+
+        public FieldsWriter addLong(long value) {
+            addInt((int) (value >>> 32));
+            return addInt((int) value);
+        }
+
+        public byte[] toBytes() {
+            return buffer.toByteArray();
+        }
+    }
+}
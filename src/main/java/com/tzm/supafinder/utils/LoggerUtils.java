@@ -2,34 +2,38 @@ package com.tzm.supafinder.utils;
 
 import com.tzm.supafinder.model.LogEntity;
 import com.tzm.supafinder.model.LogEntriesManager;
+import com.tzm.supafinder.ui.table.LogEntriesPublisher;
 import com.tzm.supafinder.ui.table.LogsTableModel;
 
-import javax.swing.SwingUtilities;
 import java.util.function.Consumer;
 
 public class LoggerUtils {
+    /**
+     * Minimum time between two updates of the logs table
+     */
+    public static final int TABLE_FLUSH_INTERVAL_MS = 100;
+    /**
+     * Time between two checks of the retention limits when no new findings are stored
+     */
+    public static final int RETENTION_CHECK_INTERVAL_MS = 60_000;
+
+    /**
+     * Create the callback that adds the findings to the list of log entries.
+     * <br><br>
+     * When a table model is provided, findings are published to the table in batches (see {@link LogEntriesPublisher}).
+     * Otherwise, findings are added to the list immediately.
+     */
     public static Consumer<LogEntity> createAddLogEntryCallback(LogEntriesManager logEntries,
                                                                 Object logEntriesLock,
                                                                 LogsTableModel logsTableModel) {
-        return (LogEntity logEntry) -> SwingUtilities.invokeLater(() -> {
-            synchronized (logEntriesLock) {
-                if (!logEntries.contains(logEntry)) {
-                    logEntries.add(logEntry);
-                    System.out.println("[DEBUG] Added log entry. Total entries: " + logEntries.size());
+        if (logsTableModel != null) {
+            return new LogEntriesPublisher(logEntries, logEntriesLock, logsTableModel, TABLE_FLUSH_INTERVAL_MS);
+        }
 
-                    if (logsTableModel == null) {
-                        System.out.println("[DEBUG] logsTableModel is null!");
-                        return;
-                    }
-
-                    // Use fireTableDataChanged instead of fireTableRowsInserted to avoid
-                    // IndexOutOfBoundsException with RowSorter in concurrent scenarios
-                    logsTableModel.fireTableDataChanged();
-                    System.out.println("[DEBUG] Fired table data changed");
-                } else {
-                    System.out.println("[DEBUG] Duplicate entry detected, skipping");
-                }
+        return (LogEntity logEntry) -> {
+            synchronized (logEntriesLock) {
+                logEntries.addIfAbsent(logEntry);
             }
-        });
+        };
     }
 }
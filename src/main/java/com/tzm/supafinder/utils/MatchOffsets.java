@@ -0,0 +1,127 @@
+package com.tzm.supafinder.utils;
+
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.http.message.responses.HttpResponse;
+import com.tzm.supafinder.model.HttpSection;
+import com.tzm.supafinder.model.MatchPosition;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversion of the positions of the matches, relative to the content of their section,
+ * to byte offsets in the raw request or response, as needed by the Burp markers.
+ */
+public class MatchOffsets {
+
+    /**
+     * Ranges of the match, and of its refiner match, in the raw message of the section
+     *
+     * @param section  section of the match
+     * @param position position of the match in the section content
+     * @param request  the request of the finding
+     * @param response the response of the finding, can be null for request sections
+     * @return the ranges as {start, end} pairs of byte offsets, the match first. Empty if the match can't be located.
+     */
+    public static List<int[]> messageRanges(HttpSection section, MatchPosition position, HttpRequest request, HttpResponse response) {
+        if (position == null) return List.of();
+        int base;
+        byte[] raw;
+        switch (section) {
+            case REQ_URL -> {
+                // the section is the full URL, while the request line only contains the path
+                String url = request.url();
+                int pathInUrl = url.length() - request.path().length();
+                if (position.start() < pathInUrl || (position.hasRefiner() && position.refinerStart() < pathInUrl)) return List.of();
+                raw = url.substring(pathInUrl).getBytes(StandardCharsets.UTF_8);
+                base = request.method().length() + 1;
+                List<int[]> ranges = ranges(raw, 0, shift(position, -pathInUrl));
+                ranges.forEach(range -> {
+                    range[0] += base;
+                    range[1] += base;
+                });
+                return ranges;
+            }
+            case REQ_HEADERS -> {
+                raw = request.toByteArray().getBytes();
+                base = headersOffset(raw);
+            }
+            case REQ_BODY -> {
+                raw = request.toByteArray().getBytes();
+                base = request.bodyOffset();
+            }
+            case RES_HEADERS -> {
+                raw = response.toByteArray().getBytes();
+                base = headersOffset(raw);
+            }
+            case RES_BODY -> {
+                raw = response.toByteArray().getBytes();
+                base = response.bodyOffset();
+            }
+            default -> throw new IllegalArgumentException("Unknown section " + section);
+        }
+        if (base < 0) return List.of();
+        return ranges(raw, base, position);
+    }
+
+    private static MatchPosition shift(MatchPosition position, int delta) {
+        return new MatchPosition(position.start() + delta, position.end() + delta,
+                position.hasRefiner() ? position.refinerStart() + delta : -1,
+                position.hasRefiner() ? position.refinerEnd() + delta : -1);
+    }
+
+    private static List<int[]> ranges(byte[] raw, int base, MatchPosition position) {
+        List<int[]> ranges = new ArrayList<>(2);
+        ranges.add(new int[]{charToByteOffset(raw, base, position.start()), charToByteOffset(raw, base, position.end())});
+        if (position.hasRefiner()) {
+            ranges.add(new int[]{charToByteOffset(raw, base, position.refinerStart()), charToByteOffset(raw, base, position.refinerEnd())});
+        }
+        return ranges;
+    }
+
+    /**
+     * @return the offset of the first header, after the request or status line, or -1
+     */
+    static int headersOffset(byte[] raw) {
+        for (int i = 0; i + 1 < raw.length; i++) {
+            if (raw[i] == '\r' && raw[i + 1] == '\n') return i + 2;
+        }
+        return -1;
+    }
+
+    /**
+     * Convert an offset in the text decoded from UTF-8 bytes to the offset in the bytes.
+     * Invalid bytes are counted as a single character each, the replacement character of the decoder.
+     *
+     * @param utf8       the bytes
+     * @param from       offset in the bytes where the text starts
+     * @param charOffset offset in the text, in UTF-16 characters
+     * @return the offset in the bytes, at most the length of the bytes
+     */
+    public static int charToByteOffset(byte[] utf8, int from, int charOffset) {
+        int position = Math.max(0, from);
+        int chars = 0;
+        while (chars < charOffset && position < utf8.length) {
+            int lead = utf8[position] & 0xFF;
+            int length = lead < 0x80 ? 1 : lead >= 0xF0 && lead < 0xF5 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC2 ? 2 : 0;
+            if (length == 0 || lead >= 0xF5 || !isSequence(utf8, position, length)) {
+                position++;
+                chars++;
+            } else {
+                position += length;
+                // code points out of the BMP are two UTF-16 characters
+                chars += length == 4 ? 2 : 1;
+            }
+        }
+        return position;
+    }
+
+    private static boolean isSequence(byte[] utf8, int position, int length) {
+        if (position + length > utf8.length) return false;
+        for (int i = 1; i < length; i++) {
+            if ((utf8[position + i] & 0xC0) != 0x80) return false;
+        }
+        return true;
+    }
+}
@@ -8,6 +8,8 @@ import com.tzm.supafinder.RegexScanner;
 import com.tzm.supafinder.model.HttpRecord;
 import com.tzm.supafinder.model.HttpSection;
 import com.tzm.supafinder.model.RegexScannerOptions;
+import com.tzm.supafinder.scanner.ByteScanKernel;
+import com.tzm.supafinder.scanner.ByteScanKernels;
 
 import java.util.Objects;
 
@@ -16,6 +18,49 @@ public class ScannerUtils {
         return scannerOptions.isFilterSkipMaxSizeCheckbox() && responseBody.length() > scannerOptions.getConfigMaxResponseSize();
     }
 
+    /**
+     * Checks if the body is binary content, when the option to skip media-type responses is enabled.
+     * This catches binary responses that aren't recognized by their MIME type (e.g. archives or proprietary formats).
+     *
+     * @param scannerOptions options of the scanner
+     * @param body           the raw bytes of the body
+     * @return true if the body should be skipped as binary content
+     */
+    public static boolean isResponseBodyBinary(RegexScannerOptions scannerOptions, byte[] body) {
+        return scannerOptions.isFilterSkipMediaTypeCheckbox() && isBinaryContent(body);
+    }
+
+    /**
+     * Classifies the content as binary by sampling its first bytes.
+     * Any printable ASCII block in the sample is enough to consider the content as text,
+     * otherwise the content is binary only if it contains NUL bytes, which never appear in UTF-8 text.
+     *
+     * @param content the bytes to classify
+     * @return true if the content is binary
+     */
+    public static boolean isBinaryContent(byte[] content) {
+        final int sampleSize = Math.min(content.length, 4096);
+        final int blockSize = 64;
+        ByteScanKernel kernel = ByteScanKernels.get();
+
+        for (int from = 0; from < sampleSize; from += blockSize) {
+            if (kernel.isPrintableAscii(content, from, Math.min(from + blockSize, sampleSize))) return false;
+        }
+        return kernel.indexOfAny(content, 0, sampleSize, new byte[]{0}) >= 0;
+    }
+
+    /**
+     * Checks if the body is a known public file, e.g. a release of a JavaScript library, that never contains secrets
+     *
+     * @param scannerOptions options of the scanner
+     * @param body           the raw bytes of the body
+     * @return true if the body should be skipped as a known asset
+     * @see com.tzm.supafinder.scanner.AssetAllowlist
+     */
+    public static boolean isResponseBodyKnownAsset(RegexScannerOptions scannerOptions, byte[] body) {
+        return scannerOptions.getAssetAllowlist().contains(body);
+    }
+
     public static boolean isResponseEmpty(HttpResponse response) {
         return Objects.isNull(response);
     }
@@ -6,13 +6,18 @@ import com.tzm.supafinder.mock.PreferencesMock;
 import com.tzm.supafinder.mock.ProxyHttpRequestResponseMock;
 import com.tzm.supafinder.mock.ProxyMock;
 import com.tzm.supafinder.model.*;
+import com.tzm.supafinder.scanner.AssetAllowlist;
+import com.tzm.supafinder.scanner.ScanReport;
+import com.tzm.supafinder.scanner.ScanWatermark;
 import com.tzm.supafinder.utils.LoggerUtils;
 import com.tzm.supafinder.utils.Utils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.function.Consumer;
 
@@ -61,8 +66,12 @@ class RegexScannerTest {
         scannerOptions.getExtensionsRegexList().clear();
 
         this.regexScanner = new RegexScanner(this.burpApi, this.scannerOptions);
-        regexScanner.analyzeProxyHistory(logEntityConsumer);
+        ScanReport report = regexScanner.analyzeProxyHistory(logEntityConsumer);
 
+        assertThat(report.analyzedItems()).isEqualTo(2);
+        assertThat(report.findings()).isEqualTo(10);
+        assertThat(report.cancelled()).isFalse();
+        assertThat(report.endTime()).isAfterOrEqualTo(report.startTime());
         assertThat(logEntriesManager.size()).as("Check count of entries found").isEqualTo(10);
         assertThat(logEntriesManager.getAll()).containsExactly(
                 new LogEntity(request2.finalRequest(), request2.response(), generalRegexes.get(0), HttpSection.REQ_URL, "test.com"),
@@ -162,4 +171,83 @@ class RegexScannerTest {
                 new LogEntity(request.finalRequest(), request.response(), generalRegexes.get(0), HttpSection.RES_BODY, "bucket-name.test.example.com")
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void testRepeatedBodiesAreMatchedOnce() {
+        String body = "<script>" + "x".repeat(1000) + " token=secret-42 " + "y".repeat(1000) + "</script>";
+        ProxyHttpRequestResponseMock request1 = new ProxyHttpRequestResponseMock("first", body, "Mon, 01 Jan 1990 10:00:00 GMT");
+        ProxyHttpRequestResponseMock request2 = new ProxyHttpRequestResponseMock("second", body, "Mon, 01 Jan 1990 10:00:01 GMT");
+        RegexEntity secret = new RegexEntity("Secret", "secret-\\d+", true, EnumSet.of(HttpSection.RES_BODY), "token=");
+        scannerOptions.getGeneralRegexList().clear();
+        scannerOptions.getGeneralRegexList().add(secret);
+        scannerOptions.getExtensionsRegexList().clear();
+        this.regexScanner = new RegexScanner(this.burpApi, this.scannerOptions);
+
+        this.setProxyHistory(request1, request2);
+        assertThat(regexScanner.analyzeProxyHistory(logEntityConsumer).findings()).isEqualTo(2);
+        assertThat(regexScanner.getMatchCacheStats().hits()).as("The second body is not matched again").isEqualTo(1);
+        assertThat(logEntriesManager.getAll()).containsExactlyInAnyOrder(
+                new LogEntity(request1.finalRequest(), request1.response(), secret, HttpSection.RES_BODY, "token=secret-42"),
+                new LogEntity(request2.finalRequest(), request2.response(), secret, HttpSection.RES_BODY, "token=secret-42"));
+        assertThat(logEntriesManager.getAll()).extracting(LogEntity::getPosition).containsOnly(logEntriesManager.getAll().get(0).getPosition());
+    }
+
+    @Test
+    void testKnownAssetsAreSkipped() {
+        String library = "/*! lib v1.0 */ var apiKey = 'AKIA0000000000000000';";
+        ProxyHttpRequestResponseMock asset = new ProxyHttpRequestResponseMock("", library, "Mon, 01 Jan 1990 10:00:00 GMT");
+        ProxyHttpRequestResponseMock page = new ProxyHttpRequestResponseMock("", "AKIA1111111111111111", "Mon, 01 Jan 1990 10:00:01 GMT");
+        scannerOptions.getGeneralRegexList().clear();
+        scannerOptions.getGeneralRegexList().add(new RegexEntity("AWS key", "AKIA[0-9A-Z]{16}", true, HttpSection.ALL, ""));
+        scannerOptions.getExtensionsRegexList().clear();
+        scannerOptions.getAssetAllowlist().addAll(List.of(AssetAllowlist.fingerprint("lib.js", library.getBytes(StandardCharsets.UTF_8))));
+        this.regexScanner = new RegexScanner(this.burpApi, this.scannerOptions);
+
+        this.setProxyHistory(asset, page);
+        assertThat(regexScanner.analyzeProxyHistory(logEntityConsumer).findings()).isEqualTo(1);
+        assertThat(logEntriesManager.getAll()).extracting(LogEntity::getMatch).containsExactly("AKIA1111111111111111");
+        assertThat(scannerOptions.getAssetAllowlist().getSkippedBodies()).isEqualTo(1);
+    }
+
+    @Test
+    void testIncrementalHistoryScan() {
+        ProxyHttpRequestResponseMock request1 = new ProxyHttpRequestResponseMock("testing 1", "testing 1", "Mon, 01 Jan 1990 10:00:00 GMT");
+        ProxyHttpRequestResponseMock request2 = new ProxyHttpRequestResponseMock("testing 2", "testing 2", "Mon, 01 Jan 1990 10:00:01 GMT");
+        ProxyHttpRequestResponseMock request3 = new ProxyHttpRequestResponseMock("testing 3", "testing 3", "Mon, 01 Jan 1990 10:00:02 GMT");
+        scannerOptions.getGeneralRegexList().clear();
+        scannerOptions.getGeneralRegexList().add(new RegexEntity("Match test string", "testing \\d", true, HttpSection.ALL, ""));
+        scannerOptions.getExtensionsRegexList().clear();
+        this.regexScanner = new RegexScanner(this.burpApi, this.scannerOptions);
+
+        this.setProxyHistory(request1, request2);
+        assertThat(regexScanner.analyzeProxyHistory(logEntityConsumer, false).analyzedItems()).isEqualTo(2);
+        assertThat(ScanWatermark.load(burpApi.persistence().extensionData())).get()
+                .extracting(ScanWatermark::historySize).isEqualTo(2);
+
+        this.setProxyHistory(request1, request2, request3);
+        assertThat(regexScanner.analyzeProxyHistory(logEntityConsumer, false).analyzedItems())
+                .as("Only the new item is analyzed").isEqualTo(1);
+        this.setProxyHistory(request1, request2, request3);
+        assertThat(regexScanner.analyzeProxyHistory(logEntityConsumer, false).analyzedItems()).isZero();
+        assertThat(logEntriesManager.getAll()).extracting(LogEntity::getMatch)
+                .containsExactlyInAnyOrder("testing 1", "testing 1", "testing 2", "testing 2", "testing 3", "testing 3");
+
+        this.setProxyHistory(request1, request2, request3);
+        assertThat(regexScanner.analyzeProxyHistory(logEntityConsumer, true).analyzedItems())
+                .as("Full rescan").isEqualTo(3);
+
+        RegexEntity first = new RegexEntity("Match first string", "testing 1", true, HttpSection.ALL, "");
+        scannerOptions.getGeneralRegexList().add(first);
+        this.setProxyHistory(request1, request2, request3);
+        ScanReport report = regexScanner.analyzeProxyHistory(logEntityConsumer, false);
+        assertThat(report.analyzedItems()).as("The new rule is run on all the items").isEqualTo(3);
+        assertThat(report.findings()).as("Only the new rule is run").isEqualTo(2);
+        assertThat(logEntriesManager.getAll()).filteredOn(entry -> entry.getRegexEntity().equals(first)).hasSize(2);
+        this.setProxyHistory(request1, request2, request3);
+        assertThat(regexScanner.analyzeProxyHistory(logEntityConsumer, false).analyzedItems()).isZero();
+
+        this.setProxyHistory(request2, request3);
+        assertThat(regexScanner.analyzeProxyHistory(logEntityConsumer, false).analyzedItems())
+                .as("The history changed").isEqualTo(2);
+    }
+}
@@ -0,0 +1,52 @@
+package com.tzm.supafinder.mock;
+
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.http.message.responses.HttpResponse;
+import com.tzm.supafinder.model.EvidenceCodec;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codec that keeps the messages in memory, encoding them as their position in a list.
+ * The same message is always encoded with the same bytes.
+ */
+public class EvidenceCodecMock implements EvidenceCodec {
+    private final List<Object> messages = new ArrayList<>();
+    private final Map<Object, Integer> ids = new IdentityHashMap<>();
+
+    private synchronized byte[] register(Object message) {
+        int id = ids.computeIfAbsent(message, key -> {
+            messages.add(key);
+            return messages.size() - 1;
+        });
+        return ByteBuffer.allocate(Integer.BYTES).putInt(id).array();
+    }
+
+    private synchronized Object lookup(ByteBuffer bytes) {
+        return messages.get(bytes.getInt());
+    }
+
+    @Override
+    public byte[] encodeRequest(HttpRequest request) {
+        return register(request);
+    }
+
+    @Override
+    public HttpRequest decodeRequest(ByteBuffer bytes) {
+        return (HttpRequest) lookup(bytes);
+    }
+
+    @Override
+    public byte[] encodeResponse(HttpResponse response) {
+        return register(response);
+    }
+
+    @Override
+    public HttpResponse decodeResponse(ByteBuffer bytes) {
+        return (HttpResponse) lookup(bytes);
+    }
+}
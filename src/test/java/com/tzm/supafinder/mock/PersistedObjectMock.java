@@ -0,0 +1,420 @@
+package com.tzm.supafinder.mock;
+
+import burp.api.montoya.core.ByteArray;
+import burp.api.montoya.http.message.HttpRequestResponse;
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.http.message.responses.HttpResponse;
+import burp.api.montoya.persistence.PersistedList;
+import burp.api.montoya.persistence.PersistedObject;
+import org.apache.commons.lang3.NotImplementedException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+public class PersistedObjectMock implements PersistedObject {
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<String, Boolean> booleans = new HashMap<>();
+    private final Map<String, Integer> integers = new HashMap<>();
+    private final Map<String, Long> longs = new HashMap<>();
+
+    @Override
+    public PersistedObject getChildObject(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void setChildObject(String key, PersistedObject value) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void deleteChildObject(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public Set<String> childObjectKeys() {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public String getString(String key) {
+        return strings.get(key);
+    }
+
+    @Override
+    public void setString(String key, String value) {
+        strings.put(key, value);
+    }
+
+    @Override
+    public void deleteString(String key) {
+        strings.remove(key);
+    }
+
+    @Override
+    public Set<String> stringKeys() {
+        return strings.keySet();
+    }
+
+    @Override
+    public Boolean getBoolean(String key) {
+        return booleans.get(key);
+    }
+
+    @Override
+    public void setBoolean(String key, boolean value) {
+        booleans.put(key, value);
+    }
+
+    @Override
+    public void deleteBoolean(String key) {
+        booleans.remove(key);
+    }
+
+    @Override
+    public Set<String> booleanKeys() {
+        return booleans.keySet();
+    }
+
+    @Override
+    public Byte getByte(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void setByte(String key, byte value) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void deleteByte(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public Set<String> byteKeys() {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public Short getShort(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void setShort(String key, short value) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void deleteShort(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public Set<String> shortKeys() {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public Integer getInteger(String key) {
+        return integers.get(key);
+    }
+
+    @Override
+    public void setInteger(String key, int value) {
+        integers.put(key, value);
+    }
+
+    @Override
+    public void deleteInteger(String key) {
+        integers.remove(key);
+    }
+
+    @Override
+    public Set<String> integerKeys() {
+        return integers.keySet();
+    }
+
+    @Override
+    public Long getLong(String key) {
+        return longs.get(key);
+    }
+
+    @Override
+    public void setLong(String key, long value) {
+        longs.put(key, value);
+    }
+
+    @Override
+    public void deleteLong(String key) {
+        longs.remove(key);
+    }
+
+    @Override
+    public Set<String> longKeys() {
+        return longs.keySet();
+    }
+
+    @Override
+    public ByteArray getByteArray(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void setByteArray(String key, ByteArray value) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void deleteByteArray(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public Set<String> byteArrayKeys() {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public HttpRequest getHttpRequest(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void setHttpRequest(String key, HttpRequest value) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void deleteHttpRequest(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public Set<String> httpRequestKeys() {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public PersistedList<HttpRequest> getHttpRequestList(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void setHttpRequestList(String key, PersistedList<HttpRequest> value) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void deleteHttpRequestList(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public Set<String> httpRequestListKeys() {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public HttpResponse getHttpResponse(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void setHttpResponse(String key, HttpResponse value) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void deleteHttpResponse(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public Set<String> httpResponseKeys() {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public PersistedList<HttpResponse> getHttpResponseList(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void setHttpResponseList(String key, PersistedList<HttpResponse> value) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void deleteHttpResponseList(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public Set<String> httpResponseListKeys() {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public HttpRequestResponse getHttpRequestResponse(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void setHttpRequestResponse(String key, HttpRequestResponse value) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void deleteHttpRequestResponse(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public Set<String> httpRequestResponseKeys() {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public PersistedList<HttpRequestResponse> getHttpRequestResponseList(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void setHttpRequestResponseList(String key, PersistedList<HttpRequestResponse> value) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void deleteHttpRequestResponseList(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public Set<String> httpRequestResponseListKeys() {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public PersistedList<Boolean> getBooleanList(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void setBooleanList(String key, PersistedList<Boolean> value) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void deleteBooleanList(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public Set<String> booleanListKeys() {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public PersistedList<Short> getShortList(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void setShortList(String key, PersistedList<Short> value) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void deleteShortList(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public Set<String> shortListKeys() {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public PersistedList<Integer> getIntegerList(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void setIntegerList(String key, PersistedList<Integer> value) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void deleteIntegerList(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public Set<String> integerListKeys() {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public PersistedList<Long> getLongList(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void setLongList(String key, PersistedList<Long> value) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void deleteLongList(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public Set<String> longListKeys() {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public PersistedList<String> getStringList(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void setStringList(String key, PersistedList<String> value) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void deleteStringList(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public Set<String> stringListKeys() {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public PersistedList<ByteArray> getByteArrayList(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void setByteArrayList(String key, PersistedList<ByteArray> value) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public void deleteByteArrayList(String key) {
+        throw new NotImplementedException();
+    }
+
+    @Override
+    public Set<String> byteArrayListKeys() {
+        throw new NotImplementedException();
+    }
+}
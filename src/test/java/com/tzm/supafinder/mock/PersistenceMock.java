@@ -3,10 +3,10 @@ package com.tzm.supafinder.mock;
 import burp.api.montoya.persistence.PersistedObject;
 import burp.api.montoya.persistence.Persistence;
 import burp.api.montoya.persistence.Preferences;
-import org.apache.commons.lang3.NotImplementedException;
 
 public class PersistenceMock implements Persistence {
     private final Preferences preferences = new PreferencesMock();
+    private final PersistedObject extensionData = new PersistedObjectMock();
 
     @Override
     public Preferences preferences() {
@@ -15,6 +15,6 @@ public class PersistenceMock implements Persistence {
 
     @Override
     public PersistedObject extensionData() {
-        throw new NotImplementedException();
+        return this.extensionData;
     }
 }
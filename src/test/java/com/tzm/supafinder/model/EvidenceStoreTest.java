@@ -0,0 +1,94 @@
+package com.tzm.supafinder.model;
+
+import com.tzm.supafinder.mock.EvidenceCodecMock;
+import com.tzm.supafinder.mock.ProxyHttpRequestResponseMock;
+import com.tzm.supafinder.utils.BurpUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EvidenceStoreTest {
+    private static final int HOT_MESSAGES = 16;
+    private final RegexEntity regex = new RegexEntity("Match test string", "test.{0,10}", true, HttpSection.ALL, "");
+    private final EvidenceStore evidenceStore = new EvidenceStore(HOT_MESSAGES, new EvidenceCodecMock());
+
+    @AfterEach
+    void tearDown() {
+        evidenceStore.close();
+    }
+
+    private static ProxyHttpRequestResponseMock message(int i) {
+        return new ProxyHttpRequestResponseMock("request " + i, "response " + i, "Mon, 01 Jan 1990 10:00:00 GMT");
+    }
+
+    @Test
+    void testOldMessagesAreSpilledAndLoadedBack() {
+        List<ProxyHttpRequestResponseMock> messages = IntStream.range(0, 200).mapToObj(EvidenceStoreTest::message).toList();
+        List<EvidenceStore.Handle> handles = messages.stream()
+                .map(message -> evidenceStore.store(message.finalRequest(), message.response()))
+                .toList();
+        EvidenceStore.Handle withoutResponse = evidenceStore.store(messages.get(0).finalRequest(), null);
+
+        assertThat(evidenceStore.getStats().hotMessages()).isEqualTo(HOT_MESSAGES);
+        assertThat(evidenceStore.getStats().spilledMessages()).isEqualTo(201 - HOT_MESSAGES);
+        assertThat(evidenceStore.getStats().spilledBytes()).isPositive();
+        for (int i = 0; i < messages.size(); i++) {
+            assertThat(handles.get(i).id()).isEqualTo(i);
+            assertThat(handles.get(i).request()).isSameAs(messages.get(i).finalRequest());
+            assertThat(handles.get(i).response()).isSameAs(messages.get(i).response());
+        }
+        assertThat(withoutResponse.response()).isNull();
+    }
+
+    @Test
+    void testFindingsWithHandleEqualLegacyFindings() {
+        ProxyHttpRequestResponseMock message = message(1);
+        String responseHeaders = BurpUtils.convertHttpHeaderListToString(message.response().headers());
+        LogEntity compact = new LogEntity(evidenceStore.store(message.finalRequest(), message.response()), "https://test.com",
+                responseHeaders, regex, HttpSection.RES_BODY, "test", MatchPosition.of(4, 8), "resptest");
+        LogEntity legacy = new LogEntity(message.finalRequest(), message.response(), regex, HttpSection.RES_BODY, "test");
+
+        assertThat(compact).isEqualTo(legacy);
+        assertThat(compact.getPosition()).isEqualTo(MatchPosition.of(4, 8));
+        assertThat(legacy.getPosition()).isNull();
+        assertThat(legacy.getContext()).isNull();
+    }
+
+    @Test
+    void testMatchedTextExcludesTheRefinerMatch() {
+        ProxyHttpRequestResponseMock message = message(1);
+        LogEntity refined = new LogEntity(evidenceStore.store(message.finalRequest(), message.response()), "https://test.com",
+                null, regex, HttpSection.RES_BODY, "key=secret", new MatchPosition(20, 26, 10, 14), "");
+        LogEntity plain = new LogEntity(evidenceStore.store(message.finalRequest(), message.response()), "https://test.com",
+                null, regex, HttpSection.RES_BODY, "secret", MatchPosition.of(20, 26), "");
+
+        assertThat(refined.getMatch()).isEqualTo("key=secret");
+        assertThat(refined.getMatchedText()).isEqualTo("secret");
+        assertThat(plain.getMatchedText()).isEqualTo("secret");
+    }
+
+    @Test
+    void testSpilledFindingsKeepTheirHandle() {
+        try (FindingsStore findings = new FindingsStore(FindingsStore.PAGE_ROWS, new EvidenceCodecMock())) {
+            List<LogEntity> entries = IntStream.range(0, 1000).mapToObj(i -> {
+                ProxyHttpRequestResponseMock message = message(i % 50);
+                return new LogEntity(evidenceStore.store(message.finalRequest(), message.response()), "https://test.com",
+                        null, regex, HttpSection.RES_BODY, "match-" + i, new MatchPosition(i, i + 7, i % 2 - 1, i % 2), "context " + i);
+            }).toList();
+            findings.addAll(entries);
+            assertThat(findings.getStats().spilledRows()).isPositive();
+
+            for (int row = 0; row < entries.size(); row++) {
+                LogEntity stored = findings.get(row);
+                assertThat(stored).isEqualTo(entries.get(row));
+                assertThat(stored.getEvidence()).isEqualTo(entries.get(row).getEvidence());
+                assertThat(stored.getPosition()).isEqualTo(entries.get(row).getPosition());
+                assertThat(stored.getContext()).isEqualTo("context " + row);
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.tzm.supafinder.model;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.tzm.supafinder.mock.ProxyHttpRequestResponseMock;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FindingsJournalTest {
+    private final RegexEntity regex = new RegexEntity("Match test string", "test.{0,10}", true, HttpSection.ALL, "");
+    private final ProxyHttpRequestResponseMock message = new ProxyHttpRequestResponseMock("testing", "testing", "Mon, 01 Jan 1990 10:00:00 GMT");
+
+    @TempDir
+    Path tempDir;
+
+    private List<LogEntity> logEntities(int from, int to) {
+        return IntStream.range(from, to)
+                .mapToObj(i -> new LogEntity(message.finalRequest(), message.response(), regex, HttpSection.RES_BODY, "match-\"" + i + "\"\n"))
+                .toList();
+    }
+
+    @Test
+    void testFindingsAreAppendedAsChecksummedLines() throws IOException {
+        Path path = tempDir.resolve("findings.jsonl");
+        List<LogEntity> entries = logEntities(0, 5);
+        try (FindingsJournal journal = new FindingsJournal(path, 1024 * 1024)) {
+            journal.append(entries.subList(0, 3));
+            journal.sync();
+            journal.append(entries.subList(3, 5));
+            journal.sync();
+            assertThat(journal.getStats().committedRecords()).isEqualTo(5);
+            assertThat(journal.getStats().commits()).isBetween(1L, 5L);
+        }
+
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(5).allMatch(FindingsJournal::isValidRecord);
+        for (int i = 0; i < lines.size(); i++) {
+            JsonObject record = JsonParser.parseString(lines.get(i)).getAsJsonObject();
+            assertThat(record.get("seq").getAsLong()).isEqualTo(i + 1);
+            assertThat(record.get("match").getAsString()).isEqualTo("match-\"" + i + "\"\n");
+            assertThat(record.get("rule").getAsString()).isEqualTo("Match test string");
+            assertThat(record.get("url").getAsString()).isEqualTo("https://test.com");
+            assertThat(record.get("time").getAsString()).isEqualTo(Instant.ofEpochMilli(entries.get(i).getFoundAt()).toString());
+        }
+        assertThat(FindingsJournal.isValidRecord(lines.get(0).replace("match-", "match+"))).isFalse();
+        assertThat(FindingsJournal.isValidRecord(lines.get(0).substring(0, 40))).isFalse();
+    }
+
+    @Test
+    void testTornRecordIsRemovedOnOpen() throws IOException {
+        Path path = tempDir.resolve("findings.jsonl");
+        try (FindingsJournal journal = new FindingsJournal(path, 1024 * 1024)) {
+            journal.append(logEntities(0, 2));
+        }
+        Files.writeString(path, "{\"seq\":3,\"match\":\"torn", StandardOpenOption.APPEND);
+
+        try (FindingsJournal journal = new FindingsJournal(path, 1024 * 1024)) {
+            journal.append(logEntities(2, 3));
+        }
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(3).allMatch(FindingsJournal::isValidRecord);
+        assertThat(JsonParser.parseString(lines.get(2)).getAsJsonObject().get("seq").getAsLong()).isEqualTo(3);
+    }
+
+    @Test
+    void testInvalidLastLinesAreRemovedOnOpen() throws IOException {
+        Path path = tempDir.resolve("findings.jsonl");
+        try (FindingsJournal journal = new FindingsJournal(path, 1024 * 1024)) {
+            journal.append(logEntities(0, 2));
+        }
+        String committed = Files.readString(path, StandardCharsets.UTF_8);
+        String corrupted = committed.lines().skip(1).findFirst().orElseThrow().replace("match-", "match+");
+        Files.writeString(path, corrupted + "\nnot a record\n{\"seq\":5,\"match\":\"torn", StandardOpenOption.APPEND);
+
+        try (FindingsJournal journal = new FindingsJournal(path, 1024 * 1024)) {
+            assertThat(Files.readString(path, StandardCharsets.UTF_8)).isEqualTo(committed);
+            journal.append(logEntities(2, 3));
+        }
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(3).allMatch(FindingsJournal::isValidRecord);
+        assertThat(JsonParser.parseString(lines.get(2)).getAsJsonObject().get("seq").getAsLong()).isEqualTo(3);
+    }
+
+    @Test
+    void testSequenceContinuesAfterARotation() throws IOException {
+        Path path = tempDir.resolve("findings.jsonl");
+        try (FindingsJournal journal = new FindingsJournal(path, 1024)) {
+            // a single group larger than the file, rotated right after being written
+            journal.append(logEntities(0, 10));
+            journal.sync();
+            assertThat(journal.getStats().rotations()).isEqualTo(1);
+        }
+        assertThat(path).isEmptyFile();
+
+        try (FindingsJournal journal = new FindingsJournal(path, 1024 * 1024)) {
+            journal.append(logEntities(10, 11));
+        }
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(1);
+        assertThat(JsonParser.parseString(lines.get(0)).getAsJsonObject().get("seq").getAsLong()).isEqualTo(11);
+    }
+
+    @Test
+    void testFilesAreRotatedBySize() throws IOException {
+        Path path = tempDir.resolve("findings.jsonl");
+        try (FindingsJournal journal = new FindingsJournal(path, 1024)) {
+            for (int i = 0; i < 40; i++) {
+                journal.append(logEntities(i * 4, i * 4 + 4));
+                journal.sync();
+            }
+            assertThat(journal.getStats().rotations()).isPositive();
+            assertThat(journal.rotatedPath(1)).exists();
+            assertThat(journal.rotatedPath(FindingsJournal.MAX_ROTATED_FILES + 1)).doesNotExist();
+        }
+        assertThat(Files.readAllLines(path, StandardCharsets.UTF_8)).allMatch(FindingsJournal::isValidRecord);
+        assertThat(Files.readAllLines(tempDir.resolve("findings.jsonl.1"), StandardCharsets.UTF_8))
+                .isNotEmpty()
+                .allMatch(FindingsJournal::isValidRecord);
+    }
+
+    @Test
+    void testDroppedFindingsLeaveGapsInTheSequenceNumbers() throws IOException {
+        Path path = tempDir.resolve("findings.jsonl");
+        FindingsJournal.Stats stats;
+        try (FindingsJournal journal = new FindingsJournal(path, 1024 * 1024, 4)) {
+            for (int i = 0; i < 100; i++) journal.append(logEntities(i, i + 1));
+            journal.sync();
+            journal.append(logEntities(100, 101));
+            journal.sync();
+            stats = journal.getStats();
+        }
+        assertThat(stats.droppedRecords()).isPositive();
+        assertThat(stats.committedRecords() + stats.droppedRecords()).isEqualTo(101);
+
+        List<Long> seqs = Files.readAllLines(path, StandardCharsets.UTF_8).stream()
+                .map(line -> JsonParser.parseString(line).getAsJsonObject().get("seq").getAsLong())
+                .collect(Collectors.toList());
+        assertThat(seqs).hasSize((int) stats.committedRecords()).isSorted().doesNotHaveDuplicates().allMatch(seq -> seq >= 1 && seq <= 101);
+        assertThat(seqs.get(seqs.size() - 1)).as("Gaps of the dropped findings").isEqualTo(101);
+    }
+}
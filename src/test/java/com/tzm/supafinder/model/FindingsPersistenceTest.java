@@ -0,0 +1,187 @@
+package com.tzm.supafinder.model;
+
+import burp.api.montoya.proxy.ProxyHttpRequestResponse;
+import com.tzm.supafinder.mock.EvidenceCodecMock;
+import com.tzm.supafinder.mock.PersistedObjectMock;
+import com.tzm.supafinder.mock.ProxyHttpRequestResponseMock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class FindingsPersistenceTest {
+    private final RegexEntity regex = new RegexEntity("Match test string", "test.{0,10}", true, HttpSection.ALL, "");
+    private final RegexEntity otherRegex = new RegexEntity("Other", "other", true, HttpSection.ALL, "");
+    private final EvidenceCodecMock codec = new EvidenceCodecMock();
+    private final PersistedObjectMock extensionData = new PersistedObjectMock();
+    private final EvidenceStore evidenceStore = new EvidenceStore(16, codec);
+    private final List<ProxyHttpRequestResponse> history = new ArrayList<>();
+    private final HistoryReference.Source source = new HistoryReference.Source(() -> history);
+
+    @AfterEach
+    void tearDown() {
+        evidenceStore.close();
+    }
+
+    private ProxyHttpRequestResponseMock historyItem(String body) {
+        ProxyHttpRequestResponseMock item = new ProxyHttpRequestResponseMock(body, body, "Mon, 01 Jan 1990 10:00:00 GMT");
+        history.add(item);
+        return item;
+    }
+
+    private LogEntity fromHistory(ProxyHttpRequestResponseMock item, RegexEntity rule, String match) {
+        Evidence evidence = evidenceStore.store(item.finalRequest(), item.response(), history.indexOf(item));
+        return new LogEntity(evidence, "https://test.com", null, rule, HttpSection.RES_BODY, match,
+                new MatchPosition(1, 2, 1, 2), "context " + match);
+    }
+
+    private LogEntity fromRepeater(String match) {
+        ProxyHttpRequestResponseMock message = new ProxyHttpRequestResponseMock("repeated", "repeated", "Mon, 01 Jan 1990 10:00:00 GMT");
+        return new LogEntity(message.finalRequest(), message.response(), regex, HttpSection.REQ_BODY, match);
+    }
+
+    private List<LogEntity> findings(int from, int to) {
+        ProxyHttpRequestResponseMock item = historyItem("testing");
+        return IntStream.range(from, to).mapToObj(i -> fromHistory(item, regex, "match-" + i)).toList();
+    }
+
+    private LogEntriesManager restore(List<RegexEntity> rules, AtomicInteger pages) {
+        LogEntriesManager restored = new LogEntriesManager();
+        new FindingsPersistence(extensionData, codec).restore(restored, restored::addAllIfAbsent, rules, source, pages::incrementAndGet);
+        return restored;
+    }
+
+    @Test
+    void testFindingsAreRestoredFromTheProject() {
+        LogEntriesManager logEntries = new LogEntriesManager();
+        FindingsPersistence persistence = new FindingsPersistence(extensionData, codec);
+        assertThat(persistence.hasSavedFindings()).isFalse();
+
+        logEntries.addAll(findings(0, 3));
+        logEntries.add(fromRepeater("repeater"));
+        persistence.save(logEntries);
+        assertThat(persistence.hasSavedFindings()).isTrue();
+
+        AtomicInteger pages = new AtomicInteger();
+        LogEntriesManager restored = restore(List.of(regex), pages);
+        assertThat(pages).hasValue(1);
+        assertThat(restored.getAll()).containsExactlyElementsOf(logEntries.getAll());
+        for (int row = 0; row < logEntries.size(); row++) {
+            LogEntity expected = logEntries.get(row);
+            LogEntity actual = restored.get(row);
+            assertThat(actual.getRegexEntity()).isSameAs(regex);
+            assertThat(actual.getMatch()).isEqualTo(expected.getMatch());
+            assertThat(actual.getContext()).isEqualTo(expected.getContext());
+            assertThat(actual.getPosition()).isEqualTo(expected.getPosition());
+            assertThat(actual.getRequestUrl()).isEqualTo(expected.getRequestUrl());
+            assertThat(actual.getResponse()).isSameAs(expected.getResponse());
+        }
+        assertThat(restored.get(0).getEvidence()).isInstanceOf(HistoryReference.class);
+        assertThat(restored.get(3).getEvidence()).isNotInstanceOf(HistoryReference.class);
+    }
+
+    @Test
+    void testOnlyNewPagesAreWritten() {
+        LogEntriesManager logEntries = new LogEntriesManager();
+        FindingsPersistence persistence = new FindingsPersistence(extensionData, codec);
+        logEntries.addAll(findings(0, FindingsPersistence.PAGE_ROWS + 10));
+        persistence.save(logEntries);
+        String firstPage = extensionData.getString("findings-page-0");
+
+        logEntries.addAll(findings(FindingsPersistence.PAGE_ROWS + 10, 2 * FindingsPersistence.PAGE_ROWS + 10));
+        persistence.save(logEntries);
+        assertThat(extensionData.getString("findings-page-0")).isSameAs(firstPage);
+        assertThat(extensionData.getString("findings-page-2")).isNotNull();
+
+        AtomicInteger pages = new AtomicInteger();
+        assertThat(restore(List.of(regex), pages).getAll()).containsExactlyElementsOf(logEntries.getAll());
+        assertThat(pages).hasValue(3);
+    }
+
+    @Test
+    void testRemovalsRewriteThePages() {
+        LogEntriesManager logEntries = new LogEntriesManager();
+        FindingsPersistence persistence = new FindingsPersistence(extensionData, codec);
+        logEntries.addAll(findings(0, FindingsPersistence.PAGE_ROWS + 10));
+        persistence.save(logEntries);
+
+        logEntries.removeIf(entry -> Integer.parseInt(entry.getMatch().substring(6)) >= 100);
+        persistence.save(logEntries);
+        assertThat(extensionData.getString("findings-page-1")).isNull();
+        assertThat(restore(List.of(regex), new AtomicInteger()).getAll()).containsExactlyElementsOf(logEntries.getAll());
+
+        logEntries.clear();
+        persistence.save(logEntries);
+        assertThat(persistence.hasSavedFindings()).isTrue();
+        assertThat(restore(List.of(regex), new AtomicInteger()).size()).isZero();
+    }
+
+    @Test
+    void testFindingsOfRemovedRulesAreNotRestored() {
+        LogEntriesManager logEntries = new LogEntriesManager();
+        ProxyHttpRequestResponseMock item = historyItem("testing other");
+        logEntries.add(fromHistory(item, regex, "testing"));
+        logEntries.add(fromHistory(item, otherRegex, "other"));
+        new FindingsPersistence(extensionData, codec).save(logEntries);
+
+        LogEntriesManager restored = restore(List.of(otherRegex), new AtomicInteger());
+        assertThat(restored.getAll()).extracting(LogEntity::getMatch).containsExactly("other");
+    }
+
+    @Test
+    void testSavedFindingsAreKeptUntilRestored() {
+        LogEntriesManager logEntries = new LogEntriesManager();
+        logEntries.addAll(findings(0, 10));
+        new FindingsPersistence(extensionData, codec).save(logEntries);
+
+        FindingsPersistence persistence = new FindingsPersistence(extensionData, codec);
+        LogEntriesManager newSession = new LogEntriesManager();
+        newSession.add(fromRepeater("repeater"));
+        persistence.save(newSession);
+        assertThat(restore(List.of(regex), new AtomicInteger()).size()).isEqualTo(10);
+
+        persistence.restore(newSession, newSession::addAllIfAbsent, List.of(regex), source, () -> {
+        });
+        persistence.save(newSession);
+        assertThat(restore(List.of(regex), new AtomicInteger()).size()).isEqualTo(11);
+    }
+
+    @Test
+    void testRolledUpFindingsAreRestored() {
+        LogEntriesManager logEntries = new LogEntriesManager();
+        logEntries.addAll(findings(0, 2));
+        logEntries.getRollup().add(fromRepeater("old"));
+        logEntries.getRollup().add(fromRepeater("old"));
+        logEntries.getRollup().add(fromRepeater("other old"));
+        FindingsPersistence persistence = new FindingsPersistence(extensionData, codec);
+        persistence.save(logEntries);
+
+        LogEntriesManager restored = restore(List.of(regex), new AtomicInteger());
+        assertThat(restored.size()).isEqualTo(2);
+        assertThat(restored.getRollup().getRows()).containsExactlyElementsOf(logEntries.getRollup().getRows());
+        assertThat(restored.getRollup().getRolledUpFindings()).isEqualTo(3);
+
+        logEntries.getRollup().clear();
+        persistence.save(logEntries);
+        assertThat(restore(List.of(regex), new AtomicInteger()).getRollup().size()).isZero();
+    }
+
+    @Test
+    void testMissingHistoryItemFailsOnlyWhenLoaded() {
+        LogEntriesManager logEntries = new LogEntriesManager();
+        logEntries.addAll(findings(0, 1));
+        new FindingsPersistence(extensionData, codec).save(logEntries);
+
+        history.clear();
+        LogEntity restored = restore(List.of(regex), new AtomicInteger()).get(0);
+        assertThat(restored.getMatch()).isEqualTo("match-0");
+        assertThat(catchThrowable(restored::getRequest))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
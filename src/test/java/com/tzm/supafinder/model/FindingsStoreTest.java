@@ -0,0 +1,214 @@
+package com.tzm.supafinder.model;
+
+import com.tzm.supafinder.mock.EvidenceCodecMock;
+import com.tzm.supafinder.mock.ProxyHttpRequestResponseMock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FindingsStoreTest {
+    private static final int HOT_ROWS = 300;
+    private final RegexEntity regex = new RegexEntity("Match test string", "test.{0,10}", true, HttpSection.ALL, "");
+    private final ProxyHttpRequestResponseMock message = new ProxyHttpRequestResponseMock("testing", "testing", "Mon, 01 Jan 1990 10:00:00 GMT");
+    private final FindingsStore store = new FindingsStore(HOT_ROWS, new EvidenceCodecMock());
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    private LogEntity logEntity(String match) {
+        return new LogEntity(message.finalRequest(), message.response(), regex, HttpSection.RES_BODY, match);
+    }
+
+    private List<LogEntity> logEntities(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> logEntity("match-" + i)).toList();
+    }
+
+    @Test
+    void testOldRowsAreSpilledAndReadBack() {
+        List<LogEntity> entries = logEntities(0, 5000);
+        for (int from = 0; from < entries.size(); from += 100) store.addAll(entries.subList(from, from + 100));
+
+        assertThat(store.size()).isEqualTo(5000);
+        assertThat(store.getStats().hotRows()).isLessThan(HOT_ROWS + HOT_ROWS / 4);
+        assertThat(store.getStats().spilledRows()).isEqualTo(5000 - store.getStats().hotRows());
+        assertThat(store.getStats().spilledBytes()).isPositive();
+        for (int row = 0; row < entries.size(); row++) {
+            LogEntity stored = store.get(row);
+            assertThat(stored).isEqualTo(entries.get(row));
+            assertThat(stored.getMatch()).isEqualTo(entries.get(row).getMatch());
+            assertThat(stored.getRegexEntity()).isSameAs(regex);
+            assertThat(stored.getRequestUrl()).isEqualTo("https://test.com");
+            assertThat(stored.getResponse()).isSameAs(message.response());
+        }
+    }
+
+    @Test
+    void testEqualMatchesAndUrlsShareTheInstance() {
+        List<LogEntity> entries = IntStream.range(0, 1000).mapToObj(i -> logEntity(new String("api_key=" + (i % 10)))).toList();
+        store.addAll(entries);
+        assertThat(store.getStats().spilledRows()).isPositive();
+
+        for (int row = 0; row < entries.size(); row++) {
+            LogEntity stored = store.get(row);
+            assertThat(stored.getMatch()).isSameAs(store.get(row % 10).getMatch());
+            assertThat(stored.getRequestUrl()).isSameAs(store.get(0).getRequestUrl());
+        }
+        StringDictionary.Stats strings = store.getStats().strings();
+        assertThat(strings.strings()).isEqualTo(11);
+        assertThat(strings.internedDuplicates()).isPositive();
+        assertThat(strings.savedBytes()).isPositive();
+    }
+
+    @Test
+    void testRemoveIfOnSpilledAndHotRows() {
+        store.addAll(logEntities(0, 1000));
+        assertThat(store.getStats().spilledRows()).isPositive();
+
+        assertThat(store.removeIf(entry -> Integer.parseInt(entry.getMatch().substring(6)) % 3 == 0)).isEqualTo(334);
+
+        assertThat(store.size()).isEqualTo(666);
+        List<String> expected = IntStream.range(0, 1000).filter(i -> i % 3 != 0).mapToObj(i -> "match-" + i).toList();
+        assertThat(IntStream.range(0, store.size()).mapToObj(row -> store.get(row).getMatch()).toList()).isEqualTo(expected);
+        assertThat(store.getStats().strings().strings()).as("Strings of the removed findings are released").isEqualTo(667);
+        assertThat(store.removeIf(entry -> false)).isZero();
+    }
+
+    @Test
+    void testRemoveAndIndexOfOnSpilledRows() {
+        store.addAll(logEntities(0, 1000));
+        int spilled = store.getStats().spilledRows();
+        assertThat(spilled).isPositive();
+
+        assertThat(store.indexOf(logEntity("match-10"))).isEqualTo(10);
+        assertThat(store.indexOf(logEntity("match-999"))).isEqualTo(999);
+        assertThat(store.indexOf(logEntity("missing"))).isEqualTo(-1);
+
+        assertThat(store.remove(10).getMatch()).isEqualTo("match-10");
+        assertThat(store.remove(store.size() - 1).getMatch()).isEqualTo("match-999");
+        assertThat(store.size()).isEqualTo(998);
+        assertThat(store.get(10).getMatch()).isEqualTo("match-11");
+        assertThat(store.get(spilled - 1).getMatch()).isEqualTo("match-" + spilled);
+        assertThat(store.indexOf(logEntity("match-500"))).isEqualTo(499);
+
+        store.clear();
+        assertThat(store.size()).isZero();
+        store.addAll(logEntities(0, 1000));
+        assertThat(store.get(0).getMatch()).isEqualTo("match-0");
+    }
+
+    @Test
+    void testSpilledRowsAreIndexedByFingerprint() {
+        RegexEntity otherRegex = new RegexEntity("Other", "other", true, HttpSection.ALL, "");
+        store.addAll(logEntities(0, 500));
+        store.addAll(List.of(logEntity("match-7")));
+        store.addAll(IntStream.range(0, 500).mapToObj(i -> new LogEntity(message.finalRequest(), message.response(),
+                otherRegex, HttpSection.RES_BODY, "other-" + i)).toList());
+        assertThat(store.getStats().spilledRows()).isGreaterThan(501);
+
+        // the first of the duplicates is found, then the second one once the first is removed
+        assertThat(store.indexOf(logEntity("match-7"))).isEqualTo(7);
+        store.remove(7);
+        assertThat(store.indexOf(logEntity("match-7"))).isEqualTo(499);
+
+        assertThat(store.removeIfRule(rule -> rule == regex)).isEqualTo(500);
+        assertThat(store.size()).isEqualTo(500);
+        assertThat(store.indexOf(logEntity("match-7"))).isEqualTo(-1);
+        assertThat(store.indexOf(logEntity("match-100"))).isEqualTo(-1);
+        assertThat(store.get(0).getMatch()).isEqualTo("other-0");
+        assertThat(store.indexOf(new LogEntity(message.finalRequest(), message.response(), otherRegex,
+                HttpSection.RES_BODY, "other-123"))).isEqualTo(123);
+    }
+
+    @Test
+    void testHotRowsAreIndexedByFingerprint() {
+        store.addAll(logEntities(0, 100));
+        store.addAll(List.of(logEntity("match-7")));
+        assertThat(store.getStats().spilledRows()).isZero();
+
+        assertThat(store.indexOf(logEntity("match-7"))).isEqualTo(7);
+        store.remove(7);
+        assertThat(store.indexOf(logEntity("match-7"))).isEqualTo(99);
+        assertThat(store.indexOf(logEntity("match-50"))).isEqualTo(49);
+
+        assertThat(store.removeIf(entry -> entry.getMatch().endsWith("0"))).isEqualTo(10);
+        assertThat(store.indexOf(logEntity("match-50"))).isEqualTo(-1);
+        assertThat(store.indexOf(logEntity("match-51"))).isEqualTo(44);
+        assertThat(store.get(44).getMatch()).isEqualTo("match-51");
+
+        // spilled rows leave the hot index
+        store.addAll(logEntities(100, 500));
+        assertThat(store.getStats().spilledRows()).isPositive();
+        assertThat(store.indexOf(logEntity("match-51"))).isEqualTo(44);
+        assertThat(store.indexOf(logEntity("match-499"))).isEqualTo(store.size() - 1);
+    }
+
+    @Test
+    void testRemovedRecordsAreCompacted() {
+        try (FindingsStore compactingStore = new FindingsStore(HOT_ROWS, new EvidenceCodecMock(), 1)) {
+            compactingStore.addAll(logEntities(0, 3000));
+            int spilled = compactingStore.getStats().spilledRows();
+            long spilledBytes = compactingStore.getStats().spilledBytes();
+
+            assertThat(compactingStore.removeIf(entry -> !entry.getMatch().endsWith("7"))).isEqualTo(2700);
+            assertThat(compactingStore.getStats().spilledRows()).isEqualTo(spilled / 10);
+            assertThat(compactingStore.getStats().spilledBytes()).isLessThan(spilledBytes / 5);
+
+            assertThat(compactingStore.get(0).getMatch()).isEqualTo("match-7");
+            assertThat(compactingStore.get(123).getMatch()).isEqualTo("match-1237");
+            assertThat(compactingStore.indexOf(logEntity("match-1237"))).isEqualTo(123);
+            compactingStore.addAll(logEntities(3000, 4000));
+            assertThat(compactingStore.indexOf(logEntity("match-1237"))).isEqualTo(123);
+            assertThat(compactingStore.get(compactingStore.size() - 1).getMatch()).isEqualTo("match-3999");
+        }
+    }
+
+    @Test
+    void testFilesAreDeletedOnClose(@TempDir Path directory) {
+        Path records = directory.resolve("records.bin");
+        Path longs = directory.resolve("records.idx");
+        MappedRecordFile file = new MappedRecordFile(records, 1024);
+        MappedLongArray array = new MappedLongArray(longs);
+        array.set(0, file.append(new byte[100]));
+        array.set(1, file.append(new byte[100]));
+        assertThat(file.read(array.get(1)).remaining()).isEqualTo(100);
+        assertThat(array.binarySearch(2, array.get(1))).isEqualTo(1);
+
+        file.close();
+        array.close();
+        assertThat(records).doesNotExist();
+        assertThat(longs).doesNotExist();
+    }
+
+    @Test
+    void testRecordsLargerThanARegion(@TempDir Path directory) {
+        try (MappedRecordFile file = new MappedRecordFile(directory.resolve("records.bin"), 1024)) {
+            byte[] small = new byte[600];
+            byte[] large = new byte[5000];
+            small[599] = 1;
+            large[4999] = 2;
+            long first = file.append(small);
+            long second = file.append(small);
+            long third = file.append(large);
+            long fourth = file.append(small);
+
+            assertThat(second % 1024).as("Records do not cross regions").isZero();
+            for (long handle : List.of(first, second, fourth)) {
+                ByteBuffer record = file.read(handle);
+                assertThat(record.remaining()).isEqualTo(600);
+                assertThat(record.get(599)).isEqualTo((byte) 1);
+            }
+            ByteBuffer record = file.read(third);
+            assertThat(record.remaining()).isEqualTo(5000);
+            assertThat(record.get(4999)).isEqualTo((byte) 2);
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.tzm.supafinder.model;
+
+import com.tzm.supafinder.mock.EvidenceCodecMock;
+import com.tzm.supafinder.mock.ProxyHttpRequestResponseMock;
+import com.tzm.supafinder.utils.HashUtils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogEntriesManagerTest {
+    private final RegexEntity regex = new RegexEntity("Match test string", "test.{0,10}", true, HttpSection.ALL, "");
+    private final ProxyHttpRequestResponseMock message = new ProxyHttpRequestResponseMock("testing", "testing", "Mon, 01 Jan 1990 10:00:00 GMT");
+
+    private LogEntity logEntity(String match) {
+        return new LogEntity(message.finalRequest(), message.response(), regex, HttpSection.RES_BODY, match);
+    }
+
+    @Test
+    void testEqualFindingsHaveTheSameFingerprint() {
+        ProxyHttpRequestResponseMock otherDate = new ProxyHttpRequestResponseMock("testing", "testing", "Tue, 02 Jan 1990 10:00:00 GMT");
+
+        assertThat(logEntity("a")).isEqualTo(logEntity("a")).hasSameHashCodeAs(logEntity("a"));
+        assertThat(logEntity("a")).isNotEqualTo(logEntity("b"));
+        assertThat(logEntity("a")).isNotEqualTo(new LogEntity(message.finalRequest(), message.response(), regex, HttpSection.RES_HEADERS, "a"));
+        assertThat(logEntity("a")).isNotEqualTo(new LogEntity(otherDate.finalRequest(), otherDate.response(), regex, HttpSection.RES_BODY, "a"));
+        assertThat(logEntity("a")).isNotEqualTo(new LogEntity(message.finalRequest(), message.response(), new RegexEntity("Other", "test"), HttpSection.RES_BODY, "a"));
+    }
+
+    @Test
+    void testFindingsWithoutResponse() {
+        LogEntity withoutResponse = new LogEntity(message.finalRequest(), null, regex, HttpSection.REQ_BODY, "a");
+
+        assertThat(withoutResponse).isEqualTo(new LogEntity(message.finalRequest(), null, regex, HttpSection.REQ_BODY, "a"));
+    }
+
+    @Test
+    void testIndexFollowsRemovals() {
+        LogEntriesManager logEntriesManager = new LogEntriesManager();
+        logEntriesManager.add(logEntity("a"));
+        logEntriesManager.add(logEntity("a"));
+        assertThat(logEntriesManager.addIfAbsent(logEntity("a"))).isFalse();
+
+        logEntriesManager.remove(logEntity("a"));
+        assertThat(logEntriesManager.contains(logEntity("a"))).isTrue();
+        logEntriesManager.remove(logEntity("a"));
+        assertThat(logEntriesManager.contains(logEntity("a"))).isFalse();
+        assertThat(logEntriesManager.addIfAbsent(logEntity("a"))).isTrue();
+
+        logEntriesManager.clear();
+        assertThat(logEntriesManager.size()).isZero();
+        assertThat(logEntriesManager.indexOf(logEntity("a"))).isEqualTo(-1);
+    }
+
+    @Test
+    void testGroupsAreMaintainedIncrementally() {
+        ProxyHttpRequestResponseMock otherDate = new ProxyHttpRequestResponseMock("testing", "testing", "Tue, 02 Jan 1990 10:00:00 GMT");
+        LogEntity sameGroup = new LogEntity(otherDate.finalRequest(), otherDate.response(), regex, HttpSection.RES_BODY, "a");
+        LogEntriesManager logEntriesManager = new LogEntriesManager();
+        logEntriesManager.addAll(List.of(logEntity("a"), logEntity("b"), sameGroup, logEntity("c")));
+
+        assertThat(sameGroup).isNotEqualTo(logEntity("a"));
+        assertThat(sameGroup.getGroupKey()).isEqualTo(logEntity("a").getGroupKey());
+        assertThat(IntStream.range(0, 4).mapToObj(logEntriesManager::isFirstOfGroup)).containsExactly(true, true, false, true);
+        assertThat(logEntriesManager.getGroupsCount()).isEqualTo(3);
+
+        List<FindingsGroups.RuleGroup> groups = logEntriesManager.getGroups();
+        assertThat(groups).hasSize(1);
+        assertThat(groups.get(0).regexEntity()).isEqualTo(regex);
+        assertThat(groups.get(0).count()).isEqualTo(4);
+        assertThat(groups.get(0).matches().get(0)).isEqualTo(new FindingsGroups.MatchGroup("a", 2,
+                List.of(new FindingsGroups.UrlGroup("https://test.com", 2))));
+
+        // the second finding of the group becomes the first one
+        logEntriesManager.remove(logEntity("a"));
+        assertThat(IntStream.range(0, 3).mapToObj(logEntriesManager::isFirstOfGroup)).containsExactly(true, true, true);
+        assertThat(logEntriesManager.getGroups().get(0).count()).isEqualTo(3);
+
+        logEntriesManager.clear();
+        assertThat(logEntriesManager.getGroups()).isEmpty();
+        assertThat(logEntriesManager.getGroupsCount()).isZero();
+    }
+
+    @Test
+    void testGroupsAfterRemovalsMatchGroupsBuiltFromScratch() {
+        ProxyHttpRequestResponseMock otherDate = new ProxyHttpRequestResponseMock("testing", "testing", "Tue, 02 Jan 1990 10:00:00 GMT");
+        RegexEntity otherRegex = new RegexEntity("Other", "other", true, HttpSection.ALL, "");
+        // findings of the same group differ by response date, most of them are moved to disk
+        List<LogEntity> findings = IntStream.range(0, 2000).mapToObj(i -> {
+            ProxyHttpRequestResponseMock source = i % 2 == 0 ? message : otherDate;
+            return new LogEntity(source.finalRequest(), source.response(), i % 3 == 0 ? otherRegex : regex,
+                    HttpSection.RES_BODY, "match-" + (i % 50));
+        }).toList();
+        LogEntriesManager logEntriesManager = new LogEntriesManager(new FindingsStore(300, new EvidenceCodecMock()));
+        logEntriesManager.addAll(findings);
+
+        logEntriesManager.removeIf(entry -> entry.getMatch().endsWith("7"));
+        logEntriesManager.removeIfRule(rule -> rule == otherRegex);
+        logEntriesManager.remove(logEntriesManager.get(0));
+
+        LogEntriesManager rebuilt = new LogEntriesManager();
+        rebuilt.addAll(logEntriesManager.getAll());
+        assertThat(logEntriesManager.size()).isEqualTo(rebuilt.size()).isLessThan(1200);
+        assertThat(IntStream.range(0, rebuilt.size()).mapToObj(logEntriesManager::isFirstOfGroup).toList())
+                .isEqualTo(IntStream.range(0, rebuilt.size()).mapToObj(rebuilt::isFirstOfGroup).toList());
+        assertThat(logEntriesManager.getGroupsCount()).isEqualTo(rebuilt.getGroupsCount());
+        // groups with the same count may be listed in a different order
+        List<FindingsGroups.RuleGroup> groups = logEntriesManager.getGroups();
+        assertThat(groups).hasSize(1);
+        assertThat(groups.get(0).count()).isEqualTo(rebuilt.getGroups().get(0).count());
+        assertThat(groups.get(0).matches()).containsExactlyInAnyOrderElementsOf(rebuilt.getGroups().get(0).matches());
+        assertThat(logEntriesManager.getStatistics().byRule()).isEqualTo(rebuilt.getStatistics().byRule());
+        logEntriesManager.close();
+    }
+
+    @Test
+    void testStatisticsFollowAddsRemovalsAndClear() {
+        RegexEntity critical = new RegexEntity("Critical", "secret", true, HttpSection.ALL, null, null, null, null, 5, false, null, false, false, null);
+        LogEntriesManager logEntriesManager = new LogEntriesManager();
+        logEntriesManager.add(logEntity("a"));
+        logEntriesManager.addAllIfAbsent(List.of(
+                logEntity("b"),
+                new LogEntity(message.finalRequest(), message.response(), critical, HttpSection.REQ_URL, "secret")));
+
+        FindingsStatistics.Snapshot statistics = logEntriesManager.getStatistics();
+        assertThat(statistics.total()).isEqualTo(3);
+        assertThat(statistics.countByImportance(regex.getImportance())).isEqualTo(2);
+        assertThat(statistics.countByImportance(5)).isEqualTo(1);
+        assertThat(statistics.countBySection(HttpSection.RES_BODY)).isEqualTo(2);
+        assertThat(statistics.countBySection(HttpSection.REQ_URL)).isEqualTo(1);
+        assertThat(statistics.countByRule(regex)).isEqualTo(2);
+        assertThat(statistics.countByRule(critical)).isEqualTo(1);
+
+        logEntriesManager.remove(logEntity("a"));
+        logEntriesManager.remove(logEntity("not present"));
+        statistics = logEntriesManager.getStatistics();
+        assertThat(statistics.total()).isEqualTo(2);
+        assertThat(statistics.countByRule(regex)).isEqualTo(1);
+        assertThat(statistics.countBySection(HttpSection.RES_BODY)).isEqualTo(1);
+
+        logEntriesManager.clear();
+        statistics = logEntriesManager.getStatistics();
+        assertThat(statistics.total()).isZero();
+        assertThat(statistics.byImportance()).containsOnly(0L);
+        assertThat(statistics.byRule()).isEmpty();
+        assertThat(statistics).isEqualTo(new LogEntriesManager().getStatistics());
+    }
+
+    @Test
+    void testFindingsAreDeduplicatedConcurrently() throws InterruptedException {
+        final int distinct = 20_000;
+        final int threads = 4;
+        List<LogEntity> findings = IntStream.range(0, distinct).mapToObj(i -> logEntity("match-" + i)).toList();
+        // most of the findings are moved to disk while inserting
+        LogEntriesManager logEntriesManager = new LogEntriesManager(new FindingsStore(1_000, new EvidenceCodecMock()));
+        AtomicInteger notifications = new AtomicInteger();
+        logEntriesManager.subscribeChangeListener(size -> notifications.incrementAndGet());
+
+        // every thread inserts all the findings, in batches and starting from a different offset,
+        // so that equal findings are inserted concurrently
+        List<Thread> producers = new ArrayList<>();
+        AtomicInteger added = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            final int offset = t * distinct / threads;
+            producers.add(new Thread(() -> {
+                for (int from = 0; from < distinct; from += 100) {
+                    List<LogEntity> batch = new ArrayList<>(100);
+                    for (int i = from; i < from + 100; i++) {
+                        batch.add(findings.get((i + offset) % distinct));
+                    }
+                    added.addAndGet(logEntriesManager.addAllIfAbsent(batch).size());
+                }
+            }));
+        }
+        producers.forEach(Thread::start);
+        for (Thread producer : producers) producer.join();
+
+        assertThat(added.get()).isEqualTo(distinct);
+        assertThat(logEntriesManager.size()).isEqualTo(distinct);
+        assertThat(logEntriesManager.getAll()).doesNotHaveDuplicates();
+        assertThat(notifications.get()).isLessThanOrEqualTo(threads * distinct / 100);
+        assertThat(logEntriesManager.getStatistics().total()).isEqualTo(distinct);
+        assertThat(logEntriesManager.getStatistics().countByRule(regex)).isEqualTo(distinct);
+        assertThat(logEntriesManager.getStoreStats().hotRows()).isLessThan(distinct / 10);
+        assertThat(findings).allMatch(logEntriesManager::contains);
+        logEntriesManager.close();
+    }
+
+    @Test
+    void testIndexStaysConsistentWithConcurrentRemovals() throws InterruptedException {
+        List<LogEntity> findings = IntStream.range(0, 2_000).mapToObj(i -> logEntity("match-" + i)).toList();
+        LogEntriesManager logEntriesManager = new LogEntriesManager(new FindingsStore(500, new EvidenceCodecMock()));
+
+        Thread producer = new Thread(() -> {
+            for (int from = 0; from < findings.size(); from += 50) {
+                logEntriesManager.addAllIfAbsent(findings.subList(from, from + 50));
+            }
+        });
+        producer.start();
+        while (producer.isAlive()) logEntriesManager.removeIf(entry -> entry.getMatch().endsWith("3"));
+        producer.join();
+
+        // every finding is either indexed and present once, or neither
+        List<LogEntity> entries = logEntriesManager.getAll();
+        Set<LogEntity> present = new HashSet<>(entries);
+        assertThat(present).hasSameSizeAs(entries);
+        assertThat(findings).allMatch(finding -> logEntriesManager.contains(finding) == present.contains(finding));
+        assertThat(logEntriesManager.getStatistics().total()).isEqualTo(entries.size());
+        logEntriesManager.close();
+    }
+
+    private LogEntity logEntity(RegexEntity rule, String match, long foundAt) {
+        LogEntity entry = new LogEntity(message.finalRequest(), message.response(), rule, HttpSection.RES_BODY, match);
+        return new LogEntity(entry.getEvidence(), rule, HttpSection.RES_BODY, match, null, null,
+                entry.getRequestUrl(), entry.getFingerprint(), foundAt);
+    }
+
+    @Test
+    void testRetentionRollsUpTheOldestFindings() {
+        LogEntriesManager logEntriesManager = new LogEntriesManager(new FindingsStore(300, new EvidenceCodecMock()));
+        logEntriesManager.setRetentionPolicy(new RetentionPolicy(1000, 0, 0));
+        logEntriesManager.addAll(IntStream.range(0, 1100).mapToObj(i -> logEntity(regex, "match-" + (i % 10), i)).toList());
+        assertThat(logEntriesManager.isRetentionExceeded()).as("Within the slack").isFalse();
+        assertThat(logEntriesManager.applyRetention()).isZero();
+
+        logEntriesManager.addAll(IntStream.range(1100, 1200).mapToObj(i -> logEntity(regex, "match-" + (i % 10), i)).toList());
+        long removals = logEntriesManager.getRemovalsCount();
+        assertThat(logEntriesManager.applyRetention()).isEqualTo(200);
+        assertThat(logEntriesManager.size()).isEqualTo(1000);
+        assertThat(logEntriesManager.get(0).getFoundAt()).isEqualTo(200);
+        assertThat(logEntriesManager.getStatistics().total()).isEqualTo(1000);
+        assertThat(logEntriesManager.getRemovalsCount()).isGreaterThan(removals);
+
+        FindingsRollup rollup = logEntriesManager.getRollup();
+        assertThat(rollup.getRolledUpFindings()).isEqualTo(200);
+        assertThat(rollup.getRows()).hasSize(10).allSatisfy(row -> {
+            assertThat(row.count()).isEqualTo(20);
+            assertThat(row.host()).isEqualTo("test.com");
+            assertThat(row.rule()).isSameAs(regex);
+        });
+        long[] firstHash = HashUtils.murmur3x64_128("match-0".getBytes(StandardCharsets.UTF_8), 0);
+        FindingsRollup.Row first = rollup.getRows().stream().filter(row -> row.matchHashHigh() == firstHash[0]).findFirst().orElseThrow();
+        assertThat(first.matchHash()).isEqualTo("%016x%016x".formatted(firstHash[0], firstHash[1]));
+        assertThat(first.firstSeen()).isEqualTo(0);
+        assertThat(first.lastSeen()).isEqualTo(190);
+
+        logEntriesManager.clear();
+        assertThat(rollup.size()).isZero();
+        logEntriesManager.close();
+    }
+
+    @Test
+    void testRetentionPerRuleAndTimeToLive() {
+        RegexEntity otherRegex = new RegexEntity("Other", "other", true, HttpSection.ALL, "");
+        LogEntriesManager logEntriesManager = new LogEntriesManager();
+        long now = System.currentTimeMillis();
+        List<LogEntity> entries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            entries.add(logEntity(regex, "match-" + i, now - 1_000_000 + i * 1000L));
+            if (i < 20) entries.add(logEntity(otherRegex, "other-" + i, now - 1_000_000 + i * 1000L));
+        }
+        logEntriesManager.addAll(entries);
+
+        logEntriesManager.setRetentionPolicy(new RetentionPolicy(0, 100, 0));
+        assertThat(logEntriesManager.applyRetention()).isEqualTo(100);
+        assertThat(logEntriesManager.getStatistics().countByRule(regex)).isEqualTo(100);
+        assertThat(logEntriesManager.getStatistics().countByRule(otherRegex)).isEqualTo(20);
+        assertThat(logEntriesManager.get(0).getMatch()).isEqualTo("other-0");
+
+        logEntriesManager.setRetentionPolicy(new RetentionPolicy(0, 0, 2_000_000));
+        assertThat(logEntriesManager.isRetentionExceeded()).isFalse();
+        logEntriesManager.addAll(List.of(logEntity(regex, "expired", now - 120_000)));
+        logEntriesManager.setRetentionPolicy(new RetentionPolicy(0, 0, 950_000));
+        // only the first rows older than the time-to-live are removed
+        assertThat(logEntriesManager.applyRetention()).isEqualTo(20);
+        assertThat(logEntriesManager.getRollup().getRolledUpFindings()).isEqualTo(120);
+        logEntriesManager.close();
+    }
+
+    @Test
+    void testEvictionIsPlannedBeforeRemovingTheRows() {
+        LogEntriesManager logEntriesManager = new LogEntriesManager(new FindingsStore(300, new EvidenceCodecMock()));
+        logEntriesManager.setRetentionPolicy(new RetentionPolicy(1000, 0, 0));
+        logEntriesManager.addAll(IntStream.range(0, 1200).mapToObj(i -> logEntity(regex, "match-" + i, i)).toList());
+
+        LogEntriesManager.Eviction eviction = logEntriesManager.planRetention();
+        assertThat(eviction.rows().cardinality()).isEqualTo(200);
+        assertThat(eviction.entries()).extracting(LogEntity::getFoundAt).containsExactlyElementsOf(LongStream.range(0, 200).boxed().toList());
+        assertThat(logEntriesManager.size()).as("Nothing removed yet").isEqualTo(1200);
+
+        // appended rows don't move the planned ones
+        logEntriesManager.addAll(List.of(logEntity(regex, "new", 1200)));
+        assertThat(logEntriesManager.evict(eviction)).isEqualTo(200);
+        assertThat(logEntriesManager.size()).isEqualTo(1001);
+        assertThat(logEntriesManager.get(0).getFoundAt()).isEqualTo(200);
+        assertThat(logEntriesManager.contains(logEntity(regex, "match-0", 0))).isFalse();
+        assertThat(logEntriesManager.getStoreStats().strings().strings()).as("Strings of the evicted findings are released")
+                .isEqualTo(1002);
+
+        logEntriesManager.addAll(IntStream.range(0, 200).mapToObj(i -> logEntity(regex, "more-" + i, 2000 + i)).toList());
+        LogEntriesManager.Eviction stale = logEntriesManager.planRetention();
+        logEntriesManager.remove(logEntriesManager.get(500));
+        assertThat(logEntriesManager.evict(stale)).as("Rows moved by another removal").isZero();
+        assertThat(logEntriesManager.size()).isEqualTo(1200);
+        logEntriesManager.close();
+    }
+
+    @Test
+    void testRemovalOfRulesIsPlannedBeforeRemovingTheRows() {
+        RegexEntity otherRegex = new RegexEntity("Other", "other", true, HttpSection.ALL, "");
+        LogEntriesManager logEntriesManager = new LogEntriesManager(new FindingsStore(300, new EvidenceCodecMock()));
+        for (int i = 0; i < 500; i++) {
+            logEntriesManager.addAll(List.of(logEntity(regex, "match-" + i, i), logEntity(otherRegex, "other-" + i, i)));
+        }
+
+        LogEntriesManager.Eviction removal = logEntriesManager.planRemovalIfRule(rule -> rule == otherRegex);
+        assertThat(removal.rows().cardinality()).isEqualTo(500);
+        assertThat(removal.rows().nextSetBit(0)).isEqualTo(1);
+        assertThat(logEntriesManager.size()).as("Nothing removed yet").isEqualTo(1000);
+
+        logEntriesManager.addAll(List.of(logEntity(regex, "new", 1000)));
+        assertThat(logEntriesManager.remove(removal)).isEqualTo(500);
+        assertThat(logEntriesManager.size()).isEqualTo(501);
+        assertThat(logEntriesManager.getStatistics().countByRule(otherRegex)).isZero();
+        assertThat(logEntriesManager.getRollup().getRolledUpFindings()).as("Removed findings are not rolled up").isZero();
+        assertThat(logEntriesManager.planRemovalIfRule(rule -> rule == otherRegex)).isNull();
+
+        LogEntriesManager.Eviction stale = logEntriesManager.planRemovalIfRule(rule -> rule == regex);
+        logEntriesManager.remove(logEntriesManager.get(0));
+        assertThat(logEntriesManager.remove(stale)).as("Rows moved by another removal").isZero();
+        logEntriesManager.close();
+    }
+
+    @Test
+    void testRollupIsBoundedPerRule() {
+        FindingsRollup rollup = new FindingsRollup();
+        for (int i = 0; i < FindingsRollup.MAX_ROWS_PER_RULE + 500; i++) rollup.add(logEntity(regex, "token-" + i, i));
+        rollup.add(logEntity(regex, "token-0", 5000));
+
+        assertThat(rollup.size()).isEqualTo(FindingsRollup.MAX_ROWS_PER_RULE + 1);
+        assertThat(rollup.getRolledUpFindings()).isEqualTo(FindingsRollup.MAX_ROWS_PER_RULE + 501);
+        FindingsRollup.Row others = rollup.getRows().stream().filter(FindingsRollup.Row::isOthers).findFirst().orElseThrow();
+        assertThat(others.count()).isEqualTo(500);
+        assertThat(others.firstSeen()).isEqualTo(FindingsRollup.MAX_ROWS_PER_RULE);
+        assertThat(rollup.getRows()).filteredOn(row -> !row.isOthers()).allMatch(row -> row.count() == (row.lastSeen() == 5000 ? 2 : 1));
+    }
+}
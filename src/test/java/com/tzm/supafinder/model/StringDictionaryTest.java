@@ -0,0 +1,80 @@
+package com.tzm.supafinder.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StringDictionaryTest {
+
+    @Test
+    void testEqualValuesShareTheInstance() {
+        StringDictionary dictionary = new StringDictionary();
+        String first = new String("api_key=0123456789");
+        String second = new String("api_key=0123456789");
+
+        assertThat(dictionary.intern(first)).isSameAs(first);
+        assertThat(dictionary.intern(second)).isSameAs(first);
+        assertThat(dictionary.intern(null)).isNull();
+        assertThat(dictionary.id(second)).isEqualTo(dictionary.id(first));
+        assertThat(dictionary.get(dictionary.id(first))).isSameAs(first);
+
+        StringDictionary.Stats stats = dictionary.getStats();
+        assertThat(stats.strings()).isEqualTo(1);
+        assertThat(stats.internedDuplicates()).isEqualTo(1);
+        assertThat(stats.savedBytes()).isEqualTo(StringDictionary.estimatedSize(second));
+    }
+
+    @Test
+    void testIdsAreSequentialAndStableWhileGrowing() {
+        StringDictionary dictionary = new StringDictionary();
+        for (int i = 0; i < 5000; i++) assertThat(dictionary.id("value-" + i)).isEqualTo(i);
+        for (int i = 0; i < 5000; i++) assertThat(dictionary.get(i)).isEqualTo("value-" + i);
+
+        dictionary.clear();
+        assertThat(dictionary.size()).isZero();
+        assertThatThrownBy(() -> dictionary.get(0)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void testConcurrentLookupsAssignOneIdPerValue() {
+        StringDictionary dictionary = new StringDictionary();
+        ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+        IntStream.range(0, 20000).parallel().forEach(i -> {
+            String value = "value-" + (i % 3000);
+            int id = dictionary.id(value);
+            assertThat(ids.computeIfAbsent(value, key -> id)).isEqualTo(id);
+            assertThat(dictionary.get(id)).isEqualTo(value);
+        });
+        assertThat(dictionary.size()).isEqualTo(3000);
+        assertThat(ids.values().stream().distinct().toList()).hasSize(3000);
+        assertThat(List.copyOf(ids.values())).allMatch(id -> id >= 0 && id < 3000);
+    }
+
+    @Test
+    void testValuesAreDroppedWhenNoLongerRetained() {
+        StringDictionary dictionary = new StringDictionary();
+        String token = dictionary.intern(new String("token=abc"));
+        dictionary.intern(new String("token=abc"));
+        int id = dictionary.id(token);
+
+        assertThat(dictionary.getStats().savedBytes()).isEqualTo(StringDictionary.estimatedSize(token));
+
+        dictionary.release(token);
+        assertThat(dictionary.get(id)).isSameAs(token);
+        assertThat(dictionary.getStats().savedBytes()).isZero();
+        dictionary.release(new String("token=abc"));
+        assertThat(dictionary.size()).isZero();
+        assertThat(dictionary.getStats().internedDuplicates()).as("Cumulative").isEqualTo(1);
+        assertThatThrownBy(() -> dictionary.get(id)).isInstanceOf(IndexOutOfBoundsException.class);
+        dictionary.release(token);
+        dictionary.release(null);
+
+        assertThat(dictionary.id(dictionary.intern("other"))).as("Ids are reused").isEqualTo(id);
+        assertThat(dictionary.get(id)).isEqualTo("other");
+    }
+}
@@ -0,0 +1,78 @@
+package com.tzm.supafinder.scanner;
+
+import com.tzm.supafinder.utils.Utils;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AssetAllowlistTest {
+    private static final byte[] LIBRARY = "function $(selector) {\n  return document.querySelector(selector);\n}\n".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testExactAndNormalizedBodiesAreKnown() {
+        AssetAllowlist allowlist = new AssetAllowlist(List.of(AssetAllowlist.fingerprint("lib.js", LIBRARY)), List.of());
+        assertThat(allowlist.contains(LIBRARY)).isTrue();
+        assertThat(allowlist.contains(new String(LIBRARY, StandardCharsets.UTF_8).replace("\n", "\r\n").replace("  ", "\t")
+                .getBytes(StandardCharsets.UTF_8))).as("Other whitespaces").isTrue();
+        assertThat(allowlist.contains("function $(s) { return s; }".getBytes(StandardCharsets.UTF_8))).isFalse();
+        assertThat(allowlist.getSkippedBodies()).isEqualTo(2);
+    }
+
+    @Test
+    void testUserEntriesAreAddedAndSerialized() {
+        AssetAllowlist.Entry entry = AssetAllowlist.fingerprint("lib.js", LIBRARY);
+        AssetAllowlist allowlist = new AssetAllowlist(List.of(), List.of());
+        assertThat(allowlist.contains(LIBRARY)).isFalse();
+        assertThat(allowlist.addAll(List.of(entry, entry))).isEqualTo(1);
+        assertThat(allowlist.contains(LIBRARY)).isTrue();
+
+        List<AssetAllowlist.Entry> parsed = AssetAllowlist.parseEntries(allowlist.userEntriesToJson());
+        assertThat(parsed).containsExactly(entry);
+        assertThat(new AssetAllowlist(parsed, List.of()).addAll(parsed)).as("Already shipped").isZero();
+        assertThat(AssetAllowlist.parseEntries("[{\"name\":\"invalid\",\"size\":1,\"hash\":\"abc\"}]")).isEmpty();
+        assertThat(AssetAllowlist.parseEntries(null)).isEmpty();
+
+        allowlist.clearUserEntries();
+        assertThat(allowlist.contains(LIBRARY)).isFalse();
+    }
+
+    @Test
+    void testShippedLibrariesAreSkipped() throws IOException {
+        byte[] jquery;
+        try (InputStream resource = Objects.requireNonNull(getClass().getResourceAsStream("/assets/jquery-3.6.1.min.js"))) {
+            jquery = resource.readAllBytes();
+        }
+        AssetAllowlist allowlist = new AssetAllowlist(AssetAllowlist.parseEntries(Utils.readResourceFile(AssetAllowlist.RESOURCE)), List.of());
+        assertThat(allowlist.size()).isGreaterThanOrEqualTo(3);
+        assertThat(allowlist.contains(jquery)).isTrue();
+        assertThat(allowlist.contains(new String(jquery, StandardCharsets.UTF_8).replace("\n", "\r\n").getBytes(StandardCharsets.UTF_8)))
+                .as("Other line endings").isTrue();
+        assertThat(allowlist.contains(("// app\n" + new String(jquery, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8))).isFalse();
+    }
+
+    @Test
+    void testOnlyBodiesStartingLikeAKnownFileAreNormalized() {
+        byte[] indented = new String(LIBRARY, StandardCharsets.UTF_8).replace("  ", "        ").getBytes(StandardCharsets.UTF_8);
+        assertThat(AssetAllowlist.normalizedPrefixHash(indented)).isEqualTo(AssetAllowlist.normalizedPrefixHash(LIBRARY));
+
+        byte[] large = ("/*! lib */" + "x".repeat(10 * AssetAllowlist.PREFIX_BYTES)).getBytes(StandardCharsets.UTF_8);
+        byte[] sameStart = ("/*! lib */" + "x".repeat(AssetAllowlist.PREFIX_BYTES) + "y").getBytes(StandardCharsets.UTF_8);
+        assertThat(AssetAllowlist.normalizedPrefixHash(sameStart)).as("Only the start is hashed")
+                .isEqualTo(AssetAllowlist.normalizedPrefixHash(large));
+        AssetAllowlist allowlist = new AssetAllowlist(List.of(AssetAllowlist.fingerprint("large.js", large)), List.of());
+        assertThat(allowlist.contains(sameStart)).isFalse();
+
+        AssetAllowlist.Entry withoutPrefix = AssetAllowlist.parseEntries(("[{\"name\":\"lib.js\",\"size\":%d,\"hash\":\"%s\","
+                + "\"normalizedHash\":\"%s\"}]").formatted(LIBRARY.length, AssetAllowlist.fingerprint("lib.js", LIBRARY).hash(),
+                AssetAllowlist.fingerprint("lib.js", LIBRARY).normalizedHash())).get(0);
+        allowlist = new AssetAllowlist(List.of(withoutPrefix), List.of());
+        assertThat(allowlist.contains(LIBRARY)).isTrue();
+        assertThat(allowlist.contains(indented)).as("Only the exact hash without the prefix hash").isFalse();
+    }
+}
@@ -0,0 +1,134 @@
+package com.tzm.supafinder.scanner;
+
+import com.tzm.supafinder.utils.HashUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChunkMatchCacheTest {
+    private static final List<Pattern> PATTERNS = List.of(
+            Pattern.compile("secret-[0-9]+"),
+            Pattern.compile("secret-[0-9]{1,8}"),
+            Pattern.compile("\\bkey\\b"),
+            Pattern.compile("(?m)^var \\w+"),
+            Pattern.compile("a+"),
+            Pattern.compile("x*"),
+            Pattern.compile("\"[^\"]{0,40}\""),
+            Pattern.compile("token=\\w+(?=;)"),
+            Pattern.compile("token=\\w{1,20}(?=;)"),
+            Pattern.compile("(?i)BEGIN.{0,3000}?END"));
+
+    private static String library(long seed, int length) {
+        Random random = new Random(seed);
+        String[] words = {"var ", "key", "secret-", "42", "aaa", "token=", ";", "\"", "\n", " ", "x", "BEGIN", "end", "function(){", "}"};
+        StringBuilder text = new StringBuilder();
+        while (text.length() < length) text.append(words[random.nextInt(words.length)]);
+        return text.toString();
+    }
+
+    private static List<ParallelMatcher.Span> sequential(Pattern pattern, String content) {
+        return pattern.matcher(content).results().map(result -> new ParallelMatcher.Span(result.start(), result.end())).toList();
+    }
+
+    @Test
+    void testChunkedMatchesAreSequentialMatches() {
+        ChunkMatchCache cache = new ChunkMatchCache();
+        String vendor = library(1, 200_000);
+        List<String> bodies = List.of(
+                "/* bundle 1 */" + vendor + library(2, 5_000),
+                "(function(){ var v=123;" + vendor + "})();",
+                vendor,
+                library(3, 100_000));
+
+        for (String body : bodies) {
+            ContentChunker.Chunks chunks = ContentChunker.split(body);
+            for (Pattern pattern : PATTERNS) {
+                assertThat(cache.matches(pattern, chunks)).as(pattern.pattern()).isEqualTo(sequential(pattern, body));
+            }
+        }
+        assertThat(cache.getStats().hits()).as("The chunks of the vendor library are searched once").isPositive();
+    }
+
+    @Test
+    void testLongMatchesAreFoundAsSequentialMatches() {
+        ChunkMatchCache cache = new ChunkMatchCache();
+        List<Pattern> patterns = List.of(
+                Pattern.compile("(?s)BEGIN.*?END"),
+                Pattern.compile("(?s)BEGIN.{0,4000}?END"),
+                Pattern.compile("BEGIN[^#]+END"),
+                Pattern.compile("(?s)BEGIN.{0,1000}?END"));
+        Random random = new Random(11);
+        String block = "BEGIN" + "x".repeat(3_000) + "END";
+        String shortBlock = "BEGIN" + "x".repeat(990) + "END";
+
+        for (int i = 0; i < 20; i++) {
+            StringBuilder body = new StringBuilder(library(5, 32_000 + random.nextInt(32_000)));
+            for (int blocks = 0; blocks < 3; blocks++) {
+                body.insert(random.nextInt(body.length()), block);
+                body.insert(random.nextInt(body.length()), shortBlock);
+            }
+            String content = body.toString();
+            ContentChunker.Chunks chunks = ContentChunker.split(content);
+            for (Pattern pattern : patterns) {
+                assertThat(cache.matches(pattern, chunks)).as(pattern.pattern()).isEqualTo(sequential(pattern, content));
+            }
+        }
+    }
+
+    @Test
+    void testOnlyPatternsWithShortMatchesAreCached() {
+        assertThat(ChunkMatchCache.maxMatchLength(Pattern.compile("AKIA[0-9A-Z]{16}"))).isEqualTo(20);
+        assertThat(ChunkMatchCache.maxMatchLength(Pattern.compile("(?i)(?:key|secret)\\s?=\\s?['\"][^'\"]{8,64}['\"]"))).isEqualTo(75);
+        assertThat(ChunkMatchCache.maxMatchLength(Pattern.compile("\\Qa.b\\E(?<name>c|de)?"))).isEqualTo(5);
+        assertThat(ChunkMatchCache.maxMatchLength(Pattern.compile("a.b", Pattern.LITERAL))).isEqualTo(3);
+
+        assertThat(ChunkMatchCache.isCacheable(Pattern.compile("\\bkey\\b"))).isTrue();
+        assertThat(ChunkMatchCache.isCacheable(Pattern.compile("secret-[0-9]+"))).isFalse();
+        assertThat(ChunkMatchCache.isCacheable(Pattern.compile("x{2,}"))).isFalse();
+        assertThat(ChunkMatchCache.isCacheable(Pattern.compile("(a{1,100}){1,100}"))).isFalse();
+        assertThat(ChunkMatchCache.isCacheable(Pattern.compile("(a)\\1"))).isFalse();
+        assertThat(ChunkMatchCache.isCacheable(Pattern.compile("(?<=a)b"))).isFalse();
+    }
+
+    private static ContentChunker.Chunks chunks(String content, int... bounds) {
+        long[] hashes = new long[(bounds.length - 1) * 2];
+        for (int i = 0; i < bounds.length - 1; i++) {
+            long[] hash = HashUtils.murmur3x64_128(content, bounds[i], Math.min(content.length(), bounds[i + 1] + ContentChunker.LOOKAHEAD), 0);
+            hashes[i * 2] = hash[0];
+            hashes[i * 2 + 1] = hash[1];
+        }
+        return new ContentChunker.Chunks(content, bounds, hashes);
+    }
+
+    @Test
+    void testSameWindowWithAnotherChunkLength() {
+        // the first chunks have the same window, the whole content, but only the second one owns the match
+        ChunkMatchCache cache = new ChunkMatchCache();
+        Pattern pattern = Pattern.compile("key[0-9]");
+        String content = "x".repeat(550) + "key1" + "x".repeat(646);
+
+        assertThat(cache.matches(pattern, chunks(content, 0, 500, 1200))).containsExactly(new ParallelMatcher.Span(550, 554));
+        assertThat(cache.matches(pattern, chunks(content, 0, 600, 1200))).containsExactly(new ParallelMatcher.Span(550, 554));
+    }
+
+    @Test
+    void testChunksAreContentDefined() {
+        String vendor = library(4, 100_000);
+        ContentChunker.Chunks first = ContentChunker.split("short prefix" + vendor);
+        ContentChunker.Chunks second = ContentChunker.split("a much longer and different prefix" + vendor);
+
+        assertThat(first.count()).isGreaterThan(5);
+        for (int i = 0; i < first.count(); i++) {
+            int length = first.end(i) - first.start(i);
+            assertThat(length).isLessThanOrEqualTo(ContentChunker.MAX_CHUNK);
+            if (i < first.count() - 1) assertThat(length).isGreaterThan(ContentChunker.MIN_CHUNK);
+        }
+        // after the first boundary, the chunks of the shared text are the same
+        assertThat(first.content().substring(first.start(2), first.end(first.count() - 1)))
+                .isEqualTo(second.content().substring(second.start(2), second.end(second.count() - 1)));
+    }
+}
@@ -0,0 +1,69 @@
+package com.tzm.supafinder.scanner;
+
+import com.tzm.supafinder.mock.PersistedObjectMock;
+import com.tzm.supafinder.model.HttpSection;
+import com.tzm.supafinder.model.MatchPosition;
+import com.tzm.supafinder.model.RegexEntity;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MatchResultCacheTest {
+    private final RegexEntity first = new RegexEntity("First", "first", true, HttpSection.ALL, "");
+    private final RegexEntity second = new RegexEntity("Second", "second", true, HttpSection.ALL, "");
+    private final List<List<MatchResultCache.CachedMatch>> matches = List.of(
+            List.of(new MatchResultCache.CachedMatch("first", new MatchPosition(10, 15, 2, 5), "a first b")),
+            List.of());
+
+    private static MatchResultCache.Key key(String content, long ruleSetVersion) {
+        return MatchResultCache.Key.of(content.getBytes(StandardCharsets.UTF_8), ruleSetVersion, HttpSection.RES_BODY);
+    }
+
+    @Test
+    void testEntriesAreVersionedAndEvicted() {
+        long version = MatchResultCache.ruleSetVersion(List.of(first, second), 64);
+        assertThat(MatchResultCache.ruleSetVersion(List.of(second, first), 64)).isNotEqualTo(version);
+        assertThat(MatchResultCache.ruleSetVersion(List.of(first, second), 32)).isNotEqualTo(version);
+
+        MatchResultCache cache = new MatchResultCache(2, Long.MAX_VALUE);
+        cache.put(key("one", version), matches);
+        assertThat(cache.get(key("one", version))).isEqualTo(matches);
+        assertThat(cache.get(key("one", version + 1))).isNull();
+        assertThat(cache.get(key("two", version))).isNull();
+
+        cache.put(key("two", version), matches);
+        cache.get(key("one", version));
+        cache.put(key("three", version), matches);
+        assertThat(cache.get(key("two", version))).as("Least recently used").isNull();
+        assertThat(cache.get(key("one", version))).isEqualTo(matches);
+        assertThat(cache.getStats().evictions()).isEqualTo(1);
+        assertThat(cache.getStats().entries()).isEqualTo(2);
+
+        MatchResultCache small = new MatchResultCache(100, 300);
+        small.put(key("one", version), matches);
+        small.put(key("two", version), matches);
+        assertThat(small.getStats().bytes()).isLessThanOrEqualTo(300);
+        assertThat(small.get(key("two", version))).isEqualTo(matches);
+    }
+
+    @Test
+    void testSaveAndLoad() {
+        PersistedObjectMock extensionData = new PersistedObjectMock();
+        assertThat(MatchResultCache.load(extensionData).getStats().entries()).isZero();
+
+        MatchResultCache cache = new MatchResultCache();
+        cache.put(key("one", 1), matches);
+        cache.put(key("two", 2), List.of(List.of()));
+        cache.save(extensionData);
+
+        MatchResultCache loaded = MatchResultCache.load(extensionData);
+        assertThat(loaded.get(key("one", 1))).isEqualTo(matches);
+        assertThat(loaded.get(key("two", 2))).containsExactly(List.of());
+
+        MatchResultCache.clear(extensionData);
+        assertThat(MatchResultCache.load(extensionData).getStats().entries()).isZero();
+    }
+}
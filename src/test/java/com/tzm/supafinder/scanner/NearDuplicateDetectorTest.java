@@ -0,0 +1,119 @@
+package com.tzm.supafinder.scanner;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NearDuplicateDetectorTest {
+
+    private static String page(String payload) {
+        StringBuilder body = new StringBuilder("<html><body><h1>Search results</h1>");
+        for (int i = 0; i < 200; i++) body.append("<p>item number ").append(i).append(" in the catalog</p>");
+        body.append("<div>You searched for ").append(payload).append("</div>");
+        for (int i = 0; i < 200; i++) body.append("<p>footer link ").append(i).append("</p>");
+        return body.append("</body></html>").toString();
+    }
+
+    @Test
+    void testNearDuplicatesAreAnalyzedInTheChangedRegion() {
+        NearDuplicateDetector detector = new NearDuplicateDetector(3);
+        String reference = page("apple");
+        assertThat(detector.regionToAnalyze("GET test.com/search", reference))
+                .isEqualTo(new NearDuplicateDetector.Region(0, reference.length()));
+
+        String body = page("'\"><script>alert(1)</script>");
+        NearDuplicateDetector.Region region = detector.regionToAnalyze("GET test.com/search", body);
+        assertThat(region.end() - region.start()).isLessThan(body.length() / 4);
+        assertThat(body.substring(region.start(), region.end())).contains("<script>alert(1)</script>");
+
+        NearDuplicateDetector.Stats stats = detector.getStats();
+        assertThat(stats.checked()).isEqualTo(2);
+        assertThat(stats.nearDuplicates()).isEqualTo(1);
+        assertThat(stats.analyzedChars() + stats.skippedChars()).isEqualTo(reference.length() + body.length());
+        assertThat(stats.skippedPercent()).isGreaterThan(30);
+    }
+
+    @Test
+    void testDifferentBodiesAreAnalyzedEntirely() {
+        NearDuplicateDetector detector = new NearDuplicateDetector(3);
+        String body = page("apple");
+        detector.regionToAnalyze("GET test.com/search", body);
+
+        String other = page("pear");
+        assertThat(detector.regionToAnalyze("GET test.com/other", other))
+                .as("Another endpoint")
+                .isEqualTo(new NearDuplicateDetector.Region(0, other.length()));
+
+        String different = "lorem ipsum dolor sit amet consectetur ".repeat(50);
+        assertThat(detector.regionToAnalyze("GET test.com/search", different))
+                .isEqualTo(new NearDuplicateDetector.Region(0, different.length()));
+
+        assertThat(detector.regionToAnalyze("GET test.com/search", "short"))
+                .isEqualTo(new NearDuplicateDetector.Region(0, 5));
+        assertThat(detector.getStats().nearDuplicates()).isZero();
+    }
+
+    @Test
+    void testBodiesAreComparedConcurrently() throws InterruptedException {
+        NearDuplicateDetector detector = new NearDuplicateDetector(3);
+        String reference = page("apple");
+        detector.regionToAnalyze("GET test.com/search", reference);
+
+        List<Thread> threads = new ArrayList<>();
+        AtomicInteger payloadsSkipped = new AtomicInteger();
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    String body = page("payload-" + thread + "-" + i);
+                    NearDuplicateDetector.Region region = detector.regionToAnalyze("GET test.com/search", body);
+                    if (!body.substring(region.start(), region.end()).contains("payload-" + thread + "-" + i)) {
+                        payloadsSkipped.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) thread.join();
+
+        assertThat(payloadsSkipped.get()).isZero();
+        NearDuplicateDetector.Stats stats = detector.getStats();
+        assertThat(stats.checked()).isEqualTo(201);
+        assertThat(stats.nearDuplicates()).isEqualTo(200);
+    }
+
+    @Test
+    void testRegionMatchesAreMatchesOfTheWholeBody() {
+        String secret = "secret_" + "k".repeat(32);
+        // the secret straddles the end of the region, the token its start
+        String body = "a".repeat(990) + " token_123 " + "b".repeat(1000) + secret + " " + "c".repeat(1000);
+        NearDuplicateDetector.Region region = new NearDuplicateDetector.Region(995, 2010);
+        int secretStart = body.indexOf(secret);
+
+        assertThat(NearDuplicateDetector.matches(Pattern.compile("secret_[a-z]{32}"), body, region))
+                .containsExactly(new ParallelMatcher.Span(secretStart, secretStart + secret.length()));
+        assertThat(NearDuplicateDetector.matches(Pattern.compile("secret_[a-z]+"), body, region))
+                .containsExactly(new ParallelMatcher.Span(secretStart, secretStart + secret.length()));
+        assertThat(NearDuplicateDetector.matches(Pattern.compile("\\b[a-z]+_[0-9]+\\b"), body, region))
+                .as("The region starts in the middle of the token").isEmpty();
+        assertThat(NearDuplicateDetector.matches(Pattern.compile("^b+"), body, region))
+                .as("The start of the region is not the start of the input").isEmpty();
+        assertThat(NearDuplicateDetector.matches(Pattern.compile("(?<=b)s\\w{3}"), body, region))
+                .containsExactly(new ParallelMatcher.Span(secretStart, secretStart + 4));
+    }
+
+    @Test
+    void testChangedRegionHasMargins() {
+        String reference = "a".repeat(1000) + "X" + "b".repeat(1000);
+        String body = "a".repeat(1000) + "YYY" + "b".repeat(1000);
+        assertThat(NearDuplicateDetector.changedRegion(reference, body))
+                .isEqualTo(new NearDuplicateDetector.Region(1000 - NearDuplicateDetector.MARGIN, 1003 + NearDuplicateDetector.MARGIN));
+        assertThat(NearDuplicateDetector.changedRegion(body, body).start())
+                .isEqualTo(NearDuplicateDetector.changedRegion(body, body).end() - NearDuplicateDetector.MARGIN);
+    }
+}
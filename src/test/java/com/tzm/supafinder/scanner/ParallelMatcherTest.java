@@ -0,0 +1,108 @@
+package com.tzm.supafinder.scanner;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParallelMatcherTest {
+    private final ParallelMatcher parallelMatcher = new ParallelMatcher(4);
+
+    @AfterEach
+    void tearDown() {
+        parallelMatcher.shutdown();
+    }
+
+    private static List<ParallelMatcher.Span> sequentialMatches(Pattern pattern, String content) {
+        return pattern.matcher(content).results().map(result -> new ParallelMatcher.Span(result.start(), result.end())).toList();
+    }
+
+    private static String randomContent(int length, String alphabet, long seed) {
+        Random random = new Random(seed);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+
+    @Test
+    void testChunkedMatchesEqualSequentialMatches() {
+        String content = randomContent(3 * ParallelMatcher.SPLIT_SECTION_THRESHOLD + 12345, "abcdefgh =\"\n", 7);
+        List<Pattern> patterns = List.of(
+                Pattern.compile("abc"),
+                Pattern.compile("[a-h]{3,40}"),
+                Pattern.compile("(?<=a)b+"),
+                Pattern.compile("\\bdef\\b"),
+                Pattern.compile("\"[^\"]*\""),
+                Pattern.compile("(?m)^h.{0,5}"));
+
+        for (Pattern pattern : patterns) {
+            assertThat(parallelMatcher.matches(pattern, content).toList())
+                    .as(pattern.pattern())
+                    .isEqualTo(sequentialMatches(pattern, content));
+        }
+    }
+
+    @Test
+    void testMatchesLongerThanTheChunkOverlap() {
+        // long runs of the same character cross multiple chunk boundaries
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 2 * ParallelMatcher.SPLIT_SECTION_THRESHOLD) {
+            builder.append("x".repeat(100_000)).append(' ').append("y".repeat(7)).append(' ');
+        }
+        String content = builder.toString();
+        Pattern pattern = Pattern.compile("x+|y+");
+
+        assertThat(parallelMatcher.matches(pattern, content).toList()).isEqualTo(sequentialMatches(pattern, content));
+    }
+
+    @Test
+    void testLazyMatchesEndingFarPastTheChunk() {
+        // the terminator of the match is further than the chunk overlap, wherever the match starts
+        Pattern pattern = Pattern.compile("-----BEGIN KEY-----[\\s\\S]*?-----END KEY-----");
+        String block = "-----BEGIN KEY-----" + randomContent(40_000, "ABCDEFGH0123456789\n", 3) + "-----END KEY-----";
+        Random random = new Random(11);
+        for (int i = 0; i < 8; i++) {
+            int position = ParallelMatcher.SPLIT_SECTION_THRESHOLD - 30_000 + random.nextInt(60_000);
+            String content = randomContent(position, "abcdefgh \n", i)
+                    + block
+                    + randomContent(ParallelMatcher.SPLIT_SECTION_THRESHOLD, "abcdefgh \n", i + 100);
+
+            assertThat(parallelMatcher.matches(pattern, content).toList())
+                    .as("block at " + position)
+                    .containsExactly(new ParallelMatcher.Span(position, position + block.length()));
+        }
+    }
+
+    @Test
+    void testNonMatchingContentIsSearchedOnce() {
+        // a failed search always reaches the end of its region: it must not be repeated for every chunk
+        String content = randomContent(16 * ParallelMatcher.SPLIT_SECTION_THRESHOLD, "abcdefgh \n", 5);
+
+        assertThat(parallelMatcher.matches(Pattern.compile("secret_[0-9]{32}"), content)).isEmpty();
+        assertThat(parallelMatcher.getSectionSearches()).isZero();
+
+        assertThat(parallelMatcher.matches(Pattern.compile("secret_[0-9]+"), content)).isEmpty();
+        assertThat(parallelMatcher.getSectionSearches()).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    void testSmallContentIsNotSplit() {
+        Pattern pattern = Pattern.compile("b");
+        assertThat(parallelMatcher.matches(pattern, "abcabc").toList())
+                .containsExactly(new ParallelMatcher.Span(1, 2), new ParallelMatcher.Span(4, 5));
+    }
+
+    @Test
+    void testMapSlicedKeepsOrder() {
+        List<Integer> items = IntStream.range(0, 103).boxed().toList();
+        assertThat(parallelMatcher.mapSliced(items, item -> item * 2))
+                .isEqualTo(items.stream().map(item -> item * 2).toList());
+    }
+}
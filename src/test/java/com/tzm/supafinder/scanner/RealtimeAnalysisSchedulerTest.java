@@ -0,0 +1,128 @@
+package com.tzm.supafinder.scanner;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class RealtimeAnalysisSchedulerTest {
+    private final CountDownLatch blockWorkers = new CountDownLatch(1);
+    private RealtimeAnalysisScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        blockWorkers.countDown();
+        if (scheduler != null) scheduler.shutdown();
+    }
+
+    private Runnable blockingTask(CountDownLatch started) {
+        return () -> {
+            started.countDown();
+            try {
+                blockWorkers.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    @Test
+    void testAllTasksCompleted() {
+        scheduler = new RealtimeAnalysisScheduler(4, 100, RealtimeAnalysisScheduler.OverflowPolicy.DROP_NEWEST, false);
+        AtomicInteger executed = new AtomicInteger();
+        for (int i = 0; i < 50; i++) {
+            scheduler.submit(executed::incrementAndGet);
+        }
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> scheduler.getStats().completed() == 50);
+        RealtimeAnalysisScheduler.Stats stats = scheduler.getStats();
+        assertThat(executed.get()).isEqualTo(50);
+        assertThat(stats.submitted()).isEqualTo(50);
+        assertThat(stats.rejected()).isZero();
+        assertThat(stats.maxLatencyMillis()).isGreaterThanOrEqualTo(stats.avgLatencyMillis());
+    }
+
+    @Test
+    void testDropNewest() throws InterruptedException {
+        scheduler = new RealtimeAnalysisScheduler(1, 2, RealtimeAnalysisScheduler.OverflowPolicy.DROP_NEWEST, false);
+        CountDownLatch started = new CountDownLatch(1);
+        List<Integer> executed = new CopyOnWriteArrayList<>();
+        scheduler.submit(blockingTask(started));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        for (int i = 0; i < 5; i++) {
+            int id = i;
+            scheduler.submit(() -> executed.add(id));
+        }
+        assertThat(scheduler.getStats().queueDepth()).isEqualTo(2);
+        assertThat(scheduler.getStats().rejected()).isEqualTo(3);
+
+        blockWorkers.countDown();
+        await().atMost(Duration.ofSeconds(5)).until(() -> executed.size() == 2);
+        assertThat(executed).containsExactly(0, 1);
+    }
+
+    @Test
+    void testDropOldest() throws InterruptedException {
+        scheduler = new RealtimeAnalysisScheduler(1, 2, RealtimeAnalysisScheduler.OverflowPolicy.DROP_OLDEST, false);
+        CountDownLatch started = new CountDownLatch(1);
+        List<Integer> executed = new CopyOnWriteArrayList<>();
+        scheduler.submit(blockingTask(started));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        for (int i = 0; i < 5; i++) {
+            int id = i;
+            scheduler.submit(() -> executed.add(id));
+        }
+        assertThat(scheduler.getStats().rejected()).isEqualTo(3);
+
+        blockWorkers.countDown();
+        await().atMost(Duration.ofSeconds(5)).until(() -> executed.size() == 2);
+        assertThat(executed).containsExactly(3, 4);
+    }
+
+    @Test
+    void testCallerRuns() throws InterruptedException {
+        scheduler = new RealtimeAnalysisScheduler(1, 1, RealtimeAnalysisScheduler.OverflowPolicy.CALLER_RUNS, false);
+        CountDownLatch started = new CountDownLatch(1);
+        scheduler.submit(blockingTask(started));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        scheduler.submit(() -> {
+        });
+
+        Thread caller = Thread.currentThread();
+        AtomicInteger executedByCaller = new AtomicInteger();
+        scheduler.submit(() -> {
+            if (Thread.currentThread() == caller) executedByCaller.incrementAndGet();
+        });
+        assertThat(executedByCaller.get()).isEqualTo(1);
+        assertThat(scheduler.getStats().rejected()).isZero();
+    }
+
+    @Test
+    void testFailuresAreCounted() {
+        scheduler = new RealtimeAnalysisScheduler(2, 10, RealtimeAnalysisScheduler.OverflowPolicy.DROP_NEWEST, false);
+        scheduler.submit(() -> {
+            throw new IllegalStateException("test");
+        });
+        scheduler.submit(() -> {
+        });
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> scheduler.getStats().completed() == 2);
+        assertThat(scheduler.getStats().failed()).isEqualTo(1);
+    }
+
+    @Test
+    void testVirtualThreadsFallback() {
+        scheduler = new RealtimeAnalysisScheduler(1, 1, RealtimeAnalysisScheduler.OverflowPolicy.DROP_NEWEST, true);
+        assertThat(scheduler.isUsingVirtualThreads()).isEqualTo(RealtimeAnalysisScheduler.isVirtualThreadsSupported());
+    }
+}
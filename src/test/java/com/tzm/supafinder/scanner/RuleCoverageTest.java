@@ -0,0 +1,53 @@
+package com.tzm.supafinder.scanner;
+
+import com.tzm.supafinder.mock.PersistedObjectMock;
+import com.tzm.supafinder.model.HttpSection;
+import com.tzm.supafinder.model.RegexEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RuleCoverageTest {
+    private final RegexEntity first = new RegexEntity("First", "first", true, HttpSection.ALL, "");
+    private final RegexEntity second = new RegexEntity("Second", "second", true, HttpSection.ALL, "");
+
+    @Test
+    void testOnlyMissingRulesArePlanned() {
+        RuleCoverage coverage = new RuleCoverage();
+        assertThat(coverage.plan(List.of(first), 0, 100)).containsExactly(new RuleCoverage.Segment(0, 100, List.of(first)));
+
+        coverage.markScanned(List.of(first), 0, 100);
+        assertThat(coverage.plan(List.of(first), 0, 100)).isEmpty();
+        assertThat(coverage.plan(List.of(first), 0, 150)).containsExactly(new RuleCoverage.Segment(100, 150, List.of(first)));
+        assertThat(coverage.plan(List.of(first, second), 0, 150)).containsExactly(
+                new RuleCoverage.Segment(0, 100, List.of(second)),
+                new RuleCoverage.Segment(100, 150, List.of(first, second)));
+
+        // an edited rule is a new rule
+        RegexEntity edited = new RegexEntity("First", "first|1st", true, HttpSection.ALL, "");
+        assertThat(coverage.plan(List.of(edited), 0, 100)).containsExactly(new RuleCoverage.Segment(0, 100, List.of(edited)));
+    }
+
+    @Test
+    void testRangesAreMergedAndSaved() {
+        RuleCoverage coverage = new RuleCoverage();
+        coverage.markScanned(List.of(first), 50, 100);
+        coverage.markScanned(List.of(first), 0, 20);
+        coverage.markScanned(List.of(first, second), 100, 120);
+        assertThat(coverage.plan(List.of(first), 0, 120)).containsExactly(new RuleCoverage.Segment(20, 50, List.of(first)));
+        coverage.markScanned(List.of(first), 20, 50);
+
+        PersistedObjectMock extensionData = new PersistedObjectMock();
+        coverage.save(extensionData);
+        assertThat(extensionData.getString("scan-rule-coverage")).contains(":0-120");
+        RuleCoverage loaded = RuleCoverage.load(extensionData);
+        assertThat(loaded.plan(List.of(first, second), 0, 120)).containsExactly(new RuleCoverage.Segment(0, 100, List.of(second)));
+
+        loaded.retainRules(List.of(second));
+        assertThat(loaded.plan(List.of(first, second), 0, 120)).containsExactly(
+                new RuleCoverage.Segment(0, 100, List.of(first, second)),
+                new RuleCoverage.Segment(100, 120, List.of(first)));
+    }
+}
@@ -0,0 +1,85 @@
+package com.tzm.supafinder.scanner;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScanWorkerPoolTest {
+    private final ScanWorkerPool pool = new ScanWorkerPool("Test-Worker-");
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void testBatchCompletion() throws Exception {
+        int workers = 4;
+        pool.setWorkers(workers);
+        AtomicInteger executed = new AtomicInteger();
+        AtomicInteger submitted = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        ScanWorkerPool.Batch batch = pool.newBatch();
+        for (int i = 0; i < 200; i++) {
+            assertThat(batch.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                // items submitted and not finished yet, seen by the worker
+                maxInFlight.accumulateAndGet(submitted.get() - executed.get(), Math::max);
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+                running.decrementAndGet();
+                executed.incrementAndGet();
+            })).isTrue();
+            submitted.incrementAndGet();
+        }
+        Instant endTime = batch.close().get(5, TimeUnit.SECONDS);
+
+        assertThat(executed.get()).isEqualTo(200);
+        assertThat(endTime).isBeforeOrEqualTo(Instant.now());
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(workers);
+        assertThat(maxInFlight.get()).as("Submission is paced by the workers")
+                .isLessThanOrEqualTo(workers * ScanWorkerPool.ITEMS_IN_FLIGHT_PER_WORKER + workers);
+    }
+
+    @Test
+    void testEmptyBatch() throws Exception {
+        assertThat(pool.newBatch().close().get(1, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @Test
+    void testCancelledBatch() throws Exception {
+        pool.setWorkers(1);
+        AtomicInteger executed = new AtomicInteger();
+
+        ScanWorkerPool.Batch batch = pool.newBatch();
+        assertThat(batch.submit(executed::incrementAndGet)).isTrue();
+        batch.cancel();
+        assertThat(batch.submit(executed::incrementAndGet)).isFalse();
+        batch.close().get(5, TimeUnit.SECONDS);
+
+        assertThat(batch.isCancelled()).isTrue();
+        assertThat(executed.get()).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    void testPoolIsReusedAcrossBatches() throws Exception {
+        pool.setWorkers(2);
+        AtomicInteger executed = new AtomicInteger();
+        for (int round = 0; round < 3; round++) {
+            ScanWorkerPool.Batch batch = pool.newBatch();
+            for (int i = 0; i < 10; i++) batch.submit(executed::incrementAndGet);
+            batch.close().get(5, TimeUnit.SECONDS);
+        }
+        pool.setWorkers(1);
+        assertThat(pool.getWorkers()).isEqualTo(1);
+        assertThat(executed.get()).isEqualTo(30);
+    }
+}
@@ -0,0 +1,86 @@
+package com.tzm.supafinder.ui.table;
+
+import com.tzm.supafinder.mock.EvidenceCodecMock;
+import com.tzm.supafinder.mock.ProxyHttpRequestResponseMock;
+import com.tzm.supafinder.model.Evidence;
+import com.tzm.supafinder.model.EvidenceStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class EvidenceLoaderTest {
+    private final EvidenceStore evidenceStore = new EvidenceStore(1, new EvidenceCodecMock());
+    private final EvidenceLoader loader = new EvidenceLoader(Runnable::run);
+    private final List<Evidence> delivered = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        loader.shutdown();
+        evidenceStore.close();
+    }
+
+    private List<EvidenceStore.Handle> storeMessages(int count) {
+        return IntStream.range(0, count).mapToObj(i -> {
+            ProxyHttpRequestResponseMock message = new ProxyHttpRequestResponseMock("request " + i, "response " + i, "Mon, 01 Jan 1990 10:00:00 GMT");
+            return evidenceStore.store(message.finalRequest(), message.response());
+        }).toList();
+    }
+
+    @Test
+    void testMessagesAreLoadedInBackgroundWithNeighbours() {
+        List<EvidenceStore.Handle> handles = storeMessages(5);
+
+        assertThat(loader.load(handles.get(2), List.of(handles.get(3), handles.get(1)), delivered::add)).isFalse();
+        await().atMost(Duration.ofSeconds(5)).until(() -> loader.getIfLoaded(handles.get(1)) != null);
+
+        assertThat(delivered).hasSize(1);
+        assertThat(delivered.get(0).request()).isSameAs(handles.get(2).request());
+        assertThat(delivered.get(0)).isInstanceOf(Evidence.Pinned.class);
+        assertThat(loader.getIfLoaded(handles.get(3))).isNotNull();
+        assertThat(loader.getIfLoaded(handles.get(0))).isNull();
+
+        // a prefetched neighbour is delivered immediately
+        assertThat(loader.load(handles.get(3), List.of(), delivered::add)).isTrue();
+        assertThat(delivered).hasSize(2);
+
+        loader.clear();
+        assertThat(loader.getIfLoaded(handles.get(3))).isNull();
+    }
+
+    @Test
+    void testOnlyTheLastSelectionIsDelivered() {
+        List<EvidenceStore.Handle> handles = storeMessages(50);
+        // callbacks run after all the selections, as when the EDT is busy handling them
+        List<Runnable> callbacks = new CopyOnWriteArrayList<>();
+        EvidenceLoader deferredLoader = new EvidenceLoader(callbacks::add);
+
+        try {
+            for (EvidenceStore.Handle handle : handles) deferredLoader.load(handle, List.of(), delivered::add);
+            await().atMost(Duration.ofSeconds(5)).until(() -> {
+                while (!callbacks.isEmpty()) callbacks.remove(0).run();
+                return !delivered.isEmpty();
+            });
+        } finally {
+            deferredLoader.shutdown();
+        }
+
+        assertThat(delivered).hasSize(1);
+        assertThat(delivered.get(0).request()).isSameAs(handles.get(49).request());
+    }
+
+    @Test
+    void testPinnedMessagesAreDeliveredImmediately() {
+        ProxyHttpRequestResponseMock message = new ProxyHttpRequestResponseMock("request", "response", "Mon, 01 Jan 1990 10:00:00 GMT");
+        Evidence pinned = Evidence.of(message.finalRequest(), message.response());
+
+        assertThat(loader.load(pinned, List.of(), delivered::add)).isTrue();
+        assertThat(delivered).containsExactly(pinned);
+    }
+}
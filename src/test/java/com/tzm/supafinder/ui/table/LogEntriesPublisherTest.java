@@ -0,0 +1,124 @@
+package com.tzm.supafinder.ui.table;
+
+import com.tzm.supafinder.mock.ProxyHttpRequestResponseMock;
+import com.tzm.supafinder.model.HttpSection;
+import com.tzm.supafinder.model.LogEntity;
+import com.tzm.supafinder.model.LogEntriesManager;
+import com.tzm.supafinder.model.RegexEntity;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogEntriesPublisherTest {
+    private final RegexEntity regex = new RegexEntity("Match test string", "test.{0,10}", true, HttpSection.ALL, "");
+    private final ProxyHttpRequestResponseMock message = new ProxyHttpRequestResponseMock("testing", "testing", "Mon, 01 Jan 1990 10:00:00 GMT");
+
+    private LogEntity logEntity(String match) {
+        return new LogEntity(message.finalRequest(), message.response(), regex, HttpSection.RES_BODY, match);
+    }
+
+    @Test
+    void testFindingsArePublishedInBatches() throws InterruptedException {
+        LogEntriesManager logEntriesManager = new LogEntriesManager();
+        LogsTableModel logsTableModel = new LogsTableModel(logEntriesManager);
+        List<TableModelEvent> events = new ArrayList<>();
+        logsTableModel.addTableModelListener(events::add);
+        LogEntriesPublisher publisher = new LogEntriesPublisher(logEntriesManager, new Object(), logsTableModel, 10_000);
+
+        List<Thread> producers = IntStream.range(0, 4).mapToObj(t -> new Thread(() -> {
+            for (int i = 0; i < 50; i++) publisher.accept(logEntity("match-" + t + "-" + i));
+        })).toList();
+        producers.forEach(Thread::start);
+        for (Thread producer : producers) producer.join();
+        assertThat(logsTableModel.getRowCount()).as("Nothing is published before the flush").isZero();
+
+        publisher.flushAndWait();
+
+        assertThat(logEntriesManager.size()).isEqualTo(200);
+        assertThat(logsTableModel.getRowCount()).isEqualTo(200);
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getType()).isEqualTo(TableModelEvent.INSERT);
+        assertThat(events.get(0).getFirstRow()).isZero();
+        assertThat(events.get(0).getLastRow()).isEqualTo(199);
+        assertThat(publisher.getStats().flushes()).isEqualTo(1);
+        assertThat(publisher.getStats().publishedRows()).isEqualTo(200);
+        publisher.stop();
+    }
+
+    @Test
+    void testProducersWaitForTheConsumerWhenTheBufferIsFull() throws InterruptedException {
+        LogEntriesManager logEntriesManager = new LogEntriesManager();
+        LogsTableModel logsTableModel = new LogsTableModel(logEntriesManager);
+        LogEntriesPublisher publisher = new LogEntriesPublisher(logEntriesManager, new Object(), logsTableModel, 10_000);
+        int perProducer = LogEntriesPublisher.BUFFER_CAPACITY;
+
+        List<Thread> producers = IntStream.range(0, 4).mapToObj(t -> new Thread(() -> {
+            for (int i = 0; i < perProducer; i++) publisher.accept(logEntity("match-" + t + "-" + i));
+        })).toList();
+        producers.forEach(Thread::start);
+        for (Thread producer : producers) producer.join();
+        publisher.flushAndWait();
+
+        assertThat(logEntriesManager.size()).isEqualTo(4 * perProducer);
+        assertThat(logsTableModel.getRowCount()).isEqualTo(4 * perProducer);
+        // the findings of each producer are stored in the order they were produced
+        for (int t = 0; t < 4; t++) {
+            String prefix = "match-" + t + "-";
+            List<String> matches = logEntriesManager.getAll().stream()
+                    .map(LogEntity::getMatch)
+                    .filter(match -> match.startsWith(prefix))
+                    .toList();
+            assertThat(matches).isEqualTo(IntStream.range(0, perProducer).mapToObj(i -> prefix + i).toList());
+        }
+        assertThat(publisher.getStats().storedRows()).isEqualTo(4L * perProducer);
+        publisher.stop();
+    }
+
+    @Test
+    void testDuplicatesAreDiscarded() {
+        LogEntriesManager logEntriesManager = new LogEntriesManager();
+        LogsTableModel logsTableModel = new LogsTableModel(logEntriesManager);
+        LogEntriesPublisher publisher = new LogEntriesPublisher(logEntriesManager, new Object(), logsTableModel, 10_000);
+
+        publisher.accept(logEntity("a"));
+        publisher.accept(logEntity("a"));
+        publisher.accept(logEntity("b"));
+        publisher.flushAndWait();
+        publisher.accept(logEntity("b"));
+        publisher.accept(logEntity("c"));
+        publisher.flushAndWait();
+
+        assertThat(logEntriesManager.getAll()).containsExactly(logEntity("a"), logEntity("b"), logEntity("c"));
+        publisher.stop();
+    }
+
+    @Test
+    void testRestoredFindingsAreAddedByTheConsumer() {
+        LogEntriesManager logEntriesManager = new LogEntriesManager();
+        LogsTableModel logsTableModel = new LogsTableModel(logEntriesManager);
+        LogEntriesPublisher publisher = new LogEntriesPublisher(logEntriesManager, new Object(), logsTableModel, 10_000);
+        List<String> storingThreads = new ArrayList<>();
+        List<LogEntity> stored = new ArrayList<>();
+        logEntriesManager.subscribeChangeListener(size -> storingThreads.add(Thread.currentThread().getName()));
+        publisher.addStoredListener(stored::addAll);
+
+        publisher.accept(logEntity("a"));
+        publisher.flushAndWait();
+        List<LogEntity> restored = publisher.addAllAndWait(List.of(logEntity("a"), logEntity("b")));
+        publisher.flushAndWait();
+
+        assertThat(restored).containsExactly(logEntity("b"));
+        assertThat(logEntriesManager.getAll()).containsExactly(logEntity("a"), logEntity("b"));
+        assertThat(storingThreads).containsOnly("Findings-Consumer");
+        assertThat(stored).as("Restored findings are not journaled again").containsExactly(logEntity("a"));
+        assertThat(logsTableModel.getRowCount()).isEqualTo(2);
+
+        publisher.stop();
+        assertThat(publisher.addAllAndWait(List.of(logEntity("c")))).isEmpty();
+    }
+}
@@ -0,0 +1,120 @@
+package com.tzm.supafinder.ui.table;
+
+import com.tzm.supafinder.mock.ProxyHttpRequestResponseMock;
+import com.tzm.supafinder.model.HttpSection;
+import com.tzm.supafinder.model.LogEntity;
+import com.tzm.supafinder.model.LogEntriesManager;
+import com.tzm.supafinder.model.RegexEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.RowFilter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class LogsFilterEngineTest {
+    private static final Set<Integer> ALL_LEVELS = Set.of(0, 1, 2, 3, 4, 5);
+    private final RegexEntity regex = new RegexEntity("Generic Token", "token=\\w+", true, HttpSection.ALL, "");
+    private final ProxyHttpRequestResponseMock message = new ProxyHttpRequestResponseMock("testing", "testing", "Mon, 01 Jan 1990 10:00:00 GMT");
+    private final LogEntriesManager logEntriesManager = new LogEntriesManager();
+    private final List<RowFilter<LogsTableModel, Integer>> filters = new ArrayList<>();
+    private final LogsFilterEngine engine = new LogsFilterEngine(logEntriesManager, filters::add);
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    private LogEntity logEntity(String match) {
+        return new LogEntity(message.finalRequest(), message.response(), regex, HttpSection.RES_BODY, match);
+    }
+
+    private List<Integer> visibleRows(RowFilter<LogsTableModel, Integer> filter) {
+        LogsTableModel model = new LogsTableModel(logEntriesManager);
+        List<Integer> rows = new ArrayList<>();
+        for (int row = 0; row < model.getRowCount(); row++) {
+            final int identifier = row;
+            boolean include = filter.include(new RowFilter.Entry<>() {
+                @Override
+                public LogsTableModel getModel() {
+                    return model;
+                }
+
+                @Override
+                public int getValueCount() {
+                    return model.getColumnCount();
+                }
+
+                @Override
+                public Object getValue(int index) {
+                    return model.getValueAt(identifier, index);
+                }
+
+                @Override
+                public Integer getIdentifier() {
+                    return identifier;
+                }
+            });
+            if (include) rows.add(row);
+        }
+        return rows;
+    }
+
+    private List<Integer> expectedRows(LogsFilterEngine.Query query) {
+        List<LogEntity> entries = logEntriesManager.getAll();
+        return IntStream.range(0, entries.size()).filter(row -> query.matches(entries.get(row))).boxed().toList();
+    }
+
+    @Test
+    void testFilterOnlyAppliesTheLastQuery() {
+        IntStream.range(0, 1000).forEach(i -> logEntriesManager.add(logEntity("token=value" + i)));
+
+        for (String text : List.of("v", "va", "val", "valu", "value99")) {
+            engine.submit(new LogsFilterEngine.Query(text, true, true, true, false, ALL_LEVELS), 200);
+        }
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> !filters.isEmpty());
+        assertThat(filters).hasSize(1);
+        assertThat(visibleRows(filters.get(0))).containsExactly(99, 990, 991, 992, 993, 994, 995, 996, 997, 998, 999);
+    }
+
+    @Test
+    void testIndexedFilterEqualsFullScan() {
+        IntStream.range(0, 20_000).forEach(i -> logEntriesManager.add(logEntity("token=" + Integer.toHexString(i * 7919))));
+        LogsFilterEngine.Query query = new LogsFilterEngine.Query("ab1", false, true, false, false, ALL_LEVELS);
+
+        engine.submit(query, 0);
+        await().atMost(Duration.ofSeconds(5)).until(() -> !filters.isEmpty());
+
+        assertThat(visibleRows(filters.get(0))).isNotEmpty().isEqualTo(expectedRows(query));
+    }
+
+    @Test
+    void testRowsAddedAfterTheFilterAreEvaluated() {
+        logEntriesManager.add(logEntity("token=abc"));
+        logEntriesManager.add(logEntity("token=abc"));
+        logEntriesManager.add(logEntity("token=def"));
+        engine.submit(new LogsFilterEngine.Query("abc", true, true, true, true, ALL_LEVELS), 0);
+        await().atMost(Duration.ofSeconds(5)).until(() -> !filters.isEmpty());
+
+        logEntriesManager.add(logEntity("token=abcd"));
+        logEntriesManager.add(logEntity("token=abc"));
+
+        assertThat(visibleRows(filters.get(0))).containsExactly(0, 3);
+    }
+
+    @Test
+    void testImportanceLevelsAreFiltered() {
+        logEntriesManager.add(logEntity("token=abc"));
+        engine.submit(new LogsFilterEngine.Query("", true, true, true, false, Set.of(5)), 0);
+        await().atMost(Duration.ofSeconds(5)).until(() -> !filters.isEmpty());
+
+        assertThat(visibleRows(filters.get(0))).isEmpty();
+    }
+}
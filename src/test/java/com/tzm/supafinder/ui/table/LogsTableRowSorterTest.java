@@ -0,0 +1,180 @@
+package com.tzm.supafinder.ui.table;
+
+import com.tzm.supafinder.mock.ProxyHttpRequestResponseMock;
+import com.tzm.supafinder.model.HttpSection;
+import com.tzm.supafinder.model.LogEntity;
+import com.tzm.supafinder.model.LogEntriesManager;
+import com.tzm.supafinder.model.RegexEntity;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.RowFilter;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.event.RowSorterEvent;
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogsTableRowSorterTest {
+    private final ProxyHttpRequestResponseMock message = new ProxyHttpRequestResponseMock("testing", "testing", "Mon, 01 Jan 1990 10:00:00 GMT");
+    private final LogEntriesManager logEntriesManager = new LogEntriesManager();
+    private final LogsTableModel model = new LogsTableModel(logEntriesManager);
+    private final LogsTableRowSorter sorter = new LogsTableRowSorter(model, logEntriesManager);
+
+    private static RegexEntity regex(int importance) {
+        return new RegexEntity("Rule " + importance, "secret", true, HttpSection.ALL, null, null, null, null, importance, false, null, false, false, null);
+    }
+
+    private LogEntity logEntity(String match, int importance) {
+        return new LogEntity(message.finalRequest(), message.response(), regex(importance), HttpSection.RES_BODY, match);
+    }
+
+    private void append(List<LogEntity> entries) {
+        int first = logEntriesManager.size();
+        logEntriesManager.addAll(entries);
+        model.publishNewRows();
+        sorter.rowsInserted(first, logEntriesManager.size() - 1);
+    }
+
+    private List<Integer> viewRows() {
+        return IntStream.range(0, sorter.getViewRowCount()).mapToObj(sorter::convertRowIndexToModel).toList();
+    }
+
+    /**
+     * Expected order: by key, then by model row
+     */
+    private List<Integer> expectedRows(Comparator<LogEntity> comparator) {
+        List<Integer> rows = new ArrayList<>(IntStream.range(0, logEntriesManager.size()).boxed().toList());
+        rows.sort(Comparator.comparing(logEntriesManager::get, comparator));
+        return rows;
+    }
+
+    @Test
+    void testImportanceIsSortedNumerically() {
+        append(IntStream.range(0, 60).mapToObj(i -> logEntity("m" + i, i % 6)).toList());
+
+        sorter.toggleSortOrder(LogsTableModel.Column.IMPORTANCE.getIndex());
+        assertThat(viewRows()).isEqualTo(expectedRows(Comparator.comparingInt(e -> e.getRegexEntity().getImportance())));
+        assertThat(model.getValueAt(viewRows().get(59), LogsTableModel.Column.IMPORTANCE.getIndex())).isEqualTo(5);
+        assertThat(model.getDisplayValueAt(viewRows().get(59), LogsTableModel.Column.IMPORTANCE.getIndex())).isEqualTo("Critical");
+
+        sorter.toggleSortOrder(LogsTableModel.Column.IMPORTANCE.getIndex());
+        assertThat(sorter.getSortKeys().get(0).getSortOrder()).isEqualTo(SortOrder.DESCENDING);
+        assertThat(viewRows()).isEqualTo(expectedRows(Comparator.comparingInt(e -> -e.getRegexEntity().getImportance())));
+    }
+
+    @Test
+    void testAppendedRowsAreMergedInOrder() {
+        Random random = new Random(42);
+        append(IntStream.range(0, 500).mapToObj(i -> logEntity("Match-" + random.nextInt(200), 1)).toList());
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(LogsTableModel.Column.MATCH.getIndex(), SortOrder.ASCENDING)));
+        List<RowSorterEvent> events = new ArrayList<>();
+        sorter.addRowSorterListener(events::add);
+
+        for (int batch = 0; batch < 10; batch++) {
+            append(IntStream.range(0, 100).mapToObj(i -> logEntity("match-" + random.nextInt(400), 1)).toList());
+        }
+
+        assertThat(events).hasSize(10).allMatch(event -> event.getType() == RowSorterEvent.Type.SORTED);
+        assertThat(viewRows()).isEqualTo(expectedRows(Comparator.comparing(e -> e.getMatch().toLowerCase())));
+        for (int row = 0; row < logEntriesManager.size(); row++) {
+            assertThat(sorter.convertRowIndexToModel(sorter.convertRowIndexToView(row))).isEqualTo(row);
+        }
+    }
+
+    @Test
+    void testNewTextsAreRankedBetweenKnownOnes() {
+        append(List.of(logEntity("a", 1), logEntity("b", 1)));
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(LogsTableModel.Column.MATCH.getIndex(), SortOrder.DESCENDING)));
+
+        // each text falls right after "a", in a gap that halves every time, until all the ranks are spaced out again
+        String text = "a";
+        for (int i = 0; i < 100; i++) {
+            text = text + "a";
+            append(List.of(logEntity(text, 1)));
+        }
+        append(IntStream.range(0, 100).mapToObj(i -> logEntity("z" + i, 1)).toList());
+
+        assertThat(viewRows()).isEqualTo(expectedRows(Comparator.comparing(e -> e.getMatch().toLowerCase(), Comparator.reverseOrder())));
+    }
+
+    @Test
+    void testRemovedRowsAreDroppedFromTheOrder() {
+        Random random = new Random(7);
+        append(IntStream.range(0, 1000).mapToObj(i -> logEntity("match-" + random.nextInt(300), i % 6)).toList());
+        sorter.setRowFilter(new RowFilter<>() {
+            @Override
+            public boolean include(Entry<? extends LogsTableModel, ? extends Integer> entry) {
+                return (Integer) entry.getValue(LogsTableModel.Column.IMPORTANCE.getIndex()) > 0;
+            }
+        });
+        sorter.toggleSortOrder(LogsTableModel.Column.MATCH.getIndex());
+        model.addTableModelListener(event -> {
+            if (event.getType() == TableModelEvent.DELETE) sorter.rowsDeleted(event.getFirstRow(), event.getLastRow());
+            else sorter.allRowsChanged();
+        });
+
+        BitSet removed = new BitSet();
+        List<LogEntity> entries = logEntriesManager.getAll();
+        for (int row = 0; row < entries.size(); row++) {
+            if (entries.get(row).getMatch().endsWith("7")) removed.set(row);
+        }
+        logEntriesManager.removeIf(entry -> entry.getMatch().endsWith("7"));
+        model.fireTableRowsDeleted(removed);
+
+        List<Integer> expected = expectedRows(Comparator.comparing(e -> e.getMatch().toLowerCase())).stream()
+                .filter(row -> logEntriesManager.get(row).getRegexEntity().getImportance() > 0)
+                .toList();
+        assertThat(sorter.getModelRowCount()).isEqualTo(1000 - removed.cardinality());
+        assertThat(viewRows()).isEqualTo(expected);
+
+        Set<LogEntity> firstRows = Collections.newSetFromMap(new IdentityHashMap<>());
+        firstRows.addAll(logEntriesManager.getRange(0, 10));
+        logEntriesManager.removeIf(firstRows::contains);
+        model.fireTableRowsDeleted(0, 9);
+        assertThat(viewRows()).isEqualTo(expectedRows(Comparator.comparing(e -> e.getMatch().toLowerCase())).stream()
+                .filter(row -> logEntriesManager.get(row).getRegexEntity().getImportance() > 0)
+                .toList());
+    }
+
+    @Test
+    void testFilterAndSort() {
+        append(IntStream.range(0, 100).mapToObj(i -> logEntity("m" + (99 - i), i % 3)).toList());
+        sorter.setRowFilter(new RowFilter<>() {
+            @Override
+            public boolean include(Entry<? extends LogsTableModel, ? extends Integer> entry) {
+                return (Integer) entry.getValue(LogsTableModel.Column.IMPORTANCE.getIndex()) == 2;
+            }
+        });
+        assertThat(sorter.getViewRowCount()).isEqualTo(33);
+
+        sorter.toggleSortOrder(LogsTableModel.Column.MATCH.getIndex());
+        append(List.of(logEntity("m0", 2), logEntity("zz", 0)));
+
+        List<Integer> rows = viewRows();
+        assertThat(rows).hasSize(34);
+        assertThat(rows).allMatch(row -> logEntriesManager.get(row).getRegexEntity().getImportance() == 2);
+        assertThat(rows.get(0)).isEqualTo(100);
+        assertThat(sorter.convertRowIndexToView(101)).isEqualTo(-1);
+
+        sorter.setRowFilter(null);
+        sorter.setSortKeys(null);
+        assertThat(viewRows()).isEqualTo(IntStream.range(0, 102).boxed().toList());
+    }
+
+    @Test
+    void testUrlSortKeyIgnoresTheScheme() {
+        assertThat(LogsTableRowSorter.urlSortKey("HTTPS://Example.com/a")).isEqualTo("example.com/a");
+        assertThat(LogsTableRowSorter.urlSortKey("http://example.com/b")).isEqualTo("example.com/b");
+        assertThat(LogsTableRowSorter.urlSortKey("example")).isEqualTo("example");
+    }
+}
@@ -0,0 +1,62 @@
+package com.tzm.supafinder.ui.table;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MpscRingBufferTest {
+
+    @Test
+    void testCapacityIsBounded() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(5);
+        assertThat(buffer.capacity()).isEqualTo(8);
+
+        for (int i = 0; i < 8; i++) assertThat(buffer.offer(i)).isTrue();
+        assertThat(buffer.offer(8)).as("The buffer is full").isFalse();
+        assertThat(buffer.size()).isEqualTo(8);
+
+        assertThat(buffer.poll()).isZero();
+        assertThat(buffer.offer(8)).isTrue();
+        List<Integer> drained = new ArrayList<>();
+        assertThat(buffer.drainTo(drained, 100)).isEqualTo(8);
+        assertThat(drained).containsExactly(1, 2, 3, 4, 5, 6, 7, 8);
+        assertThat(buffer.poll()).isNull();
+        assertThat(buffer.isEmpty()).isTrue();
+        assertThat(buffer.offeredCount()).isEqualTo(9);
+    }
+
+    @Test
+    void testConcurrentProducers() throws InterruptedException {
+        MpscRingBuffer<Long> buffer = new MpscRingBuffer<>(1024);
+        int producersCount = 4;
+        int perProducer = 10_000;
+        List<Thread> producers = IntStream.range(0, producersCount).mapToObj(p -> new Thread(() -> {
+            for (int i = 0; i < perProducer; i++) {
+                // yield while the buffer is full, so the consumer runs even on a single core
+                while (!buffer.offer(((long) p << 32) | i)) Thread.yield();
+            }
+        })).toList();
+        producers.forEach(Thread::start);
+
+        List<Long> received = new ArrayList<>(producersCount * perProducer);
+        while (received.size() < producersCount * perProducer) {
+            if (buffer.drainTo(received, 1024) == 0) Thread.yield();
+        }
+        for (Thread producer : producers) producer.join();
+
+        // every element is received once, in the order of its producer
+        int[] next = new int[producersCount];
+        boolean ordered = true;
+        for (long value : received) {
+            int producer = (int) (value >>> 32);
+            ordered &= (int) value == next[producer]++;
+        }
+        assertThat(ordered).isTrue();
+        assertThat(next).containsOnly(perProducer);
+        assertThat(buffer.poll()).isNull();
+    }
+}
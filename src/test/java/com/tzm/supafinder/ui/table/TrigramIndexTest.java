@@ -0,0 +1,51 @@
+package com.tzm.supafinder.ui.table;
+
+import com.tzm.supafinder.mock.ProxyHttpRequestResponseMock;
+import com.tzm.supafinder.model.HttpSection;
+import com.tzm.supafinder.model.LogEntity;
+import com.tzm.supafinder.model.RegexEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrigramIndexTest {
+    private final RegexEntity regex = new RegexEntity("Generic Token", "token=\\w+", true, HttpSection.ALL, "");
+    private final ProxyHttpRequestResponseMock message = new ProxyHttpRequestResponseMock("testing", "testing", "Mon, 01 Jan 1990 10:00:00 GMT");
+
+    private LogEntity logEntity(String match) {
+        return new LogEntity(message.finalRequest(), message.response(), regex, HttpSection.RES_BODY, match);
+    }
+
+    @Test
+    void testCandidatesContainAllTrigrams() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(List.of(logEntity("token=ABCDEF"), logEntity("password=xyz"), logEntity("TOKEN=abc")));
+
+        assertThat(index.candidates("abc")).containsExactly(0, 2);
+        assertThat(index.candidates("xyz")).containsExactly(1);
+        assertThat(index.candidates("generic tok")).containsExactly(0, 1, 2);
+        assertThat(index.candidates("missing")).isEmpty();
+        assertThat(index.candidates("ab")).as("Too short for the index").isNull();
+    }
+
+    @Test
+    void testIncrementalUpdatesAndRebuild() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(List.of(logEntity("first-value")));
+        index.add(List.of(logEntity("second-value")));
+
+        assertThat(index.getIndexedRows()).isEqualTo(2);
+        assertThat(index.candidates("second")).containsExactly(1);
+        assertThat(index.isStale(0)).isFalse();
+
+        // the first finding is removed
+        assertThat(index.isStale(1)).isTrue();
+        index.reset(1);
+        index.add(List.of(logEntity("second-value")));
+        assertThat(index.getIndexedRows()).isEqualTo(1);
+        assertThat(index.candidates("second")).containsExactly(0);
+        assertThat(index.candidates("first")).isEmpty();
+    }
+}
@@ -0,0 +1,43 @@
+package com.tzm.supafinder.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HashUtilsTest {
+
+    private static long[] hash(String input, long seed) {
+        return HashUtils.murmur3x64_128(input.getBytes(StandardCharsets.UTF_8), seed);
+    }
+
+    @Test
+    void testMurmur3ReferenceValues() {
+        assertThat(hash("", 0)).containsExactly(0L, 0L);
+        assertThat(hash("hell", 0)).containsExactly(0x629942693e10f867L, 0x92db0b82baeb5347L);
+        assertThat(hash("hello", 1)).containsExactly(0xa78ddff5adae8d10L, 0x128900ef20900135L);
+        assertThat(hash("The quick brown fox jumps over the lazy dog", 0))
+                .containsExactly(0xe34bbc7bbc071b6cL, 0x7a433ca9c49a9347L);
+    }
+
+    @Test
+    void testCharsAreHashedAsUtf16() {
+        String text = "prefix \u00e8\u4e2d The quick brown fox jumps over the lazy dog";
+        for (int end = 7; end <= text.length(); end++) {
+            byte[] bytes = text.substring(7, end).getBytes(StandardCharsets.UTF_16LE);
+            assertThat(HashUtils.murmur3x64_128(text, 7, end, 3)).containsExactly(HashUtils.murmur3x64_128(bytes, 3));
+        }
+    }
+
+    @Test
+    void testFieldsAreLengthPrefixed() {
+        byte[] first = new HashUtils.FieldsWriter().add("ab").add("c").toBytes();
+        byte[] second = new HashUtils.FieldsWriter().add("a").add("bc").toBytes();
+        byte[] withNull = new HashUtils.FieldsWriter().add(null).add("abc").toBytes();
+        byte[] withEmpty = new HashUtils.FieldsWriter().add("").add("abc").toBytes();
+
+        assertThat(first).isNotEqualTo(second);
+        assertThat(withNull).isNotEqualTo(withEmpty);
+    }
+}
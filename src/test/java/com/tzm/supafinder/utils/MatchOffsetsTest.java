@@ -0,0 +1,41 @@
+package com.tzm.supafinder.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MatchOffsetsTest {
+
+    @Test
+    void testCharToByteOffset() {
+        String text = "aé€😀b";
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+        for (int i = 0; i <= text.length(); i = i < text.length() ? text.offsetByCodePoints(i, 1) : i + 1) {
+            assertThat(MatchOffsets.charToByteOffset(bytes, 0, i))
+                    .isEqualTo(text.substring(0, i).getBytes(StandardCharsets.UTF_8).length);
+        }
+        assertThat(MatchOffsets.charToByteOffset(bytes, 0, 100)).isEqualTo(bytes.length);
+    }
+
+    @Test
+    void testCharToByteOffsetWithInvalidBytes() {
+        byte[] bytes = {'a', (byte) 0xC3, 'b', (byte) 0xFF, 'c'};
+        String decoded = BurpUtils.convertBytesToString(bytes);
+
+        assertThat(decoded).hasSize(5);
+        assertThat(MatchOffsets.charToByteOffset(bytes, 0, decoded.indexOf('c'))).isEqualTo(4);
+    }
+
+    @Test
+    void testOffsetsFromSectionStart() {
+        byte[] raw = "HTTP/1.1 200 OK\r\nServer: test\r\n\r\nbody".getBytes(StandardCharsets.UTF_8);
+        int headers = MatchOffsets.headersOffset(raw);
+
+        assertThat(headers).isEqualTo(17);
+        assertThat(MatchOffsets.charToByteOffset(raw, headers, "Server: ".length())).isEqualTo(25);
+        assertThat(MatchOffsets.headersOffset("no line".getBytes(StandardCharsets.UTF_8))).isEqualTo(-1);
+    }
+}